@@ -0,0 +1,73 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.anomaly.AnomalyEngine;
+import com.example.sobti.core.anomaly.PersonalBaseline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Samples per second through the standard rule set. The trace mixes the
+// watch test mode's normal wander with climb and fall episodes, so rules
+// fire and the cooldown path is exercised too. gc.alloc.rate.norm should
+// stay at zero.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AnomalyEngineBenchmark {
+
+    private static final int TRACE_LENGTH = 4_096;
+
+    private final long[] timestamps = new long[TRACE_LENGTH];
+    private final int[] heartRates = new int[TRACE_LENGTH];
+    private AnomalyEngine engine;
+    private long anomalies;
+    private long offset;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int heartRate = 75;
+        int episode = 0;
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            if (episode == 0 && random.nextInt(20) == 0) {
+                episode = random.nextBoolean() ? 5 : -5;
+            }
+            if (episode > 0) {
+                heartRate += random.nextInt(8) + 5;
+                episode--;
+            } else if (episode < 0) {
+                heartRate -= random.nextInt(8) + 5;
+                episode++;
+            } else {
+                heartRate += random.nextInt(11) - 5;
+                if (heartRate < 60) heartRate = 60 + random.nextInt(10);
+                if (heartRate > 100) heartRate = 90 + random.nextInt(10);
+            }
+            timestamps[i] = i * 3_000L;
+            heartRates[i] = heartRate;
+        }
+        engine = AnomalyEngine.standard(PersonalBaseline.forAge(40),
+                (rule, timestamp, hr, value) -> anomalies++);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRACE_LENGTH)
+    public void replayTrace(Blackhole blackhole) {
+        // Keep time moving forward across invocations
+        long base = offset;
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            blackhole.consume(engine.onSample(base + timestamps[i], heartRates[i]));
+        }
+        offset = base + TRACE_LENGTH * 3_000L;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.anomaly.AnomalyRule;
+import com.example.sobti.core.journal.SyncWatermark;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+import com.example.sobti.core.pipeline.HealthPipeline;
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.example.sobti.core.transport.SampleBatchCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One 30-sample watch batch through the phone's ingestion path: decode,
+// history chunking and the anomaly rules. The outbox discards records, so
+// this is the health thread's cost per batch. ingestBatchTimed adds the
+// pipeline.batch timer the app runs with.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HealthPipelineBenchmark {
+
+    private static final int BATCHES = 256;
+    private static final int BATCH_SAMPLES = 30;
+
+    private final byte[][] batches = new byte[BATCHES][];
+    private final Timer timer = new MetricsRegistry().timer("pipeline", "batch");
+    private HealthPipeline pipeline;
+    private SyncWatermark watermark;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        SampleRingBuffer buffer = new SampleRingBuffer(BATCH_SAMPLES);
+        int heartRate = 75;
+        long seq = 0;
+        for (int b = 0; b < BATCHES; b++) {
+            buffer.clear();
+            for (int i = 0; i < BATCH_SAMPLES; i++) {
+                heartRate = Math.max(55, Math.min(110, heartRate + random.nextInt(11) - 5));
+                buffer.add((seq + i) * 3_000L, heartRate, (int) (seq + i));
+            }
+            batches[b] = SampleBatchCodec.encode(buffer, seq, false);
+            seq += BATCH_SAMPLES;
+        }
+    }
+
+    @Benchmark
+    public int ingestBatch() {
+        return ingest(null);
+    }
+
+    @Benchmark
+    public int ingestBatchTimed() {
+        return ingest(timer);
+    }
+
+    private int ingest(Timer batchTimer) {
+        if (next == 0) {
+            // Sample time restarts with each pass, so the rules and the
+            // watermark start over too
+            pipeline = newPipeline();
+            pipeline.setBatchTimer(batchTimer);
+            watermark = new SyncWatermark(SyncWatermark.UNKNOWN);
+        }
+        int fresh = pipeline.onBatch(watermark, batches[next]);
+        next = (next + 1) % BATCHES;
+        return fresh;
+    }
+
+    private static HealthPipeline newPipeline() {
+        HealthPipeline pipeline = new HealthPipeline((record, urgent) -> { }, new HealthPipeline.Listener() {
+            @Override
+            public void onLatest(long timestamp, int heartRate, int steps) {
+            }
+
+            @Override
+            public void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value) {
+            }
+        }, 60);
+        pipeline.setEmail("asha@example.com");
+        return pipeline;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.text.MarkdownStripper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// GeminiClient's answer cleanup, over a whole answer and over the same
+// answer split into the small chunks the streaming API delivers.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MarkdownStripperBenchmark {
+
+    private static final int CHUNK_CHARS = 24;
+
+    private String answer;
+    private String[] chunks;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            text.append("**Tip ").append(i + 1).append(":** Keep your resting heart rate in check.\n")
+                    .append("* Walk for at least *20 minutes* after meals.\n")
+                    .append("* Stay hydrated and sleep 7-9 hours.\n");
+        }
+        answer = text.toString();
+        chunks = new String[(answer.length() + CHUNK_CHARS - 1) / CHUNK_CHARS];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = answer.substring(i * CHUNK_CHARS, Math.min(answer.length(), (i + 1) * CHUNK_CHARS));
+        }
+    }
+
+    @Benchmark
+    public String stripWholeAnswer() {
+        return MarkdownStripper.stripAll(answer);
+    }
+
+    @Benchmark
+    public void stripStreamedChunks(Blackhole blackhole) {
+        MarkdownStripper stripper = new MarkdownStripper();
+        for (String chunk : chunks) {
+            blackhole.consume(stripper.feed(chunk));
+        }
+        blackhole.consume(stripper.finish());
+    }
+}
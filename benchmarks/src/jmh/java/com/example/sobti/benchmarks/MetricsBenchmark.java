@@ -0,0 +1,90 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// What the metrics cost the code they measure. record is one histogram
+// update and timeCall adds the two nanoTime reads around a call; the
+// contended variant has four threads on one timer, like a busy dispatcher
+// class. Compare with HealthPipelineBenchmark's ingestBatch and
+// ingestBatchTimed for the overhead on the sample path. report is what the
+// debug screen and the rolling log pay per refresh, off the hot paths.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private static final int TIMERS = 24;
+
+    private MetricsRegistry registry;
+    private Timer timer;
+
+    // Latencies from 50us to about 5s, so records spread over the buckets
+    @State(Scope.Thread)
+    public static class Latencies {
+        final long[] values = new long[1024];
+        int next;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(11);
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (long) (50_000 * Math.pow(10, random.nextDouble() * 5));
+            }
+        }
+
+        long next() {
+            long value = values[next];
+            next = (next + 1) & (values.length - 1);
+            return value;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        registry = new MetricsRegistry();
+        Latencies latencies = new Latencies();
+        latencies.setUp();
+        for (int t = 0; t < TIMERS; t++) {
+            Timer each = registry.timer("client" + t, "call");
+            for (int i = 0; i < 1_000; i++) {
+                each.record(latencies.next());
+            }
+        }
+        timer = registry.timer("client0", "call");
+    }
+
+    @Benchmark
+    public void record(Latencies latencies) {
+        timer.record(latencies.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Latencies latencies) {
+        timer.record(latencies.next());
+    }
+
+    @Benchmark
+    public void timeCall() {
+        timer.stop(Timer.start());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public MetricsRegistry.Report report() {
+        return registry.report();
+    }
+}
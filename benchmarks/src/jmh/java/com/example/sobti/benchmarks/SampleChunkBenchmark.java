@@ -0,0 +1,107 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.sample.SampleSink;
+import com.example.sobti.core.timeseries.HistoryRecorder;
+import com.example.sobti.core.timeseries.SampleChunkDecoder;
+import com.example.sobti.core.timeseries.SampleChunkEncoder;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one history chunk: encoding it as HistoryRecorder does on every
+// flush, decoding all of it, and decoding the half a range query keeps.
+// Samples come once a second with a little jitter, heart rate wanders and
+// steps only climb, like a watch at rest. Times are per chunk; the
+// bytesPerSample counter is the stored size, header included.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SampleChunkBenchmark {
+
+    @Param({"60", "512"})
+    public int samples;
+
+    private final SampleChunkEncoder encoder = new SampleChunkEncoder();
+    private final Sum sum = new Sum();
+    private long[] timestamps;
+    private int[] heartRates;
+    private int[] steps;
+    private byte[] chunk;
+    private long middle;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public double bytesPerSample;
+    }
+
+    // Adds up what it is given, so the decode can't be optimised away
+    private static final class Sum implements SampleSink {
+        long total;
+
+        @Override
+        public void onSample(long seq, long timestamp, int heartRate, int steps) {
+            total += timestamp + heartRate + steps;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        timestamps = new long[samples];
+        heartRates = new int[samples];
+        steps = new int[samples];
+        long ts = HistoryRecorder.bucketStart(1_700_000_000_000L);
+        int hr = 70;
+        int stepCount = 4_000;
+        for (int i = 0; i < samples; i++) {
+            ts += 1_000 + random.nextInt(21) - 10;
+            hr = Math.max(45, Math.min(160, hr + random.nextInt(5) - 2));
+            stepCount += random.nextInt(3);
+            timestamps[i] = ts;
+            heartRates[i] = hr;
+            steps[i] = stepCount;
+        }
+        chunk = encode();
+        middle = timestamps[samples / 2];
+    }
+
+    @Benchmark
+    public byte[] encode(Size size) {
+        byte[] encoded = encode();
+        size.bytesPerSample = (double) encoded.length / samples;
+        return encoded;
+    }
+
+    @Benchmark
+    public long decode() {
+        sum.total = 0;
+        SampleChunkDecoder.decode(chunk, sum);
+        return sum.total;
+    }
+
+    @Benchmark
+    public long decodeRange() {
+        sum.total = 0;
+        SampleChunkDecoder.decode(chunk, middle, Long.MAX_VALUE, sum);
+        return sum.total;
+    }
+
+    private byte[] encode() {
+        encoder.reset();
+        for (int i = 0; i < samples; i++) {
+            encoder.append(timestamps[i], heartRates[i], steps[i]);
+        }
+        return encoder.toByteArray();
+    }
+}
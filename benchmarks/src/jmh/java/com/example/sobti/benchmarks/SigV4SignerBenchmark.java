@@ -0,0 +1,75 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.aws.Hex;
+import com.example.sobti.core.aws.SigV4Signer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Cost of signing a Bedrock invoke request as BedrockClient does, and of
+// the pieces it is built from: payload hashing, hex encoding and signing
+// key derivation, which the signer caches per day.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SigV4SignerBenchmark {
+
+    private static final String ACCESS_KEY = "AKIDEXAMPLE";
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    private static final long NOW = 1_700_000_000_000L;
+
+    private SigV4Signer signer;
+    private byte[] titanBody;
+    private byte[] digest;
+
+    @Setup
+    public void setUp() {
+        signer = new SigV4Signer("bedrock-runtime.us-east-1.amazonaws.com", "us-east-1", "bedrock",
+                "application/json");
+        // Same shape and size as BedrockClient's insight prompt
+        titanBody = ("{\"inputText\":\"You are an AI assistant providing health insights.\\n"
+                + "Analyze the following data and provide a short summary:\\nHeart Rate: 70-79 bpm\\n"
+                + "Steps: about 4000\\nLocation: 37.42, -122.08\",\"textGenerationConfig\":"
+                + "{\"maxTokenCount\":256,\"temperature\":0.7,\"topP\":1,\"stopSequences\":[]}}")
+                .getBytes(StandardCharsets.UTF_8);
+        digest = new byte[32];
+        for (int i = 0; i < digest.length; i++) {
+            digest[i] = (byte) (i * 37);
+        }
+    }
+
+    @Benchmark
+    public SigV4Signer.Signature signInvokeRequest() {
+        return signer.sign("POST", "/model/amazon.titan-text-express-v1/invoke", "", titanBody, NOW,
+                ACCESS_KEY, SECRET_KEY, null);
+    }
+
+    @Benchmark
+    public SigV4Signer.Signature signWithSessionToken() {
+        return signer.sign("POST", "/model/amazon.titan-text-express-v1/invoke", "", titanBody, NOW,
+                ACCESS_KEY, SECRET_KEY, "FwoGZXIvYXdzEXAMPLETOKEN");
+    }
+
+    @Benchmark
+    public String sha256Hex() {
+        return SigV4Signer.sha256Hex(titanBody);
+    }
+
+    @Benchmark
+    public byte[] deriveSigningKey() {
+        return SigV4Signer.deriveSigningKey(SECRET_KEY, "20231114", "us-east-1", "bedrock");
+    }
+
+    @Benchmark
+    public String hexEncode() {
+        return Hex.encode(digest);
+    }
+}
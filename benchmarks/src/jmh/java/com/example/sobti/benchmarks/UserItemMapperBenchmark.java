@@ -0,0 +1,151 @@
+package com.example.sobti.benchmarks;
+
+import com.example.sobti.core.mapping.ItemReader;
+import com.example.sobti.core.mapping.ItemWriter;
+import com.example.sobti.core.user.UserData;
+import com.example.sobti.core.user.UserDataMapper;
+import com.example.sobti.core.user.UserItemMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// DynamoDBManager's item mapping: reading a full user item, and building
+// the items for registerUser and a health update. A HashMap of strings
+// stands in for the SDK's AttributeValue map, so this measures the mapping
+// and not the SDK. The *Handwritten variants are the mapper as it was
+// before UserDataMapper was generated, kept as the baseline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserItemMapperBenchmark {
+
+    private static final class MapItem implements ItemReader, ItemWriter {
+        final Map<String, String> values;
+
+        MapItem(Map<String, String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public String string(String name) {
+            return values.get(name);
+        }
+
+        @Override
+        public String number(String name) {
+            return values.get(name);
+        }
+
+        @Override
+        public void putString(String name, String value) {
+            values.put(name, value);
+        }
+
+        @Override
+        public void putNumber(String name, long value) {
+            values.put(name, String.valueOf(value));
+        }
+    }
+
+    private MapItem stored;
+    private UserData user;
+
+    @Setup
+    public void setUp() {
+        user = new UserData();
+        user.email = "asha@example.com";
+        user.name = "Asha";
+        user.age = 34;
+        user.height = 170;
+        user.weight = 62;
+        user.emergencyNumber = "+15550100";
+        user.createdAt = 1_700_000_000_000L;
+        stored = new MapItem(new HashMap<>());
+        UserItemMapper.writeProfile(user, stored);
+        UserItemMapper.writeHealth(78, 4200, "37.421998, -122.084000", 1_700_000_100_000L, stored);
+    }
+
+    @Benchmark
+    public UserData parseUserData() {
+        return UserItemMapper.read(stored);
+    }
+
+    @Benchmark
+    public UserData parseUserDataHandwritten() {
+        return Handwritten.read(stored);
+    }
+
+    @Benchmark
+    public Map<String, String> buildRegisterItem() {
+        MapItem item = new MapItem(new HashMap<>(UserDataMapper.MAP_CAPACITY));
+        UserItemMapper.writeProfile(user, item);
+        return item.values;
+    }
+
+    @Benchmark
+    public Map<String, String> buildRegisterItemHandwritten() {
+        MapItem item = new MapItem(new HashMap<>());
+        Handwritten.writeProfile(user, item);
+        return item.values;
+    }
+
+    @Benchmark
+    public Map<String, String> buildHealthUpdate() {
+        MapItem item = new MapItem(new HashMap<>());
+        UserItemMapper.writeHealth(78, 4200, "37.421998, -122.084000", 1_700_000_100_000L, item);
+        return item.values;
+    }
+
+    private static final class Handwritten {
+        static UserData read(ItemReader item) {
+            UserData user = new UserData();
+            user.email = required(UserItemMapper.EMAIL, item.string(UserItemMapper.EMAIL));
+            user.name = required(UserItemMapper.NAME, item.string(UserItemMapper.NAME));
+            user.age = Integer.parseInt(required(UserItemMapper.AGE, item.number(UserItemMapper.AGE)));
+            user.height = Integer.parseInt(required(UserItemMapper.HEIGHT, item.number(UserItemMapper.HEIGHT)));
+            user.weight = Integer.parseInt(required(UserItemMapper.WEIGHT, item.number(UserItemMapper.WEIGHT)));
+            user.emergencyNumber = required(UserItemMapper.EMERGENCY_NUMBER,
+                    item.string(UserItemMapper.EMERGENCY_NUMBER));
+            String createdAt = item.number(UserItemMapper.CREATED_AT);
+            if (createdAt != null) {
+                user.createdAt = Long.parseLong(createdAt);
+            }
+            String heartRate = item.number(UserItemMapper.LAST_HEART_RATE);
+            if (heartRate != null) {
+                user.lastHeartRate = Integer.parseInt(heartRate);
+            }
+            String steps = item.number(UserItemMapper.LAST_STEPS);
+            if (steps != null) {
+                user.lastSteps = Integer.parseInt(steps);
+            }
+            user.lastLocation = item.string(UserItemMapper.LAST_LOCATION);
+            return user;
+        }
+
+        static void writeProfile(UserData user, ItemWriter item) {
+            item.putString(UserItemMapper.EMAIL, user.email);
+            item.putString(UserItemMapper.NAME, user.name);
+            item.putNumber(UserItemMapper.AGE, user.age);
+            item.putNumber(UserItemMapper.HEIGHT, user.height);
+            item.putNumber(UserItemMapper.WEIGHT, user.weight);
+            item.putString(UserItemMapper.EMERGENCY_NUMBER, user.emergencyNumber);
+            item.putNumber(UserItemMapper.CREATED_AT, user.createdAt);
+        }
+
+        private static String required(String name, String value) {
+            if (value == null) {
+                throw new IllegalArgumentException("User item has no " + name);
+            }
+            return value;
+        }
+    }
+}
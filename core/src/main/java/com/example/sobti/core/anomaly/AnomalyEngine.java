@@ -0,0 +1,102 @@
+package com.example.sobti.core.anomaly;
+
+// Runs every rule over each sample and reports at most one anomaly per
+// incident: after a report, further hits are counted but suppressed until
+// the cooldown has passed. Emergencies and the relative rules' warnings
+// have separate cooldowns, so a warning during exercise never holds back a
+// real emergency, and an emergency rule wins when both fire at once.
+// Nothing on the sample path allocates, so it can run per reading on the
+// phone or the watch.
+//
+// Not thread-safe; feed it from a single thread.
+public final class AnomalyEngine {
+
+    public interface Listener {
+        void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value);
+    }
+
+    public static final int WINDOW_SIZE = 40;
+    public static final long DEFAULT_COOLDOWN_MS = 5 * 60_000L;
+
+    private final AnomalyRule[] rules;
+    private final HeartRateWindow window;
+    private final long cooldownMs;
+    private final Listener listener;
+    private long lastEmergency = Long.MIN_VALUE;
+    private long lastWarning = Long.MIN_VALUE;
+    private long samples;
+    private long reported;
+    private long suppressed;
+
+    public AnomalyEngine(int windowSize, long cooldownMs, Listener listener, AnomalyRule... rules) {
+        this.window = new HeartRateWindow(windowSize);
+        this.cooldownMs = cooldownMs;
+        this.listener = listener;
+        this.rules = rules.clone();
+    }
+
+    // Rule set tuned for a reading every few seconds
+    public static AnomalyEngine standard(PersonalBaseline baseline, Listener listener) {
+        return new AnomalyEngine(WINDOW_SIZE, DEFAULT_COOLDOWN_MS, listener,
+                new SustainedThresholdRule(baseline.highLimit, baseline.lowLimit, 60_000L),
+                new RateOfChangeRule(40, 30_000L, 2),
+                new ZScoreRule(5.0, 20, 3, 4.0),
+                new EwmaBaselineRule(0.02, 20, baseline.highLimit, baseline.lowLimit));
+    }
+
+    // Returns true if an anomaly was reported for this sample. Readings of
+    // zero or less mean the sensor had no contact and are skipped.
+    public boolean onSample(long timestamp, int heartRate) {
+        if (heartRate <= 0) {
+            return false;
+        }
+        samples++;
+        AnomalyRule fired = null;
+        // Every rule sees every sample so their state stays current
+        for (AnomalyRule rule : rules) {
+            if (rule.test(timestamp, heartRate, window)
+                    && (fired == null || (rule.isEmergency() && !fired.isEmergency()))) {
+                fired = rule;
+            }
+        }
+        window.add(timestamp, heartRate);
+
+        if (fired == null) {
+            return false;
+        }
+        long last = fired.isEmergency() ? lastEmergency : lastWarning;
+        if (last != Long.MIN_VALUE && timestamp - last < cooldownMs) {
+            suppressed++;
+            return false;
+        }
+        if (fired.isEmergency()) {
+            lastEmergency = timestamp;
+        } else {
+            lastWarning = timestamp;
+        }
+        reported++;
+        listener.onAnomaly(fired, timestamp, heartRate, fired.lastValue());
+        return true;
+    }
+
+    public void reset() {
+        window.clear();
+        for (AnomalyRule rule : rules) {
+            rule.reset();
+        }
+        lastEmergency = Long.MIN_VALUE;
+        lastWarning = Long.MIN_VALUE;
+    }
+
+    public long sampleCount() {
+        return samples;
+    }
+
+    public long reportedCount() {
+        return reported;
+    }
+
+    public long suppressedCount() {
+        return suppressed;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.sobti.core.anomaly;
+
+// One detection strategy. test() sees the new sample plus the window of
+// samples before it, and runs on the sample path: implementations keep
+// their state in primitive fields and must not allocate.
+public interface AnomalyRule {
+
+    String name();
+
+    // Absolute rules compare readings against the user's limits and raise
+    // an emergency; relative ones only flag a change that is worth a closer
+    // look, since exercise trips them too
+    boolean isEmergency();
+
+    boolean test(long timestamp, int heartRate, HeartRateWindow history);
+
+    // The measurement behind the last positive test(), for logging
+    double lastValue();
+
+    void reset();
+}
@@ -0,0 +1,49 @@
+package com.example.sobti.core.anomaly;
+
+// Slow exponentially weighted average checked against the personal limits.
+// Catches drift that hovers around a limit and keeps resetting the
+// sustained-threshold rule.
+public final class EwmaBaselineRule implements AnomalyRule {
+
+    private final double alpha;
+    private final int minSamples;
+    private final int highLimit;
+    private final int lowLimit;
+    private double ewma;
+    private int samples;
+
+    public EwmaBaselineRule(double alpha, int minSamples, int highLimit, int lowLimit) {
+        this.alpha = alpha;
+        this.minSamples = minSamples;
+        this.highLimit = highLimit;
+        this.lowLimit = lowLimit;
+    }
+
+    @Override
+    public String name() {
+        return "ewma-baseline";
+    }
+
+    @Override
+    public boolean isEmergency() {
+        return true;
+    }
+
+    @Override
+    public boolean test(long timestamp, int heartRate, HeartRateWindow history) {
+        ewma = samples == 0 ? heartRate : ewma + alpha * (heartRate - ewma);
+        samples++;
+        return samples >= minSamples && (ewma > highLimit || ewma < lowLimit);
+    }
+
+    @Override
+    public double lastValue() {
+        return ewma;
+    }
+
+    @Override
+    public void reset() {
+        ewma = 0;
+        samples = 0;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sobti.core.anomaly;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+// Most recent samples with running sums, so mean and standard deviation
+// cost O(1) per sample.
+public final class HeartRateWindow {
+
+    private final SampleRingBuffer samples;
+    private double sum;
+    private double sumOfSquares;
+
+    public HeartRateWindow(int capacity) {
+        samples = new SampleRingBuffer(capacity);
+    }
+
+    void add(long timestamp, int heartRate) {
+        if (samples.size() == samples.capacity()) {
+            int evicted = samples.heartRateAt(0);
+            sum -= evicted;
+            sumOfSquares -= (double) evicted * evicted;
+        }
+        samples.add(timestamp, heartRate, 0);
+        sum += heartRate;
+        sumOfSquares += (double) heartRate * heartRate;
+    }
+
+    void clear() {
+        samples.clear();
+        sum = 0;
+        sumOfSquares = 0;
+    }
+
+    public int size() {
+        return samples.size();
+    }
+
+    // Index 0 is the oldest sample in the window
+    public long timestampAt(int index) {
+        return samples.timestampAt(index);
+    }
+
+    public int heartRateAt(int index) {
+        return samples.heartRateAt(index);
+    }
+
+    public double mean() {
+        int n = samples.size();
+        return n == 0 ? 0 : sum / n;
+    }
+
+    public double standardDeviation() {
+        int n = samples.size();
+        if (n < 2) {
+            return 0;
+        }
+        double mean = sum / n;
+        // Running sums drift by rounding; never report a negative variance
+        double variance = Math.max(0, sumOfSquares / n - mean * mean);
+        return Math.sqrt(variance);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.sobti.core.anomaly;
+
+// Heart-rate limits for one user. The high limit scales with the
+// age-predicted maximum (220 - age) but never drops below the default, so
+// a brisk walk is not an emergency for an older user; the low limit is the
+// usual bradycardia cut-off and doesn't depend on age.
+public final class PersonalBaseline {
+
+    // Matches the old fixed HIGH_HR_THRESHOLD/LOW_HR_THRESHOLD when the
+    // user's age is unknown
+    public static final PersonalBaseline DEFAULT = new PersonalBaseline(0, 190, 120, 50);
+
+    private static final double SUSTAINED_HIGH_FRACTION = 0.7;
+    private static final int LOW_LIMIT = 50;
+
+    public final int age;
+    public final int maxHeartRate;
+    public final int highLimit;
+    public final int lowLimit;
+
+    public PersonalBaseline(int age, int maxHeartRate, int highLimit, int lowLimit) {
+        this.age = age;
+        this.maxHeartRate = maxHeartRate;
+        this.highLimit = highLimit;
+        this.lowLimit = lowLimit;
+    }
+
+    public static PersonalBaseline forAge(int age) {
+        if (age <= 0 || age >= 120) {
+            return DEFAULT;
+        }
+        int max = 220 - age;
+        int high = Math.max(DEFAULT.highLimit, (int) Math.round(max * SUSTAINED_HIGH_FRACTION));
+        return new PersonalBaseline(age, max, high, LOW_LIMIT);
+    }
+
+    public boolean isOutOfRange(int heartRate) {
+        return heartRate > highLimit || heartRate < lowLimit;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.sobti.core.anomaly;
+
+// Change against the oldest sample within the look-back period. Has to hold
+// for several samples so one bad reading can't trigger it.
+public final class RateOfChangeRule implements AnomalyRule {
+
+    private final int maxDeltaBpm;
+    private final long periodMs;
+    private final int consecutive;
+    private int streak;
+    private int lastDelta;
+
+    public RateOfChangeRule(int maxDeltaBpm, long periodMs, int consecutive) {
+        this.maxDeltaBpm = maxDeltaBpm;
+        this.periodMs = periodMs;
+        this.consecutive = consecutive;
+    }
+
+    @Override
+    public String name() {
+        return "rate-of-change";
+    }
+
+    @Override
+    public boolean isEmergency() {
+        return false;
+    }
+
+    @Override
+    public boolean test(long timestamp, int heartRate, HeartRateWindow history) {
+        int reference = -1;
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (timestamp - history.timestampAt(i) > periodMs) {
+                break;
+            }
+            reference = history.heartRateAt(i);
+        }
+        if (reference < 0) {
+            streak = 0;
+            return false;
+        }
+        int delta = heartRate - reference;
+        if (Math.abs(delta) < maxDeltaBpm) {
+            streak = 0;
+            return false;
+        }
+        lastDelta = delta;
+        return ++streak >= consecutive;
+    }
+
+    @Override
+    public double lastValue() {
+        return lastDelta;
+    }
+
+    @Override
+    public void reset() {
+        streak = 0;
+        lastDelta = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.sobti.core.anomaly;
+
+// Fires once the heart rate has stayed above the high limit, or below the
+// low limit, for the whole duration.
+public final class SustainedThresholdRule implements AnomalyRule {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final int highLimit;
+    private final int lowLimit;
+    private final long durationMs;
+    private long highSince = NONE;
+    private long lowSince = NONE;
+    private long lastDuration;
+
+    public SustainedThresholdRule(int highLimit, int lowLimit, long durationMs) {
+        this.highLimit = highLimit;
+        this.lowLimit = lowLimit;
+        this.durationMs = durationMs;
+    }
+
+    @Override
+    public String name() {
+        return "sustained-threshold";
+    }
+
+    @Override
+    public boolean isEmergency() {
+        return true;
+    }
+
+    @Override
+    public boolean test(long timestamp, int heartRate, HeartRateWindow history) {
+        if (heartRate > highLimit) {
+            lowSince = NONE;
+            if (highSince == NONE) {
+                highSince = timestamp;
+            }
+            lastDuration = timestamp - highSince;
+        } else if (heartRate < lowLimit) {
+            highSince = NONE;
+            if (lowSince == NONE) {
+                lowSince = timestamp;
+            }
+            lastDuration = timestamp - lowSince;
+        } else {
+            highSince = NONE;
+            lowSince = NONE;
+            return false;
+        }
+        return lastDuration >= durationMs;
+    }
+
+    @Override
+    public double lastValue() {
+        return lastDuration;
+    }
+
+    @Override
+    public void reset() {
+        highSince = NONE;
+        lowSince = NONE;
+        lastDuration = 0;
+    }
+}
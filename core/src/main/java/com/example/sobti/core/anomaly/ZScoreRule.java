@@ -0,0 +1,58 @@
+package com.example.sobti.core.anomaly;
+
+// Deviation from the rolling window in standard deviations. A single
+// outlier is treated as sensor noise; the rule needs several in a row.
+public final class ZScoreRule implements AnomalyRule {
+
+    private final double threshold;
+    private final int minSamples;
+    private final int consecutive;
+    // Floor for the spread so a very steady window doesn't turn a few bpm
+    // into a huge score
+    private final double minDeviation;
+    private int streak;
+    private double lastZ;
+
+    public ZScoreRule(double threshold, int minSamples, int consecutive, double minDeviation) {
+        this.threshold = threshold;
+        this.minSamples = minSamples;
+        this.consecutive = consecutive;
+        this.minDeviation = minDeviation;
+    }
+
+    @Override
+    public String name() {
+        return "z-score";
+    }
+
+    @Override
+    public boolean isEmergency() {
+        return false;
+    }
+
+    @Override
+    public boolean test(long timestamp, int heartRate, HeartRateWindow history) {
+        if (history.size() < minSamples) {
+            return false;
+        }
+        double deviation = Math.max(minDeviation, history.standardDeviation());
+        double z = (heartRate - history.mean()) / deviation;
+        if (Math.abs(z) < threshold) {
+            streak = 0;
+            return false;
+        }
+        lastZ = z;
+        return ++streak >= consecutive;
+    }
+
+    @Override
+    public double lastValue() {
+        return lastZ;
+    }
+
+    @Override
+    public void reset() {
+        streak = 0;
+        lastZ = 0;
+    }
+}
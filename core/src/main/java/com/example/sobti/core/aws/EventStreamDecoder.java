@@ -0,0 +1,176 @@
+package com.example.sobti.core.aws;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Incremental decoder for the application/vnd.amazon.eventstream framing
+// used by streaming AWS APIs. Bytes can be fed in arbitrary pieces; every
+// complete message is passed to the listener as soon as it is available.
+//
+//   uint32  total length
+//   uint32  headers length
+//   uint32  CRC32 of the two fields above
+//   headers (name length, name, value type, value)
+//   payload
+//   uint32  CRC32 of everything before it
+public final class EventStreamDecoder {
+
+    public static final int PRELUDE_LENGTH = 12;
+    public static final int MIN_MESSAGE_LENGTH = PRELUDE_LENGTH + 4;
+    public static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+
+    public static final class Message {
+        public final Map<String, String> headers;
+        public final byte[] payload;
+
+        Message(Map<String, String> headers, byte[] payload) {
+            this.headers = headers;
+            this.payload = payload;
+        }
+
+        public String header(String name) {
+            return headers.get(name);
+        }
+    }
+
+    public interface Listener {
+        void onMessage(Message message) throws Exception;
+    }
+
+    private final Listener listener;
+    private final CRC32 crc = new CRC32();
+    private byte[] buf = new byte[1024];
+    private int start;
+    private int end;
+
+    public EventStreamDecoder(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void feed(byte[] data, int offset, int length) throws Exception {
+        append(data, offset, length);
+        while (end - start >= PRELUDE_LENGTH) {
+            int total = readInt(start);
+            if (total < MIN_MESSAGE_LENGTH || total > MAX_MESSAGE_LENGTH) {
+                throw new IllegalArgumentException("Invalid event stream message length " + total);
+            }
+            checkCrc(start, 8, readInt(start + 8), "prelude");
+            if (end - start < total) {
+                return;
+            }
+            checkCrc(start, total - 4, readInt(start + total - 4), "message");
+
+            int headersLength = readInt(start + 4);
+            if (headersLength < 0 || headersLength > total - MIN_MESSAGE_LENGTH) {
+                throw new IllegalArgumentException("Invalid event stream headers length " + headersLength);
+            }
+            int headersStart = start + PRELUDE_LENGTH;
+            int payloadStart = headersStart + headersLength;
+            Map<String, String> headers = parseHeaders(headersStart, payloadStart);
+            byte[] payload = Arrays.copyOfRange(buf, payloadStart, start + total - 4);
+            start += total;
+
+            listener.onMessage(new Message(headers, payload));
+        }
+    }
+
+    // True when no partial message is buffered.
+    public boolean isIdle() {
+        return start == end;
+    }
+
+    private void append(byte[] data, int offset, int length) {
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+        if (end + length > buf.length) {
+            int pending = end - start;
+            if (pending + length <= buf.length && start > 0) {
+                System.arraycopy(buf, start, buf, 0, pending);
+            } else {
+                byte[] bigger = new byte[Math.max(buf.length * 2, pending + length)];
+                System.arraycopy(buf, start, bigger, 0, pending);
+                buf = bigger;
+            }
+            start = 0;
+            end = pending;
+        }
+        System.arraycopy(data, offset, buf, end, length);
+        end += length;
+    }
+
+    private Map<String, String> parseHeaders(int pos, int limit) {
+        if (pos == limit) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> headers = new HashMap<>();
+        while (pos < limit) {
+            int nameLength = buf[pos++] & 0xFF;
+            String name = new String(buf, pos, nameLength, StandardCharsets.UTF_8);
+            pos += nameLength;
+            int type = buf[pos++] & 0xFF;
+            switch (type) {
+                case 0:
+                    headers.put(name, "true");
+                    break;
+                case 1:
+                    headers.put(name, "false");
+                    break;
+                case 2:
+                    headers.put(name, String.valueOf(buf[pos]));
+                    pos += 1;
+                    break;
+                case 3:
+                    headers.put(name, String.valueOf((short) (((buf[pos] & 0xFF) << 8) | (buf[pos + 1] & 0xFF))));
+                    pos += 2;
+                    break;
+                case 4:
+                    headers.put(name, String.valueOf(readInt(pos)));
+                    pos += 4;
+                    break;
+                case 5:
+                case 8:
+                    headers.put(name, String.valueOf(((long) readInt(pos) << 32) | (readInt(pos + 4) & 0xFFFFFFFFL)));
+                    pos += 8;
+                    break;
+                case 6:
+                case 7: {
+                    int valueLength = ((buf[pos] & 0xFF) << 8) | (buf[pos + 1] & 0xFF);
+                    pos += 2;
+                    if (type == 7) {
+                        headers.put(name, new String(buf, pos, valueLength, StandardCharsets.UTF_8));
+                    }
+                    pos += valueLength;
+                    break;
+                }
+                case 9:
+                    pos += 16;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown event stream header type " + type);
+            }
+            if (pos > limit) {
+                throw new IllegalArgumentException("Event stream header overruns header block");
+            }
+        }
+        return headers;
+    }
+
+    private void checkCrc(int offset, int length, int expected, String what) {
+        crc.reset();
+        crc.update(buf, offset, length);
+        if ((int) crc.getValue() != expected) {
+            throw new IllegalArgumentException("Event stream " + what + " CRC mismatch");
+        }
+    }
+
+    private int readInt(int pos) {
+        return ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16)
+                | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.sobti.core.aws;
+
+// Lower-case hex encoding through a lookup table.
+public final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private Hex() {
+    }
+
+    public static String encode(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            out[j++] = DIGITS[b >>> 4];
+            out[j++] = DIGITS[b & 0x0F];
+        }
+        return new String(out);
+    }
+}
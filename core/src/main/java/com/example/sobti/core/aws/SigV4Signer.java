@@ -0,0 +1,225 @@
+package com.example.sobti.core.aws;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// AWS Signature Version 4 signer for raw-HTTP clients. One instance is bound
+// to a host, region, service and optional content type, so the fixed part of
+// the canonical header block is built once. Derived signing keys are cached
+// per (date, region, service, credentials) and digests are reused per thread.
+//
+// Signed headers are content-type (when set), host, x-amz-date and, with
+// temporary credentials, x-amz-security-token.
+public final class SigV4Signer {
+
+    public static final String ALGORITHM = "AWS4-HMAC-SHA256";
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final int MAX_CACHED_KEYS = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_SHA256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final ConcurrentHashMap<String, byte[]> SIGNING_KEYS = new ConcurrentHashMap<>();
+
+    public static final String EMPTY_PAYLOAD_HASH = sha256Hex(new byte[0]);
+
+    private final String region;
+    private final String service;
+    private final String host;
+    private final String contentType;
+    private final String headerPrefix;
+    private final String signedHeaders;
+    private final String signedHeadersWithToken;
+
+    public SigV4Signer(String host, String region, String service, String contentType) {
+        this.host = host;
+        this.region = region;
+        this.service = service;
+        this.contentType = contentType;
+
+        StringBuilder prefix = new StringBuilder();
+        if (contentType != null) {
+            prefix.append("content-type:").append(contentType).append('\n');
+        }
+        prefix.append("host:").append(host).append('\n');
+        this.headerPrefix = prefix.toString();
+
+        String headers = (contentType != null ? "content-type;" : "") + "host;x-amz-date";
+        this.signedHeaders = headers;
+        this.signedHeadersWithToken = headers + ";x-amz-security-token";
+    }
+
+    public static final class Signature {
+        public final String amzDate;
+        public final String payloadHash;
+        public final String authorization;
+        public final String securityToken;
+
+        Signature(String amzDate, String payloadHash, String authorization, String securityToken) {
+            this.amzDate = amzDate;
+            this.payloadHash = payloadHash;
+            this.authorization = authorization;
+            this.securityToken = securityToken;
+        }
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    // path is the request path as sent on the wire; query must already be in
+    // canonical (sorted, encoded) form or empty.
+    public Signature sign(String method, String path, String query, byte[] payload, long epochMillis,
+                          String accessKeyId, String secretKey, String sessionToken) {
+        String payloadHash = payload == null || payload.length == 0
+                ? EMPTY_PAYLOAD_HASH : sha256Hex(payload);
+        return signWithPayloadHash(method, path, query, payloadHash, epochMillis,
+                accessKeyId, secretKey, sessionToken);
+    }
+
+    public Signature signWithPayloadHash(String method, String path, String query, String payloadHash,
+                                         long epochMillis, String accessKeyId, String secretKey,
+                                         String sessionToken) {
+        String amzDate = amzDate(epochMillis);
+        String dateStamp = amzDate.substring(0, 8);
+        boolean hasToken = sessionToken != null && !sessionToken.isEmpty();
+        String headers = hasToken ? signedHeadersWithToken : signedHeaders;
+
+        StringBuilder canonical = new StringBuilder(256);
+        canonical.append(method).append('\n');
+        appendCanonicalPath(canonical, path);
+        canonical.append('\n');
+        canonical.append(query == null ? "" : query).append('\n');
+        canonical.append(headerPrefix);
+        canonical.append("x-amz-date:").append(amzDate).append('\n');
+        if (hasToken) {
+            canonical.append("x-amz-security-token:").append(sessionToken).append('\n');
+        }
+        canonical.append('\n');
+        canonical.append(headers).append('\n');
+        canonical.append(payloadHash);
+
+        String scope = dateStamp + "/" + region + "/" + service + "/aws4_request";
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n"
+                + sha256Hex(canonical.toString().getBytes(StandardCharsets.UTF_8));
+
+        byte[] key = signingKey(secretKey, accessKeyId, dateStamp);
+        String signature = Hex.encode(hmac(key, stringToSign));
+
+        String authorization = ALGORITHM + " Credential=" + accessKeyId + "/" + scope
+                + ", SignedHeaders=" + headers + ", Signature=" + signature;
+        return new Signature(amzDate, payloadHash, authorization, hasToken ? sessionToken : null);
+    }
+
+    public byte[] signingKey(String secretKey, String accessKeyId, String dateStamp) {
+        String cacheKey = dateStamp + '/' + region + '/' + service + '/' + accessKeyId + '/' + secretKey;
+        byte[] key = SIGNING_KEYS.get(cacheKey);
+        if (key == null) {
+            key = deriveSigningKey(secretKey, dateStamp, region, service);
+            if (SIGNING_KEYS.size() >= MAX_CACHED_KEYS) {
+                SIGNING_KEYS.clear();
+            }
+            SIGNING_KEYS.put(cacheKey, key);
+        }
+        return key;
+    }
+
+    public static byte[] deriveSigningKey(String secretKey, String dateStamp, String region, String service) {
+        byte[] kSecret = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+        byte[] kDate = hmac(kSecret, dateStamp);
+        byte[] kRegion = hmac(kDate, region);
+        byte[] kService = hmac(kRegion, service);
+        return hmac(kService, "aws4_request");
+    }
+
+    public static String sha256Hex(byte[] data) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return Hex.encode(digest.digest(data));
+    }
+
+    // yyyyMMdd'T'HHmmss'Z' in UTC
+    public static String amzDate(long epochMillis) {
+        LocalDateTime t = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L), 0, ZoneOffset.UTC);
+        char[] out = new char[16];
+        putDigits(out, 0, t.getYear(), 4);
+        putDigits(out, 4, t.getMonthValue(), 2);
+        putDigits(out, 6, t.getDayOfMonth(), 2);
+        out[8] = 'T';
+        putDigits(out, 9, t.getHour(), 2);
+        putDigits(out, 11, t.getMinute(), 2);
+        putDigits(out, 13, t.getSecond(), 2);
+        out[15] = 'Z';
+        return new String(out);
+    }
+
+    private static void putDigits(char[] out, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        Mac mac = HMAC.get();
+        try {
+            mac.init(new SecretKeySpec(key, HMAC_SHA256));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Services other than S3 expect each path segment to be URI-encoded once
+    // more on top of the encoding already used on the wire.
+    private static void appendCanonicalPath(StringBuilder out, String path) {
+        if (path == null || path.isEmpty()) {
+            out.append('/');
+            return;
+        }
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (isUnreserved(c) || c == '/') {
+                out.append(c);
+            } else {
+                byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                for (byte b : bytes) {
+                    out.append('%');
+                    out.append(Character.toUpperCase(Character.forDigit((b >> 4) & 0x0F, 16)));
+                    out.append(Character.toUpperCase(Character.forDigit(b & 0x0F, 16)));
+                }
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '~';
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.sobti.core.aws;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+// SNS's query protocol for the two calls the app makes: form-encoded
+// Publish and PublishBatch bodies, and the parts of the XML answers it
+// needs. PublishBatch only takes topics; texts to phone numbers go one
+// Publish each.
+public final class SnsQuery {
+
+    public static final String SERVICE = "sns";
+    public static final String CONTENT_TYPE = "application/x-www-form-urlencoded; charset=utf-8";
+    public static final String API_VERSION = "2010-03-31";
+    public static final int MAX_BATCH_ENTRIES = 10;
+
+    // Sender errors that blame the credentials or the device clock, not the
+    // request. They clear once the credentials are refreshed, so they are
+    // never a reason to drop an alert.
+    private static final Set<String> CREDENTIAL_ERRORS = new HashSet<>(Arrays.asList(
+            "ExpiredToken", "ExpiredTokenException", "RequestExpired", "RequestTimeTooSkewed",
+            "SignatureDoesNotMatch", "IncompleteSignature", "InvalidClientTokenId",
+            "MissingAuthenticationToken", "InvalidSecurity", "AccessDenied", "AuthorizationError"));
+
+    public static final class Entry {
+        // Unique within the batch: letters, digits, - and _, up to 80
+        public final String id;
+        public final String subject;
+        public final String message;
+
+        public Entry(String id, String subject, String message) {
+            this.id = id;
+            this.subject = subject;
+            this.message = message;
+        }
+    }
+
+    public static final class Failure {
+        public final String id;
+        public final String code;
+        public final String message;
+        // The request itself is wrong, so retrying cannot help
+        public final boolean senderFault;
+
+        Failure(String id, String code, String message, boolean senderFault) {
+            this.id = id;
+            this.code = code;
+            this.message = message;
+            this.senderFault = senderFault;
+        }
+    }
+
+    public static final class BatchResult {
+        public final List<String> successful;
+        // By entry id
+        public final Map<String, Failure> failed;
+
+        BatchResult(List<String> successful, Map<String, Failure> failed) {
+            this.successful = Collections.unmodifiableList(successful);
+            this.failed = Collections.unmodifiableMap(failed);
+        }
+    }
+
+    private SnsQuery() {
+    }
+
+    public static byte[] publishToPhone(String phoneNumber, String message) {
+        return form("Publish")
+                .add("PhoneNumber", phoneNumber)
+                .add("Message", message)
+                .bytes();
+    }
+
+    public static byte[] publishToTopic(String topicArn, String subject, String message) {
+        Form form = form("Publish").add("TopicArn", topicArn);
+        if (subject != null) {
+            form.add("Subject", subject);
+        }
+        return form.add("Message", message).bytes();
+    }
+
+    public static byte[] publishBatch(String topicArn, List<Entry> entries) {
+        if (entries.isEmpty() || entries.size() > MAX_BATCH_ENTRIES) {
+            throw new IllegalArgumentException("PublishBatch takes 1 to " + MAX_BATCH_ENTRIES
+                    + " entries, got " + entries.size());
+        }
+        Form form = form("PublishBatch").add("TopicArn", topicArn);
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            String prefix = "PublishBatchRequestEntries.member." + (i + 1) + ".";
+            form.add(prefix + "Id", entry.id);
+            if (entry.subject != null) {
+                form.add(prefix + "Subject", entry.subject);
+            }
+            form.add(prefix + "Message", entry.message);
+        }
+        return form.bytes();
+    }
+
+    // The MessageId of a Publish response
+    public static String messageId(byte[] xml) throws IOException {
+        return text(parse(xml).getDocumentElement(), "MessageId");
+    }
+
+    public static BatchResult batchResult(byte[] xml) throws IOException {
+        Element root = parse(xml).getDocumentElement();
+        List<String> successful = new ArrayList<>();
+        Map<String, Failure> failed = new LinkedHashMap<>();
+        for (Element member : members(root, "Successful")) {
+            successful.add(text(member, "Id"));
+        }
+        for (Element member : members(root, "Failed")) {
+            String id = text(member, "Id");
+            String code = text(member, "Code");
+            failed.put(id, new Failure(id, code, text(member, "Message"),
+                    "true".equals(text(member, "SenderFault")) && !CREDENTIAL_ERRORS.contains(code)));
+        }
+        return new BatchResult(successful, failed);
+    }
+
+    // "Code: Message" from an ErrorResponse, or null if there is none
+    public static String error(byte[] xml) {
+        try {
+            Element root = parse(xml).getDocumentElement();
+            String code = text(root, "Code");
+            return code == null ? null : code + ": " + text(root, "Message");
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Whether an ErrorResponse blames the request itself, so sending it
+    // again can never work. Credential and clock errors don't count.
+    public static boolean senderFault(byte[] xml) {
+        try {
+            Element root = parse(xml).getDocumentElement();
+            return "Sender".equals(text(root, "Type")) && !CREDENTIAL_ERRORS.contains(text(root, "Code"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Whether an ErrorResponse says the credentials are expired or invalid,
+    // or the signature's clock is off
+    public static boolean credentialError(byte[] xml) {
+        try {
+            return CREDENTIAL_ERRORS.contains(text(parse(xml).getDocumentElement(), "Code"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Form form(String action) {
+        return new Form().add("Action", action).add("Version", API_VERSION);
+    }
+
+    private static final class Form {
+        private final StringBuilder out = new StringBuilder(256);
+
+        Form add(String name, String value) {
+            if (out.length() > 0) {
+                out.append('&');
+            }
+            out.append(encode(name)).append('=').append(encode(value));
+            return this;
+        }
+
+        byte[] bytes() {
+            return out.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String encode(String value) {
+            try {
+                return URLEncoder.encode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Document parse(byte[] xml) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(false);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            // Throws on fatal errors without printing them
+            builder.setErrorHandler(new DefaultHandler());
+            return builder.parse(new ByteArrayInputStream(xml));
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Malformed SNS response", e);
+        }
+    }
+
+    // <name><member>...</member>...</name> anywhere under root
+    private static List<Element> members(Element root, String name) {
+        List<Element> out = new ArrayList<>();
+        NodeList lists = root.getElementsByTagName(name);
+        for (int i = 0; i < lists.getLength(); i++) {
+            NodeList members = ((Element) lists.item(i)).getElementsByTagName("member");
+            for (int j = 0; j < members.getLength(); j++) {
+                out.add((Element) members.item(j));
+            }
+        }
+        return out;
+    }
+
+    // Text of the first <name> under parent, or null
+    private static String text(Element parent, String name) {
+        NodeList nodes = parent.getElementsByTagName(name);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent().trim();
+    }
+}
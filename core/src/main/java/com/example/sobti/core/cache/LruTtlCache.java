@@ -0,0 +1,57 @@
+package com.example.sobti.core.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Size-bounded LRU map whose entries also expire ttlMs after insertion.
+// Callers pass the current time so tests can drive the clock. Not thread
+// safe; callers synchronize externally.
+public final class LruTtlCache<K, V> {
+
+    private static final class Slot<V> {
+        final V value;
+        final long expiresAt;
+
+        Slot(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlMs;
+    private final LinkedHashMap<K, Slot<V>> map;
+
+    public LruTtlCache(int maxEntries, long ttlMs) {
+        this.ttlMs = ttlMs;
+        this.map = new LinkedHashMap<K, Slot<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Slot<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public V get(K key, long now) {
+        Slot<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (now >= entry.expiresAt) {
+            map.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value, long now) {
+        map.put(key, new Slot<>(value, now + ttlMs));
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public void clear() {
+        map.clear();
+    }
+}
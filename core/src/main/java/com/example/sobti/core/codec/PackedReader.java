@@ -0,0 +1,78 @@
+package com.example.sobti.core.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Cursor over a byte array written by PackedWriter.
+public final class PackedReader {
+
+    private final byte[] buf;
+    private final int limit;
+    private int pos;
+
+    public PackedReader(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    public PackedReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    public int readByte() {
+        require(1);
+        return buf[pos++] & 0xFF;
+    }
+
+    public long readLong() {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[pos++] & 0xFF);
+        }
+        return value;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            require(1);
+            byte b = buf[pos++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public byte[] readBytes() {
+        long length = readVarLong();
+        if (length < 0 || length > limit - pos) {
+            throw new IllegalArgumentException("Truncated input");
+        }
+        byte[] value = Arrays.copyOfRange(buf, pos, pos + (int) length);
+        pos += (int) length;
+        return value;
+    }
+
+    public String readString() {
+        return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    public boolean hasRemaining() {
+        return pos < limit;
+    }
+
+    private void require(int count) {
+        if (pos + count > limit) {
+            throw new IllegalArgumentException("Truncated input");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.sobti.core.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Growable byte buffer with LEB128 varint and zigzag helpers. Used by the
+// wire and storage codecs so small deltas take one or two bytes.
+public final class PackedWriter {
+
+    private byte[] buf;
+    private int pos;
+
+    public PackedWriter(int initialCapacity) {
+        buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buf[pos++] = (byte) value;
+    }
+
+    public void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buf[pos++] = (byte) (value >>> shift);
+        }
+    }
+
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    // Length-prefixed byte run; null is written as an empty run
+    public void writeBytes(byte[] value) {
+        int length = value == null ? 0 : value.length;
+        writeVarLong(length);
+        ensure(length);
+        if (length > 0) {
+            System.arraycopy(value, 0, buf, pos, length);
+            pos += length;
+        }
+    }
+
+    public void writeString(String value) {
+        writeBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return pos;
+    }
+
+    public void reset() {
+        pos = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private void ensure(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.sobti.core.dispatch;
+
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Application-wide dispatcher. Each WorkClass gets a fixed-size pool with a
+// bounded queue, so a flood of AI requests can never delay emergency alerts
+// or storage writes. Within a class, tasks run in priority order (lower
+// value first, FIFO among equals), so urgent items can jump routine ones.
+// Delayed work goes through one shared timer thread and is then handed to
+// the class pool. Queue waits also go to a "dispatch.<class>.wait" timer,
+// so the metrics screen shows their percentiles next to the calls.
+public final class AppDispatcher {
+
+    public static final int PRIORITY_URGENT = 0;
+    public static final int PRIORITY_NORMAL = 10;
+
+    private static AppDispatcher instance;
+
+    public static synchronized AppDispatcher get() {
+        if (instance == null || instance.isShutdown()) {
+            instance = new AppDispatcher();
+        }
+        return instance;
+    }
+
+    // Stops accepting work and lets queued tasks finish in the background.
+    public static synchronized void shutdownShared() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    public static final class Stats {
+        public final WorkClass workClass;
+        public final int queueDepth;
+        public final int active;
+        public final long submitted;
+        public final long completed;
+        public final long rejected;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+
+        Stats(WorkClass workClass, int queueDepth, int active, long submitted, long completed,
+              long rejected, long totalWaitNanos, long maxWaitNanos) {
+            this.workClass = workClass;
+            this.queueDepth = queueDepth;
+            this.active = active;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public long meanWaitNanos() {
+            return completed == 0 ? 0 : totalWaitNanos / completed;
+        }
+    }
+
+    private static final class Task implements Runnable, Comparable<Task> {
+        final Pool pool;
+        final Runnable body;
+        final int priority;
+        final long seq;
+        final long enqueuedAt = System.nanoTime();
+
+        Task(Pool pool, Runnable body, int priority, long seq) {
+            this.pool = pool;
+            this.body = body;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(seq, other.seq);
+        }
+
+        @Override
+        public void run() {
+            pool.queued.decrementAndGet();
+            pool.recordWait(System.nanoTime() - enqueuedAt);
+            try {
+                body.run();
+            } finally {
+                pool.completed.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class Pool {
+        final WorkClass workClass;
+        final ThreadPoolExecutor executor;
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicLong seq = new AtomicLong();
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong totalWait = new AtomicLong();
+        final AtomicLong maxWait = new AtomicLong();
+        final Timer waits;
+
+        Pool(WorkClass workClass, MetricsRegistry metrics) {
+            this.workClass = workClass;
+            this.waits = metrics.timer("dispatch", workClass.name().toLowerCase() + ".wait");
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(workClass.threads, workClass.threads,
+                    30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+                Thread t = new Thread(runnable,
+                        "sobti-" + workClass.name().toLowerCase() + "-" + threadCount.incrementAndGet());
+                t.setPriority(workClass.threadPriority);
+                t.setDaemon(true);
+                return t;
+            });
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        void execute(Runnable body, int priority) {
+            if (queued.incrementAndGet() > workClass.queueCapacity) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(workClass + " queue is full");
+            }
+            submitted.incrementAndGet();
+            try {
+                executor.execute(new Task(this, body, priority, seq.getAndIncrement()));
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw e;
+            }
+        }
+
+        void recordWait(long nanos) {
+            waits.record(nanos);
+            totalWait.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxWait.get())) {
+                if (maxWait.compareAndSet(max, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        Stats stats() {
+            return new Stats(workClass, queued.get(), executor.getActiveCount(), submitted.get(),
+                    completed.get(), rejected.get(), totalWait.get(), maxWait.get());
+        }
+    }
+
+    private final Map<WorkClass, Pool> pools = new EnumMap<>(WorkClass.class);
+    private final Map<WorkClass, ScheduledExecutorService> schedulers = new EnumMap<>(WorkClass.class);
+    private final ScheduledThreadPoolExecutor timer;
+    private volatile boolean shutdown;
+
+    public AppDispatcher() {
+        this(MetricsRegistry.shared());
+    }
+
+    public AppDispatcher(MetricsRegistry metrics) {
+        for (WorkClass workClass : WorkClass.values()) {
+            pools.put(workClass, new Pool(workClass, metrics));
+        }
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread t = new Thread(runnable, "sobti-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        for (WorkClass workClass : WorkClass.values()) {
+            schedulers.put(workClass, new ClassScheduler(this, workClass, timer));
+        }
+    }
+
+    public void execute(WorkClass workClass, Runnable task) {
+        execute(workClass, PRIORITY_NORMAL, task);
+    }
+
+    public void execute(WorkClass workClass, int priority, Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Dispatcher is shut down");
+        }
+        pools.get(workClass).execute(task, priority);
+    }
+
+    public Executor executor(WorkClass workClass) {
+        return task -> execute(workClass, task);
+    }
+
+    // ScheduledExecutorService view of a class pool for components that need
+    // timers. Its lifecycle belongs to the dispatcher, so shutdown() on the
+    // view is a no-op.
+    public ScheduledExecutorService scheduler(WorkClass workClass) {
+        return schedulers.get(workClass);
+    }
+
+    // The dispatcher's own timer thread, for deadlines that must fire even
+    // while every class pool is busy. Callbacks run on that one thread, so
+    // they must only hand work off and never block. Don't shut it down.
+    public ScheduledExecutorService timer() {
+        return timer;
+    }
+
+    public Stats stats(WorkClass workClass) {
+        return pools.get(workClass).stats();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    // True once shut down and every pool and the timer have drained
+    public boolean isTerminated() {
+        if (!shutdown || !timer.isTerminated()) {
+            return false;
+        }
+        for (Pool pool : pools.values()) {
+            if (!pool.executor.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        timer.shutdown();
+        for (Pool pool : pools.values()) {
+            pool.executor.shutdown();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Pool pool : pools.values()) {
+            long remaining = deadline - System.nanoTime();
+            if (!pool.executor.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return timer.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
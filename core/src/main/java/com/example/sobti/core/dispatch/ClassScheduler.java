@@ -0,0 +1,121 @@
+package com.example.sobti.core.dispatch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// ScheduledExecutorService facade over one dispatcher class. The shared
+// timer only hands tasks over; the work itself runs on the class pool.
+final class ClassScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final AppDispatcher dispatcher;
+    private final WorkClass workClass;
+    private final ScheduledExecutorService timer;
+
+    ClassScheduler(AppDispatcher dispatcher, WorkClass workClass, ScheduledExecutorService timer) {
+        this.dispatcher = dispatcher;
+        this.workClass = workClass;
+        this.timer = timer;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        dispatcher.execute(workClass, command);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return schedule(Executors.callable(command), delay, unit);
+    }
+
+    // The future completes when the call has run on the class pool, with its
+    // result or exception, or with the RejectedExecutionException if the
+    // pool would not take it.
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        ScheduledCall<V> call = new ScheduledCall<>(callable);
+        call.handoff = timer.schedule(call::handOff, delay, unit);
+        return call;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                                  TimeUnit unit) {
+        return timer.scheduleAtFixedRate(() -> execute(command), initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        return timer.scheduleWithFixedDelay(() -> execute(command), initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return dispatcher.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return dispatcher.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return dispatcher.awaitTermination(timeout, unit);
+    }
+
+    // Runs on the class pool once the timer hands it over; the delay is the
+    // timer's until then
+    private final class ScheduledCall<V> extends FutureTask<V> implements ScheduledFuture<V> {
+        volatile ScheduledFuture<?> handoff;
+
+        ScheduledCall(Callable<V> callable) {
+            super(callable);
+        }
+
+        void handOff() {
+            try {
+                execute(this);
+            } catch (RejectedExecutionException e) {
+                setException(e);
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return handoff.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                handoff.cancel(false);
+            }
+            return cancelled;
+        }
+    }
+}
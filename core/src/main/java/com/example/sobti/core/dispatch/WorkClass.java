@@ -0,0 +1,26 @@
+package com.example.sobti.core.dispatch;
+
+// Workload classes with their own bounded pool. Lower ordinal means more
+// urgent: its threads run at a higher OS priority. STORAGE is single
+// threaded so writes to the same item land in submission order. EMERGENCY
+// carries alert publishes and the alert outbox; a fan-out's blocking sends
+// get threads of their own in EmergencyDispatcher so it never queues here.
+public enum WorkClass {
+    EMERGENCY(4, 64, Thread.MAX_PRIORITY - 1),
+    STORAGE(1, 512, Thread.NORM_PRIORITY),
+    AI(1, 16, Thread.NORM_PRIORITY - 1),
+    // Drains the offline outbox; kept apart from STORAGE so a slow network
+    // never delays local appends
+    UPLOAD(1, 16, Thread.NORM_PRIORITY - 1),
+    BACKGROUND(1, 128, Thread.MIN_PRIORITY + 1);
+
+    final int threads;
+    final int queueCapacity;
+    final int threadPriority;
+
+    WorkClass(int threads, int queueCapacity, int threadPriority) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.threadPriority = threadPriority;
+    }
+}
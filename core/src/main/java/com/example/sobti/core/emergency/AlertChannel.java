@@ -0,0 +1,10 @@
+package com.example.sobti.core.emergency;
+
+// One way of reaching the emergency contact. send() blocks until the
+// provider has accepted the alert and throws on failure.
+public interface AlertChannel {
+
+    String name();
+
+    void send(EmergencyAlert alert) throws Exception;
+}
@@ -0,0 +1,152 @@
+package com.example.sobti.core.emergency;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Decides, per user, whether an alert goes out and how far it reaches, so
+// a flapping heart rate does not text the same people every few seconds.
+// Alerts belong to an episode that ends after quietMs without any alert.
+// Within an episode:
+//  - after an alert is sent, the next ones are suppressed for suppressMs;
+//  - an alert equivalent to one already sent (same reason, heart rate in
+//    the same bucket) is a duplicate for dedupMs;
+//  - every alert that does go out is one escalation level higher than the
+//    last, up to maxLevel.
+// Alerts the user raised by hand skip suppression and deduplication but
+// still escalate.
+public final class AlertGate {
+
+    public enum Outcome {
+        SEND, SUPPRESSED, DUPLICATE
+    }
+
+    public static final class Decision {
+        public final Outcome outcome;
+        // Escalation level the alert goes out at; -1 unless SEND
+        public final int level;
+        // How long until an alert would no longer be suppressed; 0 unless SUPPRESSED
+        public final long retryInMs;
+
+        Decision(Outcome outcome, int level, long retryInMs) {
+            this.outcome = outcome;
+            this.level = level;
+            this.retryInMs = retryInMs;
+        }
+
+        public boolean send() {
+            return outcome == Outcome.SEND;
+        }
+    }
+
+    public static final class Stats {
+        public final long sent;
+        public final long suppressed;
+        public final long duplicates;
+        public final long escalations;
+
+        Stats(long sent, long suppressed, long duplicates, long escalations) {
+            this.sent = sent;
+            this.suppressed = suppressed;
+            this.duplicates = duplicates;
+            this.escalations = escalations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sent=%d suppressed=%d duplicates=%d escalations=%d",
+                    sent, suppressed, duplicates, escalations);
+        }
+    }
+
+    private static final class Episode {
+        long lastSeen;
+        long lastSent = -1;
+        int nextLevel;
+        // Equivalence key -> when it was last sent
+        final Map<String, Long> sentKeys = new HashMap<>();
+    }
+
+    private final long suppressMs;
+    private final long dedupMs;
+    private final long quietMs;
+    private final int heartRateBucket;
+    private final int maxLevel;
+    private final LongSupplier clock;
+    private final Map<String, Episode> episodes = new HashMap<>();
+
+    private long sent;
+    private long suppressed;
+    private long duplicates;
+    private long escalations;
+
+    public AlertGate(long suppressMs, long dedupMs, long quietMs, int heartRateBucket, int maxLevel) {
+        this(suppressMs, dedupMs, quietMs, heartRateBucket, maxLevel, System::currentTimeMillis);
+    }
+
+    public AlertGate(long suppressMs, long dedupMs, long quietMs, int heartRateBucket, int maxLevel,
+                     LongSupplier clock) {
+        if (heartRateBucket <= 0) {
+            throw new IllegalArgumentException("heartRateBucket must be positive");
+        }
+        this.suppressMs = suppressMs;
+        this.dedupMs = dedupMs;
+        this.quietMs = quietMs;
+        this.heartRateBucket = heartRateBucket;
+        this.maxLevel = Math.max(0, maxLevel);
+        this.clock = clock;
+    }
+
+    // reason names what raised the alert, e.g. the anomaly rule
+    public synchronized Decision check(String email, String reason, int heartRate, boolean manual) {
+        long now = clock.getAsLong();
+        Episode episode = episodes.get(email);
+        if (episode == null || now - episode.lastSeen > quietMs) {
+            episode = new Episode();
+            episodes.put(email, episode);
+        }
+        episode.lastSeen = now;
+        expireKeys(episode, now);
+
+        String key = reason + "/" + Math.floorDiv(heartRate, heartRateBucket);
+        if (!manual) {
+            if (episode.sentKeys.containsKey(key)) {
+                duplicates++;
+                return new Decision(Outcome.DUPLICATE, -1, 0);
+            }
+            if (episode.lastSent >= 0 && now - episode.lastSent < suppressMs) {
+                suppressed++;
+                return new Decision(Outcome.SUPPRESSED, -1, suppressMs - (now - episode.lastSent));
+            }
+        }
+
+        int level = episode.nextLevel;
+        if (level > 0) {
+            escalations++;
+        }
+        episode.nextLevel = Math.min(maxLevel, level + 1);
+        episode.lastSent = now;
+        episode.sentKeys.put(key, now);
+        sent++;
+        return new Decision(Outcome.SEND, level, 0);
+    }
+
+    // Ends the user's episode, e.g. once they confirm they are fine
+    public synchronized void reset(String email) {
+        episodes.remove(email);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(sent, suppressed, duplicates, escalations);
+    }
+
+    private void expireKeys(Episode episode, long now) {
+        Iterator<Long> sentAt = episode.sentKeys.values().iterator();
+        while (sentAt.hasNext()) {
+            if (now - sentAt.next() >= dedupMs) {
+                sentAt.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.sobti.core.emergency;
+
+// Deadline and retry budget for one channel. The timeout applies to each
+// attempt; retries wait backoffMs, doubling after every failure.
+public final class ChannelPolicy {
+
+    public final long attemptTimeoutMs;
+    public final int maxAttempts;
+    public final long backoffMs;
+
+    public ChannelPolicy(long attemptTimeoutMs, int maxAttempts, long backoffMs) {
+        this.attemptTimeoutMs = attemptTimeoutMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.sobti.core.emergency;
+
+// What every channel delivers. Built once, before any channel starts, from
+// whatever vitals and location are already known.
+public final class EmergencyAlert {
+
+    public final String subject;
+    public final String message;
+    public final int heartRate;
+    public final long createdAt;
+
+    public EmergencyAlert(String subject, String message, int heartRate, long createdAt) {
+        this.subject = subject;
+        this.message = message;
+        this.heartRate = heartRate;
+        this.createdAt = createdAt;
+    }
+}
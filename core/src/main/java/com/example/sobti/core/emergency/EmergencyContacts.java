@@ -0,0 +1,93 @@
+package com.example.sobti.core.emergency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The numbers an alert can go to. The profile's emergencyNumber holds one
+// or more numbers separated by commas or semicolons; the first is the
+// primary contact, who hears about every alert, and the rest are added
+// once an alert escalates. Spaces, dashes, dots and brackets are dropped
+// and a leading + is kept; repeated numbers count once. Registration used
+// to take any field of ten characters or more, so when no entry parses, a
+// stored field with digits in it is still used whole, as it was before,
+// rather than leaving the alert with nobody to go to.
+public final class EmergencyContacts {
+
+    public static final int MIN_DIGITS = 10;
+    // Longest E.164 number
+    public static final int MAX_DIGITS = 15;
+
+    private final List<String> numbers;
+
+    private EmergencyContacts(List<String> numbers) {
+        this.numbers = Collections.unmodifiableList(numbers);
+    }
+
+    // Entries that are not phone numbers are skipped, unless none is
+    public static EmergencyContacts parse(String field) {
+        List<String> numbers = new ArrayList<>();
+        if (field != null) {
+            for (String entry : field.split("[,;]")) {
+                String number = normalize(entry);
+                if (number != null && !numbers.contains(number)) {
+                    numbers.add(number);
+                }
+            }
+            if (numbers.isEmpty() && field.matches("(?s).*\\d.*")) {
+                numbers.add(field.trim());
+            }
+        }
+        return new EmergencyContacts(numbers);
+    }
+
+    // The first entry that is not a phone number, or null if all are and
+    // there is at least one
+    public static String firstInvalid(String field) {
+        if (field == null || field.trim().isEmpty()) {
+            return "";
+        }
+        for (String entry : field.split("[,;]")) {
+            if (normalize(entry) == null) {
+                return entry.trim();
+            }
+        }
+        return null;
+    }
+
+    // null when the entry is not a phone number
+    public static String normalize(String entry) {
+        StringBuilder out = new StringBuilder(entry.length());
+        int digits = 0;
+        for (int i = 0; i < entry.length(); i++) {
+            char c = entry.charAt(i);
+            if (c >= '0' && c <= '9') {
+                out.append(c);
+                digits++;
+            } else if (c == '+' && out.length() == 0) {
+                out.append(c);
+            } else if (c != ' ' && c != '-' && c != '.' && c != '(' && c != ')') {
+                return null;
+            }
+        }
+        return digits >= MIN_DIGITS && digits <= MAX_DIGITS ? out.toString() : null;
+    }
+
+    public boolean isEmpty() {
+        return numbers.isEmpty();
+    }
+
+    public List<String> all() {
+        return numbers;
+    }
+
+    // null when there is no contact
+    public String primary() {
+        return numbers.isEmpty() ? null : numbers.get(0);
+    }
+
+    // The primary contact at level 0, everyone from level 1 on
+    public List<String> forLevel(int level) {
+        return level <= 0 && numbers.size() > 1 ? numbers.subList(0, 1) : numbers;
+    }
+}
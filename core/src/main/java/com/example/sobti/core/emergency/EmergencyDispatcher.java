@@ -0,0 +1,278 @@
+package com.example.sobti.core.emergency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fans an alert out to every channel at once. Each attempt has a deadline;
+// a timed-out or failed attempt is retried with backoff until the channel's
+// budget runs out. A late answer from an abandoned attempt is ignored. The
+// listener hears about the first delivery as soon as it happens and gets
+// the full report when every channel has finished.
+public final class EmergencyDispatcher {
+
+    public interface Listener {
+        void onFirstDelivery(String channel, long elapsedMs);
+
+        void onComplete(EmergencyReport report);
+    }
+
+    private static final class Route {
+        final AlertChannel channel;
+        final ChannelPolicy policy;
+
+        Route(AlertChannel channel, ChannelPolicy policy) {
+            this.channel = channel;
+            this.policy = policy;
+        }
+    }
+
+    private static final AtomicInteger SEND_THREADS = new AtomicInteger();
+
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final List<Route> routes = new ArrayList<>();
+
+    // Every send gets a thread of its own for the length of the dispatch, so
+    // however many channels there are none waits for another. timer only
+    // fires deadlines and retries; it must not be a pool the sends run on,
+    // or a hung send can hold back the deadline meant to abandon it.
+    public EmergencyDispatcher(ScheduledExecutorService timer) {
+        this(null, timer);
+    }
+
+    // executor runs the blocking sends and must have a thread per channel
+    public EmergencyDispatcher(Executor executor, ScheduledExecutorService timer) {
+        this.executor = executor;
+        this.timer = timer;
+    }
+
+    public EmergencyDispatcher addChannel(AlertChannel channel, ChannelPolicy policy) {
+        routes.add(new Route(channel, policy));
+        return this;
+    }
+
+    public void dispatch(EmergencyAlert alert, Listener listener) {
+        if (routes.isEmpty()) {
+            listener.onComplete(new EmergencyReport(new ArrayList<>(), null, -1));
+            return;
+        }
+        ExecutorService sends = executor == null ? sendPool() : null;
+        Fanout fanout = new Fanout(alert, listener, routes.size(),
+                sends != null ? sends : executor, sends);
+        for (int i = 0; i < routes.size(); i++) {
+            new ChannelRun(fanout, i, routes.get(i)).attempt();
+        }
+    }
+
+    // No core threads and no queue: each send starts a thread, which exits
+    // once idle. Abandoned attempts may still hold one until their
+    // interrupt lands, so retries never wait for them.
+    private static ExecutorService sendPool() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 5, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread t = new Thread(runnable, "sobti-alert-" + SEND_THREADS.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MAX_PRIORITY - 1);
+                    return t;
+                });
+    }
+
+    private static final class Fanout {
+        final EmergencyAlert alert;
+        final Listener listener;
+        final Executor executor;
+        // Send pool owned by this dispatch, shut down once it completes
+        final ExecutorService owned;
+        final long startNanos = System.nanoTime();
+        final EmergencyReport.ChannelResult[] results;
+        int remaining;
+        String firstDelivered;
+        long firstDeliveryMs = -1;
+
+        Fanout(EmergencyAlert alert, Listener listener, int channels,
+                Executor executor, ExecutorService owned) {
+            this.alert = alert;
+            this.listener = listener;
+            this.executor = executor;
+            this.owned = owned;
+            this.results = new EmergencyReport.ChannelResult[channels];
+            this.remaining = channels;
+        }
+
+        long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        void finish(int index, EmergencyReport.ChannelResult result) {
+            boolean first = false;
+            EmergencyReport report = null;
+            synchronized (this) {
+                results[index] = result;
+                if (result.delivered && firstDelivered == null) {
+                    firstDelivered = result.channel;
+                    firstDeliveryMs = result.elapsedMs;
+                    first = true;
+                }
+                if (--remaining == 0) {
+                    List<EmergencyReport.ChannelResult> all = new ArrayList<>();
+                    for (EmergencyReport.ChannelResult r : results) {
+                        all.add(r);
+                    }
+                    report = new EmergencyReport(all, firstDelivered, firstDeliveryMs);
+                }
+            }
+            if (first) {
+                listener.onFirstDelivery(result.channel, result.elapsedMs);
+            }
+            if (report != null) {
+                if (owned != null) {
+                    owned.shutdown();
+                }
+                listener.onComplete(report);
+            }
+        }
+    }
+
+    private final class ChannelRun {
+        final Fanout fanout;
+        final int index;
+        final Route route;
+        int attempts;
+        int currentAttempt;
+        boolean done;
+        Exception lastError;
+        Thread worker;
+        int workerAttempt;
+        ScheduledFuture<?> deadline;
+
+        ChannelRun(Fanout fanout, int index, Route route) {
+            this.fanout = fanout;
+            this.index = index;
+            this.route = route;
+        }
+
+        void attempt() {
+            int attempt;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                attempt = ++attempts;
+                currentAttempt = attempt;
+            }
+            try {
+                synchronized (this) {
+                    deadline = timer.schedule(() -> onTimeout(attempt),
+                            route.policy.attemptTimeoutMs, TimeUnit.MILLISECONDS);
+                }
+                fanout.executor.execute(() -> send(attempt));
+            } catch (RejectedExecutionException e) {
+                onFailure(attempt, e);
+            }
+        }
+
+        void send(int attempt) {
+            synchronized (this) {
+                if (done || attempt != currentAttempt) {
+                    return;
+                }
+                worker = Thread.currentThread();
+                workerAttempt = attempt;
+            }
+            try {
+                route.channel.send(fanout.alert);
+                onSuccess(attempt);
+            } catch (Exception e) {
+                onFailure(attempt, e);
+            } finally {
+                synchronized (this) {
+                    if (worker == Thread.currentThread()) {
+                        worker = null;
+                    }
+                }
+                // Don't leak an interrupt from a timeout into the pool thread
+                Thread.interrupted();
+            }
+        }
+
+        void onSuccess(int attempt) {
+            synchronized (this) {
+                if (done || attempt != currentAttempt) {
+                    return;
+                }
+                done = true;
+                cancelDeadline();
+            }
+            fanout.finish(index, new EmergencyReport.ChannelResult(
+                    route.channel.name(), true, attempt, fanout.elapsedMs(), null));
+        }
+
+        void onTimeout(int attempt) {
+            synchronized (this) {
+                if (done || attempt != currentAttempt) {
+                    return;
+                }
+            }
+            onFailure(attempt, new TimeoutException(route.channel.name() + " attempt " + attempt
+                    + " timed out after " + route.policy.attemptTimeoutMs + "ms"));
+            // Interrupt only after the attempt is abandoned, so the worker's
+            // InterruptedException is not mistaken for the failure cause
+            synchronized (this) {
+                if (worker != null && workerAttempt == attempt) {
+                    worker.interrupt();
+                    worker = null;
+                }
+            }
+        }
+
+        void onFailure(int attempt, Exception error) {
+            long backoff;
+            synchronized (this) {
+                if (done || attempt != currentAttempt) {
+                    return;
+                }
+                lastError = error;
+                cancelDeadline();
+                // Invalidate the failed attempt so its late result is ignored
+                currentAttempt = -1;
+                if (attempts >= route.policy.maxAttempts) {
+                    done = true;
+                    backoff = -1;
+                } else {
+                    backoff = route.policy.backoffMs << (attempts - 1);
+                }
+            }
+            if (backoff < 0) {
+                fanout.finish(index, new EmergencyReport.ChannelResult(
+                        route.channel.name(), false, attempt, fanout.elapsedMs(), error));
+                return;
+            }
+            try {
+                timer.schedule(this::attempt, backoff, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    done = true;
+                }
+                fanout.finish(index, new EmergencyReport.ChannelResult(
+                        route.channel.name(), false, attempt, fanout.elapsedMs(), e));
+            }
+        }
+
+        private void cancelDeadline() {
+            if (deadline != null) {
+                deadline.cancel(false);
+                deadline = null;
+            }
+        }
+    }
+}
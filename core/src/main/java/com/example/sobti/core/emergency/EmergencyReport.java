@@ -0,0 +1,50 @@
+package com.example.sobti.core.emergency;
+
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of one fan-out, once every channel has delivered or given up.
+public final class EmergencyReport {
+
+    public static final class ChannelResult {
+        public final String channel;
+        public final boolean delivered;
+        public final int attempts;
+        // From dispatch start to delivery, or to giving up
+        public final long elapsedMs;
+        public final Exception lastError;
+
+        ChannelResult(String channel, boolean delivered, int attempts, long elapsedMs, Exception lastError) {
+            this.channel = channel;
+            this.delivered = delivered;
+            this.attempts = attempts;
+            this.elapsedMs = elapsedMs;
+            this.lastError = lastError;
+        }
+    }
+
+    public final List<ChannelResult> results;
+    public final String firstDelivered;
+    public final long firstDeliveryMs;
+
+    EmergencyReport(List<ChannelResult> results, String firstDelivered, long firstDeliveryMs) {
+        this.results = Collections.unmodifiableList(results);
+        this.firstDelivered = firstDelivered;
+        this.firstDeliveryMs = firstDeliveryMs;
+    }
+
+    public boolean anyDelivered() {
+        return firstDelivered != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("EmergencyReport{first=")
+                .append(firstDelivered).append(" in ").append(firstDeliveryMs).append("ms");
+        for (ChannelResult r : results) {
+            sb.append(", ").append(r.channel).append(r.delivered ? " ok " : " failed ")
+                    .append(r.elapsedMs).append("ms/").append(r.attempts).append(" attempts");
+        }
+        return sb.append('}').toString();
+    }
+}
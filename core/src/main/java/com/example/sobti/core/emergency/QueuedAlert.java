@@ -0,0 +1,73 @@
+package com.example.sobti.core.emergency;
+
+import com.example.sobti.core.codec.PackedReader;
+import com.example.sobti.core.codec.PackedWriter;
+
+// One alert still to be published through SNS, as kept in the alert retry
+// queue: a text to one phone number or a message to a topic. id is unique
+// per alert and recipient, so a replay can tell what already went out.
+public final class QueuedAlert {
+
+    public static final int TYPE_SMS = 1;
+    public static final int TYPE_TOPIC = 2;
+
+    private static final int VERSION = 1;
+
+    public final int type;
+    public final String id;
+    // Phone number or topic ARN
+    public final String target;
+    // Topics only; SMS has no subject
+    public final String subject;
+    public final String message;
+    public final long createdAt;
+
+    private QueuedAlert(int type, String id, String target, String subject, String message, long createdAt) {
+        this.type = type;
+        this.id = id;
+        this.target = target;
+        this.subject = subject;
+        this.message = message;
+        this.createdAt = createdAt;
+    }
+
+    public static QueuedAlert sms(String phoneNumber, String message, long createdAt) {
+        return new QueuedAlert(TYPE_SMS, createdAt + "/" + phoneNumber, phoneNumber, null, message, createdAt);
+    }
+
+    public static QueuedAlert topic(String topicArn, String subject, String message, long createdAt) {
+        return new QueuedAlert(TYPE_TOPIC, createdAt + "/" + topicArn, topicArn, subject, message, createdAt);
+    }
+
+    public byte[] encode() {
+        PackedWriter out = new PackedWriter(64 + message.length());
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        out.writeString(target);
+        out.writeString(subject);
+        out.writeString(message);
+        out.writeLong(createdAt);
+        return out.toByteArray();
+    }
+
+    public static QueuedAlert decode(byte[] data) {
+        PackedReader in = new PackedReader(data);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported alert version " + version);
+        }
+        int type = in.readByte();
+        String target = in.readString();
+        String subject = in.readString();
+        String message = in.readString();
+        long createdAt = in.readLong();
+        switch (type) {
+            case TYPE_SMS:
+                return sms(target, message, createdAt);
+            case TYPE_TOPIC:
+                return topic(target, subject.isEmpty() ? null : subject, message, createdAt);
+            default:
+                throw new IllegalArgumentException("Unknown alert type " + type);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.sobti.core.emergency;
+
+import com.example.sobti.core.mapping.Attribute;
+import com.example.sobti.core.mapping.Item;
+import com.example.sobti.core.queue.OutboundRecord;
+
+// A row of the SobtiAlerts table, keyed by email and timestamp;
+// SentAlertMapper is generated from it. Alerts raised before a fix have no
+// location, and the attribute is then left out.
+@Item(table = "SobtiAlerts")
+public class SentAlert {
+    @Attribute(required = true)
+    public String email;
+    @Attribute(required = true)
+    public long timestamp;
+    @Attribute(required = true)
+    public int heartRate;
+    @Attribute
+    public String location;
+    @Attribute(required = true)
+    public String message;
+
+    public static SentAlert from(OutboundRecord alert) {
+        SentAlert sent = new SentAlert();
+        sent.email = alert.email;
+        sent.timestamp = alert.timestamp;
+        sent.heartRate = alert.heartRate;
+        sent.location = alert.location;
+        sent.message = alert.message;
+        return sent;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.sobti.core.insight;
+
+import com.example.sobti.core.cache.LruTtlCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Decides when vitals are worth a new AI summary. Readings are bucketed so
+// near-identical vitals share one prompt; answers are cached per bucket for
+// a TTL; at most one call is in flight and calls are at least minIntervalMs
+// apart. Requests arriving while a call is in flight or throttled collapse
+// into a single pending request holding the newest vitals.
+public final class InsightScheduler {
+
+    public interface InsightSource {
+        String generate(String prompt) throws Exception;
+    }
+
+    public interface PromptFactory {
+        String build(int heartRateLow, int heartRateHigh, int stepsBucket, String location);
+    }
+
+    public interface Listener {
+        void onInsight(String insight, boolean cached);
+        void onError(Exception e);
+    }
+
+    public static final int HEART_RATE_BUCKET = 5;
+    public static final int STEPS_BUCKET = 500;
+
+    private static final class Request {
+        final String key;
+        final String prompt;
+        final Listener listener;
+
+        Request(String key, String prompt, Listener listener) {
+            this.key = key;
+            this.prompt = prompt;
+            this.listener = listener;
+        }
+    }
+
+    private final InsightSource source;
+    private final PromptFactory promptFactory;
+    private final ScheduledExecutorService executor;
+    private final long minIntervalMs;
+    private final LongSupplier clock;
+    private final LruTtlCache<String, String> cache;
+
+    private String inFlightKey;
+    private final List<Listener> waiters = new ArrayList<>();
+    private Request pending;
+    private ScheduledFuture<?> pendingTimer;
+    private long lastCallAt = Long.MIN_VALUE / 2;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public InsightScheduler(InsightSource source, PromptFactory promptFactory,
+                            ScheduledExecutorService executor, long minIntervalMs,
+                            int cacheSize, long cacheTtlMs) {
+        this(source, promptFactory, executor, minIntervalMs, cacheSize, cacheTtlMs,
+                System::currentTimeMillis);
+    }
+
+    public InsightScheduler(InsightSource source, PromptFactory promptFactory,
+                            ScheduledExecutorService executor, long minIntervalMs,
+                            int cacheSize, long cacheTtlMs, LongSupplier clock) {
+        this.source = source;
+        this.promptFactory = promptFactory;
+        this.executor = executor;
+        this.minIntervalMs = minIntervalMs;
+        this.clock = clock;
+        this.cache = new LruTtlCache<>(cacheSize, cacheTtlMs);
+    }
+
+    public void request(int heartRate, int steps, String location, Listener listener) {
+        int hrLow = Math.floorDiv(heartRate, HEART_RATE_BUCKET) * HEART_RATE_BUCKET;
+        int stepsBucket = Math.floorDiv(steps, STEPS_BUCKET) * STEPS_BUCKET;
+        String place = coarseLocation(location);
+        String key = hrLow + "|" + stepsBucket + "|" + place;
+
+        String cached;
+        synchronized (this) {
+            cached = cache.get(key, clock.getAsLong());
+            if (cached == null) {
+                if (key.equals(inFlightKey)) {
+                    waiters.add(listener);
+                    coalesced.incrementAndGet();
+                    return;
+                }
+                String prompt = promptFactory.build(hrLow, hrLow + HEART_RATE_BUCKET - 1, stepsBucket, place);
+                if (pending != null) {
+                    coalesced.incrementAndGet();
+                }
+                pending = new Request(key, prompt, listener);
+                drainLocked();
+                return;
+            }
+        }
+        cacheHits.incrementAndGet();
+        listener.onInsight(cached, true);
+    }
+
+    public long callCount() {
+        return calls.get();
+    }
+
+    public long cacheHitCount() {
+        return cacheHits.get();
+    }
+
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    public synchronized void cancelPending() {
+        pending = null;
+        if (pendingTimer != null) {
+            pendingTimer.cancel(false);
+            pendingTimer = null;
+        }
+    }
+
+    // Rounds "lat, lon" to two decimals (about 1 km) so GPS jitter does not
+    // defeat the cache. Anything else is used verbatim.
+    static String coarseLocation(String location) {
+        if (location == null) {
+            return "";
+        }
+        int comma = location.indexOf(',');
+        if (comma < 0) {
+            return location.trim();
+        }
+        try {
+            double lat = Double.parseDouble(location.substring(0, comma).trim());
+            double lon = Double.parseDouble(location.substring(comma + 1).trim());
+            return round2(lat) + ", " + round2(lon);
+        } catch (NumberFormatException e) {
+            return location.trim();
+        }
+    }
+
+    private static String round2(double value) {
+        long hundredths = Math.round(value * 100);
+        String sign = hundredths < 0 ? "-" : "";
+        hundredths = Math.abs(hundredths);
+        long frac = hundredths % 100;
+        return sign + (hundredths / 100) + "." + (frac < 10 ? "0" : "") + frac;
+    }
+
+    private void drainLocked() {
+        if (pending == null || inFlightKey != null || pendingTimer != null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        long wait = lastCallAt + minIntervalMs - now;
+        if (wait > 0) {
+            pendingTimer = executor.schedule(() -> {
+                synchronized (this) {
+                    pendingTimer = null;
+                    drainLocked();
+                }
+            }, wait, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        Request request = pending;
+        pending = null;
+        inFlightKey = request.key;
+        waiters.add(request.listener);
+        lastCallAt = now;
+        calls.incrementAndGet();
+        executor.execute(() -> call(request));
+    }
+
+    private void call(Request request) {
+        String insight = null;
+        Exception error = null;
+        try {
+            insight = source.generate(request.prompt);
+        } catch (Exception e) {
+            error = e;
+        }
+
+        List<Listener> done;
+        Listener pendingListener = null;
+        String pendingHit = null;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            if (insight != null) {
+                cache.put(request.key, insight, now);
+            }
+            done = new ArrayList<>(waiters);
+            waiters.clear();
+            inFlightKey = null;
+            if (pending != null) {
+                pendingHit = cache.get(pending.key, now);
+                if (pendingHit != null) {
+                    pendingListener = pending.listener;
+                    pending = null;
+                }
+            }
+            drainLocked();
+        }
+
+        for (Listener listener : done) {
+            if (error != null) {
+                listener.onError(error);
+            } else {
+                listener.onInsight(insight, false);
+            }
+        }
+        if (pendingListener != null) {
+            cacheHits.incrementAndGet();
+            pendingListener.onInsight(pendingHit, true);
+        }
+    }
+}
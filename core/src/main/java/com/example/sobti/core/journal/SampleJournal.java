@@ -0,0 +1,319 @@
+package com.example.sobti.core.journal;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Append-only sample journal for the watch. Segments are preallocated files
+// of fixed 32-byte records, and the newest one is memory-mapped, so an
+// append is a handful of stores into the page cache:
+//
+//   long seq | long timestamp | int heartRate | int steps | int crc32 | int commit
+//
+// The commit marker is written last. A record counts only if its marker and
+// CRC are intact, so a crash mid-append leaves at most one torn slot, which
+// the next append overwrites. Sequence numbers are contiguous; a segment
+// file is named after the seq of its first slot.
+//
+// acknowledge() records how far the phone has durably received and deletes
+// segments that are entirely at or below that point.
+public final class SampleJournal implements Closeable {
+
+    public static final int RECORD_BYTES = 32;
+
+    private static final int COMMIT_MARKER = 0x534A4E31;
+    private static final String SEGMENT_SUFFIX = ".jnl";
+    private static final String ACK_FILE = "acked";
+
+    private final File dir;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+    // First seq of each segment -> file
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[24];
+
+    private RandomAccessFile activeFile;
+    private MappedByteBuffer active;
+    private long activeFirstSeq;
+    private int activeSlot;
+    private long nextSeq;
+    private long ackedSeq;
+    private long dropped;
+
+    // initialSeq is used only when the directory holds no journal yet. Pick
+    // one above anything an earlier install could have produced, such as
+    // the wall clock in microseconds, so a reinstall never reuses seqs.
+    public SampleJournal(File dir, int recordsPerSegment, int maxSegments, long initialSeq) throws IOException {
+        if (recordsPerSegment <= 0 || maxSegments < 2) {
+            throw new IllegalArgumentException("Need positive segment size and at least two segments");
+        }
+        this.dir = dir;
+        this.recordsPerSegment = recordsPerSegment;
+        this.maxSegments = maxSegments;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        recover(initialSeq);
+    }
+
+    // Returns the seq assigned to the sample
+    public synchronized long append(long timestamp, int heartRate, int steps) throws IOException {
+        if (activeSlot == recordsPerSegment) {
+            roll();
+        }
+        long seq = nextSeq;
+        int base = activeSlot * RECORD_BYTES;
+        active.putLong(base, seq);
+        active.putLong(base + 8, timestamp);
+        active.putInt(base + 16, heartRate);
+        active.putInt(base + 20, steps);
+        active.putInt(base + 24, checksum(active, base));
+        active.putInt(base + 28, COMMIT_MARKER);
+        activeSlot++;
+        nextSeq++;
+        return seq;
+    }
+
+    // Copies up to max committed records with seq >= fromSeq into out
+    // (cleared first, and never past its capacity). Returns the seq of the
+    // first copied record, or -1 when there is nothing at or after fromSeq.
+    public synchronized long read(long fromSeq, int max, SampleRingBuffer out) throws IOException {
+        out.clear();
+        int limit = Math.min(max, out.capacity());
+        long from = Math.max(fromSeq, firstSeq());
+        if (from >= nextSeq || limit <= 0) {
+            return -1;
+        }
+        long first = from;
+        Long segmentSeq = segments.floorKey(from);
+        while (segmentSeq != null && out.size() < limit && from < nextSeq) {
+            int slot = (int) (from - segmentSeq);
+            int count = (int) Math.min(limit - out.size(),
+                    Math.min(recordsPerSegment - slot, nextSeq - from));
+            ByteBuffer records = segmentSeq == activeFirstSeq
+                    ? active.duplicate()
+                    : readSegment(segments.get(segmentSeq), slot, count);
+            int base = segmentSeq == activeFirstSeq ? slot * RECORD_BYTES : 0;
+            for (int i = 0; i < count; i++) {
+                int offset = base + i * RECORD_BYTES;
+                if (!isCommitted(records, offset, from + i)) {
+                    // Damaged record in a sealed segment; what follows can't be trusted
+                    return out.isEmpty() ? -1 : first;
+                }
+                out.add(records.getLong(offset + 8), records.getInt(offset + 16), records.getInt(offset + 20));
+            }
+            from += count;
+            segmentSeq = segments.higherKey(segmentSeq);
+        }
+        return out.isEmpty() ? -1 : first;
+    }
+
+    // Everything up to and including seq has been received by the phone
+    public synchronized void acknowledge(long seq) throws IOException {
+        if (seq <= ackedSeq) {
+            return;
+        }
+        ackedSeq = Math.min(seq, nextSeq - 1);
+        writeAcked();
+        compact();
+    }
+
+    public synchronized long ackedSeq() {
+        return ackedSeq;
+    }
+
+    // Seq the next append will get
+    public synchronized long nextSeq() {
+        return nextSeq;
+    }
+
+    public synchronized long pendingCount() {
+        return nextSeq - 1 - Math.max(ackedSeq, firstSeq() - 1);
+    }
+
+    // Unacknowledged records lost because the journal hit maxSegments
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    // Forces the mapped segment to storage; only needed against power loss
+    public synchronized void sync() {
+        active.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (activeFile != null) {
+            active.force();
+            activeFile.close();
+            activeFile = null;
+        }
+    }
+
+    private long firstSeq() {
+        return segments.firstKey();
+    }
+
+    private void recover(long initialSeq) throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        readAcked();
+
+        if (segments.isEmpty()) {
+            ackedSeq = Math.max(ackedSeq, initialSeq - 1);
+            openSegment(Math.max(initialSeq, ackedSeq + 1));
+            return;
+        }
+
+        long last = segments.lastKey();
+        mapSegment(last);
+        activeSlot = 0;
+        while (activeSlot < recordsPerSegment
+                && isCommitted(active, activeSlot * RECORD_BYTES, last + activeSlot)) {
+            activeSlot++;
+        }
+        nextSeq = last + activeSlot;
+        if (ackedSeq < firstSeq() - 1) {
+            ackedSeq = firstSeq() - 1;
+        }
+        compact();
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        activeFile.close();
+        openSegment(nextSeq);
+        while (segments.size() > maxSegments) {
+            long oldest = segments.firstKey();
+            long next = segments.higherKey(oldest);
+            if (ackedSeq < next - 1) {
+                dropped += next - 1 - Math.max(ackedSeq, oldest - 1);
+                ackedSeq = next - 1;
+                writeAcked();
+            }
+            deleteSegment(oldest);
+        }
+    }
+
+    private void openSegment(long firstSeq) throws IOException {
+        File file = new File(dir, String.format("%020d%s", firstSeq, SEGMENT_SUFFIX));
+        segments.put(firstSeq, file);
+        mapSegment(firstSeq);
+        // A reused name may hold stale bytes from a deleted journal
+        for (int slot = 0; slot < recordsPerSegment; slot++) {
+            active.putInt(slot * RECORD_BYTES + 28, 0);
+        }
+        activeSlot = 0;
+        nextSeq = firstSeq;
+    }
+
+    private void mapSegment(long firstSeq) throws IOException {
+        activeFile = new RandomAccessFile(segments.get(firstSeq), "rw");
+        long size = (long) recordsPerSegment * RECORD_BYTES;
+        if (activeFile.length() != size) {
+            activeFile.setLength(size);
+        }
+        active = activeFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        activeFirstSeq = firstSeq;
+    }
+
+    // Drops sealed segments whose every record is acknowledged
+    private void compact() throws IOException {
+        while (segments.size() > 1) {
+            long oldest = segments.firstKey();
+            long next = segments.higherKey(oldest);
+            if (next - 1 > ackedSeq) {
+                break;
+            }
+            deleteSegment(oldest);
+        }
+    }
+
+    private void deleteSegment(long firstSeq) throws IOException {
+        File file = segments.remove(firstSeq);
+        if (file != null && file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+    }
+
+    private ByteBuffer readSegment(File file, int slot, int count) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(count * RECORD_BYTES);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            long position = (long) slot * RECORD_BYTES;
+            while (buf.hasRemaining()) {
+                int read = channel.read(buf, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+        }
+        return buf;
+    }
+
+    private boolean isCommitted(ByteBuffer records, int offset, long expectedSeq) {
+        if (offset + RECORD_BYTES > records.limit()) {
+            return false;
+        }
+        return records.getInt(offset + 28) == COMMIT_MARKER
+                && records.getLong(offset) == expectedSeq
+                && records.getInt(offset + 24) == checksum(records, offset);
+    }
+
+    private int checksum(ByteBuffer records, int offset) {
+        for (int i = 0; i < scratch.length; i++) {
+            scratch[i] = records.get(offset + i);
+        }
+        crc.reset();
+        crc.update(scratch, 0, scratch.length);
+        return (int) crc.getValue();
+    }
+
+    private void readAcked() throws IOException {
+        File file = new File(dir, ACK_FILE);
+        if (file.length() != 8) {
+            ackedSeq = 0;
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            ackedSeq = in.readLong();
+        }
+    }
+
+    private void writeAcked() throws IOException {
+        File tmp = new File(dir, ACK_FILE + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            out.writeLong(ackedSeq);
+        }
+        if (!tmp.renameTo(new File(dir, ACK_FILE))) {
+            throw new IOException("Cannot update ack in " + dir);
+        }
+    }
+}
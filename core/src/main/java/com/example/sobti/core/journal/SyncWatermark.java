@@ -0,0 +1,46 @@
+package com.example.sobti.core.journal;
+
+// Phone-side bookkeeping for one watch journal. The watermark is the
+// highest seq up to which every sample has been recorded; it is what the
+// phone acknowledges. Batches that start past it leave a gap that the
+// watch fills by backfilling from watermark + 1, so they are shown but not
+// recorded.
+public final class SyncWatermark {
+
+    public static final long UNKNOWN = -1;
+
+    private long watermark;
+    private long highestSeen;
+
+    // Pass UNKNOWN on first contact; the first batch then sets the watermark
+    public SyncWatermark(long watermark) {
+        this.watermark = watermark;
+        this.highestSeen = watermark;
+    }
+
+    // Returns the first seq in [firstSeq, lastSeq] to record, or -1 when
+    // nothing in the batch should be recorded (a gap, or all seen before).
+    public synchronized long accept(long firstSeq, long lastSeq) {
+        if (watermark == UNKNOWN) {
+            watermark = firstSeq - 1;
+        }
+        if (firstSeq > watermark + 1 || lastSeq <= watermark) {
+            return -1;
+        }
+        long from = watermark + 1;
+        watermark = lastSeq;
+        return from;
+    }
+
+    // Advances the highest seq shown live and returns its previous value,
+    // so samples that arrive twice are only displayed once
+    public synchronized long markSeen(long lastSeq) {
+        long previous = highestSeen;
+        highestSeen = Math.max(highestSeen, lastSeq);
+        return previous;
+    }
+
+    public synchronized long watermark() {
+        return watermark;
+    }
+}
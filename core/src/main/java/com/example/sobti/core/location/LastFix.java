@@ -0,0 +1,58 @@
+package com.example.sobti.core.location;
+
+import java.util.Locale;
+
+// The newest location fix, kept as primitives. Fixes arrive far more often
+// than anything reads them, so the "lat, lon" text is only built when a
+// message or the screen needs it, and reused until the next fix.
+//
+// Updated on the main thread and read from the health thread, so every
+// method locks; the lock is uncontended almost always.
+public final class LastFix {
+
+    private double latitude;
+    private double longitude;
+    private float accuracyM;
+    private long time = -1;
+    private String text;
+
+    public synchronized void update(double latitude, double longitude, float accuracyM, long time) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyM = accuracyM;
+        this.time = time;
+        this.text = null;
+    }
+
+    public synchronized boolean hasFix() {
+        return time >= 0;
+    }
+
+    public synchronized double latitude() {
+        return latitude;
+    }
+
+    public synchronized double longitude() {
+        return longitude;
+    }
+
+    public synchronized float accuracyM() {
+        return accuracyM;
+    }
+
+    // -1 without a fix
+    public synchronized long ageMs(long now) {
+        return time < 0 ? -1 : Math.max(0, now - time);
+    }
+
+    // "lat, lon" to six places, or null without a fix
+    public synchronized String describe() {
+        if (time < 0) {
+            return null;
+        }
+        if (text == null) {
+            text = String.format(Locale.US, "%.6f, %.6f", latitude, longitude);
+        }
+        return text;
+    }
+}
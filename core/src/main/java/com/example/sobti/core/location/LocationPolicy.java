@@ -0,0 +1,149 @@
+package com.example.sobti.core.location;
+
+import java.util.function.LongSupplier;
+
+// Picks how hard the phone looks for location from what the vitals are
+// doing. Normal readings get cheap, infrequent fixes, and after a long calm
+// stretch only passive ones other apps already paid for. An out-of-range
+// reading or an anomaly arms it: fast high-accuracy fixes, held for holdMs
+// after the last such reading so an alert carries a fresh position.
+// Fixes are counted per mode to show the GPS wake-ups saved against a
+// fixed interval.
+//
+// Not thread-safe; the app drives it from the main thread.
+public final class LocationPolicy {
+
+    public enum Mode {
+        PASSIVE(15 * 60_000L, 60_000L),
+        BALANCED(5 * 60_000L, 60_000L),
+        HIGH_ACCURACY(10_000L, 5_000L);
+
+        public final long intervalMs;
+        public final long minIntervalMs;
+
+        Mode(long intervalMs, long minIntervalMs) {
+            this.intervalMs = intervalMs;
+            this.minIntervalMs = minIntervalMs;
+        }
+    }
+
+    public interface Listener {
+        void onModeChanged(Mode mode);
+    }
+
+    public static final class Stats {
+        public final long passiveFixes;
+        public final long balancedFixes;
+        public final long highAccuracyFixes;
+        public final long switches;
+        public final long passiveMs;
+        public final long balancedMs;
+        public final long highAccuracyMs;
+
+        Stats(long[] fixes, long switches, long[] timeMs) {
+            this.passiveFixes = fixes[Mode.PASSIVE.ordinal()];
+            this.balancedFixes = fixes[Mode.BALANCED.ordinal()];
+            this.highAccuracyFixes = fixes[Mode.HIGH_ACCURACY.ordinal()];
+            this.switches = switches;
+            this.passiveMs = timeMs[Mode.PASSIVE.ordinal()];
+            this.balancedMs = timeMs[Mode.BALANCED.ordinal()];
+            this.highAccuracyMs = timeMs[Mode.HIGH_ACCURACY.ordinal()];
+        }
+
+        public long fixes() {
+            return passiveFixes + balancedFixes + highAccuracyFixes;
+        }
+
+        // High-accuracy fixes a fixed interval would have asked for
+        // over the same time
+        public long fixesAtInterval(long intervalMs) {
+            return (passiveMs + balancedMs + highAccuracyMs) / intervalMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("fixes passive=%d balanced=%d high=%d switches=%d time passive=%ds balanced=%ds high=%ds",
+                    passiveFixes, balancedFixes, highAccuracyFixes, switches,
+                    passiveMs / 1000, balancedMs / 1000, highAccuracyMs / 1000);
+        }
+    }
+
+    private final long holdMs;
+    private final long passiveAfterMs;
+    private final Listener listener;
+    private final LongSupplier clock;
+
+    private Mode mode = Mode.BALANCED;
+    private long modeSince;
+    private long calmSince;
+    private long armedUntil = Long.MIN_VALUE;
+    private final long[] fixes = new long[Mode.values().length];
+    private final long[] timeMs = new long[Mode.values().length];
+    private long switches;
+
+    public LocationPolicy(long holdMs, long passiveAfterMs, Listener listener) {
+        this(holdMs, passiveAfterMs, listener, System::currentTimeMillis);
+    }
+
+    // Starts in BALANCED, so there is a fix before vitals have settled
+    public LocationPolicy(long holdMs, long passiveAfterMs, Listener listener, LongSupplier clock) {
+        this.holdMs = holdMs;
+        this.passiveAfterMs = passiveAfterMs;
+        this.listener = listener;
+        this.clock = clock;
+        this.modeSince = clock.getAsLong();
+        this.calmSince = modeSince;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public void onVitals(boolean outOfRange) {
+        long now = clock.getAsLong();
+        if (outOfRange) {
+            arm(now);
+            return;
+        }
+        if (now < armedUntil) {
+            return;
+        }
+        if (mode == Mode.HIGH_ACCURACY) {
+            calmSince = now;
+            switchTo(Mode.BALANCED, now);
+        } else if (mode == Mode.BALANCED && now - calmSince >= passiveAfterMs) {
+            switchTo(Mode.PASSIVE, now);
+        }
+    }
+
+    public void onAnomaly() {
+        arm(clock.getAsLong());
+    }
+
+    // Counts a fix against the mode it was requested in
+    public void onFix() {
+        fixes[mode.ordinal()]++;
+    }
+
+    public Stats stats() {
+        long[] time = timeMs.clone();
+        time[mode.ordinal()] += clock.getAsLong() - modeSince;
+        return new Stats(fixes.clone(), switches, time);
+    }
+
+    private void arm(long now) {
+        armedUntil = now + holdMs;
+        switchTo(Mode.HIGH_ACCURACY, now);
+    }
+
+    private void switchTo(Mode next, long now) {
+        if (next == mode) {
+            return;
+        }
+        timeMs[mode.ordinal()] += now - modeSince;
+        modeSince = now;
+        mode = next;
+        switches++;
+        listener.onModeChanged(next);
+    }
+}
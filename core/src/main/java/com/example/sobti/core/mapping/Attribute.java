@@ -0,0 +1,22 @@
+package com.example.sobti.core.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// A mapped field of an @Item class. Supported types are String, int,
+// long, Integer and Long; the boxed types read as null when missing.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Attribute {
+    // Attribute name; the field name when empty
+    String value() default "";
+
+    // Reading an item without it fails instead of leaving the default
+    boolean required() default false;
+
+    // false for attributes maintained by update expressions rather than
+    // by writing the whole item
+    boolean write() default true;
+}
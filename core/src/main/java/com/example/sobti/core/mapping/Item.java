@@ -0,0 +1,16 @@
+package com.example.sobti.core.mapping;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a model class stored as a DynamoDB item. The :processor module
+// generates <Class>Mapper next to it at compile time, mapping each
+// @Attribute field without reflection.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Item {
+    // Table name, exposed as the mapper's TABLE constant
+    String table();
+}
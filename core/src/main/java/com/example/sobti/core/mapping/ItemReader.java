@@ -0,0 +1,11 @@
+package com.example.sobti.core.mapping;
+
+// Read view of a DynamoDB item, so mappers run on a plain JVM while the
+// SDK's AttributeValue stays in the app. Numbers come back as DynamoDB
+// sends them, as strings.
+public interface ItemReader {
+    // null when the attribute is missing
+    String string(String name);
+
+    String number(String name);
+}
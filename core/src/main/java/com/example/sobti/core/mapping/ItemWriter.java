@@ -0,0 +1,8 @@
+package com.example.sobti.core.mapping;
+
+// Write view of a DynamoDB item or of expression attribute values
+public interface ItemWriter {
+    void putString(String name, String value);
+
+    void putNumber(String name, long value);
+}
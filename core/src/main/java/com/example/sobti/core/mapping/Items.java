@@ -0,0 +1,87 @@
+package com.example.sobti.core.mapping;
+
+// Decoding used by generated mappers. Missing required attributes and
+// malformed numbers fail with IllegalArgumentException naming the
+// attribute, never a NullPointerException or a bare NumberFormatException.
+public final class Items {
+
+    private Items() {
+    }
+
+    // HashMap capacity that holds count entries without rehashing
+    public static int mapCapacity(int count) {
+        return (int) (count / 0.75f) + 1;
+    }
+
+    public static String requireString(ItemReader item, String name) {
+        String value = item.string(name);
+        if (value == null) {
+            throw missing(name);
+        }
+        return value;
+    }
+
+    public static int requireInt(ItemReader item, String name) {
+        String value = item.number(name);
+        if (value == null) {
+            throw missing(name);
+        }
+        return parseInt(name, value);
+    }
+
+    public static long requireLong(ItemReader item, String name) {
+        String value = item.number(name);
+        if (value == null) {
+            throw missing(name);
+        }
+        return parseLong(name, value);
+    }
+
+    public static int optInt(ItemReader item, String name, int fallback) {
+        String value = item.number(name);
+        return value == null ? fallback : parseInt(name, value);
+    }
+
+    public static long optLong(ItemReader item, String name, long fallback) {
+        String value = item.number(name);
+        return value == null ? fallback : parseLong(name, value);
+    }
+
+    public static Integer optInteger(ItemReader item, String name) {
+        String value = item.number(name);
+        return value == null ? null : parseInt(name, value);
+    }
+
+    public static Long optLongValue(ItemReader item, String name) {
+        String value = item.number(name);
+        return value == null ? null : parseLong(name, value);
+    }
+
+    // Required attributes must be set before the item is written
+    public static <T> T checkSet(T value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Required attribute " + name + " is null");
+        }
+        return value;
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Attribute " + name + " is not an int: " + value, e);
+        }
+    }
+
+    private static long parseLong(String name, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Attribute " + name + " is not a long: " + value, e);
+        }
+    }
+
+    private static IllegalArgumentException missing(String name) {
+        return new IllegalArgumentException("Item has no " + name);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.sobti.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// A running total, e.g. retries or new connections. Striped, so threads
+// adding at once do not contend on one cache line.
+public final class Counter {
+
+    public final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
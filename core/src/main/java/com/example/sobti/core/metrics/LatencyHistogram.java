@@ -0,0 +1,124 @@
+package com.example.sobti.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency distribution in the style of HdrHistogram: values below 64 get a
+// bucket each, and every power of two above that is split into 32 linear
+// buckets, so a reported value is at most about 3% above what was
+// recorded. Recording is one array increment plus a sum and a max, with no
+// lock and no allocation, and is safe from any thread. Values are
+// nanoseconds up to about an hour; longer ones land in the last bucket.
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // Below this every value has its own bucket
+    private static final int LINEAR = SUB_COUNT << 1;
+    private static final int MAX_BIT = 41;
+    private static final long MAX_VALUE = (1L << (MAX_BIT + 1)) - 1;
+    static final int BUCKETS = LINEAR + (MAX_BIT - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        buckets.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+        long seen;
+        while (value > (seen = max.get())) {
+            if (max.compareAndSet(seen, value)) {
+                break;
+            }
+        }
+    }
+
+    // Buckets are copied one at a time while others may record, so a
+    // snapshot is consistent with itself but can miss the newest values
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, sum.get(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    // Largest value that lands in the bucket
+    static long highestIn(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int k = bucket - LINEAR;
+        int shift = k / SUB_COUNT + 1;
+        long sub = k % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public static final class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0, 0);
+
+        private final long[] counts;
+        public final long count;
+        public final long sumNanos;
+        public final long maxNanos;
+
+        Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long meanNanos() {
+            return count == 0 ? 0 : sumNanos / count;
+        }
+
+        // Smallest bucket bound with at least the fraction q of the values at
+        // or below it, capped at the largest value seen; 0 when empty
+        public long percentile(double q) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        // What was recorded after the earlier snapshot of the same histogram.
+        // The max is the top of the highest bucket used since, as the exact
+        // value is not kept per interval.
+        public Snapshot since(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            long deltaCount = 0;
+            int highest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                deltaCount += delta[i];
+                if (delta[i] > 0) {
+                    highest = i;
+                }
+            }
+            long deltaMax = highest < 0 ? 0 : Math.min(highestIn(highest), maxNanos);
+            return new Snapshot(delta, deltaCount, sumNanos - earlier.sumNanos, deltaMax);
+        }
+    }
+}
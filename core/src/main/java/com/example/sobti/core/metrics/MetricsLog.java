@@ -0,0 +1,90 @@
+package com.example.sobti.core.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Rolling text log of registry reports. Each entry is a "# <time>" line and
+// what changed since the previous entry; quiet intervals write nothing.
+// Entries go to metrics.log, which is renamed to metrics.1.log (and so on,
+// up to keep old files) once it passes maxBytes, so disk use stays bounded
+// however long the app runs.
+//
+// Not thread-safe; one background task writes it.
+public final class MetricsLog {
+
+    static final String CURRENT = "metrics.log";
+
+    private final File dir;
+    private final long maxBytes;
+    private final int keep;
+    private MetricsRegistry.Report previous = MetricsRegistry.Report.EMPTY;
+
+    public MetricsLog(File dir, long maxBytes, int keep) throws IOException {
+        if (keep < 1) {
+            throw new IllegalArgumentException("keep must be at least 1");
+        }
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.keep = keep;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+    }
+
+    // Returns false when nothing changed since the last entry
+    public boolean append(long timestamp, MetricsRegistry.Report report) throws IOException {
+        MetricsRegistry.Report interval = report.since(previous);
+        previous = report;
+        if (interval.isEmpty()) {
+            return false;
+        }
+        File current = new File(dir, CURRENT);
+        if (current.length() >= maxBytes) {
+            roll();
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(current, true), StandardCharsets.UTF_8)) {
+            out.write("# " + Instant.ofEpochMilli(timestamp) + "\n");
+            for (String line : interval.lines()) {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        return true;
+    }
+
+    // Newest first
+    public List<File> files() {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i <= keep; i++) {
+            File file = file(i);
+            if (file.exists()) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private void roll() throws IOException {
+        File oldest = file(keep);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Cannot delete " + oldest);
+        }
+        for (int i = keep - 1; i >= 0; i--) {
+            File from = file(i);
+            if (from.exists() && !from.renameTo(file(i + 1))) {
+                throw new IOException("Cannot roll " + from);
+            }
+        }
+    }
+
+    private File file(int generation) {
+        return new File(dir, generation == 0 ? CURRENT : "metrics." + generation + ".log");
+    }
+}
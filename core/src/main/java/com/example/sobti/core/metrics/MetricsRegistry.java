@@ -0,0 +1,113 @@
+package com.example.sobti.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Timers and counters for every outbound call, named "<client>.<operation>"
+// (e.g. "dynamodb.updateItem", "dispatch.storage.wait"). Lookups create the
+// metric on first use and are meant for setup; the hot paths hold on to
+// what they got. Safe to use from any thread.
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public Timer timer(String client, String operation) {
+        return timers.computeIfAbsent(client + "." + operation, Timer::new);
+    }
+
+    public Counter counter(String client, String name) {
+        return counters.computeIfAbsent(client + "." + name, Counter::new);
+    }
+
+    public Report report() {
+        Map<String, Timer.Snapshot> timerSnapshots = new TreeMap<>();
+        for (Timer timer : timers.values()) {
+            timerSnapshots.put(timer.name, timer.snapshot());
+        }
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Counter counter : counters.values()) {
+            counterValues.put(counter.name, counter.get());
+        }
+        return new Report(timerSnapshots, counterValues);
+    }
+
+    // Everything recorded up to one moment, sorted by name
+    public static final class Report {
+        public static final Report EMPTY = new Report(
+                Collections.<String, Timer.Snapshot>emptyMap(), Collections.<String, Long>emptyMap());
+
+        public final Map<String, Timer.Snapshot> timers;
+        public final Map<String, Long> counters;
+
+        Report(Map<String, Timer.Snapshot> timers, Map<String, Long> counters) {
+            this.timers = Collections.unmodifiableMap(timers);
+            this.counters = Collections.unmodifiableMap(counters);
+        }
+
+        // The interval after an earlier report. Metrics with nothing new are
+        // left out.
+        public Report since(Report earlier) {
+            Map<String, Timer.Snapshot> timerDeltas = new TreeMap<>();
+            for (Timer.Snapshot now : timers.values()) {
+                Timer.Snapshot before = earlier.timers.get(now.name);
+                Timer.Snapshot delta = before == null ? now : now.since(before);
+                if (delta.latency.count > 0) {
+                    timerDeltas.put(now.name, delta);
+                }
+            }
+            Map<String, Long> counterDeltas = new TreeMap<>();
+            for (Map.Entry<String, Long> now : counters.entrySet()) {
+                Long before = earlier.counters.get(now.getKey());
+                long delta = now.getValue() - (before == null ? 0 : before);
+                if (delta != 0) {
+                    counterDeltas.put(now.getKey(), delta);
+                }
+            }
+            return new Report(timerDeltas, counterDeltas);
+        }
+
+        public boolean isEmpty() {
+            return timers.isEmpty() && counters.isEmpty();
+        }
+
+        // One line per metric, timers first
+        public List<String> lines() {
+            List<String> lines = new ArrayList<>(timers.size() + counters.size());
+            for (Timer.Snapshot timer : timers.values()) {
+                lines.add(timer.toString());
+            }
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                lines.add(counter.getKey() + "=" + counter.getValue());
+            }
+            return lines;
+        }
+
+        @Override
+        public String toString() {
+            return String.join("\n", lines());
+        }
+    }
+
+    // 850us, 12.4ms, 1.32s
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000_000L) {
+            return (nanos / 1_000L) + "us";
+        }
+        if (nanos < 1_000_000_000L) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.sobti.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and failures of one operation of one client, e.g. DynamoDB's
+// UpdateItem. Callers look a timer up once and keep it in a field; timing a
+// call is then two nanoTime reads and a histogram update. Failed calls
+// count towards the latencies too, since timeouts are what the tail is
+// made of.
+public final class Timer {
+
+    public final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder failures = new LongAdder();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    public void stop(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    public void failed(long startNanos) {
+        stop(startNanos);
+        failures.increment();
+    }
+
+    // For durations measured elsewhere, such as a queue wait
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(name, latency.snapshot(), failures.sum());
+    }
+
+    public static final class Snapshot {
+        public final String name;
+        public final LatencyHistogram.Snapshot latency;
+        public final long failures;
+
+        Snapshot(String name, LatencyHistogram.Snapshot latency, long failures) {
+            this.name = name;
+            this.latency = latency;
+            this.failures = failures;
+        }
+
+        public Snapshot since(Snapshot earlier) {
+            return new Snapshot(name, latency.since(earlier.latency), failures - earlier.failures);
+        }
+
+        @Override
+        public String toString() {
+            return name + " n=" + latency.count + " err=" + failures
+                    + " p50=" + MetricsRegistry.formatNanos(latency.percentile(0.5))
+                    + " p99=" + MetricsRegistry.formatNanos(latency.percentile(0.99))
+                    + " p999=" + MetricsRegistry.formatNanos(latency.percentile(0.999))
+                    + " max=" + MetricsRegistry.formatNanos(latency.maxNanos);
+        }
+    }
+}
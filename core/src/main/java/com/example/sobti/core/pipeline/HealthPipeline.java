@@ -0,0 +1,200 @@
+package com.example.sobti.core.pipeline;
+
+import com.example.sobti.core.anomaly.AnomalyEngine;
+import com.example.sobti.core.anomaly.AnomalyRule;
+import com.example.sobti.core.anomaly.PersonalBaseline;
+import com.example.sobti.core.journal.SyncWatermark;
+import com.example.sobti.core.location.LastFix;
+import com.example.sobti.core.metrics.Timer;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.sample.SampleSink;
+import com.example.sobti.core.timeseries.HistoryRecorder;
+import com.example.sobti.core.transport.SampleBatchCodec;
+
+// The phone's ingestion path for watch samples: new samples go into
+// history chunks and through the anomaly engine, and the newest one of
+// each delivery is queued for upload and handed to the listener for
+// display. It has no Android dependencies so the load-test harness runs
+// exactly what the app runs.
+//
+// Not thread-safe; the app drives it from its single health thread.
+public final class HealthPipeline {
+
+    public interface Outbox {
+        void enqueue(OutboundRecord record, boolean urgent);
+    }
+
+    public interface Listener {
+        // Newest sample of a delivery, after it has been queued
+        void onLatest(long timestamp, int heartRate, int steps);
+
+        void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value);
+    }
+
+    private final Outbox outbox;
+    private final Listener listener;
+    private final HistoryRecorder history;
+    private final SampleSink batchSink = this::onBatchSample;
+
+    private volatile String email;
+    private volatile String location = "";
+    private LastFix fix;
+    private PersonalBaseline baseline = PersonalBaseline.DEFAULT;
+    private AnomalyEngine engine;
+    private Timer batchTimer;
+
+    // State of the batch being decoded
+    private long recordFrom;
+    private long seenThrough;
+    private int fresh;
+    private long lastTimestamp;
+    private int lastHeartRate;
+    private int lastSteps;
+
+    private long samples;
+    private long batches;
+    private long dropped;
+
+    public HealthPipeline(Outbox outbox, Listener listener, int historyFlushEvery) {
+        this.outbox = outbox;
+        this.listener = listener;
+        this.history = new HistoryRecorder((chunkStart, chunkEnd, count, chunk) -> {
+            String user = email;
+            if (user != null && !user.isEmpty()) {
+                outbox.enqueue(OutboundRecord.historyChunk(user, chunkStart, chunkEnd, count, chunk), false);
+            }
+        }, historyFlushEvery);
+        this.engine = newEngine(baseline);
+    }
+
+    // Nothing is queued until the user is known
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    // Used until the fix below has a position
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    // Read as each upload is built, so fixes between uploads cost nothing
+    public void setLocation(LastFix fix) {
+        this.fix = fix;
+    }
+
+    // Limits scale with age; anomaly history starts over with the new rules
+    public void setBaseline(PersonalBaseline baseline) {
+        this.baseline = baseline;
+        this.engine = newEngine(baseline);
+    }
+
+    // Times each onBatch, malformed ones as failures
+    public void setBatchTimer(Timer batchTimer) {
+        this.batchTimer = batchTimer;
+    }
+
+    public PersonalBaseline baseline() {
+        return baseline;
+    }
+
+    // A single reading outside any batch, as the legacy /health_data item sends
+    public void onSample(long timestamp, int heartRate, int steps) {
+        history.append(timestamp, heartRate, steps);
+        engine.onSample(timestamp, heartRate);
+        samples++;
+        publishLatest(timestamp, heartRate, steps);
+    }
+
+    // Samples past the watermark go into history; after a gap they are only
+    // shown, and the watch backfills them. Each sample is checked for
+    // anomalies once, even if its batch arrives twice. Without a watermark
+    // every sample is new. Returns the number of new samples; throws
+    // IllegalArgumentException for a malformed payload, which is checked
+    // whole before the watermark moves so its range can still be backfilled.
+    public int onBatch(SyncWatermark watermark, byte[] payload) {
+        Timer timer = batchTimer;
+        long start = timer == null ? 0 : Timer.start();
+        int count;
+        try {
+            count = SampleBatchCodec.validate(payload);
+        } catch (IllegalArgumentException e) {
+            dropped++;
+            if (timer != null) {
+                timer.failed(start);
+            }
+            throw e;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long firstSeq = SampleBatchCodec.firstSeq(payload);
+        long lastSeq = firstSeq + count - 1;
+        recordFrom = watermark == null ? firstSeq : watermark.accept(firstSeq, lastSeq);
+        seenThrough = watermark == null ? firstSeq - 1 : watermark.markSeen(lastSeq);
+        fresh = 0;
+
+        SampleBatchCodec.decode(payload, batchSink);
+        batches++;
+        if (recordFrom >= 0) {
+            // Queue recorded samples before the caller acknowledges them
+            history.flush();
+        }
+        if (fresh > 0) {
+            publishLatest(lastTimestamp, lastHeartRate, lastSteps);
+        }
+        if (timer != null) {
+            timer.stop(start);
+        }
+        return fresh;
+    }
+
+    // Queues any partly filled history chunk
+    public void flush() {
+        history.flush();
+    }
+
+    public long sampleCount() {
+        return samples;
+    }
+
+    public long batchCount() {
+        return batches;
+    }
+
+    public long malformedCount() {
+        return dropped;
+    }
+
+    public long anomalyCount() {
+        return engine.reportedCount();
+    }
+
+    private void onBatchSample(long seq, long timestamp, int heartRate, int steps) {
+        if (recordFrom >= 0 && seq >= recordFrom) {
+            history.append(timestamp, heartRate, steps);
+        }
+        if (seq > seenThrough) {
+            engine.onSample(timestamp, heartRate);
+            samples++;
+            fresh++;
+            lastTimestamp = timestamp;
+            lastHeartRate = heartRate;
+            lastSteps = steps;
+        }
+    }
+
+    // Out-of-range readings upload straight away, the rest go out in batches
+    private void publishLatest(long timestamp, int heartRate, int steps) {
+        String user = email;
+        if (user != null && !user.isEmpty()) {
+            String where = fix != null && fix.hasFix() ? fix.describe() : location;
+            outbox.enqueue(OutboundRecord.sample(user, timestamp, heartRate, steps, where),
+                    baseline.isOutOfRange(heartRate));
+        }
+        listener.onLatest(timestamp, heartRate, steps);
+    }
+
+    private AnomalyEngine newEngine(PersonalBaseline baseline) {
+        return AnomalyEngine.standard(baseline, listener::onAnomaly);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.sobti.core.pipeline;
+
+// Immutable view of the phone's health state, published by the thread that
+// owns the HealthPipeline. Readers hold whichever snapshot they took; a new
+// reading makes a new snapshot.
+public final class HealthState {
+
+    // Bits for changes()
+    public static final int HEART_RATE = 1;
+    public static final int STEPS = 1 << 1;
+    public static final int OUT_OF_RANGE = 1 << 2;
+    public static final int BACKFILL = 1 << 3;
+
+    public static final HealthState EMPTY = new HealthState(0, 0, 0, false, 0, 0);
+
+    public final long timestamp;
+    public final int heartRate;
+    public final int steps;
+    public final boolean outOfRange;
+    // Samples the pipeline has taken, and backlog samples synced from the watch
+    public final long samples;
+    public final long backfilled;
+
+    private HealthState(long timestamp, int heartRate, int steps, boolean outOfRange,
+                        long samples, long backfilled) {
+        this.timestamp = timestamp;
+        this.heartRate = heartRate;
+        this.steps = steps;
+        this.outOfRange = outOfRange;
+        this.samples = samples;
+        this.backfilled = backfilled;
+    }
+
+    public boolean hasReading() {
+        return timestamp > 0;
+    }
+
+    public HealthState withLatest(long timestamp, int heartRate, int steps, boolean outOfRange, long samples) {
+        return new HealthState(timestamp, heartRate, steps, outOfRange, samples, backfilled);
+    }
+
+    public HealthState withBackfill(int count) {
+        return new HealthState(timestamp, heartRate, steps, outOfRange, samples, backfilled + count);
+    }
+
+    // Fields that differ from previous, which may be null
+    public int changes(HealthState previous) {
+        if (previous == null) {
+            return HEART_RATE | STEPS | OUT_OF_RANGE | BACKFILL;
+        }
+        int changed = 0;
+        if (heartRate != previous.heartRate) {
+            changed |= HEART_RATE;
+        }
+        if (steps != previous.steps) {
+            changed |= STEPS;
+        }
+        if (outOfRange != previous.outOfRange) {
+            changed |= OUT_OF_RANGE;
+        }
+        if (backfilled != previous.backfilled) {
+            changed |= BACKFILL;
+        }
+        return changed;
+    }
+
+    @Override
+    public String toString() {
+        return "HealthState{hr=" + heartRate + " steps=" + steps + " outOfRange=" + outOfRange
+                + " at=" + timestamp + " samples=" + samples + " backfilled=" + backfilled + "}";
+    }
+}
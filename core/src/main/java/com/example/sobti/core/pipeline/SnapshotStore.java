@@ -0,0 +1,57 @@
+package com.example.sobti.core.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hands immutable snapshots from one writer thread to a reader without
+// locks. Each publish replaces the snapshot, and the reader is signalled
+// only once until it takes it, so a burst of publishes between two frames
+// costs one signal and one render of the newest state.
+public final class SnapshotStore<T> {
+
+    public interface Signal {
+        // Called on the publishing thread; must not block
+        void onDirty();
+    }
+
+    private final AtomicReference<T> current;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Signal signal;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong signals = new AtomicLong();
+
+    public SnapshotStore(T initial, Signal signal) {
+        this.current = new AtomicReference<>(initial);
+        this.signal = signal;
+    }
+
+    public void publish(T snapshot) {
+        current.set(snapshot);
+        published.incrementAndGet();
+        if (dirty.compareAndSet(false, true)) {
+            signals.incrementAndGet();
+            signal.onDirty();
+        }
+    }
+
+    // Newest snapshot, without touching the signal
+    public T get() {
+        return current.get();
+    }
+
+    // Newest snapshot, re-arming the signal. A publish racing with this
+    // signals again, so no snapshot is left unseen.
+    public T take() {
+        dirty.set(false);
+        return current.get();
+    }
+
+    public long publishedCount() {
+        return published.get();
+    }
+
+    public long signalCount() {
+        return signals.get();
+    }
+}
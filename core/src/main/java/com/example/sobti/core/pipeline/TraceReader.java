@@ -0,0 +1,86 @@
+package com.example.sobti.core.pipeline;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Base64;
+
+// Reads traces written by TraceRecorder, one event at a time. Blank lines
+// and comments are skipped; a malformed line is an IOException naming it.
+public final class TraceReader implements Closeable {
+
+    public static final class Event {
+        public final long arrivalMs;
+        // null if the recorder didn't know the node
+        public final String nodeId;
+        // Set for batches, null for single readings
+        public final byte[] batch;
+        public final long timestamp;
+        public final int heartRate;
+        public final int steps;
+
+        Event(long arrivalMs, String nodeId, byte[] batch, long timestamp, int heartRate, int steps) {
+            this.arrivalMs = arrivalMs;
+            this.nodeId = nodeId;
+            this.batch = batch;
+            this.timestamp = timestamp;
+            this.heartRate = heartRate;
+            this.steps = steps;
+        }
+
+        public boolean isBatch() {
+            return batch != null;
+        }
+    }
+
+    private final BufferedReader in;
+    private int lineNumber;
+
+    public TraceReader(Reader in) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    }
+
+    // Next event, or null at the end of the trace
+    public Event next() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                return parse(line.split(" "));
+            } catch (RuntimeException e) {
+                throw new IOException("Bad trace line " + lineNumber + ": " + line, e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static Event parse(String[] fields) {
+        long arrivalMs = Long.parseLong(fields[0]);
+        String nodeId = TraceRecorder.NO_NODE.equals(fields[2]) ? null : fields[2];
+        switch (fields[1]) {
+            case "S":
+                if (fields.length != 6) {
+                    throw new IllegalArgumentException("Expected 6 fields");
+                }
+                return new Event(arrivalMs, nodeId, null, Long.parseLong(fields[3]),
+                        Integer.parseInt(fields[4]), Integer.parseInt(fields[5]));
+            case "B":
+                if (fields.length != 4) {
+                    throw new IllegalArgumentException("Expected 4 fields");
+                }
+                return new Event(arrivalMs, nodeId, Base64.getDecoder().decode(fields[3]), 0, 0, 0);
+            default:
+                throw new IllegalArgumentException("Unknown event type " + fields[1]);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.sobti.core.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Base64;
+
+// Writes what the phone receives from the watch as a text trace that the
+// load-test harness can replay. One event per line, fields separated by a
+// space, arrival time in epoch ms first:
+//
+//   # sobti-trace 1
+//   <arrivalMs> S <node> <timestamp> <heartRate> <steps>   single reading
+//   <arrivalMs> B <node> <base64 batch payload>            sample batch
+//
+// A missing node is written as "-".
+public final class TraceRecorder implements Closeable {
+
+    static final String HEADER = "# sobti-trace 1";
+    static final String NO_NODE = "-";
+
+    private final Writer out;
+
+    public TraceRecorder(Writer out) throws IOException {
+        this.out = out;
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    public synchronized void recordSample(long arrivalMs, String nodeId, long timestamp, int heartRate, int steps)
+            throws IOException {
+        out.write(arrivalMs + " S " + node(nodeId) + " " + timestamp + " " + heartRate + " " + steps + "\n");
+    }
+
+    public synchronized void recordBatch(long arrivalMs, String nodeId, byte[] payload) throws IOException {
+        out.write(arrivalMs + " B " + node(nodeId) + " " + Base64.getEncoder().encodeToString(payload) + "\n");
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private static String node(String nodeId) {
+        return nodeId == null || nodeId.isEmpty() ? NO_NODE : nodeId;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.sobti.core.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The writes one outbox batch needs. Samples collapse to the newest per
+// user, since the user item only keeps the latest reading. The pipeline
+// queues a snapshot of the open history chunk after every watch batch, so
+// chunks collapse to the newest snapshot per user and chunk start; each
+// one holds every sample of the ones before it. Alerts are kept as they
+// are. Records that can't be read, have no user or have an unknown type
+// are skipped, since retrying can't fix them.
+public final class CoalescedBatch {
+
+    public final List<OutboundRecord> alerts;
+    public final List<OutboundRecord> chunks;
+    public final List<OutboundRecord> samples;
+    // Records folded into a newer one, and records skipped
+    public final int merged;
+    public final int skipped;
+
+    private CoalescedBatch(List<OutboundRecord> alerts, List<OutboundRecord> chunks,
+                           List<OutboundRecord> samples, int merged, int skipped) {
+        this.alerts = Collections.unmodifiableList(alerts);
+        this.chunks = Collections.unmodifiableList(chunks);
+        this.samples = Collections.unmodifiableList(samples);
+        this.merged = merged;
+        this.skipped = skipped;
+    }
+
+    // Oldest first, as the queue hands them out
+    public static CoalescedBatch of(List<byte[]> batch) {
+        Map<String, OutboundRecord> latest = new LinkedHashMap<>();
+        Map<String, OutboundRecord> chunks = new LinkedHashMap<>();
+        List<OutboundRecord> alerts = new ArrayList<>();
+        int merged = 0;
+        int skipped = 0;
+        for (byte[] raw : batch) {
+            OutboundRecord record;
+            try {
+                record = OutboundRecord.decode(raw);
+            } catch (IllegalArgumentException e) {
+                skipped++;
+                continue;
+            }
+            if (record.email == null || record.email.isEmpty()) {
+                skipped++;
+                continue;
+            }
+            switch (record.type) {
+                case OutboundRecord.TYPE_SAMPLE:
+                    if (latest.put(record.email, record) != null) {
+                        merged++;
+                    }
+                    break;
+                case OutboundRecord.TYPE_HISTORY_CHUNK:
+                    if (chunks.put(record.email + '\n' + record.timestamp, record) != null) {
+                        merged++;
+                    }
+                    break;
+                case OutboundRecord.TYPE_ALERT:
+                    alerts.add(record);
+                    break;
+                default:
+                    skipped++;
+            }
+        }
+        return new CoalescedBatch(alerts, new ArrayList<>(chunks.values()),
+                new ArrayList<>(latest.values()), merged, skipped);
+    }
+}
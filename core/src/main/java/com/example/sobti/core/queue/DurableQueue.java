@@ -0,0 +1,395 @@
+package com.example.sobti.core.queue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Append-only FIFO on disk. Records go into numbered segment files as
+// [int length][int crc32][payload]; a small cursor file remembers how far
+// the consumer has acknowledged. After a crash the tail of the newest
+// segment is checked and anything torn is cut off, so replay resumes in
+// order from the last acknowledged record.
+//
+// Disk use is bounded: when the total goes over maxBytes, whole segments
+// are dropped oldest first, including records not yet acknowledged, and
+// counted in evictedCount().
+public final class DurableQueue implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int HEADER_BYTES = 8;
+    public static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private static final class Segment {
+        final long index;
+        final File file;
+        long bytes;
+
+        Segment(long index, File file, long bytes) {
+            this.index = index;
+            this.file = file;
+            this.bytes = bytes;
+        }
+    }
+
+    private final File dir;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    private RandomAccessFile active;
+    private long cursorSegment;
+    private long cursorOffset;
+    private long pending;
+    private long evicted;
+    // Where each record returned by the last peek() ends, for ack()
+    private long[] peekSegments = new long[0];
+    private long[] peekEnds = new long[0];
+    private int peekCount;
+    private boolean peekEvicted;
+
+    public DurableQueue(File dir, long segmentBytes, long maxBytes) throws IOException {
+        if (segmentBytes > maxBytes) {
+            throw new IllegalArgumentException("segmentBytes larger than maxBytes");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        recover();
+    }
+
+    public synchronized void append(byte[] payload) throws IOException {
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Record too large: " + payload.length);
+        }
+        Segment tail = segments.lastEntry().getValue();
+        int frame = HEADER_BYTES + payload.length;
+        if (tail.bytes > 0 && tail.bytes + frame > segmentBytes) {
+            tail = roll(tail);
+        }
+
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer buf = ByteBuffer.allocate(frame);
+        buf.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        FileChannel channel = active.getChannel();
+        long position = tail.bytes;
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+        tail.bytes = position;
+        pending++;
+        enforceLimit();
+    }
+
+    // Forces appended records to the storage device. Appends are already
+    // safe against process death without this; it only matters for power loss.
+    public synchronized void sync() throws IOException {
+        active.getChannel().force(false);
+    }
+
+    // Up to max records from the head, oldest first, without consuming them
+    public synchronized List<byte[]> peek(int max) throws IOException {
+        List<byte[]> out = new ArrayList<>(Math.min(max, (int) Math.min(pending, 1024)));
+        if (peekSegments.length < max) {
+            peekSegments = new long[max];
+            peekEnds = new long[max];
+        }
+        long segment = cursorSegment;
+        long offset = cursorOffset;
+        while (out.size() < max) {
+            Segment current = segments.get(segment);
+            if (current == null) {
+                break;
+            }
+            if (offset >= current.bytes) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(segment);
+                if (next == null) {
+                    break;
+                }
+                segment = next.getKey();
+                offset = 0;
+                continue;
+            }
+            byte[] payload = readFrame(current, offset);
+            if (payload == null) {
+                // Damaged sealed segment: the rest of it can't be framed
+                offset = current.bytes;
+                continue;
+            }
+            offset += HEADER_BYTES + payload.length;
+            peekSegments[out.size()] = segment;
+            peekEnds[out.size()] = offset;
+            out.add(payload);
+        }
+        peekCount = out.size();
+        peekEvicted = false;
+        return out;
+    }
+
+    // Consumes the first count records returned by the last peek() and
+    // persists the new position. Fully consumed segments are deleted.
+    public synchronized void ack(int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        if (peekEvicted) {
+            // Eviction moved the head while the caller was uploading; the
+            // peeked records are gone or will be offered again
+            peekEvicted = false;
+            return;
+        }
+        if (count > peekCount) {
+            throw new IllegalStateException("ack of " + count + " records, only " + peekCount + " peeked");
+        }
+        long segment = peekSegments[count - 1];
+        long offset = peekEnds[count - 1];
+        peekCount = 0;
+        while (segments.firstKey() < segment) {
+            deleteSegment(segments.firstEntry().getValue());
+        }
+        cursorSegment = segment;
+        cursorOffset = offset;
+        // Step past an exhausted sealed segment so it can be removed now
+        Map.Entry<Long, Segment> next = segments.higherEntry(segment);
+        if (next != null && offset >= segments.get(segment).bytes) {
+            deleteSegment(segments.get(segment));
+            cursorSegment = next.getKey();
+            cursorOffset = 0;
+        }
+        pending -= count;
+        writeCursor();
+    }
+
+    public synchronized long size() {
+        return pending;
+    }
+
+    public synchronized long bytesOnDisk() {
+        long total = 0;
+        for (Segment segment : segments.values()) {
+            total += segment.bytes;
+        }
+        return total;
+    }
+
+    public synchronized long evictedCount() {
+        return evicted;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.close();
+            active = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    long index = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(index, new Segment(index, file, file.length()));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, new Segment(0, segmentFile(0), 0));
+        }
+
+        readCursor();
+        Segment first = segments.firstEntry().getValue();
+        if (!segments.containsKey(cursorSegment) || cursorSegment < first.index) {
+            cursorSegment = first.index;
+            cursorOffset = 0;
+        }
+        // Segments before the cursor were consumed but not yet deleted
+        while (segments.firstKey() < cursorSegment) {
+            deleteSegment(segments.firstEntry().getValue());
+        }
+
+        Segment tail = segments.lastEntry().getValue();
+        active = new RandomAccessFile(tail.file, "rw");
+        long validEnd = scanTail(tail);
+        if (validEnd < tail.bytes) {
+            active.setLength(validEnd);
+            tail.bytes = validEnd;
+        }
+        if (cursorOffset > segments.get(cursorSegment).bytes) {
+            cursorOffset = segments.get(cursorSegment).bytes;
+        }
+        pending = countFrom(cursorSegment, cursorOffset);
+    }
+
+    // End of the last intact frame in the newest segment
+    private long scanTail(Segment tail) throws IOException {
+        long offset = 0;
+        while (offset < tail.bytes) {
+            byte[] payload = readFrame(tail, offset);
+            if (payload == null) {
+                break;
+            }
+            offset += HEADER_BYTES + payload.length;
+        }
+        return offset;
+    }
+
+    private long countFrom(long segment, long offset) throws IOException {
+        long count = 0;
+        for (Segment current : segments.tailMap(segment, true).values()) {
+            count += countIn(current, current.index == segment ? offset : 0);
+        }
+        return count;
+    }
+
+    private int countIn(Segment segment, long offset) throws IOException {
+        int count = 0;
+        while (offset < segment.bytes) {
+            byte[] payload = readFrame(segment, offset);
+            if (payload == null) {
+                break;
+            }
+            offset += HEADER_BYTES + payload.length;
+            count++;
+        }
+        return count;
+    }
+
+    private Segment roll(Segment tail) throws IOException {
+        active.close();
+        long index = tail.index + 1;
+        Segment next = new Segment(index, segmentFile(index), 0);
+        segments.put(index, next);
+        active = new RandomAccessFile(next.file, "rw");
+        return next;
+    }
+
+    private void enforceLimit() throws IOException {
+        long total = bytesOnDisk();
+        while (total > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest.index >= cursorSegment) {
+                int lost = countIn(oldest, oldest.index == cursorSegment ? cursorOffset : 0);
+                evicted += lost;
+                pending -= lost;
+            }
+            total -= oldest.bytes;
+            deleteSegment(oldest);
+            if (oldest.index >= cursorSegment) {
+                cursorSegment = segments.firstKey();
+                cursorOffset = 0;
+                peekEvicted |= peekCount > 0;
+                peekCount = 0;
+                writeCursor();
+            }
+        }
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.index);
+        if (segment.file.exists() && !segment.file.delete()) {
+            throw new IOException("Cannot delete " + segment.file);
+        }
+    }
+
+    // Payload length of the frame at offset, or -1 if the header is damaged
+    private int frameLength(Segment segment, long offset) throws IOException {
+        if (offset + HEADER_BYTES > segment.bytes) {
+            return -1;
+        }
+        header.clear();
+        readFully(segment, header, offset);
+        int length = header.getInt(0);
+        if (length < 0 || length > MAX_RECORD_BYTES || offset + HEADER_BYTES + length > segment.bytes) {
+            return -1;
+        }
+        return length;
+    }
+
+    private byte[] readFrame(Segment segment, long offset) throws IOException {
+        int length = frameLength(segment, offset);
+        if (length < 0) {
+            return null;
+        }
+        int expected = header.getInt(4);
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(segment, payload, offset + HEADER_BYTES);
+        crc.reset();
+        crc.update(payload.array(), 0, length);
+        if ((int) crc.getValue() != expected) {
+            return null;
+        }
+        return payload.array();
+    }
+
+    private void readFully(Segment segment, ByteBuffer buf, long position) throws IOException {
+        if (segment == segments.lastEntry().getValue() && active != null) {
+            readFully(active.getChannel(), buf, position);
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.file, "r")) {
+            readFully(file.getChannel(), buf, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int read = channel.read(buf, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+            position += read;
+        }
+    }
+
+    private void readCursor() throws IOException {
+        File file = new File(dir, CURSOR_FILE);
+        if (file.length() != 16) {
+            cursorSegment = -1;
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            cursorSegment = in.readLong();
+            cursorOffset = in.readLong();
+        }
+    }
+
+    // Written to a temp file and renamed so a crash leaves the old or the new
+    // cursor, never half of one
+    private void writeCursor() throws IOException {
+        File tmp = new File(dir, CURSOR_FILE + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            out.writeLong(cursorSegment);
+            out.writeLong(cursorOffset);
+        }
+        if (!tmp.renameTo(new File(dir, CURSOR_FILE))) {
+            throw new IOException("Cannot update cursor in " + dir);
+        }
+    }
+
+    private File segmentFile(long index) {
+        return new File(dir, String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+}
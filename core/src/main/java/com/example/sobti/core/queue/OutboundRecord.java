@@ -0,0 +1,102 @@
+package com.example.sobti.core.queue;
+
+import com.example.sobti.core.codec.PackedReader;
+import com.example.sobti.core.codec.PackedWriter;
+
+// What the phone queues for upload: single readings, finished history
+// chunks and emergency alerts. Each kind only fills the fields it needs.
+public final class OutboundRecord {
+
+    public static final int TYPE_SAMPLE = 1;
+    public static final int TYPE_HISTORY_CHUNK = 2;
+    public static final int TYPE_ALERT = 3;
+
+    private static final int VERSION = 1;
+
+    public final int type;
+    public final String email;
+    // Sample or alert time; first sample time for a chunk
+    public final long timestamp;
+    public final int heartRate;
+    public final int steps;
+    public final String location;
+    public final long chunkEnd;
+    public final int count;
+    public final byte[] chunk;
+    public final String message;
+
+    private OutboundRecord(int type, String email, long timestamp, int heartRate, int steps,
+                           String location, long chunkEnd, int count, byte[] chunk, String message) {
+        this.type = type;
+        this.email = email;
+        this.timestamp = timestamp;
+        this.heartRate = heartRate;
+        this.steps = steps;
+        this.location = location;
+        this.chunkEnd = chunkEnd;
+        this.count = count;
+        this.chunk = chunk;
+        this.message = message;
+    }
+
+    public static OutboundRecord sample(String email, long timestamp, int heartRate, int steps, String location) {
+        return new OutboundRecord(TYPE_SAMPLE, email, timestamp, heartRate, steps, location, 0, 0, null, null);
+    }
+
+    public static OutboundRecord historyChunk(String email, long chunkStart, long chunkEnd, int count, byte[] chunk) {
+        return new OutboundRecord(TYPE_HISTORY_CHUNK, email, chunkStart, 0, 0, null, chunkEnd, count, chunk, null);
+    }
+
+    public static OutboundRecord alert(String email, long timestamp, int heartRate, String location, String message) {
+        return new OutboundRecord(TYPE_ALERT, email, timestamp, heartRate, 0, location, 0, 0, null, message);
+    }
+
+    public byte[] encode() {
+        PackedWriter out = new PackedWriter(64 + (chunk == null ? 0 : chunk.length));
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        out.writeString(email);
+        out.writeLong(timestamp);
+        switch (type) {
+            case TYPE_SAMPLE:
+                out.writeVarLong(heartRate);
+                out.writeVarLong(steps);
+                out.writeString(location);
+                break;
+            case TYPE_HISTORY_CHUNK:
+                out.writeLong(chunkEnd);
+                out.writeVarLong(count);
+                out.writeBytes(chunk);
+                break;
+            case TYPE_ALERT:
+                out.writeVarLong(heartRate);
+                out.writeString(location);
+                out.writeString(message);
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+        return out.toByteArray();
+    }
+
+    public static OutboundRecord decode(byte[] data) {
+        PackedReader in = new PackedReader(data);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported record version " + version);
+        }
+        int type = in.readByte();
+        String email = in.readString();
+        long timestamp = in.readLong();
+        switch (type) {
+            case TYPE_SAMPLE:
+                return sample(email, timestamp, (int) in.readVarLong(), (int) in.readVarLong(), in.readString());
+            case TYPE_HISTORY_CHUNK:
+                return historyChunk(email, timestamp, in.readLong(), (int) in.readVarLong(), in.readBytes());
+            case TYPE_ALERT:
+                return alert(email, timestamp, (int) in.readVarLong(), in.readString(), in.readString());
+            default:
+                throw new IllegalArgumentException("Unknown record type " + type);
+        }
+    }
+}
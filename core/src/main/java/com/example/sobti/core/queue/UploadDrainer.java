@@ -0,0 +1,182 @@
+package com.example.sobti.core.queue;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Moves records from a DurableQueue to the network in batches. A batch is
+// acknowledged only after the uploader returns, so a failure or a process
+// death replays it. After a failure, draining waits with exponential
+// backoff; onConnectivityRestored() cuts that wait short.
+public final class UploadDrainer {
+
+    public interface Uploader {
+        // Must be idempotent: a batch can be delivered again after a crash
+        void upload(List<byte[]> batch) throws Exception;
+    }
+
+    public interface ErrorListener {
+        void onUploadFailed(Exception e, long retryInMs);
+    }
+
+    // Batches per run before yielding the thread to other queued work
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final DurableQueue queue;
+    private final Uploader uploader;
+    private final ScheduledExecutorService executor;
+    private final int batchSize;
+    private final long lingerMs;
+    private final long minBackoffMs;
+    private final long maxBackoffMs;
+    private volatile ErrorListener errorListener;
+
+    private ScheduledFuture<?> next;
+    private boolean running;
+    private boolean stopped;
+    private long backoffMs;
+    private long uploaded;
+    private long failures;
+
+    // lingerMs is how long a non-urgent record may wait for company
+    public UploadDrainer(DurableQueue queue, Uploader uploader, ScheduledExecutorService executor,
+                         int batchSize, long lingerMs, long minBackoffMs, long maxBackoffMs) {
+        this.queue = queue;
+        this.uploader = uploader;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public void setErrorListener(ErrorListener listener) {
+        errorListener = listener;
+    }
+
+    // Called after appending. Urgent records drain right away unless the
+    // network is known to be failing.
+    public synchronized void schedule(boolean urgent) {
+        if (stopped || running || backoffMs > 0) {
+            // The running drain picks the record up; a backoff retry will too
+            return;
+        }
+        long delay = urgent ? 0 : lingerMs;
+        if (next != null && next.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+            return;
+        }
+        reschedule(delay);
+    }
+
+    public synchronized void onConnectivityRestored() {
+        backoffMs = 0;
+        if (!stopped && !running) {
+            reschedule(0);
+        }
+    }
+
+    // Cancels the next drain and waits up to timeout for a running one to
+    // finish its current batch, so the queue can be closed and its directory
+    // reopened safely. Nothing drains after this. Returns false if a drain
+    // is still running.
+    public synchronized boolean stop(long timeout, TimeUnit unit) throws InterruptedException {
+        stopped = true;
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (running) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized long uploadedCount() {
+        return uploaded;
+    }
+
+    public synchronized long failureCount() {
+        return failures;
+    }
+
+    public synchronized long backoffMs() {
+        return backoffMs;
+    }
+
+    private void reschedule(long delayMs) {
+        if (stopped) {
+            return;
+        }
+        if (next != null) {
+            next.cancel(false);
+        }
+        try {
+            next = executor.schedule(this::drain, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the queue replays on the next start
+            next = null;
+        }
+    }
+
+    private void drain() {
+        synchronized (this) {
+            if (running || stopped) {
+                return;
+            }
+            running = true;
+            next = null;
+        }
+        Exception failure = null;
+        boolean more = false;
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                List<byte[]> batch = queue.peek(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                uploader.upload(batch);
+                queue.ack(batch.size());
+                synchronized (this) {
+                    uploaded += batch.size();
+                    if (stopped) {
+                        break;
+                    }
+                }
+                more = batch.size() == batchSize;
+            }
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        long retryIn = -1;
+        synchronized (this) {
+            running = false;
+            notifyAll();
+            if (failure != null) {
+                failures++;
+                backoffMs = backoffMs == 0 ? minBackoffMs : Math.min(maxBackoffMs, backoffMs * 2);
+                retryIn = backoffMs;
+                reschedule(backoffMs);
+            } else {
+                backoffMs = 0;
+                if (more) {
+                    reschedule(0);
+                } else if (queue.size() > 0) {
+                    // Arrived while uploading; give it the usual linger
+                    reschedule(lingerMs);
+                }
+            }
+        }
+        ErrorListener listener = errorListener;
+        if (failure != null && listener != null) {
+            listener.onUploadFailed(failure, retryIn);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.sobti.core.sample;
+
+// Fixed-capacity FIFO of samples stored in parallel primitive arrays. When
+// full, the oldest sample is overwritten and counted in droppedCount().
+public final class SampleRingBuffer {
+
+    private final long[] timestamps;
+    private final int[] heartRates;
+    private final int[] steps;
+    private int head;
+    private int size;
+    private long dropped;
+
+    public SampleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        timestamps = new long[capacity];
+        heartRates = new int[capacity];
+        steps = new int[capacity];
+    }
+
+    public void add(long timestamp, int heartRate, int stepCount) {
+        int capacity = timestamps.length;
+        int tail = (head + size) % capacity;
+        timestamps[tail] = timestamp;
+        heartRates[tail] = heartRate;
+        steps[tail] = stepCount;
+        if (size == capacity) {
+            head = (head + 1) % capacity;
+            dropped++;
+        } else {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public long droppedCount() {
+        return dropped;
+    }
+
+    // Index 0 is the oldest buffered sample.
+    public long timestampAt(int index) {
+        return timestamps[slot(index)];
+    }
+
+    public int heartRateAt(int index) {
+        return heartRates[slot(index)];
+    }
+
+    public int stepsAt(int index) {
+        return steps[slot(index)];
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return (head + index) % timestamps.length;
+    }
+}
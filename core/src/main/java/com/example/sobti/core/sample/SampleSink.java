@@ -0,0 +1,6 @@
+package com.example.sobti.core.sample;
+
+// Receives decoded samples one at a time, without boxing them into objects.
+public interface SampleSink {
+    void onSample(long seq, long timestamp, int heartRate, int steps);
+}
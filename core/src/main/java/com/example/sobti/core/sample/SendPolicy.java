@@ -0,0 +1,82 @@
+package com.example.sobti.core.sample;
+
+// Decides when buffered samples are worth a radio wakeup. A steady reading
+// waits until maxSamples are buffered or the oldest is maxDelayMs old; a
+// heart rate that moved by heartRateDelta, or steps that moved by
+// stepsDelta, since the last sent sample goes out straight away, and an
+// alert-level reading goes out urgently.
+//
+// Not thread-safe; the watch drives it from its sampler thread.
+public final class SendPolicy {
+
+    public static final int HOLD = 0;
+    public static final int SEND = 1;
+    public static final int URGENT = 2;
+
+    private final int heartRateDelta;
+    private final int stepsDelta;
+    private final int maxSamples;
+    private final long maxDelayMs;
+
+    private boolean sentAny;
+    private int sentHeartRate;
+    private int sentSteps;
+    private int buffered;
+    private long oldestAt;
+
+    private long changeSends;
+    private long steadySends;
+    private long urgentSends;
+
+    public SendPolicy(int heartRateDelta, int stepsDelta, int maxSamples, long maxDelayMs) {
+        this.heartRateDelta = heartRateDelta;
+        this.stepsDelta = stepsDelta;
+        this.maxSamples = maxSamples;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public long maxDelayMs() {
+        return maxDelayMs;
+    }
+
+    // Called once the sample is buffered; on anything but HOLD the caller
+    // sends the buffer and the newest sample becomes the reference
+    public int onSample(long timestamp, int heartRate, int steps, boolean alert) {
+        if (buffered++ == 0) {
+            oldestAt = timestamp;
+        }
+        int action;
+        if (alert) {
+            urgentSends++;
+            action = URGENT;
+        } else if (!sentAny || Math.abs(heartRate - sentHeartRate) >= heartRateDelta
+                || Math.abs(steps - sentSteps) >= stepsDelta) {
+            changeSends++;
+            action = SEND;
+        } else if (buffered >= maxSamples || timestamp - oldestAt >= maxDelayMs) {
+            steadySends++;
+            action = SEND;
+        } else {
+            return HOLD;
+        }
+        sent(heartRate, steps);
+        return action;
+    }
+
+    // The buffer went out for another reason, such as the delay timer
+    public void sent(int heartRate, int steps) {
+        sentAny = true;
+        sentHeartRate = heartRate;
+        sentSteps = steps;
+        buffered = 0;
+    }
+
+    public long sends() {
+        return changeSends + steadySends + urgentSends;
+    }
+
+    @Override
+    public String toString() {
+        return "sends change=" + changeSends + " steady=" + steadySends + " urgent=" + urgentSends;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.sobti.core.sample;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// Counts wakeups by cause, e.g. sampler deliveries, redraws and sends, and
+// reports them per hour since the meter was created. Safe to mark from any
+// thread.
+public final class WakeupMeter {
+
+    private final String[] names;
+    private final AtomicLongArray counts;
+    private final LongSupplier clock;
+    private final long startedAt;
+
+    public WakeupMeter(String... names) {
+        this(System::currentTimeMillis, names);
+    }
+
+    public WakeupMeter(LongSupplier clock, String... names) {
+        this.names = names.clone();
+        this.counts = new AtomicLongArray(names.length);
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+    }
+
+    public void mark(int cause) {
+        counts.incrementAndGet(cause);
+    }
+
+    public long count(int cause) {
+        return counts.get(cause);
+    }
+
+    public double perHour(int cause) {
+        return perHourOf(counts.get(cause));
+    }
+
+    // For a count kept elsewhere over the same window
+    public double perHourOf(long count) {
+        long elapsed = Math.max(1, clock.getAsLong() - startedAt);
+        return count * 3_600_000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("wakeups/h");
+        for (int i = 0; i < names.length; i++) {
+            out.append(' ').append(names[i]).append('=')
+                    .append(String.format("%.1f", perHour(i)));
+        }
+        return out.toString();
+    }
+}
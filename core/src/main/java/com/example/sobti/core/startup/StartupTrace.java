@@ -0,0 +1,92 @@
+package com.example.sobti.core.startup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Timeline of one cold start, in ms since the process started. Phases
+// record spans; milestones such as the first vital on screen are marked
+// once, so time-to-first-vital reads straight off the summary.
+public final class StartupTrace {
+
+    public static final class Span {
+        public final String name;
+        public final long startMs;
+        public final long endMs;
+        // null when the phase succeeded
+        public final String error;
+
+        Span(String name, long startMs, long endMs, String error) {
+            this.name = name;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.error = error;
+        }
+
+        public long durationMs() {
+            return endMs - startMs;
+        }
+    }
+
+    private final long originMs;
+    private final LongSupplier clock;
+    private final List<Span> spans = new ArrayList<>();
+    private final Map<String, Long> milestones = new LinkedHashMap<>();
+
+    // clock and originMs share a time base, e.g. SystemClock.uptimeMillis
+    // and Process.getStartUptimeMillis
+    public StartupTrace(long originMs, LongSupplier clock) {
+        this.originMs = originMs;
+        this.clock = clock;
+    }
+
+    public long now() {
+        return clock.getAsLong() - originMs;
+    }
+
+    public synchronized void record(String name, long startMs, long endMs, String error) {
+        spans.add(new Span(name, startMs, endMs, error));
+    }
+
+    // Only the first mark of a name counts; returns whether this was it
+    public synchronized boolean mark(String name) {
+        if (milestones.containsKey(name)) {
+            return false;
+        }
+        milestones.put(name, now());
+        return true;
+    }
+
+    // -1 until marked
+    public synchronized long milestone(String name) {
+        Long at = milestones.get(name);
+        return at == null ? -1 : at;
+    }
+
+    public synchronized List<Span> spans() {
+        return new ArrayList<>(spans);
+    }
+
+    // e.g. "aws_init 12+85ms, cognito 97+310ms (failed: timeout), first_vital @2140ms"
+    public synchronized String summary() {
+        StringBuilder out = new StringBuilder();
+        for (Span span : spans) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(span.name).append(' ').append(span.startMs).append('+').append(span.durationMs()).append("ms");
+            if (span.error != null) {
+                out.append(" (failed: ").append(span.error).append(')');
+            }
+        }
+        for (Map.Entry<String, Long> milestone : milestones.entrySet()) {
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(milestone.getKey()).append(" @").append(milestone.getValue()).append("ms");
+        }
+        return out.toString();
+    }
+}
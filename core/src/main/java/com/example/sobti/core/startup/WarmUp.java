@@ -0,0 +1,146 @@
+package com.example.sobti.core.startup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Runs startup phases concurrently, each on its own executor, starting a
+// phase as soon as the phases it needs are done. Every phase is timed into
+// the trace. A phase whose dependency failed is skipped and recorded as
+// such. The listener hears once, when the last phase ends.
+public final class WarmUp {
+
+    public interface Phase {
+        void run() throws Exception;
+    }
+
+    public interface Listener {
+        void onFinished(StartupTrace trace);
+    }
+
+    private static final class Step {
+        final String name;
+        final Executor executor;
+        final Phase phase;
+        final List<Step> dependents = new ArrayList<>();
+        int waitingFor;
+        String skipReason;
+
+        Step(String name, Executor executor, Phase phase) {
+            this.name = name;
+            this.executor = executor;
+            this.phase = phase;
+        }
+    }
+
+    private final StartupTrace trace;
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private Listener listener;
+    private int remaining;
+    private boolean started;
+
+    public WarmUp(StartupTrace trace) {
+        this.trace = trace;
+    }
+
+    // Phases named in after must already have been added, which rules out cycles
+    public synchronized WarmUp add(String name, Executor executor, Phase phase, String... after) {
+        if (started) {
+            throw new IllegalStateException("Warm-up already started");
+        }
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate phase " + name);
+        }
+        Step step = new Step(name, executor, phase);
+        for (String dependency : after) {
+            Step before = steps.get(dependency);
+            if (before == null) {
+                throw new IllegalArgumentException(name + " needs unknown phase " + dependency);
+            }
+            before.dependents.add(step);
+            step.waitingFor++;
+        }
+        steps.put(name, step);
+        return this;
+    }
+
+    public void start(Listener listener) {
+        List<Step> ready = new ArrayList<>();
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Warm-up already started");
+            }
+            started = true;
+            this.listener = listener;
+            remaining = steps.size();
+            for (Step step : steps.values()) {
+                if (step.waitingFor == 0) {
+                    ready.add(step);
+                }
+            }
+        }
+        if (ready.isEmpty()) {
+            listener.onFinished(trace);
+            return;
+        }
+        for (Step step : ready) {
+            launch(step);
+        }
+    }
+
+    public synchronized boolean isFinished() {
+        return started && remaining == 0;
+    }
+
+    private void launch(Step step) {
+        if (step.skipReason != null) {
+            long at = trace.now();
+            finish(step, at, at, step.skipReason);
+            return;
+        }
+        try {
+            step.executor.execute(() -> run(step));
+        } catch (RejectedExecutionException e) {
+            long at = trace.now();
+            finish(step, at, at, "rejected");
+        }
+    }
+
+    private void run(Step step) {
+        long start = trace.now();
+        String error = null;
+        try {
+            step.phase.run();
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+        }
+        finish(step, start, trace.now(), error);
+    }
+
+    private void finish(Step step, long start, long end, String error) {
+        trace.record(step.name, start, end, error);
+
+        List<Step> ready = new ArrayList<>();
+        boolean last;
+        synchronized (this) {
+            for (Step dependent : step.dependents) {
+                if (error != null && dependent.skipReason == null) {
+                    dependent.skipReason = "skipped, " + step.name + " failed";
+                }
+                if (--dependent.waitingFor == 0) {
+                    ready.add(dependent);
+                }
+            }
+            last = --remaining == 0;
+        }
+        for (Step dependent : ready) {
+            launch(dependent);
+        }
+        if (last) {
+            listener.onFinished(trace);
+        }
+    }
+}
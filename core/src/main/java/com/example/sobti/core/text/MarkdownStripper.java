@@ -0,0 +1,43 @@
+package com.example.sobti.core.text;
+
+// Incremental version of the cleanup GeminiClient applied to whole answers:
+// "**" (bold markers) is removed and a single "*" becomes a "• " bullet.
+// A trailing "*" is held back until the next chunk shows whether it starts
+// a "**". Not thread safe; use one instance per stream.
+public final class MarkdownStripper {
+
+    private boolean pendingStar;
+
+    public static String stripAll(String text) {
+        MarkdownStripper stripper = new MarkdownStripper();
+        return stripper.feed(text) + stripper.finish();
+    }
+
+    public String feed(String chunk) {
+        StringBuilder out = new StringBuilder(chunk.length() + 4);
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (pendingStar) {
+                pendingStar = false;
+                if (c == '*') {
+                    continue;
+                }
+                out.append("• ");
+            }
+            if (c == '*') {
+                pendingStar = true;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    public String finish() {
+        if (pendingStar) {
+            pendingStar = false;
+            return "• ";
+        }
+        return "";
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.sobti.core.timeseries;
+
+// Groups incoming samples into chunks that never cross a time bucket and
+// never exceed MAX_CHUNK_SAMPLES. A chunk is keyed by its first timestamp,
+// so rewriting it as it grows is idempotent and a process restart simply
+// starts a new chunk. The sink receives a snapshot of the open chunk every
+// flushEvery samples and the final version when the chunk closes.
+public final class HistoryRecorder {
+
+    public static final long BUCKET_MS = 60 * 60 * 1000L;
+    public static final int MAX_CHUNK_SAMPLES = 512;
+
+    public interface Sink {
+        void writeChunk(long chunkStart, long chunkEnd, int count, byte[] chunk);
+    }
+
+    private final Sink sink;
+    private final int flushEvery;
+    private final SampleChunkEncoder encoder = new SampleChunkEncoder();
+    private long bucketStart = Long.MIN_VALUE;
+    private int unflushed;
+
+    public HistoryRecorder(Sink sink, int flushEvery) {
+        this.sink = sink;
+        this.flushEvery = Math.max(1, flushEvery);
+    }
+
+    public static long bucketStart(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, BUCKET_MS);
+    }
+
+    public synchronized void append(long timestamp, int heartRate, int steps) {
+        if (!encoder.isEmpty()
+                && (bucketStart(timestamp) != bucketStart
+                || encoder.count() >= MAX_CHUNK_SAMPLES
+                || timestamp < encoder.lastTimestamp())) {
+            closeChunk();
+        }
+        if (encoder.isEmpty()) {
+            bucketStart = bucketStart(timestamp);
+        }
+
+        encoder.append(timestamp, heartRate, steps);
+        if (++unflushed >= flushEvery) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() {
+        if (unflushed == 0 || encoder.isEmpty()) {
+            return;
+        }
+        sink.writeChunk(encoder.firstTimestamp(), encoder.lastTimestamp(), encoder.count(),
+                encoder.toByteArray());
+        unflushed = 0;
+    }
+
+    private void closeChunk() {
+        flush();
+        encoder.reset();
+        unflushed = 0;
+    }
+}
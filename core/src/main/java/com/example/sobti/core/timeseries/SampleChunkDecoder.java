@@ -0,0 +1,50 @@
+package com.example.sobti.core.timeseries;
+
+import com.example.sobti.core.codec.PackedReader;
+import com.example.sobti.core.sample.SampleSink;
+
+// Decodes chunks written by SampleChunkEncoder. The sequence number passed
+// to the sink is the sample's index within the chunk.
+public final class SampleChunkDecoder {
+
+    private SampleChunkDecoder() {
+    }
+
+    public static int decode(byte[] chunk, SampleSink sink) {
+        return decode(chunk, Long.MIN_VALUE, Long.MAX_VALUE, sink);
+    }
+
+    // Delivers only samples with fromTs <= timestamp <= toTs and returns how
+    // many were delivered.
+    public static int decode(byte[] chunk, long fromTs, long toTs, SampleSink sink) {
+        PackedReader in = new PackedReader(chunk);
+        int version = in.readByte();
+        if (version != SampleChunkEncoder.VERSION) {
+            throw new IllegalArgumentException("Unsupported chunk version " + version);
+        }
+        long count = in.readVarLong();
+        if (count < 0 || count > chunk.length) {
+            throw new IllegalArgumentException("Corrupt sample count " + count);
+        }
+        long ts = in.readLong();
+
+        long delta = 0;
+        int hr = 0;
+        int steps = 0;
+        int delivered = 0;
+        for (int i = 0; i < count; i++) {
+            delta += in.readSignedVarLong();
+            ts += delta;
+            hr += (int) in.readSignedVarLong();
+            steps += (int) in.readSignedVarLong();
+            if (ts > toTs) {
+                break;
+            }
+            if (ts >= fromTs) {
+                sink.onSample(i, ts, hr, steps);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+}
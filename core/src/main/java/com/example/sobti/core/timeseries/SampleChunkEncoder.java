@@ -0,0 +1,81 @@
+package com.example.sobti.core.timeseries;
+
+import com.example.sobti.core.codec.PackedWriter;
+
+// Column-oriented encoder for one history chunk. Timestamps are stored as
+// zigzag varint delta-of-deltas, so a steady sampling interval costs one
+// byte; heart rate and steps are stored as zigzag varint deltas.
+//
+//   byte    version
+//   varint  sample count
+//   long    first timestamp (epoch ms)
+//   then per sample: d2(timestamp), d(heart rate), d(steps)
+public final class SampleChunkEncoder {
+
+    public static final int VERSION = 1;
+
+    private final PackedWriter body = new PackedWriter(256);
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private int lastHeartRate;
+    private int lastSteps;
+
+    public void append(long timestamp, int heartRate, int steps) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            lastDelta = 0;
+        } else if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Samples must be appended in time order");
+        }
+        long delta = count == 0 ? 0 : timestamp - lastTimestamp;
+        body.writeSignedVarLong(delta - lastDelta);
+        body.writeSignedVarLong(heartRate - lastHeartRate);
+        body.writeSignedVarLong(steps - lastSteps);
+
+        lastDelta = delta;
+        lastTimestamp = timestamp;
+        lastHeartRate = heartRate;
+        lastSteps = steps;
+        count++;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public byte[] toByteArray() {
+        PackedWriter out = new PackedWriter(body.size() + 16);
+        out.writeByte(VERSION);
+        out.writeVarLong(count);
+        out.writeLong(firstTimestamp);
+        byte[] encoded = body.toByteArray();
+        for (byte b : encoded) {
+            out.writeByte(b);
+        }
+        return out.toByteArray();
+    }
+
+    public void reset() {
+        body.reset();
+        count = 0;
+        firstTimestamp = 0;
+        lastTimestamp = 0;
+        lastDelta = 0;
+        lastHeartRate = 0;
+        lastSteps = 0;
+    }
+}
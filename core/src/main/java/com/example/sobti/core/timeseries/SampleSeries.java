@@ -0,0 +1,68 @@
+package com.example.sobti.core.timeseries;
+
+import com.example.sobti.core.sample.SampleSink;
+
+import java.util.Arrays;
+
+// Growable primitive columns for decoded history ranges.
+public final class SampleSeries implements SampleSink {
+
+    private long[] timestamps;
+    private int[] heartRates;
+    private int[] steps;
+    private int size;
+
+    public SampleSeries() {
+        this(64);
+    }
+
+    public SampleSeries(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        timestamps = new long[capacity];
+        heartRates = new int[capacity];
+        steps = new int[capacity];
+    }
+
+    @Override
+    public void onSample(long seq, long timestamp, int heartRate, int stepCount) {
+        add(timestamp, heartRate, stepCount);
+    }
+
+    public void add(long timestamp, int heartRate, int stepCount) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            heartRates = Arrays.copyOf(heartRates, capacity);
+            steps = Arrays.copyOf(steps, capacity);
+        }
+        timestamps[size] = timestamp;
+        heartRates[size] = heartRate;
+        steps[size] = stepCount;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timestampAt(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public int heartRateAt(int index) {
+        checkIndex(index);
+        return heartRates[index];
+    }
+
+    public int stepsAt(int index) {
+        checkIndex(index);
+        return steps[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sobti.core.transport;
+
+import com.example.sobti.core.codec.PackedReader;
+import com.example.sobti.core.codec.PackedWriter;
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.example.sobti.core.sample.SampleSink;
+
+// Binary format for batches of samples sent from the watch to the phone.
+//
+//   byte     version
+//   byte     flags (FLAG_ALERT)
+//   long     sequence number of the first sample
+//   long     timestamp of the first sample (epoch ms)
+//   varint   sample count
+//   then per sample: zigzag varint deltas of timestamp, heart rate and steps
+//
+// A batch of 30 one-per-second samples packs into roughly 100 bytes.
+public final class SampleBatchCodec {
+
+    public static final int VERSION = 1;
+    public static final int FLAG_ALERT = 1;
+
+    private SampleBatchCodec() {
+    }
+
+    public static byte[] encode(SampleRingBuffer samples, long firstSeq, boolean alert) {
+        int count = samples.size();
+        if (count == 0) {
+            throw new IllegalArgumentException("Cannot encode an empty batch");
+        }
+        PackedWriter out = new PackedWriter(20 + count * 4);
+        out.writeByte(VERSION);
+        out.writeByte(alert ? FLAG_ALERT : 0);
+        out.writeLong(firstSeq);
+
+        long prevTs = samples.timestampAt(0);
+        int prevHr = 0;
+        int prevSteps = 0;
+        out.writeLong(prevTs);
+        out.writeVarLong(count);
+
+        for (int i = 0; i < count; i++) {
+            long ts = samples.timestampAt(i);
+            int hr = samples.heartRateAt(i);
+            int steps = samples.stepsAt(i);
+            out.writeSignedVarLong(ts - prevTs);
+            out.writeSignedVarLong(hr - prevHr);
+            out.writeSignedVarLong(steps - prevSteps);
+            prevTs = ts;
+            prevHr = hr;
+            prevSteps = steps;
+        }
+        return out.toByteArray();
+    }
+
+    // Returns the number of samples delivered to the sink.
+    public static int decode(byte[] payload, SampleSink sink) {
+        PackedReader in = new PackedReader(payload);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported batch version " + version);
+        }
+        in.readByte();
+        long seq = in.readLong();
+        long ts = in.readLong();
+        long count = in.readVarLong();
+        if (count < 0 || count > payload.length) {
+            throw new IllegalArgumentException("Corrupt sample count " + count);
+        }
+
+        int hr = 0;
+        int steps = 0;
+        for (int i = 0; i < count; i++) {
+            ts += in.readSignedVarLong();
+            hr += (int) in.readSignedVarLong();
+            steps += (int) in.readSignedVarLong();
+            sink.onSample(seq++, ts, hr, steps);
+        }
+        return (int) count;
+    }
+
+    // Decodes the whole payload without delivering it and returns the
+    // sample count, so a caller can check a batch before it changes any
+    // state. Throws IllegalArgumentException where decode would.
+    public static int validate(byte[] payload) {
+        return decode(payload, (seq, timestamp, heartRate, steps) -> { });
+    }
+
+    // Seq of the first sample, read from the header alone
+    public static long firstSeq(byte[] payload) {
+        PackedReader in = new PackedReader(payload);
+        in.readByte();
+        in.readByte();
+        return in.readLong();
+    }
+
+    public static int count(byte[] payload) {
+        PackedReader in = new PackedReader(payload);
+        in.readByte();
+        in.readByte();
+        in.readLong();
+        in.readLong();
+        return (int) in.readVarLong();
+    }
+
+    public static boolean isAlert(byte[] payload) {
+        return payload.length > 1 && (payload[1] & FLAG_ALERT) != 0;
+    }
+}
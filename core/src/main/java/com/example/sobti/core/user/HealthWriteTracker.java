@@ -0,0 +1,121 @@
+package com.example.sobti.core.user;
+
+import com.example.sobti.core.mapping.ItemWriter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Remembers, per user, the last* values the SobtiUsers item is known to
+// hold, so a health write SETs only the attributes that changed instead of
+// rewriting all four. lastUpdated always moves and a null location is
+// never written. After a failed write the item's state is unknown and the
+// next write sends everything again.
+public final class HealthWriteTracker {
+
+    public static final class Update {
+        public final String email;
+        public final int heartRate;
+        public final int steps;
+        public final String location;
+        public final long timestamp;
+        // e.g. "SET lastHeartRate = :lastHeartRate, lastUpdated = :lastUpdated"
+        public final String expression;
+        public final int attributes;
+
+        private final boolean heartRateChanged;
+        private final boolean stepsChanged;
+        private final boolean locationChanged;
+
+        Update(String email, int heartRate, int steps, String location, long timestamp,
+               boolean heartRateChanged, boolean stepsChanged, boolean locationChanged) {
+            this.email = email;
+            this.heartRate = heartRate;
+            this.steps = steps;
+            this.location = location;
+            this.timestamp = timestamp;
+            this.heartRateChanged = heartRateChanged;
+            this.stepsChanged = stepsChanged;
+            this.locationChanged = locationChanged;
+
+            StringBuilder set = new StringBuilder("SET ");
+            int count = 0;
+            if (heartRateChanged) {
+                count = append(set, UserItemMapper.LAST_HEART_RATE, count);
+            }
+            if (stepsChanged) {
+                count = append(set, UserItemMapper.LAST_STEPS, count);
+            }
+            if (locationChanged) {
+                count = append(set, UserItemMapper.LAST_LOCATION, count);
+            }
+            this.attributes = append(set, UserItemMapper.LAST_UPDATED, count);
+            this.expression = set.toString();
+        }
+
+        // Expression values, keyed ":" + attribute name
+        public void writeValues(ItemWriter values) {
+            if (heartRateChanged) {
+                values.putNumber(placeholder(UserItemMapper.LAST_HEART_RATE), heartRate);
+            }
+            if (stepsChanged) {
+                values.putNumber(placeholder(UserItemMapper.LAST_STEPS), steps);
+            }
+            if (locationChanged) {
+                values.putString(placeholder(UserItemMapper.LAST_LOCATION), location);
+            }
+            values.putNumber(placeholder(UserItemMapper.LAST_UPDATED), timestamp);
+        }
+
+        private static int append(StringBuilder set, String attribute, int count) {
+            if (count > 0) {
+                set.append(", ");
+            }
+            set.append(attribute).append(" = ").append(placeholder(attribute));
+            return count + 1;
+        }
+    }
+
+    private static final class Known {
+        final int heartRate;
+        final int steps;
+        final String location;
+
+        Known(int heartRate, int steps, String location) {
+            this.heartRate = heartRate;
+            this.steps = steps;
+            this.location = location;
+        }
+    }
+
+    private final Map<String, Known> known = new HashMap<>();
+
+    public static String placeholder(String attribute) {
+        return ":" + attribute;
+    }
+
+    public synchronized Update prepare(String email, int heartRate, int steps, String location, long timestamp) {
+        Known item = known.get(email);
+        return new Update(email, heartRate, steps, location, timestamp,
+                item == null || item.heartRate != heartRate,
+                item == null || item.steps != steps,
+                location != null && (item == null || !Objects.equals(item.location, location)));
+    }
+
+    // Call once DynamoDB accepted the update
+    public synchronized void committed(Update update) {
+        known.put(update.email, new Known(update.heartRate, update.steps, update.location));
+    }
+
+    // Values just read from the item, e.g. by a profile fetch. An item
+    // without lastLocation has never had a health write, so nothing is known.
+    public synchronized void seed(UserData user) {
+        if (user.lastLocation != null) {
+            known.put(user.email, new Known(user.lastHeartRate, user.lastSteps, user.lastLocation));
+        }
+    }
+
+    public synchronized void forget(String email) {
+        known.remove(email);
+    }
+}
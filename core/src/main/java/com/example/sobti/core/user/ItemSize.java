@@ -0,0 +1,45 @@
+package com.example.sobti.core.user;
+
+import com.example.sobti.core.mapping.ItemWriter;
+
+import java.nio.charset.StandardCharsets;
+
+// DynamoDB's item size rules, applied to whatever a mapper writes: each
+// attribute costs its name's UTF-8 length plus its value, strings by UTF-8
+// length and numbers at about one byte per two significant digits plus
+// one. Writes are billed per started KB, reads per started 4 KB.
+public final class ItemSize implements ItemWriter {
+
+    private long bytes;
+
+    @Override
+    public void putString(String name, String value) {
+        bytes += utf8(name) + utf8(value);
+    }
+
+    @Override
+    public void putNumber(String name, long value) {
+        bytes += utf8(name) + numberBytes(value);
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public long writeUnits() {
+        return Math.max(1, (bytes + 1023) / 1024);
+    }
+
+    static long numberBytes(long value) {
+        String digits = Long.toString(Math.abs(value));
+        int end = digits.length();
+        while (end > 1 && digits.charAt(end - 1) == '0') {
+            end--;
+        }
+        return (end + 1) / 2 + 1;
+    }
+
+    private static long utf8(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.sobti.core.user;
+
+import com.example.sobti.core.codec.PackedReader;
+import com.example.sobti.core.codec.PackedWriter;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+
+// Read-through cache for the signed-in user's profile. A cached profile is
+// handed back synchronously, however old, so the name and emergency number
+// are there before DynamoDB answers. Entries last checked more than ttlMs
+// ago are revalidated on the executor by reading only createdAt, which is
+// rewritten whenever the profile is; the full item is fetched only when it
+// moved. Concurrent requests for the same email share one fetch.
+public final class UserCache {
+
+    // Local persistence, e.g. SharedPreferences. Values are opaque strings.
+    public interface Store {
+        String load(String email);
+        void save(String email, String value);
+        void remove(String email);
+    }
+
+    public interface Source {
+        // null when there is no such user
+        UserData fetch(String email) throws Exception;
+
+        // The item's createdAt; -1 when there is no such user, 0 when the
+        // item predates the attribute
+        long fetchVersion(String email) throws Exception;
+    }
+
+    public interface Listener {
+        // user is null when the account does not exist
+        void onUser(UserData user, boolean fromCache);
+        void onError(Exception e);
+    }
+
+    public static final class Stats {
+        public final long hits;
+        public final long staleHits;
+        public final long misses;
+        public final long revalidations;
+        public final long changed;
+        public final long errors;
+        public final long maxStalenessMs;
+
+        Stats(long hits, long staleHits, long misses, long revalidations, long changed,
+              long errors, long maxStalenessMs) {
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.revalidations = revalidations;
+            this.changed = changed;
+            this.errors = errors;
+            this.maxStalenessMs = maxStalenessMs;
+        }
+
+        // Share of reads served from the device, stale or not
+        public double hitRatio() {
+            long reads = hits + staleHits + misses;
+            return reads == 0 ? 0 : (double) (hits + staleHits) / reads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d stale=%d misses=%d revalidated=%d changed=%d errors=%d maxStaleMs=%d",
+                    hits, staleHits, misses, revalidations, changed, errors, maxStalenessMs);
+        }
+    }
+
+    private static final int FORMAT = 1;
+
+    private static final class Entry {
+        final UserData user;
+        final long verifiedAt;
+
+        Entry(UserData user, long verifiedAt) {
+            this.user = user;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    // One fetch or revalidation in progress. served already got the cached
+    // profile and only hear back if it changed; waiting have nothing yet.
+    private static final class Flight {
+        final List<Listener> served = new ArrayList<>();
+        final List<Listener> waiting = new ArrayList<>();
+    }
+
+    private final Store store;
+    private final Source source;
+    private final Executor executor;
+    private final long ttlMs;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long revalidations;
+    private long changed;
+    private long errors;
+    private long maxStalenessMs;
+
+    public UserCache(Store store, Source source, Executor executor, long ttlMs) {
+        this(store, source, executor, ttlMs, System::currentTimeMillis);
+    }
+
+    public UserCache(Store store, Source source, Executor executor, long ttlMs, LongSupplier clock) {
+        this.store = store;
+        this.source = source;
+        this.executor = executor;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    // Calls back synchronously on a hit, then again from the executor if
+    // revalidation finds the profile changed or deleted
+    public void get(String email, Listener listener) {
+        Entry entry;
+        boolean start;
+        synchronized (this) {
+            entry = entryLocked(email);
+            Flight flight = flights.get(email);
+            start = flight == null;
+            if (start) {
+                flight = new Flight();
+            }
+            if (entry == null) {
+                misses++;
+                flight.waiting.add(listener);
+            } else {
+                long age = clock.getAsLong() - entry.verifiedAt;
+                if (age < ttlMs) {
+                    hits++;
+                    start = false;
+                } else {
+                    staleHits++;
+                    maxStalenessMs = Math.max(maxStalenessMs, age);
+                    flight.served.add(listener);
+                }
+            }
+            if (start) {
+                flights.put(email, flight);
+            }
+        }
+
+        if (entry != null) {
+            listener.onUser(copy(entry.user), true);
+        }
+        if (start) {
+            launch(email, entry == null ? -1 : entry.user.createdAt);
+        }
+    }
+
+    // The cached profile without touching DynamoDB or the counters, however
+    // stale; null if none
+    public UserData peek(String email) {
+        Entry entry;
+        synchronized (this) {
+            entry = entryLocked(email);
+        }
+        return entry == null ? null : copy(entry.user);
+    }
+
+    // Records a profile the app just wrote or read itself
+    public void put(UserData user) {
+        Entry entry = new Entry(copy(user), clock.getAsLong());
+        String encoded = encode(entry);
+        synchronized (this) {
+            entries.put(user.email, entry);
+            store.save(user.email, encoded);
+        }
+    }
+
+    public void invalidate(String email) {
+        synchronized (this) {
+            entries.remove(email);
+            store.remove(email);
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, staleHits, misses, revalidations, changed, errors, maxStalenessMs);
+    }
+
+    private void launch(String email, long cachedVersion) {
+        try {
+            executor.execute(() -> refresh(email, cachedVersion));
+        } catch (RejectedExecutionException e) {
+            Flight flight;
+            synchronized (this) {
+                flight = flights.remove(email);
+                errors++;
+            }
+            if (flight != null) {
+                for (Listener listener : flight.waiting) {
+                    listener.onError(e);
+                }
+            }
+        }
+    }
+
+    private void refresh(String email, long cachedVersion) {
+        UserData user = null;
+        boolean moved = true;
+        Exception error = null;
+        try {
+            if (cachedVersion >= 0) {
+                long version = source.fetchVersion(email);
+                moved = version != cachedVersion;
+                if (moved && version >= 0) {
+                    user = source.fetch(email);
+                }
+            } else {
+                user = source.fetch(email);
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+
+        Flight flight;
+        UserData current = null;
+        boolean refetch = false;
+        synchronized (this) {
+            flight = flights.remove(email);
+            if (cachedVersion >= 0) {
+                revalidations++;
+            }
+            if (error != null) {
+                errors++;
+            } else if (!moved) {
+                Entry entry = entries.get(email);
+                if (entry != null) {
+                    Entry touched = new Entry(entry.user, clock.getAsLong());
+                    entries.put(email, touched);
+                    store.save(email, encode(touched));
+                    current = entry.user;
+                } else if (flight != null && !flight.waiting.isEmpty()) {
+                    // Invalidated while the version was checked; readers
+                    // that joined since need the whole item
+                    Flight retry = new Flight();
+                    retry.waiting.addAll(flight.waiting);
+                    flights.put(email, retry);
+                    flight = null;
+                    refetch = true;
+                }
+            } else {
+                if (cachedVersion >= 0) {
+                    changed++;
+                }
+                if (user == null) {
+                    entries.remove(email);
+                    store.remove(email);
+                } else {
+                    Entry fresh = new Entry(copy(user), clock.getAsLong());
+                    entries.put(email, fresh);
+                    store.save(email, encode(fresh));
+                }
+            }
+        }
+        if (refetch) {
+            launch(email, -1);
+        }
+        if (flight == null) {
+            return;
+        }
+
+        if (error != null) {
+            // Revalidation failures are silent; the served profile stands
+            for (Listener listener : flight.waiting) {
+                listener.onError(error);
+            }
+        } else if (!moved) {
+            for (Listener listener : flight.waiting) {
+                listener.onUser(current == null ? null : copy(current), true);
+            }
+        } else {
+            for (Listener listener : flight.served) {
+                listener.onUser(user == null ? null : copy(user), false);
+            }
+            for (Listener listener : flight.waiting) {
+                listener.onUser(user == null ? null : copy(user), false);
+            }
+        }
+    }
+
+    private Entry entryLocked(String email) {
+        Entry entry = entries.get(email);
+        if (entry != null) {
+            return entry;
+        }
+        String stored = store.load(email);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            entry = decode(stored);
+        } catch (IllegalArgumentException e) {
+            // Written by another build or truncated; refetch
+            store.remove(email);
+            return null;
+        }
+        entries.put(email, entry);
+        return entry;
+    }
+
+    private static String encode(Entry entry) {
+        UserData user = entry.user;
+        PackedWriter out = new PackedWriter(128);
+        out.writeByte(FORMAT);
+        out.writeVarLong(entry.verifiedAt);
+        out.writeString(user.email);
+        out.writeString(user.name);
+        out.writeSignedVarLong(user.age);
+        out.writeSignedVarLong(user.height);
+        out.writeSignedVarLong(user.weight);
+        out.writeString(user.emergencyNumber);
+        out.writeVarLong(user.createdAt);
+        out.writeSignedVarLong(user.lastHeartRate);
+        out.writeSignedVarLong(user.lastSteps);
+        out.writeString(user.lastLocation);
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    private static Entry decode(String value) {
+        PackedReader in = new PackedReader(Base64.getDecoder().decode(value));
+        if (in.readByte() != FORMAT) {
+            throw new IllegalArgumentException("Unknown cache format");
+        }
+        long verifiedAt = in.readVarLong();
+        UserData user = new UserData();
+        user.email = in.readString();
+        user.name = in.readString();
+        user.age = (int) in.readSignedVarLong();
+        user.height = (int) in.readSignedVarLong();
+        user.weight = (int) in.readSignedVarLong();
+        user.emergencyNumber = in.readString();
+        user.createdAt = in.readVarLong();
+        user.lastHeartRate = (int) in.readSignedVarLong();
+        user.lastSteps = (int) in.readSignedVarLong();
+        String location = in.readString();
+        user.lastLocation = location.isEmpty() ? null : location;
+        return new Entry(user, verifiedAt);
+    }
+
+    private static UserData copy(UserData user) {
+        UserData copy = new UserData();
+        copy.email = user.email;
+        copy.name = user.name;
+        copy.age = user.age;
+        copy.height = user.height;
+        copy.weight = user.weight;
+        copy.emergencyNumber = user.emergencyNumber;
+        copy.createdAt = user.createdAt;
+        copy.lastHeartRate = user.lastHeartRate;
+        copy.lastSteps = user.lastSteps;
+        copy.lastLocation = user.lastLocation;
+        return copy;
+    }
+}
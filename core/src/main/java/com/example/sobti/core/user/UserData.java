@@ -0,0 +1,32 @@
+package com.example.sobti.core.user;
+
+import com.example.sobti.core.mapping.Attribute;
+import com.example.sobti.core.mapping.Item;
+
+// A row of the SobtiUsers table; UserDataMapper is generated from it.
+// createdAt is set on registration and doubles as the profile's version.
+// The last* fields are only set once the phone has uploaded a reading, by
+// update expressions, so the whole-item write leaves them out.
+@Item(table = "SobtiUsers")
+public class UserData {
+    @Attribute(required = true)
+    public String email;
+    @Attribute(required = true)
+    public String name;
+    @Attribute(required = true)
+    public int age;
+    @Attribute(required = true)
+    public int height;
+    @Attribute(required = true)
+    public int weight;
+    @Attribute(required = true)
+    public String emergencyNumber;
+    @Attribute
+    public long createdAt;
+    @Attribute(write = false)
+    public int lastHeartRate;
+    @Attribute(write = false)
+    public int lastSteps;
+    @Attribute(write = false)
+    public String lastLocation;
+}
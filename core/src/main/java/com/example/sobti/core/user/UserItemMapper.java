@@ -0,0 +1,56 @@
+package com.example.sobti.core.user;
+
+import com.example.sobti.core.mapping.ItemReader;
+import com.example.sobti.core.mapping.ItemWriter;
+
+// Maps UserData to and from SobtiUsers items. The profile attributes are
+// handled by the generated UserDataMapper; the health update, which SETs a
+// few attributes of an existing item, is written by hand. The item is
+// reached through ItemReader and ItemWriter views so the SDK's
+// AttributeValue stays in the app and the mapping runs, and is
+// benchmarked, on a plain JVM. Numbers travel as strings, as DynamoDB
+// sends them.
+public final class UserItemMapper {
+
+    public static final String TABLE = UserDataMapper.TABLE;
+
+    public static final String EMAIL = UserDataMapper.EMAIL;
+    public static final String NAME = UserDataMapper.NAME;
+    public static final String AGE = UserDataMapper.AGE;
+    public static final String HEIGHT = UserDataMapper.HEIGHT;
+    public static final String WEIGHT = UserDataMapper.WEIGHT;
+    public static final String EMERGENCY_NUMBER = UserDataMapper.EMERGENCY_NUMBER;
+    public static final String CREATED_AT = UserDataMapper.CREATED_AT;
+    public static final String LAST_HEART_RATE = UserDataMapper.LAST_HEART_RATE;
+    public static final String LAST_STEPS = UserDataMapper.LAST_STEPS;
+    public static final String LAST_LOCATION = UserDataMapper.LAST_LOCATION;
+    public static final String LAST_UPDATED = "lastUpdated";
+
+    // What read() needs, for a ProjectionExpression. "name" is a DynamoDB
+    // reserved word, so it is referenced through NAME_REF.
+    public static final String NAME_REF = "#name";
+    public static final String PROFILE_PROJECTION = String.join(", ", EMAIL, NAME_REF, AGE, HEIGHT, WEIGHT,
+            EMERGENCY_NUMBER, CREATED_AT, LAST_HEART_RATE, LAST_STEPS, LAST_LOCATION);
+
+    private UserItemMapper() {
+    }
+
+    // Throws IllegalArgumentException if a profile attribute is missing or
+    // a number does not parse
+    public static UserData read(ItemReader item) {
+        return UserDataMapper.read(item);
+    }
+
+    // The item registerUser puts for a new registration
+    public static void writeProfile(UserData user, ItemWriter item) {
+        UserDataMapper.write(user, item);
+    }
+
+    // The attributes a health update overwrites
+    public static void writeHealth(int heartRate, int steps, String location, long timestamp, ItemWriter item) {
+        item.putNumber(LAST_HEART_RATE, heartRate);
+        item.putNumber(LAST_STEPS, steps);
+        item.putString(LAST_LOCATION, location);
+        item.putNumber(LAST_UPDATED, timestamp);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.sobti.core.anomaly;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AnomalyEngineTest {
+
+    private final List<String> reports = new ArrayList<>();
+    private final List<String> emergencies = new ArrayList<>();
+
+    @Test
+    public void normalFluctuationNeverAlerts() {
+        for (long seed = 1; seed <= 20; seed++) {
+            AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+            // Two hours of test-mode noise
+            SyntheticTrace trace = new SyntheticTrace(seed).normal(2_400);
+            assertEquals("seed " + seed + " " + reports, -1, trace.replay(engine, 0));
+        }
+    }
+
+    @Test
+    public void singleGlitchIsIgnored() {
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        SyntheticTrace trace = new SyntheticTrace(7).normal(100).spike(190).normal(100);
+        assertEquals(-1, trace.replay(engine, 0));
+    }
+
+    @Test
+    public void testModeClimbIsCaughtWithinTheEpisode() {
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        SyntheticTrace trace = new SyntheticTrace(3).normal(100);
+        int episodeStart = trace.size();
+        trace.climb();
+        int first = trace.replay(engine, 0);
+        assertTrue("first=" + first, first >= episodeStart && first < trace.size());
+    }
+
+    @Test
+    public void testModeFallIsCaught() {
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        SyntheticTrace trace = new SyntheticTrace(11).normal(100);
+        int episodeStart = trace.size();
+        trace.fall().normal(0);
+        int first = trace.replay(engine, 0);
+        assertTrue("first=" + first, first >= episodeStart);
+    }
+
+    @Test
+    public void slowDriftIsCaughtByDurationRules() {
+        // Twenty minutes to climb from the 70s to 140: no step is large
+        // enough for rate-of-change or z-score, and the old three-sample
+        // counter reset on every noisy dip.
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        SyntheticTrace trace = new SyntheticTrace(5).normal(100).driftTo(140, 400, 100);
+        int first = trace.replay(engine, 0);
+        assertTrue("first=" + first, first > 100);
+        assertTrue(reports.toString(), reports.get(0).startsWith("sustained-threshold")
+                || reports.get(0).startsWith("ewma-baseline"));
+    }
+
+    @Test
+    public void highLimitFollowsAgeDownToTheDefault() {
+        assertEquals(140, PersonalBaseline.forAge(20).highLimit);
+        assertEquals(126, PersonalBaseline.forAge(40).highLimit);
+        assertEquals(120, PersonalBaseline.forAge(65).highLimit);
+        assertEquals(120, PersonalBaseline.forAge(70).highLimit);
+        assertEquals(PersonalBaseline.DEFAULT, PersonalBaseline.forAge(0));
+
+        // A long stretch at 125 is an incident for a 70 year old only
+        SyntheticTrace older = new SyntheticTrace(9).normal(50).driftTo(125, 60, 200);
+        assertTrue(older.replay(engine(PersonalBaseline.forAge(70)), 0) > 0);
+        SyntheticTrace younger = new SyntheticTrace(9).normal(50).driftTo(125, 60, 200);
+        assertEquals(-1, younger.replay(engine(PersonalBaseline.forAge(20)), 0));
+    }
+
+    @Test
+    public void exerciseRampIsNotAnEmergency() {
+        for (int age : new int[] {0, 30, 65}) {
+            for (long seed = 1; seed <= 10; seed++) {
+                AnomalyEngine engine = engine(PersonalBaseline.forAge(age));
+                // Ten calm minutes around 66, a one-minute stair climb to 110
+                // and ten minutes of brisk walking there
+                SyntheticTrace trace = new SyntheticTrace(seed).driftTo(66, 5, 200).driftTo(110, 20, 200);
+                trace.replay(engine, 0);
+                assertTrue("age " + age + " seed " + seed + " " + reports, emergencies.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void warningDoesNotHoldBackAnEmergency() {
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        // The sudden jump is a warning; staying at 160 is an emergency
+        // within the warning's cooldown
+        SyntheticTrace trace = new SyntheticTrace(6).normal(100).driftTo(160, 2, 60);
+        trace.replay(engine, 0);
+        assertEquals(reports.toString(), 2, reports.size());
+        assertEquals(reports.toString(), 1, emergencies.size());
+        assertEquals(emergencies.get(0), reports.get(1).split(" ")[0]);
+    }
+
+    @Test
+    public void repeatedHitsWithinCooldownAreSuppressed() {
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        // Nine minutes pinned at 160
+        SyntheticTrace trace = new SyntheticTrace(2).normal(50).driftTo(160, 5, 180);
+        trace.replay(engine, 0);
+        assertEquals(reports.toString(), 2, emergencies.size());
+        assertTrue(engine.suppressedCount() > 0);
+    }
+
+    @Test
+    public void zeroReadingsAreSkipped() {
+        AnomalyEngine engine = engine(PersonalBaseline.forAge(30));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(false, engine.onSample(i * 3_000L, 0));
+        }
+        assertEquals(0, engine.sampleCount());
+    }
+
+    @Test
+    public void samplePathDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        SyntheticTrace trace = new SyntheticTrace(4).normal(2_000).climb().normal(500).fall().normal(500);
+        AnomalyEngine engine = AnomalyEngine.standard(PersonalBaseline.forAge(40),
+                (rule, timestamp, heartRate, value) -> { });
+        trace.replay(engine, 0);
+
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        trace.replay(engine, 0);
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+        // Allow for the measurement call itself
+        assertTrue("allocated " + allocated + " bytes", allocated < 1_024);
+    }
+
+    private AnomalyEngine engine(PersonalBaseline baseline) {
+        reports.clear();
+        emergencies.clear();
+        return AnomalyEngine.standard(baseline, (rule, timestamp, heartRate, value) -> {
+            reports.add(rule.name() + " hr=" + heartRate + " value=" + value);
+            if (rule.isEmergency()) {
+                emergencies.add(rule.name());
+            }
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.sobti.core.anomaly;
+
+import java.util.Random;
+
+// Heart-rate traces shaped like the watch's test mode: a reading every
+// three seconds that wanders by up to ±5 bpm inside 60-100, with episodes
+// that climb or fall by 5-12 bpm per reading.
+final class SyntheticTrace {
+
+    static final long INTERVAL_MS = 3_000L;
+
+    private final Random random;
+    private final long start;
+    private long[] timestamps = new long[256];
+    private int[] heartRates = new int[256];
+    private int size;
+    private int heartRate = 75;
+
+    SyntheticTrace(long seed) {
+        random = new Random(seed);
+        start = 1_700_000_000_000L;
+    }
+
+    SyntheticTrace normal(int readings) {
+        for (int i = 0; i < readings; i++) {
+            heartRate += random.nextInt(11) - 5;
+            if (heartRate < 60) heartRate = 60 + random.nextInt(10);
+            if (heartRate > 100) heartRate = 90 + random.nextInt(10);
+            add(heartRate);
+        }
+        return this;
+    }
+
+    // The test-mode climb: 5-12 bpm per reading for five readings
+    SyntheticTrace climb() {
+        for (int i = 0; i < 5; i++) {
+            heartRate += random.nextInt(8) + 5;
+            add(heartRate);
+        }
+        return this;
+    }
+
+    SyntheticTrace fall() {
+        for (int i = 0; i < 5; i++) {
+            heartRate -= random.nextInt(8) + 5;
+            add(heartRate);
+        }
+        return this;
+    }
+
+    // Moves linearly to the target over the given number of readings, then
+    // holds there with ±3 bpm of noise
+    SyntheticTrace driftTo(int target, int readings, int holdReadings) {
+        int from = heartRate;
+        for (int i = 1; i <= readings; i++) {
+            add(from + (target - from) * i / readings + random.nextInt(7) - 3);
+        }
+        heartRate = target;
+        for (int i = 0; i < holdReadings; i++) {
+            add(target + random.nextInt(7) - 3);
+        }
+        return this;
+    }
+
+    SyntheticTrace spike(int value) {
+        add(value);
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    int heartRateAt(int index) {
+        return heartRates[index];
+    }
+
+    // Replays the trace and returns the index of the first reported
+    // anomaly, or -1
+    int replay(AnomalyEngine engine, int from) {
+        int first = -1;
+        for (int i = from; i < size; i++) {
+            if (engine.onSample(timestamps[i], heartRates[i]) && first < 0) {
+                first = i;
+            }
+        }
+        return first;
+    }
+
+    private void add(int value) {
+        if (size == timestamps.length) {
+            timestamps = java.util.Arrays.copyOf(timestamps, size * 2);
+            heartRates = java.util.Arrays.copyOf(heartRates, size * 2);
+        }
+        timestamps[size] = start + size * INTERVAL_MS;
+        heartRates[size] = value;
+        size++;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.sobti.core.aws;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class EventStreamDecoderTest {
+
+    private final List<EventStreamDecoder.Message> messages = new ArrayList<>();
+    private final EventStreamDecoder decoder = new EventStreamDecoder(messages::add);
+
+    @Test
+    public void decodesMessagesFedOneByteAtATime() throws Exception {
+        byte[] stream = concat(chunk("Hello"), chunk(", world"));
+
+        for (byte b : stream) {
+            decoder.feed(new byte[]{b}, 0, 1);
+        }
+
+        assertEquals(2, messages.size());
+        assertEquals("chunk", messages.get(0).header(":event-type"));
+        assertEquals("event", messages.get(0).header(":message-type"));
+        assertEquals("Hello", new String(messages.get(0).payload, StandardCharsets.UTF_8));
+        assertEquals(", world", new String(messages.get(1).payload, StandardCharsets.UTF_8));
+        assertTrue(decoder.isIdle());
+    }
+
+    @Test
+    public void decodesSeveralMessagesInOneRead() throws Exception {
+        byte[] stream = concat(chunk("a"), chunk("b"), chunk("c"));
+        decoder.feed(stream, 0, stream.length);
+        assertEquals(3, messages.size());
+    }
+
+    @Test
+    public void largePayloadGrowsBuffer() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append('x');
+        }
+        byte[] frame = chunk(text.toString());
+        decoder.feed(frame, 0, 100);
+        decoder.feed(frame, 100, frame.length - 100);
+        assertEquals(5000, messages.get(0).payload.length);
+    }
+
+    // Known-good frames from the AWS event stream test suite ("empty_message"
+    // and "payload_one_str_header"), written out byte for byte
+    private static final String EMPTY_MESSAGE = "000000100000000005c248eb7d98c8ff";
+    private static final String ONE_STRING_HEADER = "0000003d0000002007fd8396"
+            + "0c636f6e74656e742d74797065" + "07" + "0010" + "6170706c69636174696f6e2f6a736f6e"
+            + "7b27666f6f273a27626172277d" + "8d9c08b1";
+
+    @Test
+    public void decodesPublishedFrames() throws Exception {
+        byte[] stream = concat(hex(EMPTY_MESSAGE), hex(ONE_STRING_HEADER));
+        decoder.feed(stream, 0, stream.length);
+
+        assertEquals(2, messages.size());
+        assertEquals(0, messages.get(0).payload.length);
+        assertEquals("application/json", messages.get(1).header("content-type"));
+        assertEquals("{'foo':'bar'}", new String(messages.get(1).payload, StandardCharsets.UTF_8));
+        assertTrue(decoder.isIdle());
+    }
+
+    @Test
+    public void encoderReproducesPublishedFrames() {
+        assertArrayEquals(hex(EMPTY_MESSAGE),
+                EventStreamEncoder.encode(Collections.<String, String>emptyMap(), new byte[0]));
+        assertArrayEquals(hex(ONE_STRING_HEADER), EventStreamEncoder.encode(
+                Collections.singletonMap("content-type", "application/json"),
+                "{'foo':'bar'}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptPublishedFrameFailsMessageCrc() throws Exception {
+        byte[] frame = hex(ONE_STRING_HEADER);
+        frame[frame.length - 5] ^= 0x20;
+        decoder.feed(frame, 0, frame.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptPayloadFailsMessageCrc() throws Exception {
+        byte[] frame = chunk("payload");
+        frame[frame.length - 6] ^= 0x01;
+        decoder.feed(frame, 0, frame.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptLengthFailsPreludeCrc() throws Exception {
+        byte[] frame = chunk("payload");
+        frame[7] ^= 0x01;
+        decoder.feed(frame, 0, frame.length);
+    }
+
+    private static byte[] chunk(String payload) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(":event-type", "chunk");
+        headers.put(":content-type", "application/json");
+        headers.put(":message-type", "event");
+        return EventStreamEncoder.encode(headers, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] hex(String digits) {
+        byte[] out = new byte[digits.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(digits.substring(2 * i, 2 * i + 2), 16);
+        }
+        return out;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
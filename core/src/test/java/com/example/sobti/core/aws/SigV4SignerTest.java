@@ -0,0 +1,88 @@
+package com.example.sobti.core.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+// Expected values come from the AWS SigV4 test suite (aws-sig-v4-test-suite)
+// and the signing-key example in the SigV4 documentation.
+public class SigV4SignerTest {
+
+    private static final String ACCESS_KEY = "AKIDEXAMPLE";
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+    // 2015-08-30T12:36:00Z
+    private static final long REQUEST_TIME = 1440938160000L;
+
+    private final SigV4Signer signer =
+            new SigV4Signer("example.amazonaws.com", "us-east-1", "service", null);
+
+    @Test
+    public void getVanilla() {
+        SigV4Signer.Signature signature =
+                signer.sign("GET", "/", "", null, REQUEST_TIME, ACCESS_KEY, SECRET_KEY, null);
+
+        assertEquals("20150830T123600Z", signature.amzDate);
+        assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, "
+                        + "SignedHeaders=host;x-amz-date, "
+                        + "Signature=5fa00fa31553b73ebf1942676e86291e8372ff2a2260956d9b8aae1d763fbf31",
+                signature.authorization);
+    }
+
+    @Test
+    public void getVanillaQuery() {
+        SigV4Signer.Signature signature = signer.sign("GET", "/", "Param1=value1&Param2=value2", null,
+                REQUEST_TIME, ACCESS_KEY, SECRET_KEY, null);
+
+        assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, "
+                        + "SignedHeaders=host;x-amz-date, "
+                        + "Signature=b97d918cfa904a5beff61c982a1b6f458b799221646efd99d3219ec94cdf2500",
+                signature.authorization);
+    }
+
+    @Test
+    public void postVanilla() {
+        SigV4Signer.Signature signature =
+                signer.sign("POST", "/", "", null, REQUEST_TIME, ACCESS_KEY, SECRET_KEY, null);
+
+        assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, "
+                        + "SignedHeaders=host;x-amz-date, "
+                        + "Signature=5da7c1a2acd57cee7505fc6676e4e544621c30862966e37dddb68e92efbe5d6b",
+                signature.authorization);
+    }
+
+    @Test
+    public void postFormBodyWithContentType() {
+        SigV4Signer formSigner = new SigV4Signer("example.amazonaws.com", "us-east-1", "service",
+                "application/x-www-form-urlencoded");
+        SigV4Signer.Signature signature = formSigner.sign("POST", "/", "",
+                "Param1=value1".getBytes(StandardCharsets.UTF_8),
+                REQUEST_TIME, ACCESS_KEY, SECRET_KEY, null);
+
+        assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/service/aws4_request, "
+                        + "SignedHeaders=content-type;host;x-amz-date, "
+                        + "Signature=ff11897932ad3f4e8b18135d722051e5ac45fc38421b1da7b9d196a0fe09473a",
+                signature.authorization);
+    }
+
+    @Test
+    public void derivedSigningKeyMatchesDocumentation() {
+        byte[] key = SigV4Signer.deriveSigningKey(SECRET_KEY, "20150830", "us-east-1", "iam");
+        assertEquals("c4afb1cc5771d871763a393e44b703571b55cc28424d1a5e86da6ed3c154a4b9", Hex.encode(key));
+    }
+
+    @Test
+    public void cachedSigningKeyIsReused() {
+        byte[] first = signer.signingKey(SECRET_KEY, ACCESS_KEY, "20150830");
+        byte[] second = signer.signingKey(SECRET_KEY, ACCESS_KEY, "20150830");
+        assertSame(first, second);
+    }
+
+    @Test
+    public void emptyPayloadHash() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                SigV4Signer.EMPTY_PAYLOAD_HASH);
+    }
+}
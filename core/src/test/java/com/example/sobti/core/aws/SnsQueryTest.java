@@ -0,0 +1,106 @@
+package com.example.sobti.core.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SnsQueryTest {
+
+    private static final String TOPIC = "arn:aws:sns:ap-south-1:123456789012:alerts";
+
+    @Test
+    public void publishIsFormEncoded() {
+        assertEquals("Action=Publish&Version=2010-03-31&PhoneNumber=%2B15550100"
+                        + "&Message=HR+150+bpm%0ALocation%3A+12.9%2C+77.6",
+                string(SnsQuery.publishToPhone("+15550100", "HR 150 bpm\nLocation: 12.9, 77.6")));
+        assertEquals("Action=Publish&Version=2010-03-31&TopicArn=" + encodedTopic() + "&Message=hi",
+                string(SnsQuery.publishToTopic(TOPIC, null, "hi")));
+    }
+
+    @Test
+    public void batchEntriesAreNumberedFromOne() {
+        String body = string(SnsQuery.publishBatch(TOPIC, Arrays.asList(
+                new SnsQuery.Entry("0", "Alert", "first"),
+                new SnsQuery.Entry("1", null, "second"))));
+        assertEquals("Action=PublishBatch&Version=2010-03-31&TopicArn=" + encodedTopic()
+                + "&PublishBatchRequestEntries.member.1.Id=0"
+                + "&PublishBatchRequestEntries.member.1.Subject=Alert"
+                + "&PublishBatchRequestEntries.member.1.Message=first"
+                + "&PublishBatchRequestEntries.member.2.Id=1"
+                + "&PublishBatchRequestEntries.member.2.Message=second", body);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchesAreCappedAtTen() {
+        List<SnsQuery.Entry> entries = new ArrayList<>();
+        for (int i = 0; i <= SnsQuery.MAX_BATCH_ENTRIES; i++) {
+            entries.add(new SnsQuery.Entry(Integer.toString(i), null, "m"));
+        }
+        SnsQuery.publishBatch(TOPIC, entries);
+    }
+
+    @Test
+    public void responsesAreParsed() throws IOException {
+        assertEquals("567910cd-659e-55d4-8ccb-5aaf14679dc0", SnsQuery.messageId(bytes(
+                "<PublishResponse xmlns=\"http://sns.amazonaws.com/doc/2010-03-31/\"><PublishResult>"
+                        + "<MessageId>567910cd-659e-55d4-8ccb-5aaf14679dc0</MessageId>"
+                        + "</PublishResult></PublishResponse>")));
+
+        SnsQuery.BatchResult result = SnsQuery.batchResult(bytes(
+                "<PublishBatchResponse xmlns=\"http://sns.amazonaws.com/doc/2010-03-31/\"><PublishBatchResult>"
+                        + "<Successful><member><Id>0</Id><MessageId>m-0</MessageId></member></Successful>"
+                        + "<Failed>"
+                        + "<member><Id>1</Id><Code>InternalError</Code><Message>try again</Message>"
+                        + "<SenderFault>false</SenderFault></member>"
+                        + "<member><Id>2</Id><Code>InvalidParameter</Code><Message>bad</Message>"
+                        + "<SenderFault>true</SenderFault></member>"
+                        + "</Failed></PublishBatchResult></PublishBatchResponse>"));
+        assertEquals(Arrays.asList("0"), result.successful);
+        assertFalse(result.failed.get("1").senderFault);
+        assertEquals("InternalError", result.failed.get("1").code);
+        assertTrue(result.failed.get("2").senderFault);
+    }
+
+    @Test
+    public void errorResponses() {
+        byte[] error = bytes("<ErrorResponse><Error><Type>Sender</Type><Code>InvalidParameter</Code>"
+                + "<Message>Invalid parameter: PhoneNumber</Message></Error></ErrorResponse>");
+        assertEquals("InvalidParameter: Invalid parameter: PhoneNumber", SnsQuery.error(error));
+        assertTrue(SnsQuery.senderFault(error));
+        assertFalse(SnsQuery.credentialError(error));
+        assertNull(SnsQuery.error(bytes("Service Unavailable")));
+        assertFalse(SnsQuery.senderFault(bytes("")));
+    }
+
+    @Test
+    public void credentialErrorsAreNotTheRequestsFault() {
+        for (String code : new String[]{"ExpiredToken", "RequestExpired", "SignatureDoesNotMatch",
+                "InvalidClientTokenId"}) {
+            byte[] error = bytes("<ErrorResponse><Error><Type>Sender</Type><Code>" + code
+                    + "</Code><Message>m</Message></Error></ErrorResponse>");
+            assertFalse(code, SnsQuery.senderFault(error));
+            assertTrue(code, SnsQuery.credentialError(error));
+        }
+    }
+
+    private static String encodedTopic() {
+        return TOPIC.replace(":", "%3A");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.sobti.core.dispatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.sobti.core.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AppDispatcherTest {
+
+    private final AppDispatcher dispatcher = new AppDispatcher();
+
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void urgentTaskJumpsQueuedWorkInSameClass() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // AI has a single thread; block it so later tasks queue up
+        dispatcher.execute(WorkClass.AI, () -> await(release));
+        dispatcher.execute(WorkClass.AI, () -> { order.add("normal-1"); done.countDown(); });
+        dispatcher.execute(WorkClass.AI, () -> { order.add("normal-2"); done.countDown(); });
+        dispatcher.execute(WorkClass.AI, AppDispatcher.PRIORITY_URGENT,
+                () -> { order.add("urgent"); done.countDown(); });
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("urgent", order.get(0));
+        assertEquals("normal-1", order.get(1));
+        assertEquals("normal-2", order.get(2));
+    }
+
+    @Test
+    public void busyClassDoesNotDelayEmergencyWork() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch emergency = new CountDownLatch(1);
+
+        dispatcher.execute(WorkClass.AI, () -> await(release));
+        dispatcher.execute(WorkClass.EMERGENCY, emergency::countDown);
+
+        assertTrue(emergency.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void fullQueueRejectsAndCounts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.execute(WorkClass.AI, () -> await(release));
+        // Wait until the blocker has left the queue
+        while (dispatcher.stats(WorkClass.AI).queueDepth > 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < WorkClass.AI.queueCapacity; i++) {
+            dispatcher.execute(WorkClass.AI, () -> { });
+        }
+        try {
+            dispatcher.execute(WorkClass.AI, () -> { });
+            fail("expected rejection");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        AppDispatcher.Stats stats = dispatcher.stats(WorkClass.AI);
+        assertEquals(WorkClass.AI.queueCapacity, stats.queueDepth);
+        assertEquals(1, stats.rejected);
+        release.countDown();
+    }
+
+    @Test
+    public void scheduledWorkRunsOnClassPoolAndRecordsWait() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        String[] thread = new String[1];
+        dispatcher.scheduler(WorkClass.STORAGE).schedule(() -> {
+            thread[0] = Thread.currentThread().getName();
+            done.countDown();
+        }, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(thread[0], thread[0].startsWith("sobti-storage-"));
+        assertEquals(1, dispatcher.stats(WorkClass.STORAGE).submitted);
+    }
+
+    @Test
+    public void scheduledCallCompletesWithItsResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = dispatcher.scheduler(WorkClass.AI);
+        dispatcher.execute(WorkClass.AI, () -> await(release));
+
+        ScheduledFuture<String> call = scheduler.schedule(() -> "ran", 0, TimeUnit.MILLISECONDS);
+        // Handed to the pool but still queued behind the blocked task
+        Thread.sleep(50);
+        assertFalse(call.isDone());
+        release.countDown();
+        assertEquals("ran", call.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledScheduledCallNeverRuns() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        ScheduledFuture<?> call = dispatcher.scheduler(WorkClass.BACKGROUND)
+                .schedule(ran::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(call.cancel(false));
+        assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, dispatcher.stats(WorkClass.BACKGROUND).submitted);
+    }
+
+    @Test
+    public void terminatedOnlyOnceRunningWorkHasDrained() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ScheduledExecutorService scheduler = dispatcher.scheduler(WorkClass.STORAGE);
+        dispatcher.execute(WorkClass.STORAGE, () -> await(release));
+        dispatcher.shutdown();
+
+        assertTrue(scheduler.isShutdown());
+        assertFalse(scheduler.isTerminated());
+        release.countDown();
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.isTerminated());
+    }
+
+    @Test
+    public void queueWaitsGoToTheClassTimer() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        AppDispatcher own = new AppDispatcher(metrics);
+        CountDownLatch done = new CountDownLatch(5);
+        try {
+            for (int i = 0; i < 5; i++) {
+                own.execute(WorkClass.UPLOAD, done::countDown);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            own.shutdown();
+        }
+        assertTrue(own.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(5, metrics.report().timers.get("dispatch.upload.wait").latency.count);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shutdownRejectsNewWork() {
+        dispatcher.shutdown();
+        dispatcher.execute(WorkClass.BACKGROUND, () -> { });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.sobti.core.emergency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AlertGateTest {
+
+    private static final long SUPPRESS_MS = 60_000;
+    private static final long DEDUP_MS = 600_000;
+    private static final long QUIET_MS = 900_000;
+
+    private long now = 1_000_000;
+    private final AlertGate gate = new AlertGate(SUPPRESS_MS, DEDUP_MS, QUIET_MS, 10, 2, () -> now);
+
+    @Test
+    public void flappingAlertsAreSuppressed() {
+        assertSend(0, gate.check("a", "zscore", 150, false));
+        for (int i = 0; i < 10; i++) {
+            now += 5_000;
+            AlertGate.Decision decision = gate.check("a", "sustained", 170 + i, false);
+            assertEquals(AlertGate.Outcome.SUPPRESSED, decision.outcome);
+            assertTrue(decision.retryInMs > 0 && decision.retryInMs < SUPPRESS_MS);
+        }
+        assertEquals(1, gate.stats().sent);
+        assertEquals(10, gate.stats().suppressed);
+    }
+
+    @Test
+    public void equivalentAlertsAreDuplicatesAfterSuppressionEnds() {
+        assertSend(0, gate.check("a", "zscore", 151, false));
+        now += 2 * SUPPRESS_MS;
+        // Same rule, same 10 bpm bucket
+        assertEquals(AlertGate.Outcome.DUPLICATE, gate.check("a", "zscore", 158, false).outcome);
+        // Same rule, a higher bucket is news
+        assertSend(1, gate.check("a", "zscore", 165, false));
+        now += DEDUP_MS;
+        assertSend(2, gate.check("a", "zscore", 155, false));
+        assertEquals(1, gate.stats().duplicates);
+    }
+
+    @Test
+    public void escalationStopsAtMaxLevelAndResetsAfterQuiet() {
+        for (int i = 0; i < 4; i++) {
+            assertSend(Math.min(i, 2), gate.check("a", "rule" + i, 150, false));
+            now += SUPPRESS_MS;
+        }
+        assertEquals(3, gate.stats().escalations);
+
+        now += QUIET_MS + 1;
+        assertSend(0, gate.check("a", "rule0", 150, false));
+    }
+
+    @Test
+    public void steadyAlertsKeepTheEpisodeOpen() {
+        assertSend(0, gate.check("a", "zscore", 150, false));
+        // Each alert lands just inside the quiet period of the last
+        for (int i = 1; i <= 3; i++) {
+            now += QUIET_MS - 1;
+            assertSend(Math.min(i, 2), gate.check("a", "rule" + i, 150, false));
+        }
+    }
+
+    @Test
+    public void manualAlertsSkipSuppressionButEscalate() {
+        assertSend(0, gate.check("a", "zscore", 150, false));
+        assertSend(1, gate.check("a", "manual", 150, true));
+        assertSend(2, gate.check("a", "manual", 150, true));
+        assertEquals(AlertGate.Outcome.DUPLICATE, gate.check("a", "manual", 150, false).outcome);
+    }
+
+    @Test
+    public void usersAreGatedSeparately() {
+        assertSend(0, gate.check("a", "zscore", 150, false));
+        assertSend(0, gate.check("b", "zscore", 150, false));
+        gate.reset("a");
+        assertSend(0, gate.check("a", "zscore", 150, false));
+    }
+
+    private static void assertSend(int level, AlertGate.Decision decision) {
+        assertEquals(AlertGate.Outcome.SEND, decision.outcome);
+        assertEquals(level, decision.level);
+    }
+}
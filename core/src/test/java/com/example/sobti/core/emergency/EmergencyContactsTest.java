@@ -0,0 +1,50 @@
+package com.example.sobti.core.emergency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class EmergencyContactsTest {
+
+    @Test
+    public void singleNumberAsBefore() {
+        EmergencyContacts contacts = EmergencyContacts.parse("+91 98765 43210");
+        assertEquals("+919876543210", contacts.primary());
+        assertEquals(Collections.singletonList("+919876543210"), contacts.forLevel(0));
+        assertEquals(Collections.singletonList("+919876543210"), contacts.forLevel(2));
+    }
+
+    @Test
+    public void laterContactsJoinOnEscalation() {
+        EmergencyContacts contacts = EmergencyContacts.parse("(555) 010-0100, +1 555 010 0200; 555.010.0100");
+        assertEquals(Arrays.asList("5550100100", "+15550100200"), contacts.all());
+        assertEquals(Collections.singletonList("5550100100"), contacts.forLevel(0));
+        assertEquals(contacts.all(), contacts.forLevel(1));
+    }
+
+    @Test
+    public void invalidEntriesAreSkippedAndReported() {
+        assertEquals(Collections.singletonList("5550100100"),
+                EmergencyContacts.parse("call mom, 5550100100, 12345").all());
+        assertEquals("call mom", EmergencyContacts.firstInvalid("call mom, 5550100100"));
+        assertEquals("12345", EmergencyContacts.firstInvalid("5550100100, 12345"));
+        assertEquals("", EmergencyContacts.firstInvalid(" "));
+        assertNull(EmergencyContacts.firstInvalid("5550100100,+15550100200"));
+        assertTrue(EmergencyContacts.parse(null).isEmpty());
+        assertNull(EmergencyContacts.parse("").primary());
+        assertTrue(EmergencyContacts.parse(" ; ").isEmpty());
+    }
+
+    @Test
+    public void fieldsOlderRegistrationAcceptedStillGetTheAlert() {
+        // Ten characters but nine digits passed the old length check
+        EmergencyContacts contacts = EmergencyContacts.parse(" 98765 4321 ");
+        assertEquals(Collections.singletonList("98765 4321"), contacts.all());
+        assertEquals("98765 4321", contacts.primary());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.sobti.core.emergency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class EmergencyDispatcherTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final EmergencyAlert alert = new EmergencyAlert("SOBTI ALERT", "HR 150", 150, 0);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void firstDeliveryIsReportedBeforeSlowChannelsFinish() throws Exception {
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        CountDownLatch firstSeen = new CountDownLatch(1);
+        AtomicReference<String> first = new AtomicReference<>();
+        Recorder recorder = new Recorder() {
+            @Override
+            public void onFirstDelivery(String channel, long elapsedMs) {
+                first.set(channel);
+                firstSeen.countDown();
+            }
+        };
+
+        new EmergencyDispatcher(executor, timer)
+                .addChannel(channel("slow", a -> releaseSlow.await()), new ChannelPolicy(5_000, 1, 0))
+                .addChannel(channel("fast", a -> { }), new ChannelPolicy(5_000, 1, 0))
+                .dispatch(alert, recorder);
+
+        assertTrue(firstSeen.await(2, TimeUnit.SECONDS));
+        assertEquals("fast", first.get());
+        assertEquals(1, recorder.done.getCount());
+
+        releaseSlow.countDown();
+        EmergencyReport report = recorder.await();
+        assertEquals("fast", report.firstDelivered);
+        assertTrue(report.results.get(0).delivered);
+        assertTrue(report.results.get(1).delivered);
+    }
+
+    @Test
+    public void failedAttemptsAreRetriedWithinBudget() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Recorder recorder = new Recorder();
+
+        new EmergencyDispatcher(executor, timer)
+                .addChannel(channel("flaky", a -> {
+                    if (calls.incrementAndGet() < 3) {
+                        throw new IllegalStateException("throttled");
+                    }
+                }), new ChannelPolicy(1_000, 3, 5))
+                .dispatch(alert, recorder);
+
+        EmergencyReport report = recorder.await();
+        assertTrue(report.anyDelivered());
+        assertEquals(3, report.results.get(0).attempts);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void hangingChannelTimesOutAndGivesUp() throws Exception {
+        Recorder recorder = new Recorder();
+
+        new EmergencyDispatcher(executor, timer)
+                .addChannel(channel("hang", a -> Thread.sleep(10_000)), new ChannelPolicy(50, 2, 10))
+                .addChannel(channel("down", a -> { throw new IllegalStateException("no route"); }),
+                        new ChannelPolicy(1_000, 1, 0))
+                .dispatch(alert, recorder);
+
+        EmergencyReport report = recorder.await();
+        assertFalse(report.anyDelivered());
+        EmergencyReport.ChannelResult hang = report.results.get(0);
+        assertFalse(hang.delivered);
+        assertEquals(2, hang.attempts);
+        assertTrue(hang.lastError instanceof TimeoutException);
+        assertTrue(hang.elapsedMs < 5_000);
+        assertEquals("no route", report.results.get(1).lastError.getMessage());
+    }
+
+    @Test
+    public void everySendGetsItsOwnThread() throws Exception {
+        int hanging = 12;
+        CountDownLatch started = new CountDownLatch(hanging);
+        CountDownLatch never = new CountDownLatch(1);
+        Recorder recorder = new Recorder();
+
+        EmergencyDispatcher dispatcher = new EmergencyDispatcher(timer);
+        for (int i = 0; i < hanging; i++) {
+            dispatcher.addChannel(channel("hang-" + i, a -> {
+                started.countDown();
+                never.await();
+            }), new ChannelPolicy(200, 1, 0));
+        }
+        // Only delivers once every hanging send holds a thread at the same time
+        dispatcher.addChannel(channel("last", a -> {
+            if (!started.await(2, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("sends were queued");
+            }
+        }), new ChannelPolicy(5_000, 1, 0));
+        dispatcher.dispatch(alert, recorder);
+
+        EmergencyReport report = recorder.await();
+        assertEquals("last", report.firstDelivered);
+        for (int i = 0; i < hanging; i++) {
+            EmergencyReport.ChannelResult hang = report.results.get(i);
+            assertFalse(hang.delivered);
+            assertTrue(hang.lastError instanceof TimeoutException);
+            assertTrue(hang.elapsedMs < 2_000);
+        }
+    }
+
+    @Test
+    public void noChannelsCompletesImmediately() throws Exception {
+        Recorder recorder = new Recorder();
+        new EmergencyDispatcher(executor, timer).dispatch(alert, recorder);
+        assertFalse(recorder.await().anyDelivered());
+    }
+
+    private interface Send {
+        void send(EmergencyAlert alert) throws Exception;
+    }
+
+    private static AlertChannel channel(String name, Send send) {
+        return new AlertChannel() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void send(EmergencyAlert alert) throws Exception {
+                send.send(alert);
+            }
+        };
+    }
+
+    private static class Recorder implements EmergencyDispatcher.Listener {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<EmergencyReport> report = new AtomicReference<>();
+
+        @Override
+        public void onFirstDelivery(String channel, long elapsedMs) {
+        }
+
+        @Override
+        public void onComplete(EmergencyReport r) {
+            report.set(r);
+            done.countDown();
+        }
+
+        EmergencyReport await() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            return report.get();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.sobti.core.emergency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.sobti.core.mapping.ItemReader;
+import com.example.sobti.core.mapping.ItemWriter;
+import com.example.sobti.core.mapping.Items;
+import com.example.sobti.core.queue.OutboundRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+// Exercises the generated SentAlertMapper
+public class SentAlertMapperTest {
+
+    private static final class MapItem implements ItemReader, ItemWriter {
+        final Map<String, String> strings = new HashMap<>();
+        final Map<String, String> numbers = new HashMap<>();
+
+        @Override
+        public String string(String name) {
+            return strings.get(name);
+        }
+
+        @Override
+        public String number(String name) {
+            return numbers.get(name);
+        }
+
+        @Override
+        public void putString(String name, String value) {
+            strings.put(name, value);
+        }
+
+        @Override
+        public void putNumber(String name, long value) {
+            numbers.put(name, String.valueOf(value));
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        SentAlert alert = SentAlert.from(OutboundRecord.alert("a@example.com", 1_700_000_000_000L, 142,
+                "12.97, 77.59", "Heart rate 142"));
+        MapItem item = new MapItem();
+        SentAlertMapper.write(alert, item);
+        assertEquals(SentAlertMapper.ATTRIBUTES, item.strings.size() + item.numbers.size());
+
+        SentAlert read = SentAlertMapper.read(item);
+        assertEquals("a@example.com", read.email);
+        assertEquals(1_700_000_000_000L, read.timestamp);
+        assertEquals(142, read.heartRate);
+        assertEquals("12.97, 77.59", read.location);
+        assertEquals("Heart rate 142", read.message);
+    }
+
+    @Test
+    public void missingOptionalStringIsLeftOut() {
+        SentAlert alert = SentAlert.from(OutboundRecord.alert("a@example.com", 1, 142, null, "Heart rate 142"));
+        MapItem item = new MapItem();
+        SentAlertMapper.write(alert, item);
+        assertFalse(item.strings.containsKey(SentAlertMapper.LOCATION));
+
+        assertNull(SentAlertMapper.read(item).location);
+    }
+
+    @Test
+    public void unsetRequiredStringIsNotWritten() {
+        SentAlert alert = SentAlert.from(OutboundRecord.alert("a@example.com", 1, 142, null, null));
+        MapItem item = new MapItem();
+        try {
+            SentAlertMapper.write(alert, item);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(SentAlertMapper.MESSAGE));
+        }
+    }
+
+    @Test
+    public void malformedNumberNamesTheAttribute() {
+        MapItem item = new MapItem();
+        SentAlertMapper.write(SentAlert.from(OutboundRecord.alert("a@example.com", 1, 142, null, "m")), item);
+        item.numbers.put(SentAlertMapper.HEART_RATE, "1.5");
+        try {
+            SentAlertMapper.read(item);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(SentAlertMapper.HEART_RATE));
+        }
+    }
+
+    @Test
+    public void mapCapacityAvoidsRehashing() {
+        assertEquals(7, Items.mapCapacity(5));
+        // HashMap rounds 7 up to 8 buckets, which hold 6 before resizing
+        assertTrue(Items.mapCapacity(SentAlertMapper.ATTRIBUTES) * 0.75f >= SentAlertMapper.ATTRIBUTES);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.sobti.core.insight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class InsightSchedulerTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger sourceCalls = new AtomicInteger();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void nearbyReadingsShareOneCall() throws Exception {
+        InsightScheduler scheduler = newScheduler(0, 60_000);
+
+        scheduler.request(88, 1200, "12.971601, 77.594601", listener());
+        drain();
+        scheduler.request(89, 1300, "12.971655, 77.594622", listener());
+        drain();
+
+        assertEquals(1, sourceCalls.get());
+        assertEquals(2, received.size());
+        assertEquals("fresh:85-89 bpm, 1000 steps, 12.97, 77.59", received.get(0));
+        assertEquals("cached:85-89 bpm, 1000 steps, 12.97, 77.59", received.get(1));
+    }
+
+    @Test
+    public void expiredEntryTriggersNewCall() throws Exception {
+        InsightScheduler scheduler = newScheduler(0, 60_000);
+
+        scheduler.request(72, 0, "home", listener());
+        drain();
+        now.addAndGet(60_001);
+        scheduler.request(72, 0, "home", listener());
+        drain();
+
+        assertEquals(2, sourceCalls.get());
+    }
+
+    @Test
+    public void concurrentRequestsForSameBucketAreSingleFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        InsightScheduler scheduler = new InsightScheduler(prompt -> {
+            sourceCalls.incrementAndGet();
+            release.await();
+            return prompt;
+        }, InsightSchedulerTest::prompt, executor, 0, 16, 60_000, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.request(100, 0, "home", listener());
+        }
+        release.countDown();
+        drain();
+
+        assertEquals(1, sourceCalls.get());
+        assertEquals(3, received.size());
+        assertEquals(2, scheduler.coalescedCount());
+    }
+
+    @Test
+    public void changedBucketWaitsForMinInterval() throws Exception {
+        InsightScheduler scheduler = newScheduler(50, 60_000);
+
+        scheduler.request(70, 0, "home", listener());
+        drain();
+        scheduler.request(90, 0, "home", listener());
+        scheduler.request(95, 0, "home", listener());
+        drain();
+        assertEquals(1, sourceCalls.get());
+
+        now.addAndGet(50);
+        for (int i = 0; i < 50 && sourceCalls.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        drain();
+
+        // The throttled requests collapse into one call for the newest vitals
+        assertEquals(2, sourceCalls.get());
+        assertTrue(received.contains("fresh:95-99 bpm, 0 steps, home"));
+    }
+
+    private InsightScheduler newScheduler(long minIntervalMs, long ttlMs) {
+        return new InsightScheduler(prompt -> {
+            sourceCalls.incrementAndGet();
+            return prompt;
+        }, InsightSchedulerTest::prompt, executor, minIntervalMs, 16, ttlMs, now::get);
+    }
+
+    private static String prompt(int low, int high, int steps, String location) {
+        return low + "-" + high + " bpm, " + steps + " steps, " + location;
+    }
+
+    private InsightScheduler.Listener listener() {
+        return new InsightScheduler.Listener() {
+            @Override
+            public void onInsight(String insight, boolean cached) {
+                received.add((cached ? "cached:" : "fresh:") + insight);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                received.add("error:" + e.getMessage());
+            }
+        };
+    }
+
+    private void drain() throws Exception {
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sobti.core.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SampleJournalTest {
+
+    private static final long FIRST = 1_000_000L;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void appendsAreReadBackAcrossSegments() throws Exception {
+        SampleJournal journal = new SampleJournal(dir, 64, 100, FIRST);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(FIRST + i, journal.append(i * 3_000L, 60 + i % 40, i));
+        }
+        assertEquals(4, journal.segmentCount());
+
+        SampleRingBuffer out = new SampleRingBuffer(512);
+        assertEquals(FIRST + 50, journal.read(FIRST + 50, 100, out));
+        assertEquals(100, out.size());
+        assertEquals(50 * 3_000L, out.timestampAt(0));
+        assertEquals(149, out.stepsAt(99));
+
+        assertEquals(-1, journal.read(FIRST + 200, 10, out));
+        journal.close();
+    }
+
+    @Test
+    public void recoveryResumesAfterLastCommittedRecord() throws Exception {
+        SampleJournal journal = new SampleJournal(dir, 64, 100, FIRST);
+        for (int i = 0; i < 70; i++) {
+            journal.append(i, 70, i);
+        }
+        journal.close();
+
+        // Tear the last record: clear its commit marker as if the process
+        // died before the final store
+        File tail = newest();
+        try (RandomAccessFile file = new RandomAccessFile(tail, "rw")) {
+            file.seek(5L * SampleJournal.RECORD_BYTES + 28);
+            file.writeInt(0);
+        }
+
+        SampleJournal reopened = new SampleJournal(dir, 64, 100, 42);
+        assertEquals(FIRST + 69, reopened.nextSeq());
+        assertEquals(FIRST + 69, reopened.append(999, 80, 0));
+        SampleRingBuffer out = new SampleRingBuffer(128);
+        reopened.read(FIRST, 128, out);
+        assertEquals(70, out.size());
+        assertEquals(999, out.timestampAt(69));
+        reopened.close();
+    }
+
+    @Test
+    public void acknowledgedSegmentsAreCompacted() throws Exception {
+        SampleJournal journal = new SampleJournal(dir, 64, 100, FIRST);
+        for (int i = 0; i < 300; i++) {
+            journal.append(i, 70, i);
+        }
+        assertEquals(5, journal.segmentCount());
+        assertEquals(300, journal.pendingCount());
+
+        journal.acknowledge(FIRST + 130);
+        // Segments [0,64) and [64,128) are fully acknowledged
+        assertEquals(3, journal.segmentCount());
+        assertEquals(169, journal.pendingCount());
+        journal.close();
+
+        SampleJournal reopened = new SampleJournal(dir, 64, 100, FIRST);
+        assertEquals(FIRST + 130, reopened.ackedSeq());
+        SampleRingBuffer out = new SampleRingBuffer(16);
+        assertEquals(FIRST + 131, reopened.read(reopened.ackedSeq() + 1, 16, out));
+        reopened.close();
+    }
+
+    @Test
+    public void fullJournalDropsOldestSegment() throws Exception {
+        SampleJournal journal = new SampleJournal(dir, 10, 3, FIRST);
+        for (int i = 0; i < 35; i++) {
+            journal.append(i, 70, i);
+        }
+        assertEquals(3, journal.segmentCount());
+        assertEquals(10, journal.droppedCount());
+        assertEquals(FIRST + 9, journal.ackedSeq());
+        journal.close();
+    }
+
+    @Test
+    public void emptyDirectoryStartsAtInitialSeq() throws Exception {
+        SampleJournal journal = new SampleJournal(dir, 16, 4, 5_000);
+        assertEquals(5_000, journal.append(1, 60, 0));
+        assertEquals(1, journal.pendingCount());
+        journal.close();
+    }
+
+    @Test
+    public void watermarkRecordsInOrderAndSkipsGaps() {
+        SyncWatermark sync = new SyncWatermark(SyncWatermark.UNKNOWN);
+        assertEquals(100, sync.accept(100, 129));
+        assertEquals(130, sync.accept(130, 159));
+        // Watch was out of range: 160..199 missing
+        assertEquals(-1, sync.accept(200, 229));
+        assertEquals(159, sync.watermark());
+        // Backfill covers the gap and the live batch that was only shown
+        assertEquals(160, sync.accept(160, 229));
+        // A resend that overlaps is recorded from the watermark on
+        assertEquals(230, sync.accept(220, 259));
+        assertEquals(-1, sync.accept(200, 259));
+        assertEquals(259, sync.watermark());
+    }
+
+    private File newest() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".jnl"));
+        Arrays.sort(files);
+        return files[files.length - 1];
+    }
+}
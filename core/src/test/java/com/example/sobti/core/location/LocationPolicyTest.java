@@ -0,0 +1,111 @@
+package com.example.sobti.core.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LocationPolicyTest {
+
+    private static final long HOLD_MS = 2 * 60_000;
+    private static final long PASSIVE_AFTER_MS = 30 * 60_000;
+
+    private long now = 1_000_000;
+    private final List<LocationPolicy.Mode> changes = new ArrayList<>();
+    private final LocationPolicy policy = new LocationPolicy(HOLD_MS, PASSIVE_AFTER_MS, changes::add, () -> now);
+
+    @Test
+    public void calmVitalsSettleToPassive() {
+        assertEquals(LocationPolicy.Mode.BALANCED, policy.mode());
+        now += PASSIVE_AFTER_MS - 1;
+        policy.onVitals(false);
+        assertEquals(LocationPolicy.Mode.BALANCED, policy.mode());
+        now += 1;
+        policy.onVitals(false);
+        assertEquals(LocationPolicy.Mode.PASSIVE, policy.mode());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void outOfRangeArmsHighAccuracyUntilHoldExpires() {
+        policy.onVitals(true);
+        assertEquals(LocationPolicy.Mode.HIGH_ACCURACY, policy.mode());
+
+        // A normal reading inside the hold keeps the fast fixes
+        now += HOLD_MS - 1;
+        policy.onVitals(false);
+        assertEquals(LocationPolicy.Mode.HIGH_ACCURACY, policy.mode());
+
+        now += 1;
+        policy.onVitals(false);
+        assertEquals(LocationPolicy.Mode.BALANCED, policy.mode());
+
+        // The calm stretch starts over after an episode
+        now += PASSIVE_AFTER_MS - 1;
+        policy.onVitals(false);
+        assertEquals(LocationPolicy.Mode.BALANCED, policy.mode());
+    }
+
+    @Test
+    public void anomalyArmsFromPassiveAndRepeatsExtendTheHold() {
+        now += PASSIVE_AFTER_MS;
+        policy.onVitals(false);
+        policy.onAnomaly();
+        assertEquals(LocationPolicy.Mode.HIGH_ACCURACY, policy.mode());
+
+        now += HOLD_MS / 2;
+        policy.onAnomaly();
+        now += HOLD_MS / 2;
+        policy.onVitals(false);
+        assertEquals(LocationPolicy.Mode.HIGH_ACCURACY, policy.mode());
+        // Re-arming while armed is not a switch
+        assertEquals(2, changes.size());
+    }
+
+    @Test
+    public void statsCountFixesAndTimePerMode() {
+        policy.onFix();
+        now += 60_000;
+        policy.onVitals(true);
+        policy.onFix();
+        policy.onFix();
+        now += HOLD_MS;
+        policy.onVitals(false);
+
+        LocationPolicy.Stats stats = policy.stats();
+        assertEquals(1, stats.balancedFixes);
+        assertEquals(2, stats.highAccuracyFixes);
+        assertEquals(0, stats.passiveFixes);
+        assertEquals(3, stats.fixes());
+        assertEquals(2, stats.switches);
+        assertEquals(60_000, stats.balancedMs);
+        assertEquals(HOLD_MS, stats.highAccuracyMs);
+        // Three minutes at a fixed 30 s
+        assertEquals(6, stats.fixesAtInterval(30_000));
+    }
+
+    @Test
+    public void lastFixFormatsOnDemandAndOnlyOnce() {
+        LastFix fix = new LastFix();
+        assertFalse(fix.hasFix());
+        assertNull(fix.describe());
+        assertEquals(-1, fix.ageMs(now));
+
+        fix.update(-33.8688, 151.2093, 8f, now);
+        now += 45_000;
+        assertTrue(fix.hasFix());
+        assertEquals(45_000, fix.ageMs(now));
+        String text = fix.describe();
+        assertEquals("-33.868800, 151.209300", text);
+        assertSame(text, fix.describe());
+
+        fix.update(1.5, 2.5, 8f, now);
+        assertEquals("1.500000, 2.500000", fix.describe());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.sobti.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void everyValueLandsInABucketThatHoldsIt() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 999_999, 1_000_000_007L, 3_600_000_000_000L};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            long high = LatencyHistogram.highestIn(bucket);
+            long low = bucket == 0 ? 0 : LatencyHistogram.highestIn(bucket - 1) + 1;
+            assertTrue(value + " in [" + low + ", " + high + "]", low <= value && value <= high);
+            assertTrue(high - value <= value / 32);
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..10,000 us
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count);
+        assertEquals(10_000_000L, snapshot.maxNanos);
+        assertEquals(5_000_500L, snapshot.meanNanos());
+        assertNear(5_000_000L, snapshot.percentile(0.5));
+        assertNear(9_900_000L, snapshot.percentile(0.99));
+        assertNear(9_990_000L, snapshot.percentile(0.999));
+        assertEquals(10_000_000L, snapshot.percentile(1.0));
+        assertEquals(0, LatencyHistogram.Snapshot.EMPTY.percentile(0.99));
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(2, snapshot.count);
+        assertEquals(0, snapshot.percentile(0.5));
+        assertTrue(snapshot.maxNanos < Long.MAX_VALUE);
+    }
+
+    @Test
+    public void sinceCoversOnlyTheLaterValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(50_000_000L);
+        }
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(2_000_000L);
+        }
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(first);
+        assertEquals(10, interval.count);
+        assertEquals(2_000_000L, interval.meanNanos());
+        assertNear(2_000_000L, interval.percentile(0.99));
+        assertNear(2_000_000L, interval.maxNanos);
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = (t + 1) * 1_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(base + i % 100);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(200_000, snapshot.count);
+        assertEquals(4_099L, snapshot.maxNanos);
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual - expected <= expected / 32);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.sobti.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("metrics").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void lookupsReturnTheSameMetric() {
+        assertSame(registry.timer("sns", "publish"), registry.timer("sns", "publish"));
+        assertSame(registry.counter("http", "connect"), registry.counter("http", "connect"));
+        assertEquals("sns.publish", registry.timer("sns", "publish").name);
+    }
+
+    @Test
+    public void reportListsTimersThenCountersByName() {
+        Timer publish = registry.timer("sns", "publish");
+        publish.record(12_000_000L);
+        publish.record(12_000_000L);
+        publish.failed(Timer.start() - 1_500_000_000L);
+        registry.timer("bedrock", "invoke").record(800_000L);
+        registry.counter("dynamodb", "retries").add(3);
+
+        List<String> lines = registry.report().lines();
+        assertEquals(3, lines.size());
+        assertEquals("bedrock.invoke n=1 err=0 p50=800us p99=800us p999=800us max=800us", lines.get(0));
+        assertTrue(lines.get(1), lines.get(1).startsWith("sns.publish n=3 err=1 p50=12.")
+                && lines.get(1).contains(" max=1.5"));
+        assertEquals("dynamodb.retries=3", lines.get(2));
+    }
+
+    @Test
+    public void sinceLeavesOutQuietMetrics() {
+        Timer quiet = registry.timer("gemini", "generate");
+        Timer busy = registry.timer("dynamodb", "updateItem");
+        Counter retries = registry.counter("dynamodb", "retries");
+        quiet.record(1_000L);
+        busy.record(1_000L);
+        retries.increment();
+        MetricsRegistry.Report first = registry.report();
+
+        busy.record(2_000L);
+        MetricsRegistry.Report interval = registry.report().since(first);
+        assertEquals(Arrays.asList("dynamodb.updateItem"), Arrays.asList(interval.timers.keySet().toArray()));
+        assertEquals(1, interval.timers.get("dynamodb.updateItem").latency.count);
+        assertTrue(interval.counters.isEmpty());
+        assertTrue(registry.report().since(registry.report()).isEmpty());
+    }
+
+    @Test
+    public void logWritesIntervalsAndRollsOverBySize() throws Exception {
+        MetricsLog log = new MetricsLog(dir, 200, 2);
+        Timer timer = registry.timer("sns", "publish");
+        assertFalse(log.append(0, registry.report()));
+
+        for (int i = 0; i < 10; i++) {
+            timer.record(5_000_000L);
+            assertTrue(log.append(i * 60_000L, registry.report()));
+        }
+        assertFalse(log.append(600_000L, registry.report()));
+
+        List<File> files = log.files();
+        assertEquals(3, files.size());
+        assertEquals(MetricsLog.CURRENT, files.get(0).getName());
+        assertEquals("metrics.2.log", files.get(2).getName());
+        List<String> last = Files.readAllLines(files.get(0).toPath(), StandardCharsets.UTF_8);
+        assertEquals("# 1970-01-01T00:09:00Z", last.get(last.size() - 2));
+        assertTrue(last.get(last.size() - 1).startsWith("sns.publish n=1 err=0 p50=5."));
+    }
+}
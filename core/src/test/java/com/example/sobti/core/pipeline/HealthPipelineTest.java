@@ -0,0 +1,230 @@
+package com.example.sobti.core.pipeline;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.sobti.core.anomaly.AnomalyRule;
+import com.example.sobti.core.journal.SyncWatermark;
+import com.example.sobti.core.location.LastFix;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.example.sobti.core.transport.SampleBatchCodec;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HealthPipelineTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private final List<OutboundRecord> queued = new ArrayList<>();
+    private final List<Boolean> urgent = new ArrayList<>();
+    private final List<long[]> latest = new ArrayList<>();
+    private final List<String> anomalies = new ArrayList<>();
+    private final List<String> emergencies = new ArrayList<>();
+    private HealthPipeline pipeline;
+
+    @Before
+    public void setUp() {
+        pipeline = new HealthPipeline((record, isUrgent) -> {
+            queued.add(record);
+            urgent.add(isUrgent);
+        }, new HealthPipeline.Listener() {
+            @Override
+            public void onLatest(long timestamp, int heartRate, int steps) {
+                latest.add(new long[]{timestamp, heartRate, steps});
+            }
+
+            @Override
+            public void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value) {
+                anomalies.add(rule.name());
+                if (rule.isEmergency()) {
+                    emergencies.add(rule.name());
+                }
+            }
+        }, 1000);
+        pipeline.setEmail("user@example.com");
+        pipeline.setLocation("home");
+    }
+
+    @Test
+    public void batchQueuesHistoryAndNewestSample() {
+        assertEquals(3, pipeline.onBatch(new SyncWatermark(9), batch(10, 3, 72)));
+
+        assertEquals(2, queued.size());
+        assertEquals(OutboundRecord.TYPE_HISTORY_CHUNK, queued.get(0).type);
+        assertEquals(3, queued.get(0).count);
+        assertEquals(OutboundRecord.TYPE_SAMPLE, queued.get(1).type);
+        assertEquals(START + 6_000L, queued.get(1).timestamp);
+        assertEquals("home", queued.get(1).location);
+        assertFalse(urgent.get(1));
+        assertArrayEquals(new long[]{START + 6_000L, 72, 2}, latest.get(0));
+    }
+
+    @Test
+    public void samplesCarryTheLastFixOnceThereIsOne() {
+        LastFix fix = new LastFix();
+        pipeline.setLocation(fix);
+        pipeline.onBatch(new SyncWatermark(9), batch(10, 1, 72));
+        assertEquals("home", queued.get(queued.size() - 1).location);
+
+        fix.update(28.6139, 77.209, 12f, START);
+        pipeline.onBatch(new SyncWatermark(10), batch(11, 1, 72));
+        assertEquals("28.613900, 77.209000", queued.get(queued.size() - 1).location);
+    }
+
+    @Test
+    public void duplicateBatchIsIgnored() {
+        SyncWatermark watermark = new SyncWatermark(9);
+        pipeline.onBatch(watermark, batch(10, 3, 72));
+        queued.clear();
+
+        assertEquals(0, pipeline.onBatch(watermark, batch(10, 3, 72)));
+        assertTrue(queued.isEmpty());
+        assertEquals(3, pipeline.sampleCount());
+    }
+
+    @Test
+    public void batchAfterGapIsShownButNotRecorded() {
+        SyncWatermark watermark = new SyncWatermark(9);
+
+        assertEquals(3, pipeline.onBatch(watermark, batch(20, 3, 72)));
+
+        assertEquals(1, queued.size());
+        assertEquals(OutboundRecord.TYPE_SAMPLE, queued.get(0).type);
+        assertEquals(9, watermark.watermark());
+    }
+
+    @Test
+    public void backfillOfShownSamplesIsRecordedOnly() {
+        SyncWatermark watermark = new SyncWatermark(9);
+        pipeline.onBatch(watermark, batch(13, 3, 72));
+        queued.clear();
+        latest.clear();
+
+        assertEquals(0, pipeline.onBatch(watermark, batch(10, 6, 72)));
+
+        assertEquals(1, queued.size());
+        assertEquals(6, queued.get(0).count);
+        assertTrue(latest.isEmpty());
+        assertEquals(15, watermark.watermark());
+    }
+
+    @Test
+    public void malformedBatchLeavesTheWatermarkForBackfill() {
+        SyncWatermark watermark = new SyncWatermark(9);
+        byte[] whole = batch(10, 3, 72);
+        try {
+            pipeline.onBatch(watermark, Arrays.copyOf(whole, whole.length - 2));
+        } catch (IllegalArgumentException expected) {
+            // Dropped whole
+        }
+        assertEquals(9, watermark.watermark());
+        assertTrue(queued.isEmpty());
+        assertEquals(1, pipeline.malformedCount());
+
+        assertEquals(3, pipeline.onBatch(watermark, whole));
+        assertEquals(3, queued.get(0).count);
+        assertEquals(12, watermark.watermark());
+    }
+
+    @Test
+    public void outOfRangeReadingIsUrgent() {
+        pipeline.onSample(START, 200, 0);
+        assertEquals(1, queued.size());
+        assertTrue(urgent.get(0));
+    }
+
+    @Test
+    public void nothingIsQueuedWithoutUser() {
+        pipeline.setEmail(null);
+        pipeline.onBatch(null, batch(0, 3, 72));
+        pipeline.flush();
+        assertTrue(queued.isEmpty());
+        assertEquals(1, latest.size());
+    }
+
+    @Test
+    public void batchTimerCountsBatchesAndMalformedOnes() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        Timer timer = metrics.timer("pipeline", "batch");
+        pipeline.setBatchTimer(timer);
+        pipeline.onBatch(null, batch(0, 3, 72));
+        pipeline.onBatch(null, batch(3, 3, 72));
+        byte[] whole = batch(6, 3, 72);
+        try {
+            pipeline.onBatch(null, Arrays.copyOf(whole, whole.length - 2));
+        } catch (IllegalArgumentException expected) {
+            // Counted below
+        }
+        Timer.Snapshot snapshot = timer.snapshot();
+        assertEquals(3, snapshot.latency.count);
+        assertEquals(1, snapshot.failures);
+    }
+
+    @Test
+    public void sustainedHighRateRaisesOneEmergency() {
+        for (int i = 0; i < 60; i++) {
+            pipeline.onSample(START + i * 3_000L, 75, 0);
+        }
+        for (int i = 60; i < 120; i++) {
+            pipeline.onSample(START + i * 3_000L, 200, 0);
+        }
+        // The jump itself is a rate-of-change warning
+        assertEquals(anomalies.toString(), 1, emergencies.size());
+        assertEquals(2, pipeline.anomalyCount());
+    }
+
+    @Test
+    public void traceRoundTrip() throws IOException {
+        byte[] payload = batch(5, 2, 80);
+        StringWriter out = new StringWriter();
+        try (TraceRecorder recorder = new TraceRecorder(out)) {
+            recorder.recordSample(100, null, START, 72, 10);
+            recorder.recordBatch(200, "node-1", payload);
+        }
+
+        try (TraceReader reader = new TraceReader(new StringReader(out.toString()))) {
+            TraceReader.Event sample = reader.next();
+            assertFalse(sample.isBatch());
+            assertEquals(100, sample.arrivalMs);
+            assertNull(sample.nodeId);
+            assertEquals(START, sample.timestamp);
+            assertEquals(72, sample.heartRate);
+            assertEquals(10, sample.steps);
+
+            TraceReader.Event batch = reader.next();
+            assertTrue(batch.isBatch());
+            assertEquals("node-1", batch.nodeId);
+            assertArrayEquals(payload, batch.batch);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedTraceLineIsReported() throws IOException {
+        new TraceReader(new StringReader("# sobti-trace 1\n100 X - 1\n")).next();
+    }
+
+    // count samples every three seconds starting at seq firstSeq
+    private static byte[] batch(long firstSeq, int count, int heartRate) {
+        SampleRingBuffer buffer = new SampleRingBuffer(count);
+        for (int i = 0; i < count; i++) {
+            long index = firstSeq - 10 + i;
+            buffer.add(START + index * 3_000L, heartRate, (int) index);
+        }
+        return SampleBatchCodec.encode(buffer, firstSeq, false);
+    }
+}
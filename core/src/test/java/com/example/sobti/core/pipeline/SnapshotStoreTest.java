@@ -0,0 +1,71 @@
+package com.example.sobti.core.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SnapshotStoreTest {
+
+    private final AtomicInteger signals = new AtomicInteger();
+    private final SnapshotStore<HealthState> store = new SnapshotStore<>(HealthState.EMPTY, signals::incrementAndGet);
+
+    @Test
+    public void burstBetweenTakesSignalsOnceAndKeepsTheNewest() {
+        HealthState state = HealthState.EMPTY;
+        for (int i = 1; i <= 500; i++) {
+            state = state.withLatest(i, 60 + i % 40, i, false, i);
+            store.publish(state);
+        }
+        assertEquals(1, signals.get());
+        assertSame(state, store.take());
+
+        store.publish(state.withBackfill(10));
+        assertEquals(2, signals.get());
+        assertEquals(501, store.publishedCount());
+        assertEquals(2, store.signalCount());
+    }
+
+    @Test
+    public void publishRacingTakeIsNeverLost() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            HealthState state = HealthState.EMPTY;
+            for (int i = 1; i <= 100_000; i++) {
+                state = state.withLatest(i, 70, i, false, i);
+                store.publish(state);
+            }
+            done.countDown();
+        });
+        writer.start();
+        // Take only when signalled, like the frame callback does
+        int takes = 0;
+        long last = 0;
+        while (done.getCount() > 0 || signals.get() > takes) {
+            if (signals.get() > takes) {
+                takes++;
+                last = store.take().timestamp;
+            }
+        }
+        writer.join();
+        assertEquals(100_000, last);
+    }
+
+    @Test
+    public void changesListOnlyTheFieldsThatMoved() {
+        HealthState a = HealthState.EMPTY.withLatest(1_000, 72, 100, false, 1);
+        assertEquals(HealthState.HEART_RATE | HealthState.STEPS | HealthState.OUT_OF_RANGE | HealthState.BACKFILL,
+                a.changes(null));
+        assertEquals(0, a.withLatest(4_000, 72, 100, false, 2).changes(a));
+        assertEquals(HealthState.HEART_RATE | HealthState.OUT_OF_RANGE,
+                a.withLatest(4_000, 130, 100, true, 2).changes(a));
+        assertEquals(HealthState.BACKFILL, a.withBackfill(512).changes(a));
+        assertFalse(HealthState.EMPTY.hasReading());
+        assertTrue(a.hasReading());
+    }
+}
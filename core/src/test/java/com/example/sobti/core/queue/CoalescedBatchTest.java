@@ -0,0 +1,65 @@
+package com.example.sobti.core.queue;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CoalescedBatchTest {
+
+    @Test
+    public void samplesCollapseToTheNewestPerUser() {
+        CoalescedBatch writes = CoalescedBatch.of(encode(
+                OutboundRecord.sample("a@x", 1_000, 70, 10, null),
+                OutboundRecord.sample("b@x", 1_500, 80, 20, null),
+                OutboundRecord.sample("a@x", 2_000, 72, 15, "loc")));
+
+        assertEquals(2, writes.samples.size());
+        assertEquals("a@x", writes.samples.get(0).email);
+        assertEquals(2_000, writes.samples.get(0).timestamp);
+        assertEquals(72, writes.samples.get(0).heartRate);
+        assertEquals("loc", writes.samples.get(0).location);
+        assertEquals(1, writes.merged);
+    }
+
+    @Test
+    public void chunksKeepTheNewestSnapshotPerStart() {
+        CoalescedBatch writes = CoalescedBatch.of(encode(
+                OutboundRecord.historyChunk("a@x", 0, 1_000, 1, new byte[]{1}),
+                OutboundRecord.historyChunk("a@x", 0, 2_000, 2, new byte[]{1, 2}),
+                OutboundRecord.historyChunk("a@x", 3_600_000, 3_601_000, 1, new byte[]{3}),
+                OutboundRecord.historyChunk("b@x", 0, 1_000, 1, new byte[]{4})));
+
+        assertEquals(3, writes.chunks.size());
+        assertEquals(2, writes.chunks.get(0).count);
+        assertEquals(2_000, writes.chunks.get(0).chunkEnd);
+        assertEquals(1, writes.merged);
+    }
+
+    @Test
+    public void alertsAreKeptAndUnwritableRecordsSkipped() {
+        List<byte[]> batch = new ArrayList<>(encode(
+                OutboundRecord.alert("a@x", 1_000, 150, null, "high"),
+                OutboundRecord.alert("a@x", 2_000, 155, null, "high"),
+                OutboundRecord.sample("", 1_000, 70, 10, null)));
+        batch.add(new byte[]{9, 9, 9});
+
+        CoalescedBatch writes = CoalescedBatch.of(batch);
+
+        assertEquals(2, writes.alerts.size());
+        assertEquals(0, writes.samples.size());
+        assertEquals(0, writes.merged);
+        assertEquals(2, writes.skipped);
+    }
+
+    private static List<byte[]> encode(OutboundRecord... records) {
+        List<byte[]> out = new ArrayList<>();
+        for (OutboundRecord record : Arrays.asList(records)) {
+            out.add(record.encode());
+        }
+        return out;
+    }
+}
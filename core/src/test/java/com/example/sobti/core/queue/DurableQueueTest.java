@@ -0,0 +1,164 @@
+package com.example.sobti.core.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DurableQueueTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("outbox").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void recordsComeBackInOrderAndAckConsumesThem() throws Exception {
+        DurableQueue queue = new DurableQueue(dir, 1_024, 64 * 1_024);
+        for (int i = 0; i < 100; i++) {
+            queue.append(bytes("r" + i));
+        }
+        assertEquals(100, queue.size());
+
+        List<byte[]> batch = queue.peek(30);
+        assertEquals(30, batch.size());
+        assertEquals("r0", string(batch.get(0)));
+        assertEquals("r29", string(batch.get(29)));
+        queue.ack(30);
+
+        assertEquals(70, queue.size());
+        assertEquals("r30", string(queue.peek(1).get(0)));
+        queue.close();
+    }
+
+    @Test
+    public void unacknowledgedRecordsReplayAfterRestart() throws Exception {
+        DurableQueue queue = new DurableQueue(dir, 256, 64 * 1_024);
+        for (int i = 0; i < 50; i++) {
+            queue.append(bytes("r" + i));
+        }
+        queue.peek(20);
+        queue.ack(20);
+        // Peeked but never acknowledged: the upload died with the process
+        queue.peek(10);
+        queue.close();
+
+        DurableQueue reopened = new DurableQueue(dir, 256, 64 * 1_024);
+        assertEquals(30, reopened.size());
+        List<byte[]> replay = reopened.peek(100);
+        assertEquals(30, replay.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals("r" + (20 + i), string(replay.get(i)));
+        }
+        reopened.append(bytes("after"));
+        reopened.ack(30);
+        assertEquals("after", string(reopened.peek(1).get(0)));
+        reopened.close();
+    }
+
+    @Test
+    public void tornTailIsCutOffOnRecovery() throws Exception {
+        DurableQueue queue = new DurableQueue(dir, 64 * 1_024, 64 * 1_024);
+        queue.append(bytes("first"));
+        queue.append(bytes("second"));
+        queue.close();
+
+        File segment = dir.listFiles((d, name) -> name.endsWith(".seg"))[0];
+        long intact = segment.length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // Half a frame, as if the process died mid-write
+            file.seek(intact);
+            file.writeInt(100);
+            file.writeInt(12345);
+            file.write(new byte[10]);
+        }
+
+        DurableQueue reopened = new DurableQueue(dir, 64 * 1_024, 64 * 1_024);
+        assertEquals(2, reopened.size());
+        assertEquals(intact, segment.length());
+        reopened.append(bytes("third"));
+        List<byte[]> all = reopened.peek(10);
+        assertEquals(3, all.size());
+        assertEquals("third", string(all.get(2)));
+        reopened.close();
+    }
+
+    @Test
+    public void diskUseIsBoundedByEvictingOldestSegments() throws Exception {
+        DurableQueue queue = new DurableQueue(dir, 1_000, 4_000);
+        byte[] record = new byte[92];
+        for (int i = 0; i < 500; i++) {
+            record[0] = (byte) i;
+            queue.append(record.clone());
+        }
+        assertTrue(queue.bytesOnDisk() <= 4_000);
+        assertTrue(queue.evictedCount() > 0);
+        assertEquals(500, queue.size() + queue.evictedCount());
+
+        // What survives is the newest data, still in order
+        List<byte[]> rest = queue.peek(1_000);
+        assertEquals(queue.size(), rest.size());
+        assertEquals((byte) 499, rest.get(rest.size() - 1)[0]);
+        queue.close();
+    }
+
+    @Test
+    public void consumedSegmentsAreDeleted() throws Exception {
+        DurableQueue queue = new DurableQueue(dir, 200, 64 * 1_024);
+        for (int i = 0; i < 100; i++) {
+            queue.append(bytes("record-" + i));
+        }
+        int before = dir.listFiles((d, name) -> name.endsWith(".seg")).length;
+        assertTrue(before > 5);
+
+        queue.ack(queue.peek(100).size());
+        assertEquals(0, queue.size());
+        assertEquals(1, dir.listFiles((d, name) -> name.endsWith(".seg")).length);
+        queue.close();
+    }
+
+    @Test
+    public void ackAfterEvictionOfPeekedRecordsIsIgnored() throws Exception {
+        DurableQueue queue = new DurableQueue(dir, 500, 1_000);
+        for (int i = 0; i < 5; i++) {
+            queue.append(new byte[92]);
+        }
+        List<byte[]> batch = queue.peek(5);
+        for (int i = 0; i < 20; i++) {
+            queue.append(new byte[92]);
+        }
+        queue.ack(batch.size());
+        assertEquals(queue.size(), queue.peek(100).size());
+        queue.close();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
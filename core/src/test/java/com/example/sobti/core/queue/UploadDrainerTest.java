@@ -0,0 +1,161 @@
+package com.example.sobti.core.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UploadDrainerTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<OutboundRecord> uploaded = new CopyOnWriteArrayList<>();
+    private File dir;
+    private DurableQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("drain").toFile();
+        queue = new DurableQueue(dir, 4_096, 1 << 20);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        queue.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void urgentRecordDrainsEverythingInOrder() throws Exception {
+        CountDownLatch done = new CountDownLatch(25);
+        UploadDrainer drainer = new UploadDrainer(queue, batch -> {
+            for (byte[] record : batch) {
+                uploaded.add(OutboundRecord.decode(record));
+                done.countDown();
+            }
+        }, executor, 10, 60_000, 10, 1_000);
+
+        for (int i = 0; i < 24; i++) {
+            queue.append(OutboundRecord.sample("a@b.c", 1_000L * i, 70 + i, i, "home").encode());
+            drainer.schedule(false);
+        }
+        queue.append(OutboundRecord.alert("a@b.c", 30_000, 150, "home", "SOBTI ALERT").encode());
+        drainer.schedule(true);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(OutboundRecord.TYPE_SAMPLE, uploaded.get(0).type);
+        assertEquals(70, uploaded.get(0).heartRate);
+        assertEquals(93, uploaded.get(23).heartRate);
+        assertEquals(OutboundRecord.TYPE_ALERT, uploaded.get(24).type);
+        assertEquals("SOBTI ALERT", uploaded.get(24).message);
+        waitForEmpty();
+    }
+
+    @Test
+    public void failedBatchIsRetriedWithBackoffAndNothingIsLost() throws Exception {
+        AtomicBoolean online = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(5);
+        UploadDrainer drainer = new UploadDrainer(queue, batch -> {
+            if (!online.get()) {
+                throw new IOException("offline");
+            }
+            for (byte[] record : batch) {
+                uploaded.add(OutboundRecord.decode(record));
+                done.countDown();
+            }
+        }, executor, 10, 0, 20, 10_000);
+
+        for (int i = 0; i < 5; i++) {
+            queue.append(OutboundRecord.sample("a@b.c", i, 60 + i, 0, "home").encode());
+        }
+        drainer.schedule(true);
+        // Let a few attempts fail and the backoff grow
+        Thread.sleep(200);
+        assertTrue(drainer.failureCount() >= 2);
+        assertTrue(drainer.backoffMs() > 20);
+        assertEquals(5, queue.size());
+
+        online.set(true);
+        drainer.onConnectivityRestored();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(60, uploaded.get(0).heartRate);
+        assertEquals(64, uploaded.get(4).heartRate);
+        waitForEmpty();
+        assertEquals(0, drainer.backoffMs());
+    }
+
+    @Test
+    public void stopWaitsForTheRunningDrainAndCancelsTheNext() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        UploadDrainer drainer = new UploadDrainer(queue, batch -> {
+            started.countDown();
+            release.await();
+            finished.set(true);
+        }, executor, 1, 60_000, 10, 1_000);
+
+        queue.append(OutboundRecord.sample("a@b.c", 0, 70, 0, "home").encode());
+        queue.append(OutboundRecord.sample("a@b.c", 1_000, 71, 1, "home").encode());
+        drainer.schedule(true);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(drainer.stop(50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(drainer.stop(5, TimeUnit.SECONDS));
+        assertTrue(finished.get());
+
+        // The second record stays queued for the next start
+        drainer.schedule(true);
+        drainer.onConnectivityRestored();
+        Thread.sleep(100);
+        assertEquals(1, drainer.uploadedCount());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void recordCodecRoundTrips() {
+        byte[] chunk = {1, 2, 3};
+        OutboundRecord decoded = OutboundRecord.decode(
+                OutboundRecord.historyChunk("a@b.c", 100, 200, 7, chunk).encode());
+        assertEquals(OutboundRecord.TYPE_HISTORY_CHUNK, decoded.type);
+        assertEquals(100, decoded.timestamp);
+        assertEquals(200, decoded.chunkEnd);
+        assertEquals(7, decoded.count);
+        assertEquals(3, decoded.chunk.length);
+
+        OutboundRecord sample = OutboundRecord.decode(
+                OutboundRecord.sample("ü@b.c", 5, 88, 1_234, "12.97, 77.59").encode());
+        assertEquals("ü@b.c", sample.email);
+        assertEquals(1_234, sample.steps);
+        assertEquals("12.97, 77.59", sample.location);
+    }
+
+    private void waitForEmpty() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, queue.size());
+    }
+}
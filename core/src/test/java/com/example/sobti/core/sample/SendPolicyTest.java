@@ -0,0 +1,68 @@
+package com.example.sobti.core.sample;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SendPolicyTest {
+
+    private final SendPolicy policy = new SendPolicy(10, 50, 100, 300_000);
+
+    @Test
+    public void firstSampleIsSentAndSteadyOnesAreHeld() {
+        assertEquals(SendPolicy.SEND, policy.onSample(0, 72, 100, false));
+        for (int i = 1; i < 50; i++) {
+            assertEquals(SendPolicy.HOLD, policy.onSample(i * 3_000L, 72 + i % 5, 100 + i, false));
+        }
+        assertEquals(1, policy.sends());
+    }
+
+    @Test
+    public void changesBeyondTheThresholdsSendRightAway() {
+        policy.onSample(0, 72, 100, false);
+        assertEquals(SendPolicy.HOLD, policy.onSample(3_000, 81, 120, false));
+        assertEquals(SendPolicy.SEND, policy.onSample(6_000, 82, 120, false));
+        // The reference moved to 82
+        assertEquals(SendPolicy.HOLD, policy.onSample(9_000, 74, 140, false));
+        assertEquals(SendPolicy.SEND, policy.onSample(12_000, 74, 170, false));
+        assertEquals(SendPolicy.URGENT, policy.onSample(15_000, 74, 170, true));
+        assertEquals("sends change=3 steady=0 urgent=1", policy.toString());
+    }
+
+    @Test
+    public void steadyReadingsGoOutAtTheDelayOrSizeLimit() {
+        policy.onSample(0, 72, 100, false);
+        assertEquals(SendPolicy.HOLD, policy.onSample(1_000, 72, 100, false));
+        assertEquals(SendPolicy.SEND, policy.onSample(301_000, 72, 100, false));
+
+        for (int i = 1; i < 100; i++) {
+            assertEquals(SendPolicy.HOLD, policy.onSample(301_000 + i, 72, 100, false));
+        }
+        assertEquals(SendPolicy.SEND, policy.onSample(302_000, 72, 100, false));
+        assertEquals("sends change=1 steady=2 urgent=0", policy.toString());
+    }
+
+    @Test
+    public void timerSendResetsTheBuffer() {
+        policy.onSample(0, 72, 100, false);
+        policy.onSample(1_000, 72, 100, false);
+        policy.sent(72, 100);
+        assertEquals(SendPolicy.HOLD, policy.onSample(299_000, 72, 100, false));
+    }
+
+    @Test
+    public void wakeupMeterReportsPerHour() {
+        long[] now = {0};
+        WakeupMeter meter = new WakeupMeter(() -> now[0], "sampler", "draw");
+        for (int i = 0; i < 30; i++) {
+            meter.mark(0);
+        }
+        meter.mark(1);
+        now[0] = 30 * 60_000L;
+        assertEquals(60.0, meter.perHour(0), 0.001);
+        assertEquals(2.0, meter.perHour(1), 0.001);
+        assertEquals(30, meter.count(0));
+        assertEquals(8.0, meter.perHourOf(4), 0.001);
+        assertEquals("wakeups/h sampler=60.0 draw=2.0", meter.toString());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.sobti.core.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class WarmUpTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final StartupTrace trace = new StartupTrace(1_000, now::get);
+    private final ManualExecutor executor = new ManualExecutor();
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    public void dependentsWaitForTheirPhases() {
+        List<StartupTrace> finished = new ArrayList<>();
+        new WarmUp(trace)
+                .add("aws", executor, () -> ran.add("aws"))
+                .add("profile", executor, () -> ran.add("profile"))
+                .add("cognito", executor, () -> ran.add("cognito"), "aws")
+                .start(finished::add);
+
+        // Only phases without dependencies are queued at first
+        assertEquals(2, executor.pending());
+        executor.runAll();
+
+        assertEquals(List.of("aws", "profile", "cognito"), ran);
+        assertEquals(1, finished.size());
+        assertEquals(3, trace.spans().size());
+    }
+
+    @Test
+    public void failedPhaseSkipsItsDependents() {
+        WarmUp warmUp = new WarmUp(trace)
+                .add("aws", executor, () -> {
+                    throw new IllegalStateException("no pool id");
+                })
+                .add("cognito", executor, () -> ran.add("cognito"), "aws")
+                .add("preconnect", executor, () -> ran.add("preconnect"));
+        warmUp.start(t -> { });
+        executor.runAll();
+
+        assertTrue(warmUp.isFinished());
+        assertEquals(List.of("preconnect"), ran);
+        StartupTrace.Span cognito = span("cognito");
+        assertEquals("skipped, aws failed", cognito.error);
+        assertEquals("IllegalStateException: no pool id", span("aws").error);
+        assertNull(span("preconnect").error);
+    }
+
+    @Test
+    public void spansAreTimedFromTheOrigin() {
+        new WarmUp(trace)
+                .add("aws", executor, () -> now.addAndGet(80))
+                .start(t -> { });
+        now.addAndGet(20);
+        executor.runAll();
+
+        StartupTrace.Span aws = span("aws");
+        assertEquals(20, aws.startMs);
+        assertEquals(80, aws.durationMs());
+        assertTrue(trace.mark("first_vital"));
+        assertFalse(trace.mark("first_vital"));
+        assertEquals(100, trace.milestone("first_vital"));
+        assertEquals("aws 20+80ms, first_vital @100ms", trace.summary());
+    }
+
+    @Test
+    public void independentPhasesRunConcurrently() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            CountDownLatch done = new CountDownLatch(1);
+            WarmUp.Phase phase = () -> {
+                bothStarted.countDown();
+                // Fails unless the other phase runs at the same time
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("ran serially");
+                }
+            };
+            new WarmUp(new StartupTrace(0, System::currentTimeMillis))
+                    .add("a", pool, phase)
+                    .add("b", pool, phase)
+                    .start(t -> {
+                        for (StartupTrace.Span span : t.spans()) {
+                            assertNull(span.error);
+                        }
+                        done.countDown();
+                    });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownDependencyIsRejected() {
+        new WarmUp(trace).add("cognito", executor, () -> { }, "aws");
+    }
+
+    private StartupTrace.Span span(String name) {
+        for (StartupTrace.Span span : trace.spans()) {
+            if (span.name.equals(name)) {
+                return span;
+            }
+        }
+        throw new AssertionError("No span " + name);
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int pending() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.sobti.core.text;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MarkdownStripperTest {
+
+    private static final String SAMPLE =
+            "**Hydration** matters.\n* Drink water\n* Rest ***well***\nEnd*";
+
+    // Reference: the two whole-string passes GeminiClient used before
+    private static String legacy(String text) {
+        return text.replace("**", "").replace("*", "• ");
+    }
+
+    @Test
+    public void wholeTextMatchesLegacyCleanup() {
+        assertEquals(legacy(SAMPLE), MarkdownStripper.stripAll(SAMPLE));
+    }
+
+    @Test
+    public void anyChunkingMatchesLegacyCleanup() {
+        for (int size = 1; size <= SAMPLE.length(); size++) {
+            MarkdownStripper stripper = new MarkdownStripper();
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < SAMPLE.length(); i += size) {
+                out.append(stripper.feed(SAMPLE.substring(i, Math.min(SAMPLE.length(), i + size))));
+            }
+            out.append(stripper.finish());
+            assertEquals("chunk size " + size, legacy(SAMPLE), out.toString());
+        }
+    }
+}
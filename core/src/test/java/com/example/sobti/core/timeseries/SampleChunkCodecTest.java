@@ -0,0 +1,104 @@
+package com.example.sobti.core.timeseries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SampleChunkCodecTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void roundTripsIrregularSamples() {
+        Random random = new Random(7);
+        SampleChunkEncoder encoder = new SampleChunkEncoder();
+        SampleSeries expected = new SampleSeries();
+        long ts = START;
+        int steps = 0;
+        for (int i = 0; i < 1000; i++) {
+            ts += 500 + random.nextInt(5000);
+            steps += random.nextInt(20);
+            int hr = 40 + random.nextInt(140);
+            encoder.append(ts, hr, steps);
+            expected.add(ts, hr, steps);
+        }
+
+        SampleSeries decoded = new SampleSeries();
+        assertEquals(1000, SampleChunkDecoder.decode(encoder.toByteArray(), decoded));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timestampAt(i), decoded.timestampAt(i));
+            assertEquals(expected.heartRateAt(i), decoded.heartRateAt(i));
+            assertEquals(expected.stepsAt(i), decoded.stepsAt(i));
+        }
+    }
+
+    @Test
+    public void rangeDecodeFiltersByTimestamp() {
+        SampleChunkEncoder encoder = new SampleChunkEncoder();
+        for (int i = 0; i < 10; i++) {
+            encoder.append(START + i * 1000L, 70 + i, i);
+        }
+        SampleSeries decoded = new SampleSeries();
+        SampleChunkDecoder.decode(encoder.toByteArray(), START + 3000, START + 5000, decoded);
+
+        assertEquals(3, decoded.size());
+        assertEquals(73, decoded.heartRateAt(0));
+        assertEquals(75, decoded.heartRateAt(2));
+    }
+
+    @Test
+    public void steadyHourIsUnderFourBytesPerSample() {
+        Random random = new Random(1);
+        SampleChunkEncoder encoder = new SampleChunkEncoder();
+        int hr = 72;
+        int steps = 0;
+        for (int i = 0; i < 3600; i++) {
+            hr += random.nextInt(5) - 2;
+            steps += random.nextInt(3);
+            encoder.append(START + i * 1000L, hr, steps);
+        }
+        int size = encoder.toByteArray().length;
+        // One item per sample would be ~60 bytes of attributes each
+        assertTrue("chunk was " + size + " bytes", size < 3600 * 4);
+    }
+
+    @Test
+    public void recorderSplitsChunksAtBucketBoundary() {
+        List<long[]> chunks = new ArrayList<>();
+        HistoryRecorder recorder = new HistoryRecorder(
+                (chunkStart, chunkEnd, count, chunk) -> chunks.add(new long[]{chunkStart, chunkEnd, count}),
+                1000);
+
+        long bucket = HistoryRecorder.bucketStart(START);
+        recorder.append(bucket + HistoryRecorder.BUCKET_MS - 2000, 70, 1);
+        recorder.append(bucket + HistoryRecorder.BUCKET_MS - 1000, 71, 2);
+        recorder.append(bucket + HistoryRecorder.BUCKET_MS, 72, 3);
+        recorder.flush();
+
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(0)[2]);
+        assertEquals(bucket + HistoryRecorder.BUCKET_MS, chunks.get(1)[0]);
+        assertEquals(1, chunks.get(1)[2]);
+    }
+
+    @Test
+    public void recorderRewritesOpenChunkUnderSameKey() {
+        List<long[]> chunks = new ArrayList<>();
+        HistoryRecorder recorder = new HistoryRecorder(
+                (chunkStart, chunkEnd, count, chunk) -> chunks.add(new long[]{chunkStart, count}), 2);
+
+        long bucket = HistoryRecorder.bucketStart(START);
+        for (int i = 0; i < 4; i++) {
+            recorder.append(bucket + i * 1000L, 70, i);
+        }
+
+        assertEquals(2, chunks.size());
+        assertEquals(chunks.get(0)[0], chunks.get(1)[0]);
+        assertEquals(4, chunks.get(1)[1]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.sobti.core.transport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SampleBatchCodecTest {
+
+    @Test
+    public void roundTripPreservesSamplesAndSequence() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8);
+        buffer.add(1_700_000_000_000L, 72, 1000);
+        buffer.add(1_700_000_003_000L, 75, 1004);
+        buffer.add(1_700_000_006_000L, 70, 1004);
+
+        byte[] payload = SampleBatchCodec.encode(buffer, 41, false);
+
+        List<long[]> decoded = new ArrayList<>();
+        int count = SampleBatchCodec.decode(payload,
+                (seq, ts, hr, steps) -> decoded.add(new long[]{seq, ts, hr, steps}));
+
+        assertEquals(3, count);
+        assertArrayEquals(new long[]{41, 1_700_000_000_000L, 72, 1000}, decoded.get(0));
+        assertArrayEquals(new long[]{42, 1_700_000_003_000L, 75, 1004}, decoded.get(1));
+        assertArrayEquals(new long[]{43, 1_700_000_006_000L, 70, 1004}, decoded.get(2));
+        assertFalse(SampleBatchCodec.isAlert(payload));
+    }
+
+    @Test
+    public void alertFlagIsCarried() {
+        SampleRingBuffer buffer = new SampleRingBuffer(1);
+        buffer.add(1L, 130, 0);
+        assertTrue(SampleBatchCodec.isAlert(SampleBatchCodec.encode(buffer, 0, true)));
+    }
+
+    @Test
+    public void steadyBatchIsCompact() {
+        SampleRingBuffer buffer = new SampleRingBuffer(30);
+        for (int i = 0; i < 30; i++) {
+            buffer.add(1_700_000_000_000L + i * 1000L, 70 + (i % 3), 5000 + i);
+        }
+        // 27 byte header plus about 4 bytes per sample
+        assertTrue(SampleBatchCodec.encode(buffer, 0, false).length < 150);
+    }
+
+    @Test
+    public void ringBufferDropsOldestWhenFull() {
+        SampleRingBuffer buffer = new SampleRingBuffer(2);
+        buffer.add(1, 60, 0);
+        buffer.add(2, 61, 0);
+        buffer.add(3, 62, 0);
+        assertEquals(2, buffer.size());
+        assertEquals(1, buffer.droppedCount());
+        assertEquals(61, buffer.heartRateAt(0));
+        assertEquals(62, buffer.heartRateAt(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedPayloadIsRejected() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.add(1, 60, 0);
+        buffer.add(2, 61, 1);
+        byte[] payload = SampleBatchCodec.encode(buffer, 0, false);
+        byte[] truncated = new byte[payload.length - 1];
+        System.arraycopy(payload, 0, truncated, 0, truncated.length);
+        SampleBatchCodec.decode(truncated, (seq, ts, hr, steps) -> { });
+    }
+}
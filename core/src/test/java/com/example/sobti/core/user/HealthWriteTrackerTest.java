@@ -0,0 +1,82 @@
+package com.example.sobti.core.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.example.sobti.core.mapping.ItemWriter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class HealthWriteTrackerTest {
+
+    private static final String EMAIL = "a@example.com";
+
+    private final HealthWriteTracker tracker = new HealthWriteTracker();
+
+    @Test
+    public void firstWriteSetsEverything() {
+        HealthWriteTracker.Update update = tracker.prepare(EMAIL, 72, 1000, "home", 5);
+
+        assertEquals("SET lastHeartRate = :lastHeartRate, lastSteps = :lastSteps, "
+                + "lastLocation = :lastLocation, lastUpdated = :lastUpdated", update.expression);
+        Map<String, String> values = values(update);
+        assertEquals("72", values.get(":lastHeartRate"));
+        assertEquals("home", values.get(":lastLocation"));
+        assertEquals("5", values.get(":lastUpdated"));
+    }
+
+    @Test
+    public void committedValuesAreNotResent() {
+        tracker.committed(tracker.prepare(EMAIL, 72, 1000, "home", 5));
+
+        HealthWriteTracker.Update update = tracker.prepare(EMAIL, 75, 1000, "home", 6);
+
+        assertEquals("SET lastHeartRate = :lastHeartRate, lastUpdated = :lastUpdated", update.expression);
+        assertEquals(2, update.attributes);
+        assertEquals(2, values(update).size());
+        assertFalse(values(update).containsKey(":lastSteps"));
+    }
+
+    @Test
+    public void uncommittedOrForgottenWritesSendEverything() {
+        tracker.prepare(EMAIL, 72, 1000, "home", 5);
+        assertEquals(4, tracker.prepare(EMAIL, 72, 1000, "home", 6).attributes);
+
+        tracker.committed(tracker.prepare(EMAIL, 72, 1000, "home", 7));
+        tracker.forget(EMAIL);
+        assertEquals(4, tracker.prepare(EMAIL, 72, 1000, "home", 8).attributes);
+    }
+
+    @Test
+    public void seededFromAReadAndNullLocationSkipped() {
+        UserData user = new UserData();
+        user.email = EMAIL;
+        user.lastHeartRate = 80;
+        user.lastSteps = 20;
+        user.lastLocation = "work";
+        tracker.seed(user);
+
+        assertEquals("SET lastUpdated = :lastUpdated", tracker.prepare(EMAIL, 80, 20, "work", 9).expression);
+        assertEquals("SET lastSteps = :lastSteps, lastUpdated = :lastUpdated",
+                tracker.prepare(EMAIL, 80, 21, null, 9).expression);
+    }
+
+    private static Map<String, String> values(HealthWriteTracker.Update update) {
+        Map<String, String> values = new HashMap<>();
+        update.writeValues(new ItemWriter() {
+            @Override
+            public void putString(String name, String value) {
+                values.put(name, value);
+            }
+
+            @Override
+            public void putNumber(String name, long value) {
+                values.put(name, String.valueOf(value));
+            }
+        });
+        return values;
+    }
+}
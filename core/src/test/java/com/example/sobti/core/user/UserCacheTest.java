@@ -0,0 +1,250 @@
+package com.example.sobti.core.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class UserCacheTest {
+
+    private static final String EMAIL = "asha@example.com";
+    private static final long TTL = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final MapStore store = new MapStore();
+    private final FakeSource source = new FakeSource();
+    private final ManualExecutor executor = new ManualExecutor();
+    private final List<String> received = new ArrayList<>();
+
+    @Test
+    public void missFetchesOnceAndSurvivesRestart() {
+        source.user = user("+15550100", 1_700_000_000_000L);
+        UserCache cache = newCache();
+
+        cache.get(EMAIL, listener());
+        assertEquals(0, received.size());
+        executor.runAll();
+        assertEquals(List.of("fresh:+15550100"), received);
+
+        // A new process reads the stored copy without going to DynamoDB
+        UserCache restarted = newCache();
+        restarted.get(EMAIL, listener());
+        assertEquals("cached:+15550100", received.get(1));
+        assertEquals(0, executor.pending());
+        assertEquals(1, source.fetches);
+        assertEquals(1, restarted.stats().hits);
+    }
+
+    @Test
+    public void staleHitIsServedThenCheckedByVersionOnly() {
+        source.user = user("+15550100", 1_700_000_000_000L);
+        UserCache cache = newCache();
+        cache.put(source.user);
+
+        now.addAndGet(TTL + 5_000);
+        cache.get(EMAIL, listener());
+        assertEquals(List.of("cached:+15550100"), received);
+        executor.runAll();
+
+        assertEquals(1, received.size());
+        assertEquals(1, source.versionReads);
+        assertEquals(0, source.fetches);
+        UserCache.Stats stats = cache.stats();
+        assertEquals(1, stats.staleHits);
+        assertEquals(1, stats.revalidations);
+        assertEquals(TTL + 5_000, stats.maxStalenessMs);
+
+        // Revalidation restarted the TTL
+        cache.get(EMAIL, listener());
+        assertEquals(0, executor.pending());
+        assertEquals(1, cache.stats().hits);
+    }
+
+    @Test
+    public void changedVersionFetchesAndNotifies() {
+        UserCache cache = newCache();
+        cache.put(user("+15550100", 1_700_000_000_000L));
+        source.user = user("+15550199", 1_700_000_500_000L);
+
+        now.addAndGet(TTL);
+        cache.get(EMAIL, listener());
+        executor.runAll();
+
+        assertEquals(List.of("cached:+15550100", "fresh:+15550199"), received);
+        assertEquals("+15550199", cache.peek(EMAIL).emergencyNumber);
+        assertEquals(1, cache.stats().changed);
+    }
+
+    @Test
+    public void deletedUserIsDropped() {
+        UserCache cache = newCache();
+        cache.put(user("+15550100", 1_700_000_000_000L));
+
+        now.addAndGet(TTL);
+        cache.get(EMAIL, listener());
+        executor.runAll();
+
+        assertEquals(List.of("cached:+15550100", "fresh:none"), received);
+        assertNull(cache.peek(EMAIL));
+        assertNull(store.values.get(EMAIL));
+    }
+
+    @Test
+    public void concurrentMissesShareOneFetch() {
+        source.user = user("+15550100", 1_700_000_000_000L);
+        UserCache cache = newCache();
+
+        cache.get(EMAIL, listener());
+        cache.get(EMAIL, listener());
+        cache.get(EMAIL, listener());
+        executor.runAll();
+
+        assertEquals(1, source.fetches);
+        assertEquals(3, received.size());
+        assertEquals(3, cache.stats().misses);
+    }
+
+    @Test
+    public void failedRevalidationKeepsServingTheStaleProfile() {
+        UserCache cache = newCache();
+        cache.put(user("+15550100", 1_700_000_000_000L));
+        source.failure = new Exception("throttled");
+
+        now.addAndGet(TTL);
+        cache.get(EMAIL, listener());
+        executor.runAll();
+
+        assertEquals(List.of("cached:+15550100"), received);
+        assertNotNull(cache.peek(EMAIL));
+        assertEquals(1, cache.stats().errors);
+    }
+
+    @Test
+    public void failedFetchIsReported() {
+        source.failure = new Exception("offline");
+        UserCache cache = newCache();
+
+        cache.get(EMAIL, listener());
+        executor.runAll();
+
+        assertEquals(List.of("error:offline"), received);
+    }
+
+    @Test
+    public void unreadableStoredEntryIsRefetched() {
+        store.values.put(EMAIL, "not base64!");
+        source.user = user("+15550100", 0);
+        UserCache cache = newCache();
+
+        assertNull(cache.peek(EMAIL));
+        cache.get(EMAIL, listener());
+        executor.runAll();
+
+        assertEquals(List.of("fresh:+15550100"), received);
+        assertEquals(1, source.fetches);
+    }
+
+    private UserCache newCache() {
+        return new UserCache(store, source, executor, TTL, now::get);
+    }
+
+    private static UserData user(String emergencyNumber, long createdAt) {
+        UserData user = new UserData();
+        user.email = EMAIL;
+        user.name = "Asha";
+        user.age = 34;
+        user.height = 162;
+        user.weight = 58;
+        user.emergencyNumber = emergencyNumber;
+        user.createdAt = createdAt;
+        return user;
+    }
+
+    private UserCache.Listener listener() {
+        return new UserCache.Listener() {
+            @Override
+            public void onUser(UserData user, boolean fromCache) {
+                received.add((fromCache ? "cached:" : "fresh:") + (user == null ? "none" : user.emergencyNumber));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                received.add("error:" + e.getMessage());
+            }
+        };
+    }
+
+    private static final class MapStore implements UserCache.Store {
+        final Map<String, String> values = new HashMap<>();
+
+        @Override
+        public String load(String email) {
+            return values.get(email);
+        }
+
+        @Override
+        public void save(String email, String value) {
+            values.put(email, value);
+        }
+
+        @Override
+        public void remove(String email) {
+            values.remove(email);
+        }
+    }
+
+    private static final class FakeSource implements UserCache.Source {
+        UserData user;
+        Exception failure;
+        int fetches;
+        int versionReads;
+
+        @Override
+        public UserData fetch(String email) throws Exception {
+            fetches++;
+            if (failure != null) {
+                throw failure;
+            }
+            return user;
+        }
+
+        @Override
+        public long fetchVersion(String email) throws Exception {
+            versionReads++;
+            if (failure != null) {
+                throw failure;
+            }
+            return user == null ? -1 : user.createdAt;
+        }
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int pending() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
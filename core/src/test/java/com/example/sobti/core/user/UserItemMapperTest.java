@@ -0,0 +1,114 @@
+package com.example.sobti.core.user;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.sobti.core.mapping.ItemReader;
+import com.example.sobti.core.mapping.ItemWriter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class UserItemMapperTest {
+
+    // Strings and numbers kept apart, as AttributeValue keeps S and N
+    private static final class MapItem implements ItemReader, ItemWriter {
+        final Map<String, String> strings = new HashMap<>();
+        final Map<String, String> numbers = new HashMap<>();
+
+        @Override
+        public String string(String name) {
+            return strings.get(name);
+        }
+
+        @Override
+        public String number(String name) {
+            return numbers.get(name);
+        }
+
+        @Override
+        public void putString(String name, String value) {
+            strings.put(name, value);
+        }
+
+        @Override
+        public void putNumber(String name, long value) {
+            numbers.put(name, String.valueOf(value));
+        }
+    }
+
+    @Test
+    public void profileRoundTrip() {
+        UserData user = new UserData();
+        user.email = "a@example.com";
+        user.name = "Asha";
+        user.age = 34;
+        user.height = 170;
+        user.weight = 62;
+        user.emergencyNumber = "+15550100";
+        user.createdAt = 1_700_000_000_000L;
+
+        MapItem item = new MapItem();
+        UserItemMapper.writeProfile(user, item);
+        assertEquals("1700000000000", item.numbers.get(UserItemMapper.CREATED_AT));
+
+        UserData read = UserItemMapper.read(item);
+        assertEquals("a@example.com", read.email);
+        assertEquals("Asha", read.name);
+        assertEquals(34, read.age);
+        assertEquals(170, read.height);
+        assertEquals(62, read.weight);
+        assertEquals("+15550100", read.emergencyNumber);
+        assertEquals(1_700_000_000_000L, read.createdAt);
+        assertEquals(0, read.lastHeartRate);
+        assertNull(read.lastLocation);
+    }
+
+    @Test
+    public void healthAttributesAreRead() {
+        MapItem item = new MapItem();
+        UserData user = new UserData();
+        user.email = "a@example.com";
+        user.name = "Asha";
+        user.emergencyNumber = "+15550100";
+        UserItemMapper.writeProfile(user, item);
+        UserItemMapper.writeHealth(88, 4200, "12.9, 77.6", 5, item);
+
+        UserData read = UserItemMapper.read(item);
+        assertEquals(88, read.lastHeartRate);
+        assertEquals(4200, read.lastSteps);
+        assertEquals("12.9, 77.6", read.lastLocation);
+        assertEquals("5", item.numbers.get(UserItemMapper.LAST_UPDATED));
+    }
+
+    @Test
+    public void fullItemFitsOneWriteUnit() {
+        UserData user = new UserData();
+        user.email = "someone.with.a.long.address@example.com";
+        user.name = "Asha Raman";
+        user.age = 34;
+        user.height = 170;
+        user.weight = 62;
+        user.emergencyNumber = "+915550100123";
+        user.createdAt = 1_700_000_000_000L;
+
+        ItemSize size = new ItemSize();
+        UserItemMapper.writeProfile(user, size);
+        UserItemMapper.writeHealth(188, 24_000, "12.971601, 77.594601", 1_700_000_123_456L, size);
+
+        assertEquals(1, size.writeUnits());
+        // Trailing zeros are free: 17 followed by zeros is two digits
+        assertEquals(2, ItemSize.numberBytes(1_700_000_000_000L));
+        assertEquals(4, ItemSize.numberBytes(123_456));
+        assertEquals(2, ItemSize.numberBytes(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingProfileAttributeIsRejected() {
+        MapItem item = new MapItem();
+        item.putString(UserItemMapper.EMAIL, "a@example.com");
+        UserItemMapper.read(item);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.sobti.core.aws;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Builds event stream frames with string headers, for tests that replay
+// recorded streams against mock servers and fake clients. The app only
+// ever decodes.
+public final class EventStreamEncoder {
+
+    private EventStreamEncoder() {
+    }
+
+    public static byte[] encode(Map<String, String> headers, byte[] payload) {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            byte[] name = header.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = header.getValue().getBytes(StandardCharsets.UTF_8);
+            headerBytes.write(name.length);
+            headerBytes.write(name, 0, name.length);
+            headerBytes.write(7);
+            headerBytes.write(value.length >>> 8);
+            headerBytes.write(value.length & 0xFF);
+            headerBytes.write(value, 0, value.length);
+        }
+        byte[] encodedHeaders = headerBytes.toByteArray();
+
+        int total = EventStreamDecoder.MIN_MESSAGE_LENGTH + encodedHeaders.length + payload.length;
+        ByteBuffer out = ByteBuffer.allocate(total);
+        out.putInt(total);
+        out.putInt(encodedHeaders.length);
+        out.putInt(crc(out.array(), 0, 8));
+        out.put(encodedHeaders);
+        out.put(payload);
+        out.putInt(crc(out.array(), 0, total - 4));
+        return out.array();
+    }
+
+    private static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.sobti.loadtest;
+
+import java.util.Random;
+
+// What a virtual user's heart does between stretches of normal readings.
+// Normal readings follow the watch's test mode: ±5 bpm per reading inside
+// 60-100. RISING and FALLING are the test mode's trends, 5-12 bpm per
+// reading for five readings; the others are held excursions.
+enum AnomalyProfile {
+    STEADY,
+    RISING,
+    FALLING,
+    SPIKE,
+    TACHYCARDIA,
+    BRADYCARDIA;
+
+    static AnomalyProfile parse(String name) {
+        switch (name.toLowerCase()) {
+            case "steady": return STEADY;
+            case "rising": return RISING;
+            case "falling": return FALLING;
+            case "spike": return SPIKE;
+            case "tachy":
+            case "tachycardia": return TACHYCARDIA;
+            case "brady":
+            case "bradycardia": return BRADYCARDIA;
+            default: throw new IllegalArgumentException("Unknown profile " + name);
+        }
+    }
+
+    // Generates one user's readings; episodeEvery is the mean number of
+    // normal readings between episodes
+    static final class Generator {
+
+        private static final int HOLD_READINGS = 40;
+
+        private final AnomalyProfile profile;
+        private final Random random;
+        private final int episodeEvery;
+        private int heartRate = 75;
+        private int episodeLeft;
+        private int target;
+
+        Generator(AnomalyProfile profile, long seed, int episodeEvery) {
+            this.profile = profile;
+            this.random = new Random(seed);
+            this.episodeEvery = Math.max(1, episodeEvery);
+        }
+
+        int next() {
+            if (episodeLeft == 0 && profile != STEADY && random.nextInt(episodeEvery) == 0) {
+                startEpisode();
+            }
+            if (episodeLeft > 0) {
+                episodeLeft--;
+                return episodeReading();
+            }
+            heartRate += random.nextInt(11) - 5;
+            if (heartRate < 60) heartRate = 60 + random.nextInt(10);
+            if (heartRate > 100) heartRate = 90 + random.nextInt(10);
+            return heartRate;
+        }
+
+        private void startEpisode() {
+            switch (profile) {
+                case RISING:
+                case FALLING:
+                    episodeLeft = 5;
+                    break;
+                case SPIKE:
+                    episodeLeft = 1;
+                    break;
+                case TACHYCARDIA:
+                    target = 150 + random.nextInt(40);
+                    episodeLeft = HOLD_READINGS;
+                    break;
+                case BRADYCARDIA:
+                    target = 35 + random.nextInt(10);
+                    episodeLeft = HOLD_READINGS;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private int episodeReading() {
+            switch (profile) {
+                case RISING:
+                    heartRate += random.nextInt(8) + 5;
+                    return heartRate;
+                case FALLING:
+                    heartRate = Math.max(30, heartRate - random.nextInt(8) - 5);
+                    return heartRate;
+                case SPIKE:
+                    return 180 + random.nextInt(30);
+                default:
+                    // Held near the target; normal readings resume where it was
+                    return target + random.nextInt(7) - 3;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.sobti.loadtest;
+
+// One thing the watch hands the phone: a sample batch, or a single
+// reading as the legacy /health_data item carries.
+final class Delivery {
+
+    // When it should arrive, relative to the start of the run
+    long atNanos;
+    String nodeId;
+    // null for a single reading
+    byte[] batch;
+    long timestamp;
+    int heartRate;
+    int steps;
+}
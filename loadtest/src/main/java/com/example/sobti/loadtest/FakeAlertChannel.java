@@ -0,0 +1,35 @@
+package com.example.sobti.loadtest;
+
+import com.example.sobti.core.emergency.AlertChannel;
+import com.example.sobti.core.emergency.EmergencyAlert;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Stands in for the SMS and SNS channels: accepts an alert after
+// latencyMs, or fails with the given probability.
+final class FakeAlertChannel implements AlertChannel {
+
+    private final String name;
+    private final long latencyMs;
+    private final double failureRate;
+
+    FakeAlertChannel(String name, long latencyMs, double failureRate) {
+        this.name = name;
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void send(EmergencyAlert alert) throws Exception {
+        Thread.sleep(latencyMs);
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IOException("Simulated " + name + " failure");
+        }
+    }
+}
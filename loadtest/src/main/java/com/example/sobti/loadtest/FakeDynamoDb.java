@@ -0,0 +1,50 @@
+package com.example.sobti.loadtest;
+
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.queue.UploadDrainer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stands in for HealthUploader: decodes each record as the real one does,
+// then waits latencyMs per BatchWriteItem call of up to 25 records and
+// fails a call with the given probability.
+final class FakeDynamoDb implements UploadDrainer.Uploader {
+
+    private static final int WRITE_BATCH = 25;
+
+    private final long latencyMs;
+    private final double failureRate;
+    private final LatencyRecorder calls = new LatencyRecorder();
+    private final AtomicLong records = new AtomicLong();
+
+    FakeDynamoDb(long latencyMs, double failureRate) {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public void upload(List<byte[]> batch) throws Exception {
+        long start = System.nanoTime();
+        for (byte[] record : batch) {
+            OutboundRecord.decode(record);
+        }
+        int writes = (batch.size() + WRITE_BATCH - 1) / WRITE_BATCH;
+        Thread.sleep(latencyMs * writes);
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IOException("Simulated DynamoDB failure");
+        }
+        records.addAndGet(batch.size());
+        calls.recordNanos(System.nanoTime() - start);
+    }
+
+    long recordCount() {
+        return records.get();
+    }
+
+    LatencyRecorder calls() {
+        return calls;
+    }
+}
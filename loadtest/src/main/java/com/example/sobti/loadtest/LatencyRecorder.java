@@ -0,0 +1,49 @@
+package com.example.sobti.loadtest;
+
+import java.util.Arrays;
+
+// Collects latencies in microseconds and reports percentiles. Every value
+// is kept, which is fine for runs of a few million samples.
+final class LatencyRecorder {
+
+    private long[] values = new long[1024];
+    private int size;
+
+    synchronized void recordNanos(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = Math.max(0, nanos / 1_000L);
+    }
+
+    synchronized int count() {
+        return size;
+    }
+
+    // Percentile in milliseconds, or NaN with no values
+    synchronized double percentileMs(double percentile) {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))] / 1_000.0;
+    }
+
+    synchronized double maxMs() {
+        long max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return size == 0 ? Double.NaN : max / 1_000.0;
+    }
+
+    String summary() {
+        if (count() == 0) {
+            return "-";
+        }
+        return String.format("p50=%.1f p90=%.1f p99=%.1f max=%.1f ms (n=%d)",
+                percentileMs(50), percentileMs(90), percentileMs(99), maxMs(), count());
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.sobti.loadtest;
+
+import com.example.sobti.core.anomaly.AnomalyRule;
+import com.example.sobti.core.anomaly.PersonalBaseline;
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.emergency.ChannelPolicy;
+import com.example.sobti.core.emergency.EmergencyAlert;
+import com.example.sobti.core.emergency.EmergencyDispatcher;
+import com.example.sobti.core.emergency.EmergencyReport;
+import com.example.sobti.core.journal.SyncWatermark;
+import com.example.sobti.core.pipeline.HealthPipeline;
+import com.example.sobti.core.pipeline.TraceReader;
+import com.example.sobti.core.queue.DurableQueue;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.queue.UploadDrainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One step of the test at a fixed number of virtual users. Each user has
+// its own HealthPipeline, as its phone would, and they all share the
+// ingest threads, one disk outbox drained to a fake DynamoDB, and the
+// dispatcher pools that alerts fan out on.
+//
+// Ingest latency runs from when a delivery was due, not when the timer got
+// round to it, so a saturated step shows its queueing delay instead of
+// hiding it.
+final class LoadRun {
+
+    // The app's outbox settings; time-based ones are divided by the speed
+    private static final long SEGMENT_BYTES = 256 * 1024;
+    private static final int UPLOAD_BATCH = 100;
+    private static final long LINGER_MS = 30_000L;
+    private static final long MIN_BACKOFF_MS = 2_000L;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000L;
+    private static final int HISTORY_FLUSH_EVERY = 60;
+    private static final ChannelPolicy SMS_POLICY = new ChannelPolicy(15_000L, 2, 1_000L);
+    private static final ChannelPolicy SNS_POLICY = new ChannelPolicy(8_000L, 3, 500L);
+    private static final long DRAIN_TIMEOUT_S = 30;
+
+    private static final class VirtualUser {
+        final HealthPipeline pipeline;
+        final ExecutorService executor;
+        final Source source;
+        // One per watch node, like WatchSync keeps
+        final Map<String, SyncWatermark> watermarks = new HashMap<>();
+
+        VirtualUser(HealthPipeline pipeline, ExecutorService executor, Source source) {
+            this.pipeline = pipeline;
+            this.executor = executor;
+            this.source = source;
+        }
+    }
+
+    static final class Result {
+        final int users;
+        final double offeredPerSecond;
+        final double processedPerSecond;
+        final long samples;
+        final LatencyRecorder ingest;
+        final LatencyRecorder append;
+        final LatencyRecorder alert;
+        final LatencyRecorder ddbCalls;
+        final long anomalies;
+        final long alertFailures;
+        final long outboxRejected;
+        final long evicted;
+        final long backlog;
+        final long uploaded;
+        final int maxIngestQueue;
+        final boolean unfinished;
+
+        Result(int users, double offeredPerSecond, double processedPerSecond, long samples,
+               LatencyRecorder ingest, LatencyRecorder append, LatencyRecorder alert, LatencyRecorder ddbCalls,
+               long anomalies, long alertFailures, long outboxRejected, long evicted, long backlog,
+               long uploaded, int maxIngestQueue, boolean unfinished) {
+            this.users = users;
+            this.offeredPerSecond = offeredPerSecond;
+            this.processedPerSecond = processedPerSecond;
+            this.samples = samples;
+            this.ingest = ingest;
+            this.append = append;
+            this.alert = alert;
+            this.ddbCalls = ddbCalls;
+            this.anomalies = anomalies;
+            this.alertFailures = alertFailures;
+            this.outboxRejected = outboxRejected;
+            this.evicted = evicted;
+            this.backlog = backlog;
+            this.uploaded = uploaded;
+            this.maxIngestQueue = maxIngestQueue;
+            this.unfinished = unfinished;
+        }
+
+        boolean saturated(double sloMs) {
+            return unfinished || outboxRejected > 0 || ingest.percentileMs(99) > sloMs;
+        }
+    }
+
+    private final Options options;
+    private final int users;
+    private final List<TraceReader.Event> trace;
+
+    private final LatencyRecorder ingestLatency = new LatencyRecorder();
+    private final LatencyRecorder appendLatency = new LatencyRecorder();
+    private final LatencyRecorder alertLatency = new LatencyRecorder();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong anomalies = new AtomicLong();
+    private final AtomicLong alertFailures = new AtomicLong();
+    private final AtomicLong outboxRejected = new AtomicLong();
+    private final AtomicInteger ingestQueue = new AtomicInteger();
+    private final AtomicInteger maxIngestQueue = new AtomicInteger();
+
+    private AppDispatcher dispatcher;
+    private DurableQueue queue;
+    private UploadDrainer drainer;
+    private ExecutorService[] ingest;
+    private long startNanos;
+
+    // trace is null for synthetic users
+    LoadRun(Options options, int users, List<TraceReader.Event> trace) {
+        this.options = options;
+        this.users = users;
+        this.trace = trace;
+    }
+
+    Result run() throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("sobti-loadtest").toFile();
+        dispatcher = new AppDispatcher();
+        FakeDynamoDb dynamoDb = new FakeDynamoDb(options.ddbLatencyMs, options.ddbFailureRate);
+        queue = new DurableQueue(dir, SEGMENT_BYTES, options.outboxMb * 1024 * 1024);
+        drainer = new UploadDrainer(queue, dynamoDb, dispatcher.scheduler(WorkClass.UPLOAD), UPLOAD_BATCH,
+                scaled(LINGER_MS), scaled(MIN_BACKOFF_MS), scaled(MAX_BACKOFF_MS));
+
+        ingest = new ExecutorService[options.ingestThreads];
+        for (int i = 0; i < ingest.length; i++) {
+            String name = "loadtest-ingest-" + i;
+            ingest[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "loadtest-source");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        VirtualUser[] virtualUsers = new VirtualUser[users];
+        startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        for (int user = 0; user < users; user++) {
+            // Spread the users' first deliveries over one batch period
+            long offset = (long) (user * batchPeriodNanos() / users);
+            Source source = trace != null
+                    ? new ReplaySource(trace, "-" + user, options.speed, offset, durationNanos)
+                    : new SyntheticSource("watch-" + user,
+                            new AnomalyProfile.Generator(options.profileFor(user), options.seed * 31 + user,
+                                    options.episodeEvery),
+                            options.batchSize, options.intervalMs, options.speed, offset, durationNanos,
+                            1_700_000_000_000L);
+            virtualUsers[user] = new VirtualUser(newPipeline(user), ingest[user % ingest.length], source);
+            scheduleNext(timer, virtualUsers[user]);
+        }
+
+        Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(startNanos + durationNanos - System.nanoTime())));
+        timer.shutdownNow();
+        for (VirtualUser user : virtualUsers) {
+            user.executor.execute(user.pipeline::flush);
+        }
+        boolean unfinished = false;
+        for (ExecutorService executor : ingest) {
+            executor.shutdown();
+        }
+        for (ExecutorService executor : ingest) {
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_S, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+                unfinished = true;
+            }
+        }
+        double elapsedS = (System.nanoTime() - startNanos) / 1e9;
+
+        // Let queued appends land before reading the queue
+        AtomicLong backlog = new AtomicLong();
+        AtomicLong evicted = new AtomicLong();
+        Runnable snapshot = () -> {
+            backlog.set(queue.size());
+            evicted.set(queue.evictedCount());
+        };
+        try {
+            dispatcher.scheduler(WorkClass.STORAGE).submit(snapshot).get(DRAIN_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            snapshot.run();
+        }
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(DRAIN_TIMEOUT_S, TimeUnit.SECONDS);
+        queue.close();
+        deleteRecursively(dir);
+
+        double offered = trace != null
+                ? Double.NaN
+                : users * options.speed * 1000.0 / options.intervalMs;
+        return new Result(users, offered, samples.get() / elapsedS, samples.get(),
+                ingestLatency, appendLatency, alertLatency, dynamoDb.calls(),
+                anomalies.get(), alertFailures.get(), outboxRejected.get(), evicted.get(), backlog.get(),
+                dynamoDb.recordCount(), maxIngestQueue.get(), unfinished);
+    }
+
+    private HealthPipeline newPipeline(int user) {
+        String email = "user" + user + "@loadtest";
+        HealthPipeline pipeline = new HealthPipeline(this::enqueue, new HealthPipeline.Listener() {
+            @Override
+            public void onLatest(long timestamp, int heartRate, int steps) {
+                // The app renders it; nothing to do here
+            }
+
+            @Override
+            public void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value) {
+                anomalies.incrementAndGet();
+                // Like the app, only the absolute rules alert anyone
+                if (rule.isEmergency()) {
+                    alert(email, heartRate);
+                }
+            }
+        }, HISTORY_FLUSH_EVERY);
+        pipeline.setEmail(email);
+        pipeline.setLocation("37.421998, -122.084000");
+        pipeline.setBaseline(PersonalBaseline.forAge(25 + user % 50));
+        return pipeline;
+    }
+
+    // Chains one delivery at a time per user so the timer queue stays small
+    private void scheduleNext(ScheduledExecutorService timer, VirtualUser user) {
+        Delivery delivery = new Delivery();
+        if (!user.source.next(delivery)) {
+            return;
+        }
+        long due = startNanos + delivery.atNanos;
+        try {
+            timer.schedule(() -> {
+                track(ingestQueue.incrementAndGet());
+                try {
+                    user.executor.execute(() -> {
+                        ingestQueue.decrementAndGet();
+                        deliver(user, delivery, due);
+                    });
+                } catch (RejectedExecutionException e) {
+                    // The step is over
+                    return;
+                }
+                scheduleNext(timer, user);
+            }, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // The step is over
+        }
+    }
+
+    // Runs on the user's ingest thread, as onSampleBatch does on the main thread
+    private void deliver(VirtualUser user, Delivery delivery, long due) {
+        HealthPipeline pipeline = user.pipeline;
+        long before = pipeline.sampleCount();
+        if (delivery.batch == null) {
+            pipeline.onSample(delivery.timestamp, delivery.heartRate, delivery.steps);
+        } else {
+            SyncWatermark watermark = user.watermarks.computeIfAbsent(delivery.nodeId,
+                    node -> new SyncWatermark(SyncWatermark.UNKNOWN));
+            try {
+                pipeline.onBatch(watermark, delivery.batch);
+            } catch (IllegalArgumentException e) {
+                // Counted by the pipeline
+            }
+        }
+        samples.addAndGet(pipeline.sampleCount() - before);
+        ingestLatency.recordNanos(System.nanoTime() - due);
+    }
+
+    // Mirrors HealthOutbox.enqueue: append on STORAGE, then wake the drainer
+    private void enqueue(OutboundRecord record, boolean urgent) {
+        long queued = System.nanoTime();
+        try {
+            dispatcher.execute(WorkClass.STORAGE, () -> {
+                try {
+                    queue.append(record.encode());
+                    if (urgent) {
+                        queue.sync();
+                    }
+                    drainer.schedule(urgent);
+                } catch (IOException e) {
+                    outboxRejected.incrementAndGet();
+                    return;
+                }
+                appendLatency.recordNanos(System.nanoTime() - queued);
+            });
+        } catch (RejectedExecutionException e) {
+            outboxRejected.incrementAndGet();
+        }
+    }
+
+    // Mirrors MainActivity.triggerEmergency with fake SMS and SNS channels
+    private void alert(String email, int heartRate) {
+        long detected = System.nanoTime();
+        EmergencyAlert alert = new EmergencyAlert("SOBTI Health Alert",
+                "Abnormal heart rate detected: " + heartRate + " bpm", heartRate, System.currentTimeMillis());
+        enqueue(OutboundRecord.alert(email, alert.createdAt, heartRate, "", alert.message), true);
+
+        EmergencyDispatcher emergency = new EmergencyDispatcher(dispatcher.timer())
+                .addChannel(new FakeAlertChannel("SMS", options.alertLatencyMs, options.alertFailureRate), SMS_POLICY)
+                .addChannel(new FakeAlertChannel("SNS SMS", options.alertLatencyMs, options.alertFailureRate),
+                        SNS_POLICY);
+        emergency.dispatch(alert, new EmergencyDispatcher.Listener() {
+            @Override
+            public void onFirstDelivery(String channel, long elapsedMs) {
+                alertLatency.recordNanos(System.nanoTime() - detected);
+            }
+
+            @Override
+            public void onComplete(EmergencyReport report) {
+                if (!report.anyDelivered()) {
+                    alertFailures.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    private void track(int depth) {
+        int max;
+        while (depth > (max = maxIngestQueue.get())) {
+            if (maxIngestQueue.compareAndSet(max, depth)) {
+                break;
+            }
+        }
+    }
+
+    private double batchPeriodNanos() {
+        return options.batchSize * options.intervalMs * 1_000_000.0 / options.speed;
+    }
+
+    private long scaled(long ms) {
+        return Math.max(1, (long) (ms / options.speed));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.sobti.loadtest;
+
+import com.example.sobti.core.pipeline.TraceReader;
+
+import java.io.IOException;
+import java.util.List;
+
+// Steps through increasing numbers of virtual users and prints one report
+// per step, stopping after the first step that saturates: ingest p99 over
+// the SLO, outbox appends rejected, or ingest still backed up when the
+// step ends. The last healthy step is the breaking point to plan around.
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.help) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+
+        List<TraceReader.Event> trace = options.replay == null ? null : ReplaySource.load(options.replay);
+        System.out.println(describe(options, trace));
+
+        LoadRun.Result lastHealthy = null;
+        boolean anySaturated = false;
+        for (int users : options.users) {
+            LoadRun.Result result = new LoadRun(options, users, trace).run();
+            boolean saturated = result.saturated(options.sloMs);
+            print(result, saturated);
+            if (!saturated) {
+                lastHealthy = result;
+            } else {
+                anySaturated = true;
+                if (!options.keepGoing) {
+                    break;
+                }
+            }
+        }
+        System.out.println();
+        if (lastHealthy == null) {
+            System.out.println("No step met the SLO");
+        } else {
+            System.out.printf("%s %d users (%.0f samples/s)%n",
+                    anySaturated ? "Breaking point above" : "No saturation up to",
+                    lastHealthy.users, lastHealthy.processedPerSecond);
+        }
+    }
+
+    private static String describe(Options options, List<TraceReader.Event> trace) {
+        String source = trace == null
+                ? String.format("synthetic, %d ms readings in batches of %d, mix %s",
+                        options.intervalMs, options.batchSize, options.mix)
+                : String.format("replay of %s (%d events)", options.replay, trace.size());
+        return String.format("Source: %s%nSpeed %.0fx, %d s per step, %d ingest thread(s), SLO p99 %.0f ms",
+                source, options.speed, options.durationSeconds, options.ingestThreads, options.sloMs);
+    }
+
+    private static void print(LoadRun.Result result, boolean saturated) {
+        System.out.println();
+        System.out.printf("== %d users: %s%n", result.users, saturated ? "SATURATED" : "ok");
+        if (!Double.isNaN(result.offeredPerSecond)) {
+            System.out.printf("  offered     %.0f samples/s%n", result.offeredPerSecond);
+        }
+        System.out.printf("  processed   %.0f samples/s (%d samples)%n", result.processedPerSecond, result.samples);
+        System.out.printf("  ingest      %s, max queue %d%s%n", result.ingest.summary(), result.maxIngestQueue,
+                result.unfinished ? ", still backed up at the end" : "");
+        System.out.printf("  append      %s, rejected %d%n", result.append.summary(), result.outboxRejected);
+        System.out.printf("  upload      %d records, DynamoDB calls %s%n", result.uploaded, result.ddbCalls.summary());
+        System.out.printf("  outbox      backlog %d, evicted %d%n", result.backlog, result.evicted);
+        System.out.printf("  alerts      %d raised, %d undelivered, first delivery %s%n",
+                result.anomalies, result.alertFailures, result.alert.summary());
+    }
+}
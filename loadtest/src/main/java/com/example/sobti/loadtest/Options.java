@@ -0,0 +1,165 @@
+package com.example.sobti.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Command-line settings. Defaults mirror the apps: the watch's test mode
+// reads every 3 s, SampleBatcher sends up to 30 samples, the phone has one
+// main thread and an 8 MB outbox.
+final class Options {
+
+    static final String USAGE = String.join("\n",
+            "Usage: loadtest [options]",
+            "  --users N[,N...]          virtual users per step (default 1,10,100,1000)",
+            "  --duration SECONDS        wall time per step (default 30)",
+            "  --speed X                 replay/synthetic speed-up (default 60)",
+            "  --interval-ms MS          synthetic reading interval (default 3000)",
+            "  --batch N                 synthetic samples per batch (default 30)",
+            "  --mix P=W[,P=W...]        profile weights; profiles steady, rising, falling,",
+            "                            spike, tachy, brady (default steady=60,rising=10,",
+            "                            falling=10,spike=10,tachy=5,brady=5)",
+            "  --episode-every N         mean normal readings between episodes (default 400)",
+            "  --replay FILE             replay a recorded trace instead of synthetic users",
+            "  --ingest-threads N        threads standing in for the main thread (default 1)",
+            "  --ddb-latency-ms MS       fake DynamoDB latency per write call (default 40)",
+            "  --ddb-failure-rate P      fake DynamoDB failure probability (default 0)",
+            "  --alert-latency-ms MS     fake SMS/SNS latency (default 300)",
+            "  --alert-failure-rate P    fake SMS/SNS failure probability (default 0)",
+            "  --outbox-mb N             outbox disk budget (default 8)",
+            "  --slo-ms MS               ingest p99 above this marks a step saturated (default 100)",
+            "  --keep-going              run every step even after one saturates",
+            "  --seed N                  random seed (default 1)");
+
+    List<Integer> users = List.of(1, 10, 100, 1000);
+    long durationSeconds = 30;
+    double speed = 60;
+    long intervalMs = 3_000L;
+    int batchSize = 30;
+    Map<AnomalyProfile, Integer> mix = defaultMix();
+    int episodeEvery = 400;
+    Path replay;
+    int ingestThreads = 1;
+    long ddbLatencyMs = 40;
+    double ddbFailureRate;
+    long alertLatencyMs = 300;
+    double alertFailureRate;
+    long outboxMb = 8;
+    double sloMs = 100;
+    boolean keepGoing;
+    long seed = 1;
+    boolean help;
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            String flag = args[i];
+            switch (flag) {
+                case "--help":
+                case "-h":
+                    options.help = true;
+                    break;
+                case "--keep-going":
+                    options.keepGoing = true;
+                    break;
+                default:
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("Missing value for " + flag);
+                    }
+                    options.set(flag, args[++i]);
+            }
+        }
+        return options;
+    }
+
+    private void set(String flag, String value) {
+        switch (flag) {
+            case "--users":
+                users = new ArrayList<>();
+                for (String part : value.split(",")) {
+                    users.add(positive(flag, Integer.parseInt(part.trim())));
+                }
+                break;
+            case "--duration": durationSeconds = positive(flag, Long.parseLong(value)); break;
+            case "--speed": speed = positive(flag, Double.parseDouble(value)); break;
+            case "--interval-ms": intervalMs = positive(flag, Long.parseLong(value)); break;
+            case "--batch": batchSize = positive(flag, Integer.parseInt(value)); break;
+            case "--mix": mix = parseMix(value); break;
+            case "--episode-every": episodeEvery = positive(flag, Integer.parseInt(value)); break;
+            case "--replay": replay = Paths.get(value); break;
+            case "--ingest-threads": ingestThreads = positive(flag, Integer.parseInt(value)); break;
+            case "--ddb-latency-ms": ddbLatencyMs = Long.parseLong(value); break;
+            case "--ddb-failure-rate": ddbFailureRate = Double.parseDouble(value); break;
+            case "--alert-latency-ms": alertLatencyMs = Long.parseLong(value); break;
+            case "--alert-failure-rate": alertFailureRate = Double.parseDouble(value); break;
+            case "--outbox-mb": outboxMb = positive(flag, Long.parseLong(value)); break;
+            case "--slo-ms": sloMs = positive(flag, Double.parseDouble(value)); break;
+            case "--seed": seed = Long.parseLong(value); break;
+            default: throw new IllegalArgumentException("Unknown option " + flag);
+        }
+    }
+
+    // Profile for the index-th user, spread by weight so every step gets
+    // the same proportions
+    AnomalyProfile profileFor(int index) {
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += weight;
+        }
+        int slot = (int) ((index * 7919L) % total);
+        for (Map.Entry<AnomalyProfile, Integer> entry : mix.entrySet()) {
+            slot -= entry.getValue();
+            if (slot < 0) {
+                return entry.getKey();
+            }
+        }
+        return AnomalyProfile.STEADY;
+    }
+
+    private static Map<AnomalyProfile, Integer> defaultMix() {
+        return parseMix("steady=60,rising=10,falling=10,spike=10,tachy=5,brady=5");
+    }
+
+    private static Map<AnomalyProfile, Integer> parseMix(String value) {
+        Map<AnomalyProfile, Integer> mix = new EnumMap<>(AnomalyProfile.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad --mix entry " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in --mix");
+            }
+            mix.put(AnomalyProfile.parse(pair[0].trim()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("--mix needs a positive weight");
+        }
+        return mix;
+    }
+
+    private static int positive(String flag, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(flag + " must be positive");
+        }
+        return value;
+    }
+
+    private static long positive(String flag, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(flag + " must be positive");
+        }
+        return value;
+    }
+
+    private static double positive(String flag, double value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(flag + " must be positive");
+        }
+        return value;
+    }
+}
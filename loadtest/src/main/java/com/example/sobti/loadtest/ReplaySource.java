@@ -0,0 +1,68 @@
+package com.example.sobti.loadtest;
+
+import com.example.sobti.core.pipeline.TraceReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Plays a recorded trace back with the recorded gaps between arrivals
+// divided by speed. Every virtual user replays the same events; node ids
+// get the user's suffix so each user keeps its own watermark.
+final class ReplaySource implements Source {
+
+    static List<TraceReader.Event> load(Path file) throws IOException {
+        List<TraceReader.Event> events = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            TraceReader.Event event;
+            while ((event = reader.next()) != null) {
+                events.add(event);
+            }
+        }
+        if (events.isEmpty()) {
+            throw new IOException("Trace " + file + " has no events");
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    private final List<TraceReader.Event> events;
+    private final String suffix;
+    private final double speed;
+    private final long offsetNanos;
+    private final long endNanos;
+    private final long firstArrival;
+    private int index;
+
+    ReplaySource(List<TraceReader.Event> events, String suffix, double speed, long offsetNanos, long durationNanos) {
+        this.events = events;
+        this.suffix = suffix;
+        this.speed = speed;
+        this.offsetNanos = offsetNanos;
+        this.endNanos = durationNanos;
+        this.firstArrival = events.get(0).arrivalMs;
+    }
+
+    @Override
+    public boolean next(Delivery out) {
+        if (index == events.size()) {
+            return false;
+        }
+        TraceReader.Event event = events.get(index);
+        long at = offsetNanos + (long) ((event.arrivalMs - firstArrival) * 1_000_000.0 / speed);
+        if (at >= endNanos) {
+            return false;
+        }
+        index++;
+        out.atNanos = at;
+        out.nodeId = (event.nodeId == null ? "node" : event.nodeId) + suffix;
+        out.batch = event.batch;
+        out.timestamp = event.timestamp;
+        out.heartRate = event.heartRate;
+        out.steps = event.steps;
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.sobti.loadtest;
+
+// The deliveries of one virtual user, in arrival order. Only the driver's
+// timer thread calls it.
+interface Source {
+
+    // Fills in the next delivery; false when there are no more
+    boolean next(Delivery out);
+}
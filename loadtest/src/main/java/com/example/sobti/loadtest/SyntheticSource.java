@@ -0,0 +1,57 @@
+package com.example.sobti.loadtest;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.example.sobti.core.transport.SampleBatchCodec;
+
+// A virtual watch that takes a reading every intervalMs of sample time
+// and sends it in batches, like SampleBatcher. Sample timestamps advance in
+// real watch time whatever the speed-up, so the anomaly rules see normal
+// spacing; only arrivals are compressed.
+final class SyntheticSource implements Source {
+
+    private final String nodeId;
+    private final AnomalyProfile.Generator generator;
+    private final SampleRingBuffer buffer;
+    private final long intervalMs;
+    private final double batchPeriodNanos;
+    private final long offsetNanos;
+    private final long endNanos;
+    private long timestamp;
+    private long seq;
+    private int steps;
+    private long batches;
+
+    SyntheticSource(String nodeId, AnomalyProfile.Generator generator, int batchSize, long intervalMs,
+                    double speed, long offsetNanos, long durationNanos, long startTimestamp) {
+        this.nodeId = nodeId;
+        this.generator = generator;
+        this.buffer = new SampleRingBuffer(batchSize);
+        this.intervalMs = intervalMs;
+        this.batchPeriodNanos = batchSize * intervalMs * 1_000_000.0 / speed;
+        this.offsetNanos = offsetNanos;
+        this.endNanos = durationNanos;
+        this.timestamp = startTimestamp;
+    }
+
+    @Override
+    public boolean next(Delivery out) {
+        // A batch leaves once its last reading is taken
+        long at = offsetNanos + (long) ((batches + 1) * batchPeriodNanos);
+        if (at >= endNanos) {
+            return false;
+        }
+        buffer.clear();
+        long firstSeq = seq;
+        while (buffer.size() < buffer.capacity()) {
+            steps += 1 + (int) (timestamp % 3);
+            buffer.add(timestamp, generator.next(), steps);
+            timestamp += intervalMs;
+            seq++;
+        }
+        out.atNanos = at;
+        out.nodeId = nodeId;
+        out.batch = SampleBatchCodec.encode(buffer, firstSeq, false);
+        batches++;
+        return true;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.sobti;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
@@ -10,8 +9,6 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.sobti.aws.GeminiClient;
 
-import java.util.concurrent.Executors;
-
 public class AIBotActivity extends AppCompatActivity {
 
     private GeminiClient geminiClient;
@@ -19,6 +16,11 @@ public class AIBotActivity extends AppCompatActivity {
     private TextView outputMessage;
     private Button btnSend;
 
+    private GeminiClient.StreamHandle activeStream;
+    // Bumped whenever a stream is cancelled or replaced, so chunks it had
+    // already posted to the UI thread are dropped. Main thread only.
+    private int streamId;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -41,16 +43,48 @@ public class AIBotActivity extends AppCompatActivity {
             return;
         }
 
-        Executors.newSingleThreadExecutor().execute(() -> {
-            try {
-                String response = geminiClient.generateText(prompt);
+        // A new question replaces any answer still streaming
+        cancelActiveStream();
+        outputMessage.setText("");
+
+        int stream = streamId;
+        activeStream = geminiClient.generateTextStream(prompt, new GeminiClient.StreamListener() {
+            @Override
+            public void onChunk(String text) {
+                runOnUiThread(() -> {
+                    if (stream == streamId) {
+                        outputMessage.append(text);
+                    }
+                });
+            }
 
-                runOnUiThread(() -> outputMessage.setText(response));
+            @Override
+            public void onComplete(String fullText) {
+                // Every chunk has already been rendered
+            }
 
-            } catch (Exception e) {
-                Log.e("GEMINI_SEND_ERROR", e.getMessage(), e);
-                runOnUiThread(() -> outputMessage.setText("Error: " + e.getMessage()));
+            @Override
+            public void onError(Exception e) {
+                runOnUiThread(() -> {
+                    if (stream == streamId) {
+                        outputMessage.setText("Error: " + e.getMessage());
+                    }
+                });
             }
         });
     }
+
+    private void cancelActiveStream() {
+        streamId++;
+        if (activeStream != null) {
+            activeStream.cancel();
+            activeStream = null;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        cancelActiveStream();
+    }
 }
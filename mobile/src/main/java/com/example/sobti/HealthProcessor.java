@@ -0,0 +1,136 @@
+package com.example.sobti;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.sobti.aws.HealthOutbox;
+import com.example.sobti.core.anomaly.AnomalyRule;
+import com.example.sobti.core.anomaly.PersonalBaseline;
+import com.example.sobti.core.location.LastFix;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.pipeline.HealthPipeline;
+import com.example.sobti.core.pipeline.HealthState;
+import com.example.sobti.core.pipeline.SnapshotStore;
+
+// Single writer for the phone's health state. Samples from the watch are
+// decoded, recorded and checked on one "health" thread, which owns the
+// HealthPipeline and publishes an immutable HealthState after each
+// delivery. The UI never touches the pipeline: it takes the newest snapshot
+// when signalled, so a burst of batches costs one render. Public methods
+// may be called from any thread.
+public class HealthProcessor {
+
+    private static final String TAG = "HealthProcessor";
+    private static final long RELEASE_WAIT_MS = 500L;
+
+    public interface Listener {
+        // Both called on the health thread
+        void onVitals(HealthState state);
+
+        void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value);
+    }
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final WatchSync watchSync;
+    private final SnapshotStore<HealthState> store;
+    private final HealthPipeline pipeline;
+    // Health thread
+    private HealthState state = HealthState.EMPTY;
+
+    public HealthProcessor(HealthOutbox outbox, WatchSync watchSync, Listener listener,
+                           SnapshotStore.Signal signal, int historyFlushEvery) {
+        this.watchSync = watchSync;
+        this.store = new SnapshotStore<>(HealthState.EMPTY, signal);
+        this.pipeline = new HealthPipeline(outbox::enqueue, new HealthPipeline.Listener() {
+            @Override
+            public void onLatest(long timestamp, int heartRate, int steps) {
+                state = state.withLatest(timestamp, heartRate, steps,
+                        pipeline.baseline().isOutOfRange(heartRate), pipeline.sampleCount());
+                store.publish(state);
+                listener.onVitals(state);
+            }
+
+            @Override
+            public void onAnomaly(AnomalyRule rule, long timestamp, int heartRate, double value) {
+                listener.onAnomaly(rule, timestamp, heartRate, value);
+            }
+        }, historyFlushEvery);
+        pipeline.setBatchTimer(MetricsRegistry.shared().timer("pipeline", "batch"));
+        thread = new HandlerThread("health", Process.THREAD_PRIORITY_DEFAULT);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public SnapshotStore<HealthState> store() {
+        return store;
+    }
+
+    public void setEmail(String email) {
+        handler.post(() -> pipeline.setEmail(email));
+    }
+
+    public void setBaseline(PersonalBaseline baseline) {
+        handler.post(() -> pipeline.setBaseline(baseline));
+    }
+
+    public void setLocation(String location) {
+        handler.post(() -> pipeline.setLocation(location));
+    }
+
+    public void setLocation(LastFix fix) {
+        handler.post(() -> pipeline.setLocation(fix));
+    }
+
+    public void onSample(long timestamp, int heartRate, int steps) {
+        handler.post(() -> pipeline.onSample(timestamp, heartRate, steps));
+    }
+
+    // The watermark is acknowledged once the samples are queued
+    public void onBatch(String nodeId, byte[] payload) {
+        onBatch(nodeId, payload, null);
+    }
+
+    // onConsumed runs on the health thread once the batch is queued for
+    // upload, or dropped as malformed
+    public void onBatch(String nodeId, byte[] payload, Runnable onConsumed) {
+        handler.post(() -> {
+            try {
+                pipeline.onBatch(nodeId == null ? null : watchSync.watermark(nodeId), payload);
+                if (nodeId != null) {
+                    watchSync.acknowledge(nodeId);
+                }
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Dropping malformed sample batch", e);
+            }
+            if (onConsumed != null) {
+                onConsumed.run();
+            }
+        });
+    }
+
+    public void onBackfillProgress(int samples) {
+        handler.post(() -> {
+            state = state.withBackfill(samples);
+            store.publish(state);
+        });
+    }
+
+    // Flushes buffered history and waits, briefly, for the thread to end, so
+    // the history reaches the outbox before the outbox is flushed or released
+    public void release() {
+        handler.post(() -> {
+            pipeline.flush();
+            Log.d(TAG, "Published " + store.publishedCount() + " states, signalled "
+                    + store.signalCount() + " renders");
+        });
+        thread.quitSafely();
+        try {
+            thread.join(RELEASE_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
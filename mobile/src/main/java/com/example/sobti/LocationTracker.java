@@ -0,0 +1,109 @@
+package com.example.sobti;
+
+import android.annotation.SuppressLint;
+import android.location.Location;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sobti.core.location.LastFix;
+import com.example.sobti.core.location.LocationPolicy;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.Priority;
+
+// Runs fused location updates at whatever the policy asks for: passive or
+// balanced fixes on long intervals while vitals are normal, fast
+// high-accuracy ones once an out-of-range reading or an anomaly arms it.
+// Each fix only lands in the LastFix; nothing is formatted until a message
+// or the screen reads it. Callbacks arrive on the main thread, which also
+// drives the policy.
+public class LocationTracker implements LocationPolicy.Listener {
+
+    private static final String TAG = "LocationTracker";
+
+    public interface FixListener {
+        // Called on the main thread
+        void onFix(LastFix fix);
+    }
+
+    private final FusedLocationProviderClient client;
+    private final LocationPolicy policy;
+    private final LastFix lastFix = new LastFix();
+    private final FixListener fixListener;
+    private boolean started;
+
+    private final LocationCallback callback = new LocationCallback() {
+        @Override
+        public void onLocationResult(LocationResult result) {
+            Location location = result.getLastLocation();
+            if (location == null) {
+                return;
+            }
+            lastFix.update(location.getLatitude(), location.getLongitude(),
+                    location.getAccuracy(), location.getTime());
+            policy.onFix();
+            fixListener.onFix(lastFix);
+        }
+    };
+
+    public LocationTracker(FusedLocationProviderClient client, long holdMs, long passiveAfterMs,
+                           FixListener fixListener) {
+        this.client = client;
+        this.fixListener = fixListener;
+        this.policy = new LocationPolicy(holdMs, passiveAfterMs, this);
+    }
+
+    public LastFix lastFix() {
+        return lastFix;
+    }
+
+    public LocationPolicy policy() {
+        return policy;
+    }
+
+    // The caller has checked the location permission
+    public void start() {
+        started = true;
+        request(policy.mode());
+    }
+
+    public void stop() {
+        started = false;
+        client.removeLocationUpdates(callback);
+    }
+
+    @Override
+    public void onModeChanged(LocationPolicy.Mode mode) {
+        Log.d(TAG, "Location mode " + mode);
+        if (started) {
+            request(mode);
+        }
+    }
+
+    // Re-requesting with the same callback replaces the running request
+    @SuppressLint("MissingPermission")
+    private void request(LocationPolicy.Mode mode) {
+        LocationRequest request = new LocationRequest.Builder(priority(mode), mode.intervalMs)
+                .setMinUpdateIntervalMillis(mode.minIntervalMs)
+                .build();
+        try {
+            client.requestLocationUpdates(request, callback, Looper.getMainLooper());
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission revoked", e);
+            started = false;
+        }
+    }
+
+    private static int priority(LocationPolicy.Mode mode) {
+        switch (mode) {
+            case PASSIVE:
+                return Priority.PRIORITY_PASSIVE;
+            case HIGH_ACCURACY:
+                return Priority.PRIORITY_HIGH_ACCURACY;
+            default:
+                return Priority.PRIORITY_BALANCED_POWER_ACCURACY;
+        }
+    }
+}
@@ -3,9 +3,13 @@ package com.example.sobti
 import android.Manifest
 import android.content.Intent
 import android.content.SharedPreferences
+import android.content.pm.ApplicationInfo
 import android.content.pm.PackageManager
 import android.os.Bundle
-import android.telephony.SmsManager
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import android.view.Choreographer
 import android.widget.Button
 import android.widget.TextView
 import android.widget.Toast
@@ -13,19 +17,45 @@ import androidx.appcompat.app.AppCompatActivity
 import androidx.core.app.ActivityCompat
 import com.example.sobti.aws.BedrockClient
 import com.example.sobti.aws.AWSConfig
-import com.example.sobti.aws.DynamoDBManager
-import com.example.sobti.aws.DynamoDBManager.GetUserCallback
-import com.example.sobti.aws.DynamoDBManager.UpdateCallback
-import com.example.sobti.aws.DynamoDBManager.UserData
+import com.example.sobti.aws.AlertOutbox
+import com.example.sobti.aws.HealthOutbox
+import com.example.sobti.aws.HttpStack
 import com.example.sobti.aws.SNSManager
+import com.example.sobti.aws.SnsSmsChannel
+import com.example.sobti.aws.UserProfiles
+import com.example.sobti.core.anomaly.AnomalyRule
+import com.example.sobti.core.anomaly.PersonalBaseline
+import com.example.sobti.core.dispatch.AppDispatcher
+import com.example.sobti.core.dispatch.WorkClass
+import com.example.sobti.core.emergency.AlertGate
+import com.example.sobti.core.emergency.ChannelPolicy
+import com.example.sobti.core.emergency.EmergencyAlert
+import com.example.sobti.core.emergency.EmergencyContacts
+import com.example.sobti.core.emergency.EmergencyDispatcher
+import com.example.sobti.core.emergency.EmergencyReport
+import com.example.sobti.core.emergency.QueuedAlert
+import com.example.sobti.core.insight.InsightScheduler
+import com.example.sobti.core.queue.OutboundRecord
+import com.example.sobti.core.pipeline.HealthState
+import com.example.sobti.core.pipeline.TraceRecorder
+import com.example.sobti.core.user.UserCache
+import com.example.sobti.core.user.UserData
 import com.google.android.gms.location.*
 import com.google.android.gms.wearable.DataClient
 import com.google.android.gms.wearable.DataEvent
 import com.google.android.gms.wearable.DataEventBuffer
 import com.google.android.gms.wearable.DataMapItem
+import com.google.android.gms.wearable.MessageClient
+import com.google.android.gms.wearable.MessageEvent
 import com.google.android.gms.wearable.Wearable
+import java.io.BufferedWriter
+import java.io.File
+import java.io.FileWriter
+import java.io.IOException
+import java.util.concurrent.RejectedExecutionException
 
-class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener {
+class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener,
+    MessageClient.OnMessageReceivedListener {
 
     private lateinit var tvHeartRate: TextView
     private lateinit var tvSteps: TextView
@@ -33,20 +63,32 @@ class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener {
     private lateinit var tvUserName: TextView
     private lateinit var tvStatus: TextView
 
-    private lateinit var dbManager: DynamoDBManager
+    private lateinit var outbox: HealthOutbox
+    private lateinit var alertOutbox: AlertOutbox
+    private lateinit var watchSync: WatchSync
+    private lateinit var processor: HealthProcessor
+    private var traceRecorder: TraceRecorder? = null
+    private lateinit var snsManager: SNSManager
     private lateinit var prefs: SharedPreferences
     private var userEmail: String? = null
     private var emergencyNumber: String? = null
 
-    private lateinit var fusedLocationClient: FusedLocationProviderClient
-    private var currentLocation: String = "Loading..."
+    // Read from the health thread when it builds a prompt
+    @Volatile
+    private var locationTracker: LocationTracker? = null
+    // Shown until the tracker has a fix of its own
+    @Volatile
+    private var profileLocation: String? = null
 
-    private var currentHeartRate = 0
-    private var previousHeartRate = 0
-    private var heartRateTrendCount = 0
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private lateinit var choreographer: Choreographer
+    private val frameCallback = Choreographer.FrameCallback { render() }
+    // Last snapshot drawn; only fields that differ from it are set
+    private var rendered: HealthState? = null
 
     // ✅ Bedrock Client
     private lateinit var bedrockClient: BedrockClient
+    private lateinit var insightScheduler: InsightScheduler
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -56,24 +98,86 @@ class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener {
         userEmail = prefs.getString("user_email", "")
 
         AWSConfig.initialize(this)
-        dbManager = DynamoDBManager(AWSConfig.getDDBClient())
+        snsManager = SNSManager()
+
+        outbox = HealthOutbox.get(this)
+        alertOutbox = AlertOutbox.get(this)
+        MetricsReporter.get(this)
+        watchSync = WatchSync(this, Wearable.getMessageClient(this), outbox)
+        watchSync.setUserEmail(userEmail)
+        // Watch data is processed on the health thread; the screen takes the
+        // newest snapshot at most once per frame
+        choreographer = Choreographer.getInstance()
+        processor = HealthProcessor(
+            outbox,
+            watchSync,
+            object : HealthProcessor.Listener {
+                override fun onVitals(state: HealthState) {
+                    mainHandler.post { locationTracker?.policy()?.onVitals(state.outOfRange) }
+                    Startup.mark(Startup.FIRST_VITAL)
+                    // ✅ AI analysis from Bedrock; the scheduler is thread-safe
+                    callBedrockForHealthSummary(state.heartRate, state.steps, locationText())
+                }
 
-        // ✅ Initialize Bedrock Titan Model
-        bedrockClient = BedrockClient(
-            "us-east-1",
-            "amazon.titan-text-express-v1"
+                override fun onAnomaly(rule: AnomalyRule, timestamp: Long, heartRate: Int, value: Double) {
+                    Log.w(TAG, "Anomaly ${rule.name()} at $heartRate bpm (value=$value)")
+                    // Relative rules also fire on exercise: they sharpen the
+                    // location and ask for an insight, but text no one
+                    mainHandler.post {
+                        locationTracker?.policy()?.onAnomaly()
+                        if (rule.isEmergency) {
+                            triggerEmergency(heartRate, reason = rule.name())
+                        } else {
+                            callBedrockForHealthSummary(heartRate, processor.store().get().steps, locationText())
+                        }
+                    }
+                }
+            },
+            { choreographer.postFrameCallback(frameCallback) },
+            HISTORY_FLUSH_EVERY
+        )
+        watchSync.setBackfillListener { samples, _ -> processor.onBackfillProgress(samples) }
+        processor.setEmail(userEmail)
+        traceRecorder = openTraceRecorder()
+
+        // ✅ Bedrock Titan Model; shared so the splash's pre-connect is reused
+        bedrockClient = AWSConfig.getBedrockClient()
+        insightScheduler = InsightScheduler(
+            { prompt ->
+                // Render tokens as they stream in; the scheduler caches the full text
+                val partial = StringBuilder()
+                bedrockClient.invokeTitanTextStream(prompt) { chunk ->
+                    partial.append(chunk)
+                    val text = partial.toString()
+                    runOnUiThread { tvStatus.text = "AI: $text" }
+                }
+            },
+            { heartRateLow, heartRateHigh, stepsBucket, location ->
+                """
+                    You are an AI assistant providing health insights.
+                    Analyze the following data and provide a short summary:
+                    Heart Rate: $heartRateLow-$heartRateHigh bpm
+                    Steps: about $stepsBucket
+                    Location: $location
+                """.trimIndent()
+            },
+            AppDispatcher.get().scheduler(WorkClass.AI),
+            INSIGHT_MIN_INTERVAL_MS,
+            INSIGHT_CACHE_SIZE,
+            INSIGHT_CACHE_TTL_MS
         )
 
         initViews()
         initPermissionsAndLocation()
         loadUserData()
         connectToWearable()
+        Startup.mark(Startup.MAIN_CREATED)
 
         val btnDummy = findViewById<Button>(R.id.btn_dummy_data)
         btnDummy.setOnClickListener {
-            sendSNSAlert()
-            sendSNSEmail()
-            callBedrockForHealthSummary(currentHeartRate, 0, currentLocation)
+            val heartRate = processor.store().get().heartRate
+            triggerEmergency(heartRate, "SOBTI ALERT (Dummy Trigger)", MANUAL_REASON, manual = true)
+            callBedrockForHealthSummary(heartRate, 0, locationText())
         }
 
         val btnAiBot = findViewById<Button>(R.id.btn_ai_bot)
@@ -81,6 +185,11 @@ class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener {
             startActivity(Intent(this, AIBotActivity::class.java))
         }
 
+        tvUserName.setOnLongClickListener {
+            startActivity(Intent(this, MetricsActivity::class.java))
+            true
+        }
+
 
     }
 
@@ -114,275 +223,321 @@ class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener {
         ActivityCompat.requestPermissions(this, permissions, PERMISSION_REQUEST_CODE)
     }
 
+    // Fix frequency and accuracy follow the vitals; see LocationPolicy
     private fun setupLocationTracking() {
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this)
-
+        if (locationTracker != null) return
         if (ActivityCompat.checkSelfPermission(
                 this,
                 Manifest.permission.ACCESS_FINE_LOCATION
             ) == PackageManager.PERMISSION_GRANTED
         ) {
-
-            val locationRequest = LocationRequest.Builder(
-                Priority.PRIORITY_HIGH_ACCURACY,
-                30000L
-            )
-                .setMinUpdateIntervalMillis(15000L)
-                .build()
-
-            fusedLocationClient.requestLocationUpdates(
-                locationRequest,
-                object : LocationCallback() {
-                    override fun onLocationResult(locationResult: LocationResult) {
-                        val location = locationResult.lastLocation
-                        location?.let {
-                            currentLocation = "%.6f, %.6f".format(it.latitude, it.longitude)
-                            updateLocationUI()
-                        }
-                    }
-                },
-                null
-            )
+            val tracker = LocationTracker(
+                LocationServices.getFusedLocationProviderClient(this),
+                LOCATION_HOLD_MS,
+                LOCATION_PASSIVE_AFTER_MS
+            ) { updateLocationUI() }
+            processor.setLocation(tracker.lastFix())
+            locationTracker = tracker
+            tracker.start()
         }
     }
 
+    // A cached profile applies before this returns; a fetched or changed
+    // one applies again when DynamoDB answers
     private fun loadUserData() {
-        dbManager.getUserData(userEmail, object : GetUserCallback {
-            override fun onSuccess(userData: UserData) {
-                runOnUiThread {
-                    tvUserName.text = "Welcome, ${userData.name}!"
-                    emergencyNumber = userData.emergencyNumber
+        UserProfiles.get(this).load(userEmail, object : UserCache.Listener {
+            override fun onUser(user: UserData?, fromCache: Boolean) {
+                if (user == null) {
+                    Toast.makeText(this@MainActivity, "No profile found for $userEmail", Toast.LENGTH_SHORT).show()
+                    return
+                }
+                tvUserName.text = "Welcome, ${user.name}!"
+                emergencyNumber = user.emergencyNumber
+                processor.setBaseline(PersonalBaseline.forAge(user.age))
 
-                    if (userData.lastHeartRate > 0) {
-                        tvHeartRate.text = "${userData.lastHeartRate} bpm"
-                    }
-                    if (userData.lastSteps > 0) {
-                        tvSteps.text = userData.lastSteps.toString()
-                    }
-                    userData.lastLocation?.let {
-                        currentLocation = it
-                        updateLocationUI()
-                    }
+                if (user.lastHeartRate > 0) {
+                    tvHeartRate.text = "${user.lastHeartRate} bpm"
+                }
+                if (user.lastSteps > 0) {
+                    tvSteps.text = user.lastSteps.toString()
+                }
+                user.lastLocation?.let {
+                    profileLocation = it
+                    processor.setLocation(it)
+                    updateLocationUI()
                 }
             }
 
             override fun onError(e: Exception) {
-                runOnUiThread {
-                    Toast.makeText(
-                        this@MainActivity,
-                        "Error loading user data: ${e.message}",
-                        Toast.LENGTH_SHORT
-                    ).show()
-                }
+                Toast.makeText(
+                    this@MainActivity,
+                    "Error loading user data: ${e.message}",
+                    Toast.LENGTH_SHORT
+                ).show()
             }
         })
     }
 
     private fun connectToWearable() {
         Wearable.getDataClient(this).addListener(this)
+        Wearable.getMessageClient(this).addListener(this)
         tvStatus.text = "Status: Connected to Watch"
     }
 
     override fun onDataChanged(dataEvents: DataEventBuffer) {
         for (event in dataEvents) {
             if (event.type == DataEvent.TYPE_CHANGED) {
-                if (event.dataItem.uri.path == WEAR_DATA_PATH) {
-                    val dataMap = DataMapItem.fromDataItem(event.dataItem).dataMap
-                    val heartRate = dataMap.getInt("heartRate", 0)
-                    val steps = dataMap.getInt("steps", 0)
-
-                    runOnUiThread { updateHealthData(heartRate, steps) }
+                val path = event.dataItem.uri.path ?: continue
+                when {
+                    path == WEAR_DATA_PATH -> {
+                        val dataMap = DataMapItem.fromDataItem(event.dataItem).dataMap
+                        val heartRate = dataMap.getInt("heartRate", 0)
+                        val steps = dataMap.getInt("steps", 0)
+
+                        val timestamp = dataMap.getLong("timestamp", System.currentTimeMillis())
+
+                        val arrival = System.currentTimeMillis()
+                        traceRecorder?.let { recorder ->
+                            record { recorder.recordSample(arrival, event.dataItem.uri.host, timestamp, heartRate, steps) }
+                        }
+                        processor.onSample(timestamp, heartRate, steps)
+                    }
+                    path.startsWith("$WEAR_BATCH_PATH/") -> {
+                        val uri = event.dataItem.uri
+                        val dataMap = DataMapItem.fromDataItem(event.dataItem).dataMap
+                        // The item's host is the watch that put it. Each batch
+                        // has an item of its own, deleted once the batch is
+                        // queued so the Data Layer stops holding it
+                        dataMap.getByteArray("batch")?.let { batch ->
+                            onSampleBatch(uri.host, batch) {
+                                Wearable.getDataClient(this).deleteDataItems(uri)
+                                    .addOnFailureListener { e -> Log.w(TAG, "Batch item delete failed", e) }
+                            }
+                        }
+                    }
                 }
             }
         }
     }
 
-    private fun updateHealthData(heartRate: Int, steps: Int) {
-        tvHeartRate.text = "$heartRate bpm"
-        tvSteps.text = steps.toString()
-
-        currentHeartRate = heartRate
-
-        checkHeartRateTrend(heartRate)
-
-        dbManager.updateHealthData(
-            userEmail, heartRate, steps, currentLocation,
-            object : UpdateCallback {
-                override fun onSuccess() {}
-                override fun onError(e: Exception?) {}
-            }
-        )
-
-        // ✅ AI analysis from Bedrock
-        callBedrockForHealthSummary(heartRate, steps, currentLocation)
+    override fun onMessageReceived(messageEvent: MessageEvent) {
+        when (messageEvent.path) {
+            WEAR_BATCH_PATH -> onSampleBatch(messageEvent.sourceNodeId, messageEvent.data)
+            WatchSync.BACKFILL_PATH -> watchSync.onBackfill(messageEvent.sourceNodeId, messageEvent.data)
+        }
     }
 
-    private fun checkHeartRateTrend(heartRate: Int) {
-        currentHeartRate = heartRate
+    // The health thread records and checks the samples; the watermark is
+    // acknowledged once they are queued.
+    private fun onSampleBatch(nodeId: String?, payload: ByteArray, onConsumed: Runnable? = null) {
+        val arrival = System.currentTimeMillis()
+        traceRecorder?.let { recorder -> record { recorder.recordBatch(arrival, nodeId, payload) } }
+        processor.onBatch(nodeId, payload, onConsumed)
+    }
 
-        if (currentHeartRate > previousHeartRate && currentHeartRate > HIGH_HR_THRESHOLD) {
-            heartRateTrendCount++
-        } else if (currentHeartRate < previousHeartRate && currentHeartRate < LOW_HR_THRESHOLD) {
-            heartRateTrendCount++
-        } else {
-            heartRateTrendCount = 0
+    // Debuggable builds record what the watch sends, for replay in the
+    // :loadtest harness. Pull the files from
+    // Android/data/<package>/files/traces.
+    private fun openTraceRecorder(): TraceRecorder? {
+        if (applicationInfo.flags and ApplicationInfo.FLAG_DEBUGGABLE == 0) {
+            return null
         }
-
-        if (heartRateTrendCount >= TREND_THRESHOLD) {
-            triggerEmergency(heartRate)
-            heartRateTrendCount = 0
+        return try {
+            val dir = File(getExternalFilesDir(null), "traces")
+            dir.mkdirs()
+            val file = File(dir, "trace-${System.currentTimeMillis()}.txt")
+            TraceRecorder(BufferedWriter(FileWriter(file)))
+        } catch (e: IOException) {
+            Log.w(TAG, "Cannot record trace", e)
+            null
         }
-
-        previousHeartRate = currentHeartRate
     }
 
-    private fun triggerEmergency(heartRate: Int) {
-        if (emergencyNumber.isNullOrEmpty()) return
-
-        val message =
-            "SOBTI ALERT!\nAbnormal heart rate detected: $heartRate bpm\nLocation: $currentLocation\nImmediate assistance needed!"
-
-        if (ActivityCompat.checkSelfPermission(
-                this,
-                Manifest.permission.SEND_SMS
-            ) == PackageManager.PERMISSION_GRANTED
-        ) {
-            try {
-                val smsManager = getSystemService(SmsManager::class.java)
-                smsManager.sendTextMessage(emergencyNumber, null, message, null, null)
-
-                runOnUiThread {
-                    tvStatus.text = "Status: Emergency SMS Sent!"
-                    tvStatus.setTextColor(getColor(android.R.color.holo_red_dark))
-                    Toast.makeText(this, "Emergency alert sent!", Toast.LENGTH_LONG).show()
+    private fun record(write: () -> Unit) {
+        try {
+            AppDispatcher.get().execute(WorkClass.BACKGROUND) {
+                try {
+                    write()
+                } catch (e: IOException) {
+                    Log.w(TAG, "Trace write failed", e)
                 }
-            } catch (e: Exception) {
-                e.printStackTrace()
             }
+        } catch (e: RejectedExecutionException) {
+            // Shutting down
         }
     }
 
-    // ✅ SNS SMS Sending
-    private fun sendSNSAlert() {
+    // Runs on a frame, however many snapshots were published since the last
+    // one, and only sets the views whose fields changed
+    private fun render() {
+        val state = processor.store().take()
+        val changed = state.changes(rendered)
+        rendered = state
+        if (state.hasReading()) {
+            if (changed and HealthState.HEART_RATE != 0) tvHeartRate.text = "${state.heartRate} bpm"
+            if (changed and HealthState.STEPS != 0) tvSteps.text = state.steps.toString()
+        }
+        if (changed and HealthState.BACKFILL != 0 && state.backfilled > 0) {
+            tvStatus.text = "Status: Synced ${state.backfilled} samples from watch backlog"
+        }
+    }
 
-        if (emergencyNumber.isNullOrEmpty()) {
-            Toast.makeText(this, "Emergency number not found!", Toast.LENGTH_SHORT).show()
+    // Fires every channel at once with the last known location; waiting for
+    // a fresh fix would only delay the alert. The gate holds back repeats
+    // of an alert that just went out and widens the circle of contacts
+    // while alerts keep coming. Topic subscribers, and contacts whose texts
+    // all failed, are reached through the alert outbox, which keeps
+    // retrying across restarts.
+    private fun triggerEmergency(
+        heartRate: Int,
+        headline: String = "SOBTI ALERT!",
+        reason: String = MANUAL_REASON,
+        manual: Boolean = false
+    ) {
+        // Before the profile listener has run, the stored copy still knows
+        val field = emergencyNumber ?: UserProfiles.get(this).peek(userEmail)?.emergencyNumber
+        val contacts = EmergencyContacts.parse(field)
+        if (contacts.isEmpty) {
+            runOnUiThread {
+                Toast.makeText(this, "Emergency number not found!", Toast.LENGTH_SHORT).show()
+            }
             return
         }
 
-        val message = "SOBTI ALERT (Dummy Trigger)\n" +
-                "Heart Rate: $currentHeartRate bpm\n" +
-                "Location: $currentLocation\n" +
-                "Immediate attention required!"
+        val decision = alertGate.check(userEmail.orEmpty(), reason, heartRate, manual)
+        if (!decision.send()) {
+            Log.i(TAG, "Alert $reason at $heartRate bpm held back: ${decision.outcome}")
+            return
+        }
 
-        val snsManager = SNSManager()
+        val escalation = if (decision.level > 0) " (escalated, level ${decision.level})" else ""
+        val location = locationText()
+        val fixAgeMs = locationTracker?.lastFix()?.ageMs(System.currentTimeMillis()) ?: -1L
+        val stale = if (fixAgeMs > STALE_FIX_MS) " (${fixAgeMs / 60_000L} min ago)" else ""
+        val message =
+            "$headline$escalation\nAbnormal heart rate detected: $heartRate bpm\nLocation: $location$stale\nImmediate assistance needed!"
+        val alert = EmergencyAlert(EMERGENCY_SUBJECT, message, heartRate, System.currentTimeMillis())
+        userEmail?.takeIf { it.isNotEmpty() }?.let {
+            outbox.enqueue(OutboundRecord.alert(it, alert.createdAt, heartRate, location, message), true)
+        }
+        if (SNS_TOPIC_ARN.isNotEmpty()) {
+            alertOutbox.enqueue(QueuedAlert.topic(SNS_TOPIC_ARN, EMERGENCY_SUBJECT, message, alert.createdAt))
+        }
 
-        Thread {
-            snsManager.sendSNSMessage(emergencyNumber!!, message, object : SNSManager.SNSCallback {
-                override fun onSuccess(messageId: String?) {
-                    runOnUiThread {
-                        tvStatus.text = "Status: SNS alert sent ✅"
-                        Toast.makeText(
-                            this@MainActivity,
-                            "SNS Message Sent Successfully!",
-                            Toast.LENGTH_LONG
-                        ).show()
-                    }
-                }
+        val dispatcher = EmergencyDispatcher(AppDispatcher.get().timer())
+        // Channel name -> the number it texts
+        val numbers = HashMap<String, String>()
+        contacts.forLevel(decision.level).forEachIndexed { i, number ->
+            numbers["sms-$i"] = number
+            numbers["sns-sms-$i"] = number
+            dispatcher
+                .addChannel(SmsAlertChannel(this, number, "sms-$i"), SMS_POLICY)
+                .addChannel(SnsSmsChannel(snsManager, number, "sns-sms-$i"), SNS_POLICY)
+        }
 
-                override fun onError(e: Exception) {
-                    runOnUiThread {
-                        tvStatus.text = "SNS Error ❌"
-                        Toast.makeText(
-                            this@MainActivity,
-                            "SNS Error: ${e.message}",
-                            Toast.LENGTH_LONG
-                        ).show()
-                    }
+        runOnUiThread { tvStatus.text = "Status: Sending emergency alert..." }
+        dispatcher.dispatch(alert, object : EmergencyDispatcher.Listener {
+            override fun onFirstDelivery(channel: String, elapsedMs: Long) {
+                runOnUiThread {
+                    tvStatus.text = "Status: Emergency alert sent via $channel ✅"
+                    tvStatus.setTextColor(getColor(android.R.color.holo_red_dark))
+                    Toast.makeText(this@MainActivity, "Emergency alert sent!", Toast.LENGTH_LONG).show()
                 }
-            })
-        }.start()
-    }
-
-    // ✅ SNS EMAIL
-    private fun sendSNSEmail() {
-
-        val topicArn = ""
-
-        val subject = "SOBTI Health Alert"
-
-        val messageEmail = """
-            SOBTI ALERT!
-            Abnormal heart rate detected: $currentHeartRate bpm
-            Location: $currentLocation
-            Immediate attention required!
-        """.trimIndent()
-
-        val snsManager = SNSManager()
+            }
 
-        Thread {
-            snsManager.sendEmailToTopic(topicArn, subject, messageEmail, object : SNSManager.SNSCallback {
-                override fun onSuccess(messageId: String?) {
-                    runOnUiThread {
-                        Toast.makeText(
-                            this@MainActivity,
-                            "Email Sent Successfully!",
-                            Toast.LENGTH_LONG
-                        ).show()
+            override fun onComplete(report: EmergencyReport) {
+                Log.i(TAG, report.toString())
+                val reached = HashSet<String>()
+                for (result in report.results) {
+                    if (result.delivered) {
+                        numbers[result.channel]?.let { reached.add(it) }
+                    } else {
+                        Log.w(TAG, "Emergency channel ${result.channel} failed", result.lastError)
                     }
                 }
-
-                override fun onError(e: Exception) {
+                // Keep trying any contact that no channel reached
+                for (number in numbers.values.toSet() - reached) {
+                    alertOutbox.enqueue(QueuedAlert.sms(number, message, alert.createdAt))
+                }
+                if (!report.anyDelivered()) {
                     runOnUiThread {
-                        Toast.makeText(
-                            this@MainActivity,
-                            "Error sending email: ${e.message}",
-                            Toast.LENGTH_LONG
-                        ).show()
+                        tvStatus.text = "Status: Emergency alert queued for retry ❌"
+                        Toast.makeText(this@MainActivity, "Emergency alert could not be sent yet, retrying", Toast.LENGTH_LONG).show()
                     }
                 }
-            })
-        }.start()
+            }
+        })
     }
 
     // ✅ BEDROCK AI CALL
+    // The scheduler only reaches Bedrock when the bucketed vitals change or
+    // the cached answer for them has expired.
     private fun callBedrockForHealthSummary(heartRate: Int, steps: Int, location: String) {
-        Thread {
-            try {
-                val prompt = """
-                    You are an AI assistant providing health insights.
-                    Analyze the following data and provide a short summary:
-                    Heart Rate: $heartRate bpm
-                    Steps: $steps
-                    Location: $location
-                """.trimIndent()
-
-                val response = bedrockClient.invokeTitanText(prompt)
-
+        insightScheduler.request(heartRate, steps, location, object : InsightScheduler.Listener {
+            override fun onInsight(insight: String, cached: Boolean) {
                 runOnUiThread {
-                    tvStatus.text = "AI: $response"
+                    tvStatus.text = "AI: $insight"
                 }
+            }
 
-            } catch (e: Exception) {
+            override fun onError(e: Exception) {
                 runOnUiThread {
-                    Toast.makeText(this, "Bedrock error: ${e.message}", Toast.LENGTH_LONG).show()
+                    Toast.makeText(this@MainActivity, "Bedrock error: ${e.message}", Toast.LENGTH_LONG).show()
                 }
             }
-        }.start()
+        })
     }
 
+    // Formats the fix only when something shows or sends it
+    private fun locationText(): String =
+        locationTracker?.lastFix()?.describe() ?: profileLocation ?: "Loading..."
+
     private fun updateLocationUI() {
-        tvLocation.text = currentLocation
+        tvLocation.text = locationText()
     }
 
     override fun onResume() {
         super.onResume()
         Wearable.getDataClient(this).addListener(this)
+        Wearable.getMessageClient(this).addListener(this)
     }
 
     override fun onPause() {
         super.onPause()
         Wearable.getDataClient(this).removeListener(this)
+        Wearable.getMessageClient(this).removeListener(this)
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        choreographer.removeFrameCallback(frameCallback)
+        processor.release()
+        traceRecorder?.let { recorder ->
+            record {
+                recorder.flush()
+                if (isFinishing) recorder.close()
+            }
+        }
+        outbox.flush()
+        insightScheduler.cancelPending()
+        locationTracker?.let {
+            it.stop()
+            val stats = it.policy().stats()
+            Log.d(TAG, "Location: $stats vs ${stats.fixesAtInterval(FIXED_LOCATION_INTERVAL_MS)} at a fixed interval")
+        }
+        locationTracker = null
+        Log.d(TAG, "Outbox: ${outbox.stats()}")
+        Log.d(TAG, "Alert outbox: ${alertOutbox.stats()} gate: ${alertGate.stats()}")
+        UserProfiles.get(this).logStats()
+        HttpStack.shared().stats().forEach { Log.d(TAG, "HTTP $it") }
+
+        // The outboxes and the dispatcher belong to the process, not to this
+        // screen: an emergency fan-out and the retries for contacts it missed
+        // must outlive it. Their queues are on disk, so if the process is
+        // killed, whatever was not sent replays on the next start.
+        if (isFinishing) {
+            MetricsReporter.release()
+        }
     }
 
     override fun onRequestPermissionsResult(
@@ -410,11 +565,37 @@ class MainActivity : AppCompatActivity(), DataClient.OnDataChangedListener {
     }
 
     companion object {
+        private const val TAG = "MainActivity"
         private const val PERMISSION_REQUEST_CODE = 100
         private const val WEAR_DATA_PATH = "/health_data"
-
-        private const val TREND_THRESHOLD = 3
-        private const val HIGH_HR_THRESHOLD = 120
-        private const val LOW_HR_THRESHOLD = 50
+        private const val WEAR_BATCH_PATH = "/health_batch"
+
+        private const val HISTORY_FLUSH_EVERY = 60
+
+        private const val INSIGHT_MIN_INTERVAL_MS = 60_000L
+        private const val INSIGHT_CACHE_SIZE = 32
+        private const val INSIGHT_CACHE_TTL_MS = 15 * 60_000L
+
+        private const val EMERGENCY_SUBJECT = "SOBTI Health Alert"
+        // Topic with the emergency contacts' email subscriptions; nothing is
+        // published to it until one is configured
+        private const val SNS_TOPIC_ARN = ""
+        private val SMS_POLICY = ChannelPolicy(15_000L, 2, 1_000L)
+        private val SNS_POLICY = ChannelPolicy(8_000L, 3, 500L)
+
+        // Fast fixes for two minutes after the last out-of-range reading;
+        // passive ones after half an hour of normal vitals
+        private const val LOCATION_HOLD_MS = 2 * 60_000L
+        private const val LOCATION_PASSIVE_AFTER_MS = 30 * 60_000L
+        // What the tracker used to request, for the fix-count comparison
+        private const val FIXED_LOCATION_INTERVAL_MS = 30_000L
+        // Alerts say how old a fix is past this
+        private const val STALE_FIX_MS = 2 * 60_000L
+
+        private const val MANUAL_REASON = "manual"
+        // Process-wide, so recreating the activity does not reopen the gate.
+        // One alert a minute at most, the same one once per ten minutes, and
+        // the episode ends after fifteen quiet minutes.
+        private val alertGate = AlertGate(60_000L, 10 * 60_000L, 15 * 60_000L, 10, 2)
     }
 }
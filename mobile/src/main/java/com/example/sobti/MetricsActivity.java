@@ -0,0 +1,55 @@
+package com.example.sobti;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.sobti.core.metrics.MetricsRegistry;
+
+// Hidden debug screen, opened by long-pressing the user name on the main
+// screen. Lists every timer's count, failures and p50/p99/p999 since the
+// process started, plus the counters, refreshed once a second while shown.
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final long REFRESH_MS = 1_000L;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refresh = this::refresh;
+    private TextView tvMetrics;
+    private String logDir;
+    private String shown;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        tvMetrics = findViewById(R.id.tvMetrics);
+        logDir = MetricsReporter.get(this).directory().getPath();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        handler.removeCallbacks(refresh);
+    }
+
+    private void refresh() {
+        MetricsRegistry.Report report = MetricsRegistry.shared().report();
+        String text = report.isEmpty() ? "No calls yet" : report.toString();
+        text += "\n\nLog: " + logDir;
+        if (!text.equals(shown)) {
+            shown = text;
+            tvMetrics.setText(text);
+        }
+        handler.postDelayed(refresh, REFRESH_MS);
+    }
+}
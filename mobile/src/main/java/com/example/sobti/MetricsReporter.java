@@ -0,0 +1,84 @@
+package com.example.sobti;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.metrics.MetricsLog;
+import com.example.sobti.core.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Writes what the metrics registry saw each minute to a rolling log in
+// files/metrics, on the BACKGROUND pool, so latency tails from the field
+// can be pulled off a device after the fact. The metrics screen reads the
+// registry itself and shows totals since the process started.
+public class MetricsReporter {
+
+    private static final String TAG = "MetricsReporter";
+    private static final long INTERVAL_MS = 60_000L;
+    // Four files of 256 KiB hold at least eight hours of busy minutes
+    private static final long FILE_BYTES = 256 * 1024;
+    private static final int KEEP_FILES = 3;
+
+    private static MetricsReporter instance;
+
+    public static synchronized MetricsReporter get(Context context) {
+        if (instance == null) {
+            instance = new MetricsReporter(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Writes a last entry. Call before the dispatcher is shut down.
+    public static synchronized void release() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private final File dir;
+    private final ScheduledExecutorService background;
+    private final ScheduledFuture<?> task;
+    // Only touched on the BACKGROUND thread
+    private MetricsLog log;
+
+    private MetricsReporter(Context context) {
+        dir = new File(context.getFilesDir(), "metrics");
+        background = AppDispatcher.get().scheduler(WorkClass.BACKGROUND);
+        background.execute(() -> {
+            try {
+                log = new MetricsLog(dir, FILE_BYTES, KEEP_FILES);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open metrics log", e);
+            }
+        });
+        task = background.scheduleWithFixedDelay(this::write, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public File directory() {
+        return dir;
+    }
+
+    private void write() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.append(System.currentTimeMillis(), MetricsRegistry.shared().report());
+        } catch (IOException e) {
+            Log.w(TAG, "Metrics log write failed", e);
+        }
+    }
+
+    private void close() {
+        task.cancel(false);
+        background.execute(this::write);
+    }
+}
@@ -12,7 +12,9 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.sobti.aws.AWSConfig;
 import com.example.sobti.aws.DynamoDBManager;
-import com.example.sobti.aws.DynamoDBManager.UserData;
+import com.example.sobti.aws.UserProfiles;
+import com.example.sobti.core.emergency.EmergencyContacts;
+import com.example.sobti.core.user.UserData;
 
 public class RegistrationActivity extends AppCompatActivity {
 
@@ -97,8 +99,12 @@ public class RegistrationActivity extends AppCompatActivity {
             return;
         }
 
-        if (TextUtils.isEmpty(emergencyNumber) || emergencyNumber.length() < 10) {
-            etEmergencyNumber.setError("Valid emergency number is required");
+        // Several contacts may be given, separated by commas; the first is primary
+        String invalidNumber = EmergencyContacts.firstInvalid(emergencyNumber);
+        if (invalidNumber != null) {
+            etEmergencyNumber.setError(invalidNumber.isEmpty()
+                    ? "Valid emergency number is required"
+                    : "Not a valid phone number: " + invalidNumber);
             etEmergencyNumber.requestFocus();
             return;
         }
@@ -113,34 +119,14 @@ public class RegistrationActivity extends AppCompatActivity {
 
     private void checkAndRegisterUser(final String email, final String name, final int age,
                                       final int height, final int weight, final String emergencyNumber) {
+        // A profile cached on this device means the account exists; otherwise
+        // one conditional put both checks and registers
+        if (UserProfiles.get(this).peek(email) != null) {
+            onExistingAccount(email);
+            return;
+        }
         showLoading(true);
-
-        dbManager.checkUserExists(email, new DynamoDBManager.UserCheckCallback() {
-            @Override
-            public void onResult(boolean exists, UserData userData) {
-                if (exists) {
-                    showLoading(false);
-                    Toast.makeText(RegistrationActivity.this,
-                            "Account already exists with this email. Syncing data...",
-                            Toast.LENGTH_LONG).show();
-
-                    // Save email to preferences and go to main activity
-                    prefs.edit().putString("user_email", email).apply();
-                    navigateToMain();
-                } else {
-                    // Register new user
-                    registerNewUser(email, name, age, height, weight, emergencyNumber);
-                }
-            }
-
-            @Override
-            public void onError(Exception e) {
-                showLoading(false);
-                Toast.makeText(RegistrationActivity.this,
-                        "Error checking user: " + e.getMessage(),
-                        Toast.LENGTH_LONG).show();
-            }
-        });
+        registerNewUser(email, name, age, height, weight, emergencyNumber);
     }
 
     private void registerNewUser(String email, String name, int age, int height, int weight, String emergencyNumber) {
@@ -152,9 +138,9 @@ public class RegistrationActivity extends AppCompatActivity {
         userData.weight = weight;
         userData.emergencyNumber = emergencyNumber;
 
-        dbManager.saveUser(userData, new DynamoDBManager.SaveUserCallback() {
+        dbManager.registerUser(userData, new DynamoDBManager.RegisterCallback() {
             @Override
-            public void onSuccess() {
+            public void onRegistered() {
                 showLoading(false);
                 Toast.makeText(RegistrationActivity.this,
                         "Registration successful!",
@@ -162,9 +148,16 @@ public class RegistrationActivity extends AppCompatActivity {
 
                 // Save email to preferences
                 prefs.edit().putString("user_email", email).apply();
+                UserProfiles.get(RegistrationActivity.this).put(userData);
                 navigateToMain();
             }
 
+            @Override
+            public void onExists() {
+                showLoading(false);
+                onExistingAccount(email);
+            }
+
             @Override
             public void onError(Exception e) {
                 showLoading(false);
@@ -175,6 +168,17 @@ public class RegistrationActivity extends AppCompatActivity {
         });
     }
 
+    // MainActivity loads the stored profile through the cache
+    private void onExistingAccount(String email) {
+        Toast.makeText(RegistrationActivity.this,
+                "Account already exists with this email. Syncing data...",
+                Toast.LENGTH_LONG).show();
+
+        // Save email to preferences and go to main activity
+        prefs.edit().putString("user_email", email).apply();
+        navigateToMain();
+    }
+
     private void navigateToMain() {
         Intent intent = new Intent(RegistrationActivity.this, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
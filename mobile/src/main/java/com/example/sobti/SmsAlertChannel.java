@@ -0,0 +1,101 @@
+package com.example.sobti;
+
+import android.Manifest;
+import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.telephony.SmsManager;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.sobti.core.emergency.AlertChannel;
+import com.example.sobti.core.emergency.EmergencyAlert;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends the alert over the phone's own radio. send() returns once every part
+// has been handed to the network, so the dispatcher's deadline covers the
+// radio and not just the API call. The wait is bounded on its own as well,
+// so a radio that never reports back can't pin the sending thread.
+public class SmsAlertChannel implements AlertChannel {
+
+    private static final long SENT_TIMEOUT_MS = 30_000L;
+
+    private static final String ACTION_SENT = "com.example.sobti.EMERGENCY_SMS_SENT";
+    private static final AtomicInteger REQUEST_CODES = new AtomicInteger();
+
+    private final Context context;
+    private final String phoneNumber;
+    private final String name;
+
+    public SmsAlertChannel(Context context, String phoneNumber) {
+        this(context, phoneNumber, "sms");
+    }
+
+    // name tells apart the channels of several contacts in the report
+    public SmsAlertChannel(Context context, String phoneNumber, String name) {
+        this.context = context.getApplicationContext();
+        this.phoneNumber = phoneNumber;
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void send(EmergencyAlert alert) throws Exception {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS)
+                != PackageManager.PERMISSION_GRANTED) {
+            throw new SecurityException("SEND_SMS permission not granted");
+        }
+
+        SmsManager smsManager = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                ? context.getSystemService(SmsManager.class)
+                : SmsManager.getDefault();
+        ArrayList<String> parts = smsManager.divideMessage(alert.message);
+
+        CountDownLatch sent = new CountDownLatch(parts.size());
+        AtomicInteger failure = new AtomicInteger(Activity.RESULT_OK);
+        String action = ACTION_SENT + "." + REQUEST_CODES.incrementAndGet();
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                if (getResultCode() != Activity.RESULT_OK) {
+                    failure.compareAndSet(Activity.RESULT_OK, getResultCode());
+                }
+                sent.countDown();
+            }
+        };
+        ContextCompat.registerReceiver(context, receiver, new IntentFilter(action),
+                ContextCompat.RECEIVER_NOT_EXPORTED);
+        try {
+            ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                Intent intent = new Intent(action).setPackage(context.getPackageName());
+                sentIntents.add(PendingIntent.getBroadcast(context, i, intent,
+                        PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+            }
+            smsManager.sendMultipartTextMessage(phoneNumber, null, parts, sentIntents, null);
+
+            if (!sent.await(SENT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException("SMS not reported sent after " + SENT_TIMEOUT_MS + "ms");
+            }
+            if (failure.get() != Activity.RESULT_OK) {
+                throw new IllegalStateException("SMS send failed with result " + failure.get());
+            }
+        } finally {
+            context.unregisterReceiver(receiver);
+        }
+    }
+}
@@ -4,26 +4,51 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.sobti.core.startup.WarmUp;
+
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY = 2000; // 2 seconds
+    // Upper bound on the splash. A slow network phase (Cognito, pre-connect)
+    // keeps running in the background; MainActivity does not depend on it.
+    private static final long MAX_SPLASH_MS = 1500;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable proceed = this::checkUserStatus;
+    // Held by Startup until the warm-up ends; removed in onDestroy
+    private final WarmUp.Listener warmedUp = trace -> handler.post(proceed);
+    private boolean navigated;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkUserStatus();
-            }
-        }, SPLASH_DELAY);
+        SharedPreferences prefs = getSharedPreferences("SobtiPrefs", MODE_PRIVATE);
+        String userEmail = prefs.getString("user_email", "");
+
+        // Move on as soon as the warm-up is done, or at the cap
+        handler.postDelayed(proceed, MAX_SPLASH_MS);
+        Startup.warmUp(this, userEmail, warmedUp);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        Startup.stopWaiting(warmedUp);
+        handler.removeCallbacks(proceed);
     }
 
     private void checkUserStatus() {
+        if (navigated || isFinishing() || isDestroyed()) {
+            return;
+        }
+        navigated = true;
+        handler.removeCallbacks(proceed);
+        Startup.mark(Startup.SPLASH_DONE);
+
         SharedPreferences prefs = getSharedPreferences("SobtiPrefs", MODE_PRIVATE);
         String userEmail = prefs.getString("user_email", "");
 
@@ -0,0 +1,104 @@
+package com.example.sobti;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.sobti.aws.AWSConfig;
+import com.example.sobti.aws.UserProfiles;
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.startup.StartupTrace;
+import com.example.sobti.core.startup.WarmUp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Cold-start work the splash screen overlaps instead of sleeping. Each
+// phase runs on the work class that owns its kind of work, so network,
+// disk and client setup proceed side by side. Timings are kept per
+// process, from process start, and logged once the first vital is shown.
+final class Startup {
+
+    private static final String TAG = "Startup";
+
+    static final String AWS_INIT = "aws_init";
+    static final String COGNITO = "cognito_prefetch";
+    static final String PRECONNECT = "bedrock_preconnect";
+    static final String PROFILE = "cached_profile";
+
+    static final String SPLASH_DONE = "splash_done";
+    static final String MAIN_CREATED = "main_created";
+    static final String FIRST_VITAL = "first_vital";
+
+    private static StartupTrace trace;
+    private static WarmUp warmUp;
+    private static final List<WarmUp.Listener> waiting = new ArrayList<>();
+
+    private Startup() {
+    }
+
+    static synchronized StartupTrace trace() {
+        if (trace == null) {
+            trace = new StartupTrace(Process.getStartUptimeMillis(), SystemClock::uptimeMillis);
+        }
+        return trace;
+    }
+
+    // Starts the warm-up once per process; a recreated splash just waits
+    // for the run already going. The listener may be called on any thread.
+    static synchronized void warmUp(Context context, String userEmail, WarmUp.Listener listener) {
+        if (warmUp != null) {
+            if (warmUp.isFinished()) {
+                listener.onFinished(trace);
+            } else {
+                waiting.add(listener);
+            }
+            return;
+        }
+        Context app = context.getApplicationContext();
+        warmUp = new WarmUp(trace())
+                .add(AWS_INIT, on(WorkClass.BACKGROUND), () -> AWSConfig.initialize(app))
+                .add(COGNITO, on(WorkClass.UPLOAD),
+                        () -> AWSConfig.getCredentialsProvider().getCredentials(), AWS_INIT)
+                .add(PRECONNECT, on(WorkClass.AI), () -> AWSConfig.getBedrockClient().preconnect());
+        if (!userEmail.isEmpty()) {
+            // Decodes the stored profile so MainActivity's first lookup is a
+            // memory hit; UserProfiles needs the DynamoDB client
+            warmUp.add(PROFILE, on(WorkClass.STORAGE), () -> UserProfiles.get(app).peek(userEmail), AWS_INIT);
+        }
+        waiting.add(listener);
+        warmUp.start(Startup::finished);
+    }
+
+    // For a splash destroyed before the warm-up ends, so it is not held
+    static synchronized void stopWaiting(WarmUp.Listener listener) {
+        waiting.remove(listener);
+    }
+
+    // Marks a milestone; the first vital also logs the whole start-up
+    static void mark(String milestone) {
+        StartupTrace t = trace();
+        if (t.mark(milestone) && FIRST_VITAL.equals(milestone)) {
+            Log.i(TAG, "Cold start: " + t.summary());
+        }
+    }
+
+    private static void finished(StartupTrace finished) {
+        Log.i(TAG, "Warm-up: " + finished.summary());
+        List<WarmUp.Listener> listeners;
+        synchronized (Startup.class) {
+            listeners = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        for (WarmUp.Listener listener : listeners) {
+            listener.onFinished(finished);
+        }
+    }
+
+    private static Executor on(WorkClass workClass) {
+        return command -> AppDispatcher.get().execute(workClass, command);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.sobti;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sobti.aws.HealthOutbox;
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.journal.SyncWatermark;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.timeseries.HistoryRecorder;
+import com.example.sobti.core.transport.SampleBatchCodec;
+import com.google.android.gms.wearable.MessageClient;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+// Phone end of the watch journal protocol. Tracks one SyncWatermark per
+// watch (persisted, so a restart doesn't acknowledge data it never got),
+// acknowledges it after samples are queued for upload, and absorbs backfill
+// chunks on the BACKGROUND pool. A multi-hour backlog only reaches the UI
+// thread as one progress callback per chunk.
+public class WatchSync {
+
+    private static final String TAG = "WatchSync";
+    public static final String BACKFILL_PATH = "/health_backfill";
+    public static final String ACK_PATH = "/health_ack";
+
+    private static final String PREFS = "WatchSync";
+
+    public interface BackfillListener {
+        // Called on the main thread
+        void onBackfillProgress(int samples, long watermark);
+    }
+
+    private final MessageClient messageClient;
+    private final SharedPreferences prefs;
+    private final HealthOutbox outbox;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, SyncWatermark> watermarks = new HashMap<>();
+    private volatile String userEmail;
+    private volatile BackfillListener backfillListener;
+
+    public WatchSync(Context context, MessageClient messageClient, HealthOutbox outbox) {
+        this.messageClient = messageClient;
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.outbox = outbox;
+    }
+
+    public void setUserEmail(String email) {
+        userEmail = email;
+    }
+
+    public void setBackfillListener(BackfillListener listener) {
+        backfillListener = listener;
+    }
+
+    public synchronized SyncWatermark watermark(String nodeId) {
+        SyncWatermark watermark = watermarks.get(nodeId);
+        if (watermark == null) {
+            watermark = new SyncWatermark(prefs.getLong(nodeId, SyncWatermark.UNKNOWN));
+            watermarks.put(nodeId, watermark);
+        }
+        return watermark;
+    }
+
+    // Persists and sends the watermark for nodeId
+    public void acknowledge(String nodeId) {
+        long watermark = watermark(nodeId).watermark();
+        if (watermark == SyncWatermark.UNKNOWN) {
+            return;
+        }
+        prefs.edit().putLong(nodeId, watermark).apply();
+        byte[] payload = ByteBuffer.allocate(8).putLong(watermark).array();
+        messageClient.sendMessage(nodeId, ACK_PATH, payload)
+                .addOnFailureListener(e -> Log.w(TAG, "Ack to " + nodeId + " failed", e));
+    }
+
+    public void onBackfill(String nodeId, byte[] payload) {
+        try {
+            AppDispatcher.get().execute(WorkClass.BACKGROUND, () -> absorb(nodeId, payload));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the watch keeps the chunk and resends it later
+        }
+    }
+
+    private void absorb(String nodeId, byte[] payload) {
+        String email = userEmail;
+        if (email == null || email.isEmpty()) {
+            // Don't acknowledge what can't be stored yet
+            return;
+        }
+        long firstSeq;
+        int count;
+        try {
+            // Decoded whole before the watermark moves, so a bad chunk is
+            // neither recorded nor acknowledged
+            count = SampleBatchCodec.validate(payload);
+            firstSeq = SampleBatchCodec.firstSeq(payload);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Dropping malformed backfill chunk", e);
+            return;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        SyncWatermark watermark = watermark(nodeId);
+        long recordFrom = watermark.accept(firstSeq, firstSeq + count - 1);
+        if (recordFrom >= 0) {
+            HistoryRecorder recorder = new HistoryRecorder((chunkStart, chunkEnd, n, chunk) ->
+                    outbox.enqueue(OutboundRecord.historyChunk(email, chunkStart, chunkEnd, n, chunk), false),
+                    HistoryRecorder.MAX_CHUNK_SAMPLES);
+            SampleBatchCodec.decode(payload, (seq, timestamp, heartRate, steps) -> {
+                if (seq >= recordFrom) {
+                    recorder.append(timestamp, heartRate, steps);
+                }
+            });
+            recorder.flush();
+        }
+        // Ack even a duplicate so the watch moves on to the next chunk
+        acknowledge(nodeId);
+
+        BackfillListener listener = backfillListener;
+        if (listener != null) {
+            long through = watermark.watermark();
+            mainHandler.post(() -> listener.onBackfillProgress(count, through));
+        }
+    }
+}
@@ -4,7 +4,6 @@ import android.content.Context;
 import com.amazonaws.auth.CognitoCachingCredentialsProvider;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
-import com.amazonaws.services.sns.AmazonSNSClient; // ✅ Added
 
 public class AWSConfig {
 
@@ -15,10 +14,17 @@ public class AWSConfig {
     private static CognitoCachingCredentialsProvider credentialsProvider;
     private static AmazonDynamoDBClient ddbClient;
 
-    // ✅ Added SNS client variable
-    private static AmazonSNSClient snsClient;
+    // SNS goes through the raw query API, which has PublishBatch
+    private static SnsPublisher snsPublisher;
 
-    public static void initialize(Context context) {
+    // Shared Bedrock client, so the connection the splash warms is the one
+    // MainActivity's insights use
+    private static final String BEDROCK_REGION = "us-east-1";
+    private static final String BEDROCK_MODEL = "amazon.titan-text-express-v1";
+    private static BedrockClient bedrockClient;
+
+    // Called from the splash warm-up thread and again from activities
+    public static synchronized void initialize(Context context) {
         if (credentialsProvider == null) {
             credentialsProvider = new CognitoCachingCredentialsProvider(
                     context.getApplicationContext(),
@@ -32,11 +38,16 @@ public class AWSConfig {
             ddbClient.setRegion(com.amazonaws.regions.Region.getRegion(REGION));
         }
 
-        // ✅ Initialize SNS Client
-        if (snsClient == null) {
-            snsClient = new AmazonSNSClient(credentialsProvider);
-            snsClient.setRegion(com.amazonaws.regions.Region.getRegion(REGION));
+        if (snsPublisher == null) {
+            snsPublisher = new SnsPublisher(REGION.getName(), credentialsProvider);
+        }
+    }
+
+    public static synchronized BedrockClient getBedrockClient() {
+        if (bedrockClient == null) {
+            bedrockClient = new BedrockClient(BEDROCK_REGION, BEDROCK_MODEL);
         }
+        return bedrockClient;
     }
 
     public static AmazonDynamoDBClient getDDBClient() {
@@ -47,8 +58,7 @@ public class AWSConfig {
         return credentialsProvider;
     }
 
-    // ✅ SNS client getter
-    public static AmazonSNSClient getSNSClient() {
-        return snsClient;
+    public static synchronized SnsPublisher getSnsPublisher() {
+        return snsPublisher;
     }
 }
@@ -0,0 +1,169 @@
+package com.example.sobti.aws;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.emergency.QueuedAlert;
+import com.example.sobti.core.queue.DurableQueue;
+import com.example.sobti.core.queue.UploadDrainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Retry queue for alerts that must still reach someone through SNS: topic
+// messages, and texts whose immediate delivery gave up. Alerts are synced
+// to disk before anything is sent and drained on the EMERGENCY pool right
+// away, then with exponential backoff while SNS or the network fails; a
+// process restart replays whatever is left. It lives as long as the process,
+// so retries go on after the screen that raised the alert is gone.
+public class AlertOutbox {
+
+    private static final String TAG = "AlertOutbox";
+    private static final long SEGMENT_BYTES = 64 * 1024;
+    private static final long MAX_BYTES = 1024 * 1024;
+    // Several topic batches per drain
+    private static final int BATCH_SIZE = 50;
+    private static final long MIN_BACKOFF_MS = 1_000L;
+    private static final long MAX_BACKOFF_MS = 2 * 60_000L;
+
+    private static final long CLOSE_WAIT_MS = 10_000L;
+
+    private static AlertOutbox instance;
+
+    public static synchronized AlertOutbox get(Context context) {
+        if (instance == null) {
+            instance = new AlertOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Stops the drainer, waits for an upload in flight and closes the queue
+    // once queued appends have run. Blocks until then, for at most about
+    // twice CLOSE_WAIT_MS, so a later get() never opens the directory while
+    // this instance still uses it. Call before the dispatcher is shut down.
+    public static synchronized void release() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private final ScheduledExecutorService storage;
+    private final ConnectivityManager connectivity;
+    private final ConnectivityManager.NetworkCallback networkCallback;
+    private final AlertUploader uploader;
+    // Only touched on the STORAGE thread
+    private DurableQueue queue;
+    private volatile UploadDrainer drainer;
+
+    private AlertOutbox(Context context) {
+        storage = AppDispatcher.get().scheduler(WorkClass.STORAGE);
+        File dir = new File(context.getFilesDir(), "alert-outbox");
+        uploader = new AlertUploader(AWSConfig.getSnsPublisher());
+
+        storage.execute(() -> {
+            try {
+                queue = new DurableQueue(dir, SEGMENT_BYTES, MAX_BYTES);
+                UploadDrainer d = new UploadDrainer(queue, uploader,
+                        AppDispatcher.get().scheduler(WorkClass.EMERGENCY),
+                        BATCH_SIZE, 0, MIN_BACKOFF_MS, MAX_BACKOFF_MS);
+                d.setErrorListener((e, retryInMs) ->
+                        Log.w(TAG, "Alert publish failed, retrying in " + retryInMs + "ms", e));
+                drainer = d;
+                if (queue.size() > 0) {
+                    Log.i(TAG, "Replaying " + queue.size() + " queued alerts");
+                    d.schedule(true);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open alert outbox", e);
+            }
+        });
+
+        connectivity = context.getSystemService(ConnectivityManager.class);
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                UploadDrainer d = drainer;
+                if (d != null) {
+                    d.onConnectivityRestored();
+                }
+            }
+        };
+        connectivity.registerDefaultNetworkCallback(networkCallback);
+    }
+
+    public void enqueue(QueuedAlert alert) {
+        try {
+            storage.execute(() -> {
+                if (queue == null) {
+                    Log.w(TAG, "Alert outbox unavailable, dropping alert");
+                    return;
+                }
+                try {
+                    queue.append(alert.encode());
+                    queue.sync();
+                    drainer.schedule(true);
+                } catch (IOException e) {
+                    Log.e(TAG, "Alert outbox append failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Alert outbox saturated, dropping alert", e);
+        }
+    }
+
+    public String stats() {
+        UploadDrainer d = drainer;
+        return d == null ? "not open"
+                : uploader.stats() + " failures=" + d.failureCount() + " backoffMs=" + d.backoffMs();
+    }
+
+    private void close() {
+        try {
+            connectivity.unregisterNetworkCallback(networkCallback);
+        } catch (IllegalArgumentException e) {
+            // Never registered
+        }
+        Future<?> closed;
+        try {
+            closed = storage.submit(() -> {
+                try {
+                    UploadDrainer d = drainer;
+                    if (d != null && !d.stop(CLOSE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                        // Closing under a running upload would corrupt the queue
+                        Log.w(TAG, "Upload still running, leaving the queue open");
+                        return;
+                    }
+                    if (queue != null) {
+                        queue.close();
+                        queue = null;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    Log.w(TAG, "Alert outbox close failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Dispatcher already shut down, alert outbox not closed", e);
+            return;
+        }
+        try {
+            closed.get(2 * CLOSE_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(TAG, "Alert outbox close did not finish", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.sobti.aws;
+
+import android.util.Log;
+
+import com.example.sobti.core.aws.SnsQuery;
+import com.example.sobti.core.emergency.QueuedAlert;
+import com.example.sobti.core.queue.UploadDrainer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Publishes a batch from the alert retry queue. Topic messages go out in
+// PublishBatch calls of up to ten per topic; texts go one Publish each,
+// since SNS cannot batch them. One failed alert does not hold up the rest:
+// everything is tried, then the batch fails if any alert should be
+// retried. Alerts that went out are remembered so the replay skips them;
+// ones SNS rejects as malformed are dropped.
+public class AlertUploader implements UploadDrainer.Uploader {
+
+    private static final String TAG = "AlertUploader";
+    private static final int REMEMBERED = 256;
+
+    private final SnsPublisher publisher;
+    // Ids of alerts already published, oldest first
+    private final Map<String, Boolean> done = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > REMEMBERED;
+        }
+    };
+    private long published;
+    private long batches;
+    private long dropped;
+
+    public AlertUploader(SnsPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void upload(List<byte[]> batch) throws Exception {
+        Map<String, List<QueuedAlert>> topics = new LinkedHashMap<>();
+        IOException retry = null;
+        for (byte[] raw : batch) {
+            QueuedAlert alert;
+            try {
+                alert = QueuedAlert.decode(raw);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Dropping unreadable queued alert", e);
+                continue;
+            }
+            if (isDone(alert.id)) {
+                continue;
+            }
+            if (alert.type == QueuedAlert.TYPE_TOPIC) {
+                topics.computeIfAbsent(alert.target, t -> new ArrayList<>()).add(alert);
+                continue;
+            }
+            try {
+                publisher.publishToPhone(alert.target, alert.message);
+                markDone(alert.id, false);
+            } catch (SnsPublisher.SnsException e) {
+                if (!e.senderFault) {
+                    retry = e;
+                } else {
+                    Log.w(TAG, "SNS rejected text to contact, dropping", e);
+                    markDone(alert.id, true);
+                }
+            } catch (IOException e) {
+                retry = e;
+            }
+        }
+
+        for (Map.Entry<String, List<QueuedAlert>> topic : topics.entrySet()) {
+            List<QueuedAlert> alerts = topic.getValue();
+            for (int start = 0; start < alerts.size(); start += SnsQuery.MAX_BATCH_ENTRIES) {
+                List<QueuedAlert> chunk = alerts.subList(start,
+                        Math.min(alerts.size(), start + SnsQuery.MAX_BATCH_ENTRIES));
+                try {
+                    publishChunk(topic.getKey(), chunk);
+                } catch (SnsPublisher.SnsException e) {
+                    if (!e.senderFault) {
+                        retry = e;
+                    } else {
+                        Log.w(TAG, "SNS rejected topic batch, dropping " + chunk.size(), e);
+                        for (QueuedAlert alert : chunk) {
+                            markDone(alert.id, true);
+                        }
+                    }
+                } catch (IOException e) {
+                    retry = e;
+                }
+            }
+        }
+        if (retry != null) {
+            throw retry;
+        }
+    }
+
+    public synchronized String stats() {
+        return "published=" + published + " batches=" + batches + " dropped=" + dropped;
+    }
+
+    private void publishChunk(String topicArn, List<QueuedAlert> chunk) throws IOException {
+        // Entry ids only need to be unique within the call
+        List<SnsQuery.Entry> entries = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            QueuedAlert alert = chunk.get(i);
+            entries.add(new SnsQuery.Entry(Integer.toString(i), alert.subject, alert.message));
+        }
+        SnsQuery.BatchResult result = publisher.publishBatch(topicArn, entries);
+        synchronized (this) {
+            batches++;
+        }
+
+        IOException retry = null;
+        for (int i = 0; i < chunk.size(); i++) {
+            QueuedAlert alert = chunk.get(i);
+            SnsQuery.Failure failure = result.failed.get(Integer.toString(i));
+            if (failure == null) {
+                markDone(alert.id, false);
+            } else if (failure.senderFault) {
+                Log.w(TAG, "SNS rejected topic alert: " + failure.code + " " + failure.message);
+                markDone(alert.id, true);
+            } else {
+                retry = new IOException("PublishBatch entry failed: " + failure.code + " " + failure.message);
+            }
+        }
+        if (retry != null) {
+            throw retry;
+        }
+    }
+
+    private synchronized boolean isDone(String id) {
+        return done.containsKey(id);
+    }
+
+    private synchronized void markDone(String id, boolean rejected) {
+        done.put(id, Boolean.TRUE);
+        if (rejected) {
+            dropped++;
+        } else {
+            published++;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.sobti.aws;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.example.sobti.core.mapping.ItemReader;
+import com.example.sobti.core.mapping.ItemWriter;
+
+import java.util.Map;
+
+// Item mapper views over the SDK's item maps, also used for
+// expression attribute values
+final class AttributeItem implements ItemReader, ItemWriter {
+
+    private final Map<String, AttributeValue> item;
+
+    AttributeItem(Map<String, AttributeValue> item) {
+        this.item = item;
+    }
+
+    @Override
+    public String string(String name) {
+        AttributeValue value = item.get(name);
+        return value == null ? null : value.getS();
+    }
+
+    @Override
+    public String number(String name) {
+        AttributeValue value = item.get(name);
+        return value == null ? null : value.getN();
+    }
+
+    @Override
+    public void putString(String name, String value) {
+        item.put(name, new AttributeValue().withS(value));
+    }
+
+    @Override
+    public void putNumber(String name, long value) {
+        item.put(name, new AttributeValue().withN(String.valueOf(value)));
+    }
+}
@@ -1,128 +1,116 @@
 package com.example.sobti.aws;
 
+import com.example.sobti.core.aws.EventStreamDecoder;
+import com.example.sobti.core.aws.SigV4Signer;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
-
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
 
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
-import okhttp3.RequestBody;
 import okhttp3.Response;
 
 public class BedrockClient {
 
-    private final String region;
-    private final String modelId;
+    private static final String SERVICE = "bedrock";
+    private static final String CONTENT_TYPE = "application/json";
+    private static final MediaType JSON = MediaType.parse(CONTENT_TYPE);
+    // Whole answers, and for streams also the wait for the first text
+    private static final Timer INVOKE = MetricsRegistry.shared().timer("bedrock", "invoke");
+    private static final Timer STREAM = MetricsRegistry.shared().timer("bedrock", "stream");
+    private static final Timer FIRST_CHUNK = MetricsRegistry.shared().timer("bedrock", "stream.firstChunk");
+
+    private final HttpStack.Endpoint endpoint;
+    private final String invokePath;
+    private final String streamPath;
+    private final SigV4Signer signer;
     private final OkHttpClient http;
     private final Gson gson;
 
-    public BedrockClient(String region, String modelId) {
-        this.region = region;
-        this.modelId = modelId;
-        this.http = new OkHttpClient();
-        this.gson = new Gson();
+    public interface ChunkListener {
+        void onChunk(String text);
     }
 
-    public String invokeTitanText(String prompt) throws Exception {
-
-        // ------- Build Titan Request JSON -------
-        JsonObject payload = new JsonObject();
-        payload.addProperty("inputText", prompt);
-
-        JsonObject cfg = new JsonObject();
-        cfg.addProperty("maxTokenCount", 256);
-        cfg.addProperty("temperature", 0.7);
-        cfg.addProperty("topP", 1);
-
-        JsonArray stopSequences = new JsonArray();
-        cfg.add("stopSequences", stopSequences);
-
-        payload.add("textGenerationConfig", cfg);
-
-        String requestBody = gson.toJson(payload).trim();
-
-        // ------- Endpoint -------
-        String host = "bedrock-runtime." + region + ".amazonaws.com";
-        String url = "https://" + host + "/model/" + modelId + "/invoke";
-
-        // ------- Timestamp -------
-        String amzDate = getAmzDate();                 // YYYYMMDD'T'HHMMSS'Z'
-        String dateStamp = amzDate.substring(0, 8);    // YYYYMMDD
-
-        // ------- Payload Hash -------
-        String payloadHash = sha256Hex(requestBody);
-
-        // ------- Canonical Request -------
-        String canonicalRequest =
-                "POST\n" +
-                        "/model/" + modelId + "/invoke\n" +
-                        "\n" +
-                        "content-type:application/json\n" +
-                        "host:" + host + "\n" +
-                        "x-amz-date:" + amzDate + "\n" +
-                        "\n" +
-                        "content-type;host;x-amz-date\n" +
-                        payloadHash;
+    public BedrockClient(String region, String modelId) {
+        this(region, modelId, "https://bedrock-runtime." + region + ".amazonaws.com");
+    }
 
-        // Debug (Optional)
-        System.out.println("CANONICAL REQUEST:\n" + canonicalRequest);
+    // baseUrl override lets tests point the client at a local server
+    BedrockClient(String region, String modelId, String baseUrl) {
+        this(region, modelId, HttpStack.shared().endpoint("bedrock-" + region, baseUrl, false));
+    }
 
-        // ------- String to Sign -------
-        String service = "bedrock";
-        String credentialScope = dateStamp + "/" + region + "/" + service + "/aws4_request";
+    // Bedrock's InvokeModel does not take Content-Encoding: gzip, so request
+    // bodies go uncompressed; responses are gzip-negotiated by OkHttp.
+    BedrockClient(String region, String modelId, HttpStack.Endpoint endpoint) {
+        this.endpoint = endpoint;
+        String baseUrl = endpoint.baseUrl;
+        this.invokePath = "/model/" + modelId + "/invoke";
+        this.streamPath = "/model/" + modelId + "/invoke-with-response-stream";
+        HttpUrl url = HttpUrl.get(baseUrl);
+        String host = url.port() == HttpUrl.defaultPort(url.scheme())
+                ? url.host() : url.host() + ":" + url.port();
+        this.signer = new SigV4Signer(host, region, SERVICE, CONTENT_TYPE);
+        this.http = endpoint.client();
+        this.gson = new Gson();
+    }
 
-        String stringToSign =
-                "AWS4-HMAC-SHA256\n" +
-                        amzDate + "\n" +
-                        credentialScope + "\n" +
-                        sha256Hex(canonicalRequest);
+    // Opens and keeps a pooled connection (DNS, TCP, TLS) to the endpoint so
+    // the first insight does not pay for it. Blocking; any status will do.
+    public void preconnect() throws IOException {
+        Request request = new Request.Builder().url(endpoint.baseUrl).head().build();
+        try (Response ignored = http.newCall(request).execute()) {
+            // Closing returns the connection to the pool
+        }
+    }
 
-        System.out.println("STRING TO SIGN:\n" + stringToSign);
+    public String invokeTitanText(String prompt) throws Exception {
+        long start = Timer.start();
+        try {
+            String text = invoke(prompt);
+            INVOKE.stop(start);
+            return text;
+        } catch (Exception e) {
+            INVOKE.failed(start);
+            throw e;
+        }
+    }
 
-        // ------- Signing Key -------
-        byte[] signingKey = getSignatureKey(
-                AwsCredentialsProvider.getSecretAccessKey(),
-                dateStamp,
-                region,
-                service
-        );
+    // Streams the completion. Each text chunk is passed to the listener on the
+    // calling thread as soon as its frame is decoded; the full text is returned.
+    public String invokeTitanTextStream(String prompt, ChunkListener listener) throws Exception {
+        long start = Timer.start();
+        boolean[] first = {true};
+        try {
+            String text = stream(prompt, chunk -> {
+                if (first[0]) {
+                    first[0] = false;
+                    FIRST_CHUNK.stop(start);
+                }
+                listener.onChunk(chunk);
+            });
+            STREAM.stop(start);
+            return text;
+        } catch (Exception e) {
+            STREAM.failed(start);
+            throw e;
+        }
+    }
 
-        // ------- Signature -------
-        String signature = hmacHex(signingKey, stringToSign);
-
-        // ------- Authorization Header -------
-        String authorizationHeader =
-                "AWS4-HMAC-SHA256 " +
-                        "Credential=" + AwsCredentialsProvider.getAccessKeyId() + "/" + credentialScope +
-                        ", SignedHeaders=content-type;host;x-amz-date" +
-                        ", Signature=" + signature;
-
-        // ------- HTTP Request -------
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("Host", host)
-                .addHeader("Content-Type", "application/json")
-                .addHeader("X-Amz-Date", amzDate)
-                .addHeader("Authorization", authorizationHeader)
-                .post(RequestBody.create(requestBody, MediaType.parse("application/json")))
-                .build();
-
-        // ------- Execute -------
-        try (Response response = http.newCall(request).execute()) {
+    private String invoke(String prompt) throws Exception {
+        try (Response response = http.newCall(buildRequest(invokePath, titanBody(prompt))).execute()) {
             String body = response.body().string();
 
             if (!response.isSuccessful()) {
@@ -135,47 +123,107 @@ public class BedrockClient {
         }
     }
 
-    // ==========================
-    // Helpers
-    // ==========================
+    private String stream(String prompt, ChunkListener listener) throws Exception {
+        try (Response response = http.newCall(buildRequest(streamPath, titanBody(prompt))).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP error " + response.code() + ": " + response.body().string());
+            }
 
-    private static String getAmzDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'", Locale.US);
-        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return sdf.format(new Date());
+            StringBuilder fullText = new StringBuilder();
+            EventStreamDecoder decoder = new EventStreamDecoder(message -> {
+                String messageType = message.header(":message-type");
+                if (!"event".equals(messageType)) {
+                    String type = message.header(":exception-type");
+                    if (type == null) {
+                        type = message.header(":error-code");
+                    }
+                    throw new IOException("Bedrock stream " + type + ": "
+                            + new String(message.payload, StandardCharsets.UTF_8));
+                }
+                if (!"chunk".equals(message.header(":event-type"))) {
+                    return;
+                }
+                String text = parseChunkText(message.payload);
+                if (text != null && !text.isEmpty()) {
+                    fullText.append(text);
+                    listener.onChunk(text);
+                }
+            });
+
+            byte[] buffer = new byte[8192];
+            try (InputStream in = response.body().byteStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    decoder.feed(buffer, 0, read);
+                }
+            }
+            if (!decoder.isIdle()) {
+                throw new IOException("Bedrock stream ended mid-frame");
+            }
+            return fullText.toString();
+        }
     }
 
-    private static String sha256Hex(String data) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        byte[] hash = md.digest(data.getBytes(StandardCharsets.UTF_8));
-        return bytesToHex(hash);
+    // A chunk event carries {"bytes": base64(model JSON)}
+    private String parseChunkText(byte[] payload) {
+        JsonObject event = gson.fromJson(new String(payload, StandardCharsets.UTF_8), JsonObject.class);
+        if (event == null || !event.has("bytes")) {
+            return null;
+        }
+        byte[] modelJson = Base64.getDecoder().decode(event.get("bytes").getAsString());
+        JsonObject chunk = gson.fromJson(new String(modelJson, StandardCharsets.UTF_8), JsonObject.class);
+        return chunk.has("outputText") ? chunk.get("outputText").getAsString() : null;
     }
 
-    private static byte[] HmacSHA256(byte[] key, String data)
-            throws NoSuchAlgorithmException, InvalidKeyException {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(new SecretKeySpec(key, "HmacSHA256"));
-        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-    }
+    private byte[] titanBody(String prompt) {
+        // ------- Build Titan Request JSON -------
+        JsonObject payload = new JsonObject();
+        payload.addProperty("inputText", prompt);
 
-    private static String hmacHex(byte[] key, String msg) throws Exception {
-        return bytesToHex(HmacSHA256(key, msg));
-    }
+        JsonObject cfg = new JsonObject();
+        cfg.addProperty("maxTokenCount", 256);
+        cfg.addProperty("temperature", 0.7);
+        cfg.addProperty("topP", 1);
 
-    private static byte[] getSignatureKey(String secretKey, String date, String region, String service)
-            throws Exception {
-        byte[] kSecret = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
-        byte[] kDate = HmacSHA256(kSecret, date);
-        byte[] kRegion = HmacSHA256(kDate, region);
-        byte[] kService = HmacSHA256(kRegion, service);
-        return HmacSHA256(kService, "aws4_request");
+        JsonArray stopSequences = new JsonArray();
+        cfg.add("stopSequences", stopSequences);
+
+        payload.add("textGenerationConfig", cfg);
+
+        // Serialized straight to UTF-8 bytes; the same bytes are hashed and sent
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            gson.toJson(payload, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
     }
 
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    private Request buildRequest(String path, byte[] requestBody) throws IOException {
+        HttpStack.Payload payload = endpoint.payload(requestBody);
+        SigV4Signer.Signature signature = signer.sign(
+                "POST",
+                path,
+                "",
+                payload.bytes,
+                System.currentTimeMillis(),
+                AwsCredentialsProvider.getAccessKeyId(),
+                AwsCredentialsProvider.getSecretAccessKey(),
+                AwsCredentialsProvider.getSessionToken()
+        );
+
+        Request.Builder builder = endpoint.post(path, payload, JSON)
+                .addHeader("Content-Type", CONTENT_TYPE)
+                .addHeader("X-Amz-Date", signature.amzDate)
+                .addHeader("Authorization", signature.authorization);
+        if (signature.securityToken != null) {
+            builder.addHeader("X-Amz-Security-Token", signature.securityToken);
         }
-        return sb.toString();
+        return builder.build();
+    }
+
+    public HttpStack.Stats stats() {
+        return endpoint.stats();
     }
 }
@@ -4,99 +4,144 @@ import android.os.Handler;
 import android.os.Looper;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.emergency.SentAlert;
+import com.example.sobti.core.emergency.SentAlertMapper;
+import com.example.sobti.core.metrics.Counter;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.timeseries.HistoryRecorder;
+import com.example.sobti.core.timeseries.SampleChunkDecoder;
+import com.example.sobti.core.timeseries.SampleSeries;
+import com.example.sobti.core.user.HealthWriteTracker;
+import com.example.sobti.core.user.UserData;
+import com.example.sobti.core.user.UserDataMapper;
+import com.example.sobti.core.user.UserItemMapper;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class DynamoDBManager {
 
-    private static final String TABLE_NAME = "SobtiUsers";
+    private static final String TABLE_NAME = UserItemMapper.TABLE;
+    // Partition key "email" (S), sort key "chunkStart" (N)
+    private static final String HISTORY_TABLE_NAME = "SobtiHealthHistory";
+    // Partition key "email" (S), sort key "timestamp" (N)
+    private static final String ALERTS_TABLE_NAME = SentAlertMapper.TABLE;
+    private static final int BATCH_WRITE_LIMIT = 25;
+    private static final int BATCH_WRITE_ATTEMPTS = 4;
+    // Lets a UserData item be created only once, by whoever registers first
+    private static final String USER_ABSENT = "attribute_not_exists(" + UserItemMapper.EMAIL + ")";
+    // What the user item holds is the same whichever manager wrote it
+    private static final HealthWriteTracker HEALTH_WRITES = new HealthWriteTracker();
+
+    // One timer per request the app makes; a rejected conditional put is an
+    // answer, not a failure
+    private static final Timer PUT_USER = MetricsRegistry.shared().timer("dynamodb", "putUser");
+    private static final Timer GET_USER = MetricsRegistry.shared().timer("dynamodb", "getUser");
+    private static final Timer GET_USER_VERSION = MetricsRegistry.shared().timer("dynamodb", "getUserVersion");
+    private static final Timer UPDATE_HEALTH = MetricsRegistry.shared().timer("dynamodb", "updateHealth");
+    private static final Timer PUT_HISTORY = MetricsRegistry.shared().timer("dynamodb", "putHistory");
+    private static final Timer QUERY_HISTORY = MetricsRegistry.shared().timer("dynamodb", "queryHistory");
+    private static final Timer WRITE_ALERTS = MetricsRegistry.shared().timer("dynamodb", "batchWriteAlerts");
+    private static final Counter ALERT_RETRIES = MetricsRegistry.shared().counter("dynamodb", "batchWriteAlerts.retry");
+
     private final AmazonDynamoDBClient ddbClient;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private double consumedReadUnits;
+    private double consumedWriteUnits;
 
     public DynamoDBManager(AmazonDynamoDBClient client) {
         this.ddbClient = client;
     }
 
-    // Check if user exists
-    public void checkUserExists(String email, UserCheckCallback callback) {
-        executor.execute(() -> {
+    // Creates the user unless the email is taken, in one conditional put
+    // instead of a read followed by a write
+    public void registerUser(UserData userData, RegisterCallback callback) {
+        AppDispatcher.get().execute(WorkClass.STORAGE, () -> {
             try {
-                HashMap<String, AttributeValue> key = new HashMap<>();
-                key.put("email", new AttributeValue().withS(email));
-
-                GetItemRequest request = new GetItemRequest()
-                        .withTableName(TABLE_NAME)
-                        .withKey(key);
-
-                GetItemResult result = ddbClient.getItem(request);
-
-                UserData userData = null;
-                if (result.getItem() != null && !result.getItem().isEmpty()) {
-                    userData = parseUserData(result.getItem());
-                }
-                final UserData finalUserData = userData;
-                mainThreadHandler.post(() -> callback.onResult(finalUserData != null, finalUserData));
+                boolean created = putUserIfAbsent(userData);
+                mainThreadHandler.post(created ? callback::onRegistered : callback::onExists);
             } catch (Exception e) {
                 mainThreadHandler.post(() -> callback.onError(e));
             }
         });
     }
 
-    // Save new user
-    public void saveUser(UserData userData, SaveUserCallback callback) {
-        executor.execute(() -> {
-            try {
-                Map<String, AttributeValue> item = new HashMap<>();
-                item.put("email", new AttributeValue().withS(userData.email));
-                item.put("name", new AttributeValue().withS(userData.name));
-                item.put("age", new AttributeValue().withN(String.valueOf(userData.age)));
-                item.put("height", new AttributeValue().withN(String.valueOf(userData.height)));
-                item.put("weight", new AttributeValue().withN(String.valueOf(userData.weight)));
-                item.put("emergencyNumber", new AttributeValue().withS(userData.emergencyNumber));
-                item.put("createdAt", new AttributeValue().withN(String.valueOf(System.currentTimeMillis())));
-
-                PutItemRequest request = new PutItemRequest()
-                        .withTableName(TABLE_NAME)
-                        .withItem(item);
-
-                ddbClient.putItem(request);
-                mainThreadHandler.post(callback::onSuccess);
-            } catch (Exception e) {
-                mainThreadHandler.post(() -> callback.onError(e));
-            }
-        });
+    // Blocking. Stamps createdAt; false when the email is already registered,
+    // in which case the stored item is left alone.
+    public boolean putUserIfAbsent(UserData userData) {
+        userData.createdAt = System.currentTimeMillis();
+        Map<String, AttributeValue> item = new HashMap<>(UserDataMapper.MAP_CAPACITY);
+        UserItemMapper.writeProfile(userData, new AttributeItem(item));
+
+        long start = Timer.start();
+        try {
+            PutItemResult result = ddbClient.putItem(new PutItemRequest()
+                    .withTableName(TABLE_NAME)
+                    .withItem(item)
+                    .withConditionExpression(USER_ABSENT)
+                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+            PUT_USER.stop(start);
+            recordWrite(result.getConsumedCapacity());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            PUT_USER.stop(start);
+            return false;
+        } catch (RuntimeException e) {
+            PUT_USER.failed(start);
+            throw e;
+        }
+    }
+
+    // Blocking read of the attributes UserData maps; null when there is no
+    // such user
+    public UserData readUser(String email) {
+        Map<String, String> names = new HashMap<>();
+        names.put(UserItemMapper.NAME_REF, UserItemMapper.NAME);
+        GetItemResult result = getItem(GET_USER, new GetItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(userKey(email))
+                .withProjectionExpression(UserItemMapper.PROFILE_PROJECTION)
+                .withExpressionAttributeNames(names)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+        recordRead(result.getConsumedCapacity());
+
+        if (result.getItem() == null || result.getItem().isEmpty()) {
+            return null;
+        }
+        UserData user = parseUserData(result.getItem());
+        HEALTH_WRITES.seed(user);
+        return user;
+    }
+
+    // Blocking read of createdAt alone, for cache revalidation: -1 when
+    // there is no such user, 0 when the item predates the attribute
+    public long readUserVersion(String email) {
+        GetItemResult result = getItem(GET_USER_VERSION, new GetItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(userKey(email))
+                .withProjectionExpression(UserItemMapper.CREATED_AT)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+        recordRead(result.getConsumedCapacity());
+
+        Map<String, AttributeValue> item = result.getItem();
+        if (item == null) {
+            return -1;
+        }
+        AttributeValue createdAt = item.get(UserItemMapper.CREATED_AT);
+        return createdAt == null ? 0 : Long.parseLong(createdAt.getN());
     }
 
     // Update health data
     public void updateHealthData(String email, int heartRate, int steps, String location, UpdateCallback callback) {
-        executor.execute(() -> {
+        AppDispatcher.get().execute(WorkClass.STORAGE, () -> {
             try {
-                HashMap<String, AttributeValue> key = new HashMap<>();
-                key.put("email", new AttributeValue().withS(email));
-
-                HashMap<String, AttributeValueUpdate> updates = new HashMap<>();
-                updates.put("lastHeartRate", new AttributeValueUpdate()
-                        .withValue(new AttributeValue().withN(String.valueOf(heartRate)))
-                        .withAction(AttributeAction.PUT));
-                updates.put("lastSteps", new AttributeValueUpdate()
-                        .withValue(new AttributeValue().withN(String.valueOf(steps)))
-                        .withAction(AttributeAction.PUT));
-                updates.put("lastLocation", new AttributeValueUpdate()
-                        .withValue(new AttributeValue().withS(location))
-                        .withAction(AttributeAction.PUT));
-                updates.put("lastUpdated", new AttributeValueUpdate()
-                        .withValue(new AttributeValue().withN(String.valueOf(System.currentTimeMillis())))
-                        .withAction(AttributeAction.PUT));
-
-                UpdateItemRequest request = new UpdateItemRequest()
-                        .withTableName(TABLE_NAME)
-                        .withKey(key)
-                        .withAttributeUpdates(updates);
-
-                ddbClient.updateItem(request);
+                writeHealthData(email, heartRate, steps, location, System.currentTimeMillis());
                 mainThreadHandler.post(callback::onSuccess);
             } catch (Exception e) {
                 mainThreadHandler.post(() -> callback.onError(e));
@@ -104,39 +149,160 @@ public class DynamoDBManager {
         });
     }
 
+    // Blocking variant for callers that already run off the main thread,
+    // such as the upload drainer. SETs only the last* attributes that
+    // differ from what the item is known to hold, plus lastUpdated.
+    public void writeHealthData(String email, int heartRate, int steps, String location, long timestamp) {
+        HealthWriteTracker.Update update = HEALTH_WRITES.prepare(email, heartRate, steps, location, timestamp);
+        Map<String, AttributeValue> values = new HashMap<>();
+        update.writeValues(new AttributeItem(values));
+
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(userKey(email))
+                .withUpdateExpression(update.expression)
+                .withExpressionAttributeValues(values)
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+
+        long start = Timer.start();
+        try {
+            UpdateItemResult result = ddbClient.updateItem(request);
+            UPDATE_HEALTH.stop(start);
+            recordWrite(result.getConsumedCapacity());
+        } catch (RuntimeException e) {
+            UPDATE_HEALTH.failed(start);
+            // The write may or may not have landed
+            HEALTH_WRITES.forget(email);
+            throw e;
+        }
+        HEALTH_WRITES.committed(update);
+    }
+
     // Get user data
     public void getUserData(String email, GetUserCallback callback) {
-        executor.execute(() -> {
+        AppDispatcher.get().execute(WorkClass.STORAGE, () -> {
             try {
-                HashMap<String, AttributeValue> key = new HashMap<>();
-                key.put("email", new AttributeValue().withS(email));
+                UserData userData = readUser(email);
+                mainThreadHandler.post(() -> callback.onSuccess(userData));
+            } catch (Exception e) {
+                mainThreadHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
 
-                GetItemRequest request = new GetItemRequest()
-                        .withTableName(TABLE_NAME)
-                        .withKey(key);
+    // Write (or rewrite) one encoded history chunk. Blocking.
+    public void appendHistoryChunk(String email, long chunkStart, long chunkEnd, int count, byte[] chunk) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("email", new AttributeValue().withS(email));
+        item.put("chunkStart", new AttributeValue().withN(String.valueOf(chunkStart)));
+        item.put("chunkEnd", new AttributeValue().withN(String.valueOf(chunkEnd)));
+        item.put("count", new AttributeValue().withN(String.valueOf(count)));
+        item.put("samples", new AttributeValue().withB(ByteBuffer.wrap(chunk)));
 
-                GetItemResult result = ddbClient.getItem(request);
+        long start = Timer.start();
+        try {
+            ddbClient.putItem(new PutItemRequest()
+                    .withTableName(HISTORY_TABLE_NAME)
+                    .withItem(item));
+            PUT_HISTORY.stop(start);
+        } catch (RuntimeException e) {
+            PUT_HISTORY.failed(start);
+            throw e;
+        }
+    }
 
-                UserData userData = null;
-                if (result.getItem() != null) {
-                    userData = parseUserData(result.getItem());
+    // Record sent alerts with BatchWriteItem. Blocking. Items DynamoDB
+    // leaves unprocessed are retried briefly; if some remain, this throws so
+    // the caller's queue replays the whole batch (the puts are idempotent).
+    public void writeAlerts(List<OutboundRecord> alerts) throws InterruptedException {
+        for (int start = 0; start < alerts.size(); start += BATCH_WRITE_LIMIT) {
+            List<WriteRequest> writes = new ArrayList<>();
+            for (OutboundRecord alert : alerts.subList(start, Math.min(alerts.size(), start + BATCH_WRITE_LIMIT))) {
+                Map<String, AttributeValue> item = new HashMap<>(SentAlertMapper.MAP_CAPACITY);
+                SentAlertMapper.write(SentAlert.from(alert), new AttributeItem(item));
+                writes.add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+            }
+
+            Map<String, List<WriteRequest>> pending = new HashMap<>();
+            pending.put(ALERTS_TABLE_NAME, writes);
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt == BATCH_WRITE_ATTEMPTS) {
+                    throw new IllegalStateException("Alert batch left unprocessed after "
+                            + BATCH_WRITE_ATTEMPTS + " attempts");
+                }
+                if (attempt > 0) {
+                    ALERT_RETRIES.increment();
+                    Thread.sleep(100L << attempt);
                 }
-                final UserData finalUserData = userData;
-                mainThreadHandler.post(() -> callback.onSuccess(finalUserData));
+                BatchWriteItemResult result;
+                long started = Timer.start();
+                try {
+                    result = ddbClient.batchWriteItem(new BatchWriteItemRequest().withRequestItems(pending));
+                    WRITE_ALERTS.stop(started);
+                } catch (RuntimeException e) {
+                    WRITE_ALERTS.failed(started);
+                    throw e;
+                }
+                pending = result.getUnprocessedItems() == null
+                        ? new HashMap<>() : result.getUnprocessedItems();
+            }
+        }
+    }
+
+    // Read all samples with fromTs <= timestamp <= toTs
+    public void getHistory(String email, long fromTs, long toTs, HistoryCallback callback) {
+        AppDispatcher.get().execute(WorkClass.STORAGE, () -> {
+            try {
+                SampleSeries series = readHistory(email, fromTs, toTs);
+                mainThreadHandler.post(() -> callback.onSuccess(series));
             } catch (Exception e) {
                 mainThreadHandler.post(() -> callback.onError(e));
             }
         });
     }
 
-    // Callbacks
-    public interface UserCheckCallback {
-        void onResult(boolean exists, UserData userData);
-        void onError(Exception e);
+    public SampleSeries readHistory(String email, long fromTs, long toTs) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":email", new AttributeValue().withS(email));
+        // A chunk never spans buckets, so any chunk holding fromTs starts in its bucket
+        values.put(":from", new AttributeValue().withN(String.valueOf(HistoryRecorder.bucketStart(fromTs))));
+        values.put(":to", new AttributeValue().withN(String.valueOf(toTs)));
+
+        SampleSeries series = new SampleSeries();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            QueryRequest request = new QueryRequest()
+                    .withTableName(HISTORY_TABLE_NAME)
+                    .withKeyConditionExpression("email = :email AND chunkStart BETWEEN :from AND :to")
+                    .withExpressionAttributeValues(values)
+                    .withProjectionExpression("samples")
+                    .withExclusiveStartKey(startKey);
+
+            QueryResult result;
+            long start = Timer.start();
+            try {
+                result = ddbClient.query(request);
+                QUERY_HISTORY.stop(start);
+            } catch (RuntimeException e) {
+                QUERY_HISTORY.failed(start);
+                throw e;
+            }
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                ByteBuffer samples = item.get("samples").getB().duplicate();
+                byte[] chunk = new byte[samples.remaining()];
+                samples.get(chunk);
+                SampleChunkDecoder.decode(chunk, fromTs, toTs, series);
+            }
+            startKey = result.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+
+        return series;
     }
 
-    public interface SaveUserCallback {
-        void onSuccess();
+    // Callbacks
+    public interface RegisterCallback {
+        void onRegistered();
+        void onExists();
         void onError(Exception e);
     }
 
@@ -150,38 +316,51 @@ public class DynamoDBManager {
         void onError(Exception e);
     }
 
-    private UserData parseUserData(Map<String, AttributeValue> item) {
-        UserData userData = new UserData();
-        userData.email = item.get("email").getS();
-        userData.name = item.get("name").getS();
-        userData.age = Integer.parseInt(item.get("age").getN());
-        userData.height = Integer.parseInt(item.get("height").getN());
-        userData.weight = Integer.parseInt(item.get("weight").getN());
-        userData.emergencyNumber = item.get("emergencyNumber").getS();
-
-        if (item.containsKey("lastHeartRate")) {
-            userData.lastHeartRate = Integer.parseInt(item.get("lastHeartRate").getN());
+    public interface HistoryCallback {
+        void onSuccess(SampleSeries history);
+        void onError(Exception e);
+    }
+
+    // Capacity the user table calls reported, for metrics and tests
+    public synchronized double consumedReadUnits() {
+        return consumedReadUnits;
+    }
+
+    public synchronized double consumedWriteUnits() {
+        return consumedWriteUnits;
+    }
+
+    private synchronized void recordRead(ConsumedCapacity capacity) {
+        if (capacity != null && capacity.getCapacityUnits() != null) {
+            consumedReadUnits += capacity.getCapacityUnits();
         }
-        if (item.containsKey("lastSteps")) {
-            userData.lastSteps = Integer.parseInt(item.get("lastSteps").getN());
+    }
+
+    private synchronized void recordWrite(ConsumedCapacity capacity) {
+        if (capacity != null && capacity.getCapacityUnits() != null) {
+            consumedWriteUnits += capacity.getCapacityUnits();
         }
-        if (item.containsKey("lastLocation")) {
-            userData.lastLocation = item.get("lastLocation").getS();
+    }
+
+    private GetItemResult getItem(Timer timer, GetItemRequest request) {
+        long start = Timer.start();
+        try {
+            GetItemResult result = ddbClient.getItem(request);
+            timer.stop(start);
+            return result;
+        } catch (RuntimeException e) {
+            timer.failed(start);
+            throw e;
         }
+    }
 
-        return userData;
+    private static Map<String, AttributeValue> userKey(String email) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(UserItemMapper.EMAIL, new AttributeValue().withS(email));
+        return key;
     }
 
-    // User Data Model
-    public static class UserData {
-        public String email;
-        public String name;
-        public int age;
-        public int height;
-        public int weight;
-        public String emergencyNumber;
-        public int lastHeartRate;
-        public int lastSteps;
-        public String lastLocation;
+    private UserData parseUserData(Map<String, AttributeValue> item) {
+        return UserItemMapper.read(new AttributeItem(item));
     }
 }
@@ -2,15 +2,44 @@ package com.example.sobti.aws;
 
 import android.util.Log;
 
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+import com.example.sobti.core.text.MarkdownStripper;
 import com.google.ai.client.generativeai.GenerativeModel;
 import com.google.ai.client.generativeai.java.GenerativeModelFutures;
 import com.google.ai.client.generativeai.type.Content;
 import com.google.ai.client.generativeai.type.GenerateContentResponse;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class GeminiClient {
 
+    private static final String TAG = "GEMINI_ERROR";
+    // Cancelled requests are not timed
+    private static final Timer GENERATE = MetricsRegistry.shared().timer("gemini", "generate");
+    private static final Timer STREAM = MetricsRegistry.shared().timer("gemini", "stream");
+    private static final Timer FIRST_CHUNK = MetricsRegistry.shared().timer("gemini", "stream.firstChunk");
+
     private final GenerativeModelFutures modelFutures;
 
+    public interface StreamListener {
+        // Cleaned text of one chunk, in order
+        void onChunk(String text);
+        void onComplete(String fullText);
+        void onError(Exception e);
+    }
+
+    public interface StreamHandle {
+        void cancel();
+    }
+
     public GeminiClient(String apiKey) {
 
         GenerativeModel model = new GenerativeModel(
@@ -21,32 +50,128 @@ public class GeminiClient {
         modelFutures = GenerativeModelFutures.from(model);
     }
 
+    // Blocking; kept for callers that already run on a worker thread.
     public String generateText(String prompt) {
         try {
+            return generateTextAsync(prompt).get();
+        } catch (Exception e) {
+            Log.e(TAG, "Error generating text", e);
+            return "Error: " + e.getMessage();
+        }
+    }
 
-            // ✅ Add medical context WITHOUT changing logic
-            String medicalPrompt =
-                    "You are a helpful medical assistant. Provide general information only, " +
-                            "do not diagnose or prescribe medication. Recommend consulting a doctor " +
-                            "for serious issues.\nUser query: " + prompt;
+    // Completes on the SDK's callback thread. Cancelling the returned future
+    // cancels the underlying request.
+    public CompletableFuture<String> generateTextAsync(String prompt) {
+        long start = Timer.start();
+        ListenableFuture<GenerateContentResponse> request =
+                modelFutures.generateContent(buildContent(prompt));
+        CompletableFuture<String> result = new CompletableFuture<>();
 
-            Content content = new Content.Builder()
-                    .addText(medicalPrompt)   // ✅ replaced prompt with medicalPrompt
-                    .build();
+        request.addListener(() -> {
+            try {
+                String text = request.get().getText();
+                result.complete(text == null ? "" : MarkdownStripper.stripAll(text));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }, Runnable::run);
 
-            GenerateContentResponse response =
-                    modelFutures.generateContent(content).get();
+        result.whenComplete((text, error) -> {
+            if (result.isCancelled()) {
+                request.cancel(true);
+            } else if (error != null) {
+                GENERATE.failed(start);
+            } else {
+                GENERATE.stop(start);
+            }
+        });
+        return result;
+    }
 
-            // bold start + end
-            // bullets instead of *
+    // Streams the answer chunk by chunk. Listener methods run on the SDK's
+    // thread; nothing is delivered after cancel().
+    public StreamHandle generateTextStream(String prompt, StreamListener listener) {
+        long start = Timer.start();
+        Publisher<GenerateContentResponse> publisher =
+                modelFutures.generateContentStream(buildContent(prompt));
 
-            return response.getText()
-                    .replace("**", "")           // bold start + end
-                    .replace("*", "• ");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        MarkdownStripper stripper = new MarkdownStripper();
+        StringBuilder fullText = new StringBuilder();
+        AtomicBoolean first = new AtomicBoolean(true);
 
-        } catch (Exception e) {
-            Log.e("GEMINI_ERROR", "Error generating text", e);
-            return "Error: " + e.getMessage();
-        }
+        publisher.subscribe(new Subscriber<GenerateContentResponse>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                if (cancelled.get()) {
+                    s.cancel();
+                    return;
+                }
+                subscription.set(s);
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(GenerateContentResponse response) {
+                String text = response.getText();
+                if (cancelled.get() || text == null) {
+                    return;
+                }
+                if (first.compareAndSet(true, false)) {
+                    FIRST_CHUNK.stop(start);
+                }
+                String cleaned = stripper.feed(text);
+                if (!cleaned.isEmpty()) {
+                    fullText.append(cleaned);
+                    listener.onChunk(cleaned);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (cancelled.get()) {
+                    return;
+                }
+                STREAM.failed(start);
+                Log.e(TAG, "Error streaming text", t);
+                listener.onError(t instanceof Exception ? (Exception) t : new Exception(t));
+            }
+
+            @Override
+            public void onComplete() {
+                if (cancelled.get()) {
+                    return;
+                }
+                STREAM.stop(start);
+                String tail = stripper.finish();
+                if (!tail.isEmpty()) {
+                    fullText.append(tail);
+                    listener.onChunk(tail);
+                }
+                listener.onComplete(fullText.toString());
+            }
+        });
+
+        return () -> {
+            cancelled.set(true);
+            Subscription s = subscription.getAndSet(null);
+            if (s != null) {
+                s.cancel();
+            }
+        };
+    }
+
+    private static Content buildContent(String prompt) {
+        // ✅ Add medical context WITHOUT changing logic
+        String medicalPrompt =
+                "You are a helpful medical assistant. Provide general information only, " +
+                        "do not diagnose or prescribe medication. Recommend consulting a doctor " +
+                        "for serious issues.\nUser query: " + prompt;
+
+        return new Content.Builder()
+                .addText(medicalPrompt)
+                .build();
     }
 }
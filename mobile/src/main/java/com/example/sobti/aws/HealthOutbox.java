@@ -0,0 +1,185 @@
+package com.example.sobti.aws;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.queue.DurableQueue;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.queue.UploadDrainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Process-wide outbound queue. Every reading, history chunk and alert is
+// appended to disk on the STORAGE thread, never waiting for the network;
+// the UPLOAD thread drains it to DynamoDB in batches and resumes as soon
+// as a network comes back. Whatever was not uploaded replays in order on
+// the next start.
+public class HealthOutbox {
+
+    private static final String TAG = "HealthOutbox";
+    private static final long SEGMENT_BYTES = 256 * 1024;
+    private static final long MAX_BYTES = 8 * 1024 * 1024;
+    private static final int BATCH_SIZE = 100;
+    private static final long LINGER_MS = 30_000L;
+    private static final long MIN_BACKOFF_MS = 2_000L;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000L;
+
+    private static final long CLOSE_WAIT_MS = 10_000L;
+
+    private static HealthOutbox instance;
+
+    public static synchronized HealthOutbox get(Context context) {
+        if (instance == null) {
+            instance = new HealthOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Stops the drainer, waits for an upload in flight and closes the queue
+    // once queued appends have run. Blocks until then, for at most about
+    // twice CLOSE_WAIT_MS, so a later get() never opens the directory while
+    // this instance still uses it. Call before the dispatcher is shut down.
+    public static synchronized void release() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private final ScheduledExecutorService storage;
+    private final HealthUploader uploader;
+    private final ConnectivityManager connectivity;
+    private final ConnectivityManager.NetworkCallback networkCallback;
+    // Only touched on the STORAGE thread
+    private DurableQueue queue;
+    private volatile UploadDrainer drainer;
+
+    private HealthOutbox(Context context) {
+        storage = AppDispatcher.get().scheduler(WorkClass.STORAGE);
+        File dir = new File(context.getFilesDir(), "outbox");
+        uploader = new HealthUploader(new DynamoDBManager(AWSConfig.getDDBClient()));
+
+        // Recovery reads the pending tail, so keep it off the caller's thread
+        storage.execute(() -> {
+            try {
+                queue = new DurableQueue(dir, SEGMENT_BYTES, MAX_BYTES);
+                UploadDrainer d = new UploadDrainer(queue, uploader,
+                        AppDispatcher.get().scheduler(WorkClass.UPLOAD),
+                        BATCH_SIZE, LINGER_MS, MIN_BACKOFF_MS, MAX_BACKOFF_MS);
+                d.setErrorListener((e, retryInMs) ->
+                        Log.w(TAG, "Upload failed, retrying in " + retryInMs + "ms", e));
+                drainer = d;
+                if (queue.size() > 0) {
+                    Log.i(TAG, "Replaying " + queue.size() + " queued records");
+                    d.schedule(true);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open outbox", e);
+            }
+        });
+
+        connectivity = context.getSystemService(ConnectivityManager.class);
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                UploadDrainer d = drainer;
+                if (d != null) {
+                    d.onConnectivityRestored();
+                }
+            }
+        };
+        connectivity.registerDefaultNetworkCallback(networkCallback);
+    }
+
+    // Urgent records (alerts, out-of-range readings) are synced to the
+    // device and uploaded right away instead of waiting for a fuller batch.
+    public void enqueue(OutboundRecord record, boolean urgent) {
+        try {
+            storage.execute(() -> {
+                if (queue == null) {
+                    Log.w(TAG, "Outbox unavailable, dropping record");
+                    return;
+                }
+                try {
+                    queue.append(record.encode());
+                    if (urgent) {
+                        queue.sync();
+                    }
+                    drainer.schedule(urgent);
+                } catch (IOException e) {
+                    Log.e(TAG, "Outbox append failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // STORAGE is saturated or shut down; the caller is often the
+            // main thread, so drop the record rather than throw
+            Log.w(TAG, "Outbox saturated, dropping record", e);
+        }
+    }
+
+    // Drain what is queued now, e.g. when the screen is left
+    public void flush() {
+        UploadDrainer d = drainer;
+        if (d != null) {
+            d.schedule(true);
+        }
+    }
+
+    public String stats() {
+        UploadDrainer d = drainer;
+        return d == null ? "not open"
+                : "uploaded=" + d.uploadedCount() + " merged=" + uploader.mergedCount()
+                        + " flushed=" + uploader.flushedCount() + " failures=" + d.failureCount()
+                        + " backoffMs=" + d.backoffMs();
+    }
+
+    private void close() {
+        try {
+            connectivity.unregisterNetworkCallback(networkCallback);
+        } catch (IllegalArgumentException e) {
+            // Never registered
+        }
+        Future<?> closed;
+        try {
+            closed = storage.submit(() -> {
+                try {
+                    UploadDrainer d = drainer;
+                    if (d != null && !d.stop(CLOSE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                        // Closing under a running upload would corrupt the queue
+                        Log.w(TAG, "Upload still running, leaving the queue open");
+                        return;
+                    }
+                    if (queue != null) {
+                        queue.close();
+                        queue = null;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    Log.w(TAG, "Outbox close failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Dispatcher already shut down, outbox not closed", e);
+            return;
+        }
+        try {
+            closed.get(2 * CLOSE_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            Log.w(TAG, "Outbox close did not finish", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.sobti.aws;
+
+import android.util.Log;
+
+import com.example.sobti.core.queue.CoalescedBatch;
+import com.example.sobti.core.queue.OutboundRecord;
+import com.example.sobti.core.queue.UploadDrainer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Turns a batch from the outbox into DynamoDB writes, after CoalescedBatch
+// has folded it down to the newest sample per user and the newest snapshot
+// of each history chunk. Alerts are written as they are.
+public class HealthUploader implements UploadDrainer.Uploader {
+
+    private static final String TAG = "HealthUploader";
+
+    private final DynamoDBManager dbManager;
+    // Records folded into a newer one, and the item writes actually made
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+
+    public HealthUploader(DynamoDBManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    @Override
+    public void upload(List<byte[]> batch) throws Exception {
+        CoalescedBatch writes = CoalescedBatch.of(batch);
+        if (writes.skipped > 0) {
+            // Retrying can't fix them; skip rather than block the queue
+            Log.w(TAG, "Dropping " + writes.skipped + " outbox records that can't be written");
+        }
+        merged.addAndGet(writes.merged);
+
+        if (!writes.alerts.isEmpty()) {
+            dbManager.writeAlerts(writes.alerts);
+            flushed.addAndGet(writes.alerts.size());
+        }
+        for (OutboundRecord chunk : writes.chunks) {
+            dbManager.appendHistoryChunk(chunk.email, chunk.timestamp, chunk.chunkEnd,
+                    chunk.count, chunk.chunk);
+            flushed.incrementAndGet();
+        }
+        for (OutboundRecord sample : writes.samples) {
+            dbManager.writeHealthData(sample.email, sample.heartRate, sample.steps,
+                    sample.location, sample.timestamp);
+            flushed.incrementAndGet();
+        }
+    }
+
+    // A failed batch is replayed whole, so its records can be counted again
+    public long mergedCount() {
+        return merged.get();
+    }
+
+    public long flushedCount() {
+        return flushed.get();
+    }
+}
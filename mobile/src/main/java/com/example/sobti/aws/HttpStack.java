@@ -0,0 +1,260 @@
+package com.example.sobti.aws;
+
+import com.example.sobti.core.metrics.Counter;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+// The one OkHttp setup for raw-HTTP clients. Every endpoint shares a
+// connection pool and dispatcher, negotiates HTTP/2 where the server
+// offers it (so concurrent calls to one host multiplex over a single
+// connection), and runs with explicit timeouts. Each endpoint counts its
+// calls, how many reused a pooled connection, and their latency, and feeds
+// an "http.<endpoint>" timer in the metrics registry.
+public final class HttpStack {
+
+    static final long CONNECT_TIMEOUT_MS = 10_000;
+    // Between bytes, so a slow token stream is fine as long as it moves
+    static final long READ_TIMEOUT_MS = 30_000;
+    static final long WRITE_TIMEOUT_MS = 15_000;
+    static final long CALL_TIMEOUT_MS = 90_000;
+    // Below this gzip costs more than it saves
+    static final int GZIP_MIN_BYTES = 1024;
+
+    private static HttpStack shared;
+
+    public static synchronized HttpStack shared() {
+        if (shared == null) {
+            shared = new HttpStack(new ConnectionPool(5, 5, TimeUnit.MINUTES));
+        }
+        return shared;
+    }
+
+    public static final class Stats {
+        public final String endpoint;
+        public final long calls;
+        public final long failures;
+        public final long newConnections;
+        public final long reusedConnections;
+        public final long totalLatencyMs;
+        public final long maxLatencyMs;
+
+        Stats(String endpoint, long calls, long failures, long newConnections, long reusedConnections,
+              long totalLatencyMs, long maxLatencyMs) {
+            this.endpoint = endpoint;
+            this.calls = calls;
+            this.failures = failures;
+            this.newConnections = newConnections;
+            this.reusedConnections = reusedConnections;
+            this.totalLatencyMs = totalLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+
+        public double reuseRatio() {
+            long acquired = newConnections + reusedConnections;
+            return acquired == 0 ? 0 : (double) reusedConnections / acquired;
+        }
+
+        public long meanLatencyMs() {
+            return calls == 0 ? 0 : totalLatencyMs / calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: calls=%d failures=%d new=%d reused=%d mean=%dms max=%dms",
+                    endpoint, calls, failures, newConnections, reusedConnections,
+                    meanLatencyMs(), maxLatencyMs);
+        }
+    }
+
+    // A body ready to hash and send; the bytes are exactly what goes on
+    // the wire, so a signature over them stays valid
+    public static final class Payload {
+        public final byte[] bytes;
+        public final boolean gzipped;
+
+        Payload(byte[] bytes, boolean gzipped) {
+            this.bytes = bytes;
+            this.gzipped = gzipped;
+        }
+    }
+
+    public final class Endpoint {
+        public final String name;
+        public final String baseUrl;
+        private final boolean gzipRequests;
+        private final OkHttpClient client;
+        private final Timer timer;
+        private final Counter connects;
+
+        private long calls;
+        private long failures;
+        private long newConnections;
+        private long reusedConnections;
+        private long totalLatencyMs;
+        private long maxLatencyMs;
+
+        Endpoint(String name, String baseUrl, boolean gzipRequests) {
+            this.name = name;
+            this.baseUrl = baseUrl;
+            this.gzipRequests = gzipRequests;
+            this.timer = MetricsRegistry.shared().timer("http", name);
+            this.connects = MetricsRegistry.shared().counter("http", name + ".connect");
+            // newBuilder keeps the pool, dispatcher and timeouts
+            this.client = base.newBuilder()
+                    .eventListenerFactory(call -> new Metrics())
+                    .build();
+        }
+
+        public OkHttpClient client() {
+            return client;
+        }
+
+        // Compresses only if the endpoint accepts gzip and it pays off
+        public Payload payload(byte[] raw) throws IOException {
+            if (!gzipRequests || raw.length < GZIP_MIN_BYTES) {
+                return new Payload(raw, false);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(raw);
+            }
+            return new Payload(out.toByteArray(), true);
+        }
+
+        public Request.Builder post(String path, Payload payload, MediaType type) {
+            Request.Builder builder = new Request.Builder()
+                    .url(baseUrl + path)
+                    .post(RequestBody.create(payload.bytes, type));
+            if (payload.gzipped) {
+                builder.header("Content-Encoding", "gzip");
+            }
+            return builder;
+        }
+
+        public synchronized Stats stats() {
+            return new Stats(name, calls, failures, newConnections, reusedConnections,
+                    totalLatencyMs, maxLatencyMs);
+        }
+
+        private void record(long latencyNanos, boolean failed, int connected, int reused) {
+            timer.record(latencyNanos, failed);
+            connects.add(connected);
+            count(TimeUnit.NANOSECONDS.toMillis(latencyNanos), failed, connected, reused);
+        }
+
+        private synchronized void count(long latencyMs, boolean failed, int connected, int reused) {
+            calls++;
+            if (failed) {
+                failures++;
+            }
+            newConnections += connected;
+            reusedConnections += reused;
+            totalLatencyMs += latencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+        }
+
+        // One per call. A connection acquired without a connect before it
+        // came from the pool (or is a multiplexed HTTP/2 stream).
+        private final class Metrics extends EventListener {
+            private long startNanos;
+            private boolean connecting;
+            private int connected;
+            private int reused;
+
+            @Override
+            public void callStart(Call call) {
+                startNanos = System.nanoTime();
+            }
+
+            @Override
+            public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+                connecting = true;
+            }
+
+            @Override
+            public void connectionAcquired(Call call, Connection connection) {
+                if (connecting) {
+                    connected++;
+                } else {
+                    reused++;
+                }
+                connecting = false;
+            }
+
+            @Override
+            public void callEnd(Call call) {
+                finish(false);
+            }
+
+            @Override
+            public void callFailed(Call call, IOException e) {
+                finish(true);
+            }
+
+            private void finish(boolean failed) {
+                record(System.nanoTime() - startNanos, failed, connected, reused);
+            }
+        }
+    }
+
+    private final OkHttpClient base;
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    HttpStack(ConnectionPool pool) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(8);
+        this.base = new OkHttpClient.Builder()
+                .connectionPool(pool)
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .writeTimeout(WRITE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .callTimeout(CALL_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    // gzipRequests only for services documented to accept gzip bodies.
+    // Clients are rebuilt as screens open, so a name already in use returns
+    // its endpoint, counters and all; it must be asked for with the same
+    // settings.
+    public synchronized Endpoint endpoint(String name, String baseUrl, boolean gzipRequests) {
+        Endpoint endpoint = endpoints.computeIfAbsent(name, n -> new Endpoint(n, baseUrl, gzipRequests));
+        if (!endpoint.baseUrl.equals(baseUrl) || endpoint.gzipRequests != gzipRequests) {
+            throw new IllegalArgumentException("Endpoint " + name + " is already set up for "
+                    + endpoint.baseUrl);
+        }
+        return endpoint;
+    }
+
+    public synchronized List<Stats> stats() {
+        List<Stats> all = new ArrayList<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            all.add(endpoint.stats());
+        }
+        return all;
+    }
+}
@@ -1,70 +1,71 @@
 package com.example.sobti.aws;
 
-import com.amazonaws.services.sns.AmazonSNSClient;
-import com.amazonaws.services.sns.model.PublishRequest;
-import com.amazonaws.services.sns.model.PublishResult;
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+// Publishes run on the dispatcher's EMERGENCY pool; callbacks are invoked
+// on that pool's thread.
 public class SNSManager {
 
-    private AmazonSNSClient snsClient;
+    private final SnsPublisher publisher;
 
     public SNSManager() {
-        snsClient = AWSConfig.getSNSClient();
+        this(AWSConfig.getSnsPublisher());
+    }
+
+    public SNSManager(SnsPublisher publisher) {
+        this.publisher = publisher;
     }
 
     // ✅ Existing SMS Sending Method
     public void sendSNSMessage(String phoneNumber, String message, SNSCallback callback) {
-        try {
-
-            // Basic null check
-            if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
-                if (callback != null) {
-                    callback.onError(new Exception("Phone number is null or empty"));
-                }
-                return;
-            }
-
-            PublishRequest publishRequest = new PublishRequest()
-                    .withPhoneNumber(phoneNumber)
-                    .withMessage(message);
-
-            PublishResult result = snsClient.publish(publishRequest);
-
+        // Basic null check
+        if (phoneNumber == null || phoneNumber.trim().isEmpty()) {
             if (callback != null) {
-                callback.onSuccess(result.getMessageId());
-            }
-
-        } catch (Exception e) {
-            if (callback != null) {
-                callback.onError(e);
+                callback.onError(new Exception("Phone number is null or empty"));
             }
+            return;
         }
+
+        publishAsync(() -> publisher.publishToPhone(phoneNumber, message), callback);
     }
 
     // ✅ Added: SNS Email Sending Method using Topic ARN
     public void sendEmailToTopic(String topicArn, String subject, String message, SNSCallback callback) {
-        try {
-
-            // Basic null check
-            if (topicArn == null || topicArn.trim().isEmpty()) {
-                if (callback != null) {
-                    callback.onError(new Exception("Topic ARN is null or empty"));
-                }
-                return;
+        // Basic null check
+        if (topicArn == null || topicArn.trim().isEmpty()) {
+            if (callback != null) {
+                callback.onError(new Exception("Topic ARN is null or empty"));
             }
+            return;
+        }
 
-            PublishRequest publishRequest = new PublishRequest()
-                    .withTopicArn(topicArn)
-                    .withSubject(subject)
-                    .withMessage(message);
-
-            PublishResult result = snsClient.publish(publishRequest);
+        publishAsync(() -> publisher.publishToTopic(topicArn, subject, message), callback);
+    }
 
-            if (callback != null) {
-                callback.onSuccess(result.getMessageId());
-            }
+    // Blocking calls, for callers that manage their own threading
+    public SnsPublisher publisher() {
+        return publisher;
+    }
 
-        } catch (Exception e) {
+    private void publishAsync(Callable<String> publish, SNSCallback callback) {
+        try {
+            AppDispatcher.get().execute(WorkClass.EMERGENCY, () -> {
+                try {
+                    String messageId = publish.call();
+                    if (callback != null) {
+                        callback.onSuccess(messageId);
+                    }
+                } catch (Exception e) {
+                    if (callback != null) {
+                        callback.onError(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
             if (callback != null) {
                 callback.onError(e);
             }
@@ -0,0 +1,138 @@
+package com.example.sobti.aws;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.example.sobti.core.aws.SigV4Signer;
+import com.example.sobti.core.aws.SnsQuery;
+import com.example.sobti.core.metrics.MetricsRegistry;
+import com.example.sobti.core.metrics.Timer;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// SNS's query API over the shared HTTP stack, signed with the app's
+// Cognito credentials, so alerts ride the pooled connections and show up
+// in the endpoint metrics like the other raw-HTTP clients. Blocking; run
+// on the EMERGENCY pool.
+public class SnsPublisher {
+
+    private static final MediaType FORM = MediaType.parse(SnsQuery.CONTENT_TYPE);
+    // Per action, on top of the endpoint's http timer
+    private static final Timer PUBLISH_SMS = MetricsRegistry.shared().timer("sns", "publishSms");
+    private static final Timer PUBLISH_TOPIC = MetricsRegistry.shared().timer("sns", "publishTopic");
+    private static final Timer PUBLISH_BATCH = MetricsRegistry.shared().timer("sns", "publishBatch");
+
+    // Thrown for an error response; senderFault means retrying cannot help,
+    // credentialFault that it can once the credentials are refreshed
+    public static class SnsException extends IOException {
+        public final int status;
+        public final boolean senderFault;
+        public final boolean credentialFault;
+
+        SnsException(int status, String error, boolean senderFault, boolean credentialFault) {
+            super("SNS HTTP " + status + (error == null ? "" : ": " + error));
+            this.status = status;
+            this.senderFault = senderFault;
+            this.credentialFault = credentialFault;
+        }
+    }
+
+    private final HttpStack.Endpoint endpoint;
+    private final SigV4Signer signer;
+    private final AWSCredentialsProvider credentials;
+
+    public SnsPublisher(String region, AWSCredentialsProvider credentials) {
+        this(region, HttpStack.shared().endpoint("sns-" + region,
+                "https://sns." + region + ".amazonaws.com", false), credentials);
+    }
+
+    // The endpoint override lets tests point the publisher at a fake SNS
+    SnsPublisher(String region, HttpStack.Endpoint endpoint, AWSCredentialsProvider credentials) {
+        this.endpoint = endpoint;
+        this.credentials = credentials;
+        HttpUrl url = HttpUrl.get(endpoint.baseUrl);
+        String host = url.port() == HttpUrl.defaultPort(url.scheme())
+                ? url.host() : url.host() + ":" + url.port();
+        this.signer = new SigV4Signer(host, region, SnsQuery.SERVICE, SnsQuery.CONTENT_TYPE);
+    }
+
+    // Returns the message id
+    public String publishToPhone(String phoneNumber, String message) throws IOException {
+        return SnsQuery.messageId(call(PUBLISH_SMS, SnsQuery.publishToPhone(phoneNumber, message)));
+    }
+
+    public String publishToTopic(String topicArn, String subject, String message) throws IOException {
+        return SnsQuery.messageId(call(PUBLISH_TOPIC, SnsQuery.publishToTopic(topicArn, subject, message)));
+    }
+
+    // Up to SnsQuery.MAX_BATCH_ENTRIES messages to one topic in one call.
+    // Entries can fail individually; the result says which.
+    public SnsQuery.BatchResult publishBatch(String topicArn, List<SnsQuery.Entry> entries) throws IOException {
+        return SnsQuery.batchResult(call(PUBLISH_BATCH, SnsQuery.publishBatch(topicArn, entries)));
+    }
+
+    public HttpStack.Stats stats() {
+        return endpoint.stats();
+    }
+
+    private byte[] call(Timer timer, byte[] body) throws IOException {
+        long start = Timer.start();
+        try {
+            byte[] answer = call(body);
+            timer.stop(start);
+            return answer;
+        } catch (IOException | RuntimeException e) {
+            timer.failed(start);
+            throw e;
+        }
+    }
+
+    // A credential or clock error refreshes the Cognito credentials and
+    // tries once more; if that fails too, the error is still retryable
+    private byte[] call(byte[] body) throws IOException {
+        try {
+            return send(body);
+        } catch (SnsException e) {
+            if (!e.credentialFault) {
+                throw e;
+            }
+            credentials.refresh();
+            return send(body);
+        }
+    }
+
+    private byte[] send(byte[] body) throws IOException {
+        AWSCredentials creds = credentials.getCredentials();
+        String token = creds instanceof AWSSessionCredentials
+                ? ((AWSSessionCredentials) creds).getSessionToken() : null;
+        HttpStack.Payload payload = endpoint.payload(body);
+        SigV4Signer.Signature signature = signer.sign("POST", "/", "", payload.bytes,
+                System.currentTimeMillis(), creds.getAWSAccessKeyId(), creds.getAWSSecretKey(), token);
+
+        Request.Builder builder = endpoint.post("/", payload, FORM)
+                .addHeader("X-Amz-Date", signature.amzDate)
+                .addHeader("Authorization", signature.authorization);
+        if (signature.securityToken != null) {
+            builder.addHeader("X-Amz-Security-Token", signature.securityToken);
+        }
+        try (Response response = endpoint.client().newCall(builder.build()).execute()) {
+            byte[] answer = response.body().bytes();
+            if (!response.isSuccessful()) {
+                int status = response.code();
+                // Throttling, 5xx and credential trouble are worth retrying;
+                // other client errors are not
+                boolean credentialFault = status == 401 || status == 403 || SnsQuery.credentialError(answer);
+                boolean senderFault = !credentialFault && status != 429 && status < 500
+                        && SnsQuery.senderFault(answer);
+                throw new SnsException(status, SnsQuery.error(answer), senderFault, credentialFault);
+            }
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.sobti.aws;
+
+import com.example.sobti.core.emergency.AlertChannel;
+import com.example.sobti.core.emergency.EmergencyAlert;
+
+// SMS routed through SNS, independent of the phone's own radio
+public class SnsSmsChannel implements AlertChannel {
+
+    private final SNSManager snsManager;
+    private final String phoneNumber;
+    private final String name;
+
+    public SnsSmsChannel(SNSManager snsManager, String phoneNumber) {
+        this(snsManager, phoneNumber, "sns-sms");
+    }
+
+    // name tells apart the channels of several contacts in the report
+    public SnsSmsChannel(SNSManager snsManager, String phoneNumber, String name) {
+        this.snsManager = snsManager;
+        this.phoneNumber = phoneNumber;
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void send(EmergencyAlert alert) throws Exception {
+        snsManager.publisher().publishToPhone(phoneNumber, alert.message);
+    }
+}
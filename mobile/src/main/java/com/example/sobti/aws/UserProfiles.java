@@ -0,0 +1,114 @@
+package com.example.sobti.aws;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.user.UserCache;
+import com.example.sobti.core.user.UserData;
+
+// Process-wide profile cache in front of DynamoDB. Profiles persist in
+// their own SharedPreferences file, so a cold start can show the name and
+// knows the emergency number before any network call. Lookups run on the
+// STORAGE thread; listeners are always called on the main thread.
+public class UserProfiles {
+
+    private static final String TAG = "UserProfiles";
+    private static final String PREFS = "SobtiUserCache";
+    // Profiles only change on registration, so an hour between version
+    // checks is plenty; a stale profile is still served meanwhile.
+    private static final long TTL_MS = 60 * 60_000L;
+
+    private static UserProfiles instance;
+
+    public static synchronized UserProfiles get(Context context) {
+        if (instance == null) {
+            instance = new UserProfiles(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final UserCache cache;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private UserProfiles(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        DynamoDBManager dbManager = new DynamoDBManager(AWSConfig.getDDBClient());
+
+        cache = new UserCache(new UserCache.Store() {
+            @Override
+            public String load(String email) {
+                return prefs.getString(email, null);
+            }
+
+            @Override
+            public void save(String email, String value) {
+                prefs.edit().putString(email, value).apply();
+            }
+
+            @Override
+            public void remove(String email) {
+                prefs.edit().remove(email).apply();
+            }
+        }, new UserCache.Source() {
+            @Override
+            public UserData fetch(String email) {
+                return dbManager.readUser(email);
+            }
+
+            @Override
+            public long fetchVersion(String email) {
+                return dbManager.readUserVersion(email);
+            }
+        }, command -> AppDispatcher.get().execute(WorkClass.STORAGE, command), TTL_MS);
+    }
+
+    // A cached profile is delivered before this returns; a fetched or
+    // changed one follows once DynamoDB answers
+    public void load(String email, UserCache.Listener listener) {
+        cache.get(email, new UserCache.Listener() {
+            @Override
+            public void onUser(UserData user, boolean fromCache) {
+                onMain(() -> listener.onUser(user, fromCache));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onMain(() -> listener.onError(e));
+            }
+        });
+    }
+
+    // The cached profile however stale, without a lookup; null if none
+    public UserData peek(String email) {
+        return cache.peek(email);
+    }
+
+    public void put(UserData user) {
+        cache.put(user);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+
+    public UserCache.Stats stats() {
+        return cache.stats();
+    }
+
+    public void logStats() {
+        Log.i(TAG, "Profile cache " + cache.stats());
+    }
+
+    private void onMain(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainThreadHandler.post(action);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.sobti.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.example.sobti.core.emergency.QueuedAlert;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Runs the alert retry path against a local fake SNS endpoint
+public class AlertUploaderTest {
+
+    private static final String TOPIC = "arn:aws:sns:ap-south-1:123456789012:alerts";
+
+    private MockWebServer sns;
+    private AlertUploader uploader;
+    private int refreshes;
+
+    @Before
+    public void setUp() throws IOException {
+        sns = new MockWebServer();
+        sns.start();
+        String url = sns.url("/").toString();
+        HttpStack stack = new HttpStack(new ConnectionPool(5, 1, TimeUnit.MINUTES));
+        AWSCredentialsProvider credentials = new AWSCredentialsProvider() {
+            @Override
+            public AWSCredentials getCredentials() {
+                return new BasicSessionCredentials("AKIDEXAMPLE", "secret", "session-token");
+            }
+
+            @Override
+            public void refresh() {
+                refreshes++;
+            }
+        };
+        SnsPublisher publisher = new SnsPublisher("ap-south-1",
+                stack.endpoint("sns", url.substring(0, url.length() - 1), false), credentials);
+        uploader = new AlertUploader(publisher);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        sns.shutdown();
+    }
+
+    @Test
+    public void topicAlertsGoOutInBatchesOfTen() throws Exception {
+        List<byte[]> batch = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            batch.add(QueuedAlert.topic(TOPIC, "Alert", "message " + i, 1000 + i).encode());
+        }
+        sns.enqueue(batchResponse(10, ""));
+        sns.enqueue(batchResponse(2, ""));
+
+        uploader.upload(batch);
+
+        RecordedRequest first = sns.takeRequest();
+        String body = first.getBody().readUtf8();
+        assertTrue(body.startsWith("Action=PublishBatch&"));
+        assertTrue(body.contains("PublishBatchRequestEntries.member.10.Message=message+9"));
+        assertTrue(first.getHeader("Authorization").contains("/ap-south-1/sns/aws4_request"));
+        assertEquals("session-token", first.getHeader("X-Amz-Security-Token"));
+        assertTrue(first.getHeader("Content-Type").startsWith("application/x-www-form-urlencoded"));
+        assertTrue(sns.takeRequest().getBody().readUtf8().contains("member.2.Message=message+11"));
+        assertEquals(2, sns.getRequestCount());
+    }
+
+    @Test
+    public void replayAfterPartialFailureSkipsWhatWentOut() throws Exception {
+        List<byte[]> batch = Arrays.asList(
+                QueuedAlert.sms("+15550100", "help", 1).encode(),
+                QueuedAlert.topic(TOPIC, "Alert", "a", 1).encode(),
+                QueuedAlert.topic(TOPIC, "Alert", "b", 2).encode());
+        sns.enqueue(publishResponse());
+        sns.enqueue(batchResponse(1, "<member><Id>1</Id><Code>InternalError</Code>"
+                + "<Message>retry</Message><SenderFault>false</SenderFault></member>"));
+        try {
+            uploader.upload(batch);
+            fail();
+        } catch (IOException expected) {
+            // The drainer backs off and replays the batch
+        }
+        sns.takeRequest();
+        sns.takeRequest();
+
+        sns.enqueue(batchResponse(1, ""));
+        uploader.upload(batch);
+
+        String retried = sns.takeRequest().getBody().readUtf8();
+        assertTrue(retried.contains("member.1.Message=b"));
+        assertFalse(retried.contains("member.2"));
+        assertEquals(3, sns.getRequestCount());
+    }
+
+    @Test
+    public void textsAreRetriedUnlessSnsRejectsThem() throws Exception {
+        List<byte[]> batch = Arrays.asList(
+                QueuedAlert.sms("+15550100", "help", 1).encode(),
+                QueuedAlert.sms("not-a-number", "help", 1).encode());
+        sns.enqueue(new MockResponse().setResponseCode(503));
+        sns.enqueue(new MockResponse().setResponseCode(400).setBody("<ErrorResponse><Error><Type>Sender</Type>"
+                + "<Code>InvalidParameter</Code><Message>Invalid phone number</Message></Error></ErrorResponse>"));
+        try {
+            uploader.upload(batch);
+            fail();
+        } catch (SnsPublisher.SnsException expected) {
+            assertEquals(503, expected.status);
+        }
+
+        // Only the text that failed on SNS's side goes again
+        sns.enqueue(publishResponse());
+        uploader.upload(batch);
+        sns.takeRequest();
+        sns.takeRequest();
+        assertTrue(sns.takeRequest().getBody().readUtf8().contains("PhoneNumber=%2B15550100"));
+        assertEquals("published=1 batches=0 dropped=1", uploader.stats());
+    }
+
+    @Test
+    public void expiredCredentialsAreRefreshedAndNeverDropTheAlert() throws Exception {
+        List<byte[]> batch = Arrays.asList(QueuedAlert.sms("+15550100", "help", 1).encode());
+        MockResponse expired = new MockResponse().setResponseCode(403).setBody("<ErrorResponse><Error>"
+                + "<Type>Sender</Type><Code>ExpiredToken</Code><Message>The security token included in"
+                + " the request is expired</Message></Error></ErrorResponse>");
+        sns.enqueue(expired);
+        sns.enqueue(expired);
+        try {
+            uploader.upload(batch);
+            fail();
+        } catch (SnsPublisher.SnsException e) {
+            assertTrue(e.credentialFault);
+            assertFalse(e.senderFault);
+        }
+        assertEquals(1, refreshes);
+
+        // Tried again with the refreshed credentials
+        sns.enqueue(expired);
+        sns.enqueue(publishResponse());
+        uploader.upload(batch);
+        assertEquals(2, refreshes);
+        assertEquals("published=1 batches=0 dropped=0", uploader.stats());
+    }
+
+    private static MockResponse publishResponse() {
+        return new MockResponse().setBody("<PublishResponse><PublishResult><MessageId>m</MessageId>"
+                + "</PublishResult></PublishResponse>");
+    }
+
+    private static MockResponse batchResponse(int successful, String failed) {
+        StringBuilder body = new StringBuilder("<PublishBatchResponse><PublishBatchResult><Successful>");
+        for (int i = 0; i < successful; i++) {
+            body.append("<member><Id>").append(i).append("</Id><MessageId>m").append(i)
+                    .append("</MessageId></member>");
+        }
+        body.append("</Successful><Failed>").append(failed).append("</Failed>")
+                .append("</PublishBatchResult></PublishBatchResponse>");
+        return new MockResponse().setBody(body.toString());
+    }
+}
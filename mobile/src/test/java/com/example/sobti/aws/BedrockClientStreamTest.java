@@ -0,0 +1,117 @@
+package com.example.sobti.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.sobti.core.aws.EventStreamEncoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BedrockClientStreamTest {
+
+    private MockWebServer server;
+    private BedrockClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        String baseUrl = server.url("/").toString();
+        client = new BedrockClient("us-east-1", "amazon.titan-text-express-v1",
+                baseUrl.substring(0, baseUrl.length() - 1));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void deliversChunksInOrderAsTheyArrive() throws Exception {
+        Buffer body = new Buffer();
+        body.write(chunkFrame("Your heart "));
+        body.write(chunkFrame("rate is "));
+        body.write(chunkFrame("normal."));
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/vnd.amazon.eventstream")
+                .setBody(body)
+                .throttleBody(16, 1, TimeUnit.MILLISECONDS));
+
+        List<String> chunks = new ArrayList<>();
+        String full = client.invokeTitanTextStream("How am I?", chunks::add);
+
+        assertEquals(3, chunks.size());
+        assertEquals("rate is ", chunks.get(1));
+        assertEquals("Your heart rate is normal.", full);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/model/amazon.titan-text-express-v1/invoke-with-response-stream", request.getPath());
+        assertTrue(request.getHeader("Authorization").startsWith("AWS4-HMAC-SHA256 Credential="));
+        assertTrue(request.getBody().readUtf8().contains("\"inputText\":\"How am I?\""));
+    }
+
+    @Test
+    public void exceptionFrameFailsTheCall() throws Exception {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(":message-type", "exception");
+        headers.put(":exception-type", "throttlingException");
+        Buffer body = new Buffer();
+        body.write(chunkFrame("partial "));
+        body.write(EventStreamEncoder.encode(headers,
+                "{\"message\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8)));
+        server.enqueue(new MockResponse().setBody(body));
+
+        List<String> chunks = new ArrayList<>();
+        try {
+            client.invokeTitanTextStream("hi", chunks::add);
+            fail("expected exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("throttlingException"));
+        }
+        assertEquals(1, chunks.size());
+    }
+
+    @Test
+    public void truncatedStreamIsAnError() throws Exception {
+        byte[] frame = chunkFrame("cut off");
+        Buffer body = new Buffer();
+        body.write(frame, 0, frame.length - 5);
+        server.enqueue(new MockResponse().setBody(body));
+
+        try {
+            client.invokeTitanTextStream("hi", text -> { });
+            fail("expected exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("mid-frame"));
+        }
+    }
+
+    // Same shape Bedrock sends for Titan: {"bytes": base64({"outputText": ...})}
+    private static byte[] chunkFrame(String text) {
+        String modelJson = "{\"outputText\":\"" + text + "\",\"index\":0}";
+        String eventJson = "{\"bytes\":\"" + Base64.getEncoder()
+                .encodeToString(modelJson.getBytes(StandardCharsets.UTF_8)) + "\"}";
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(":event-type", "chunk");
+        headers.put(":content-type", "application/json");
+        headers.put(":message-type", "event");
+        return EventStreamEncoder.encode(headers, eventJson.getBytes(StandardCharsets.UTF_8));
+    }
+}
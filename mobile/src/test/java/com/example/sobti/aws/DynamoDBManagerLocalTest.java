@@ -0,0 +1,176 @@
+package com.example.sobti.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.example.sobti.core.timeseries.HistoryRecorder;
+import com.example.sobti.core.timeseries.SampleChunkEncoder;
+import com.example.sobti.core.timeseries.SampleSeries;
+import com.example.sobti.core.user.ItemSize;
+import com.example.sobti.core.user.UserData;
+import com.example.sobti.core.user.UserItemMapper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Runs against DynamoDB Local, e.g.
+//   docker run -p 8000:8000 amazon/dynamodb-local
+//   DYNAMODB_LOCAL_ENDPOINT=http://localhost:8000 ./gradlew :mobile:testDebugUnitTest
+// and is skipped when the variable is not set.
+public class DynamoDBManagerLocalTest {
+
+    private static final String TABLE = "SobtiUsers";
+    private static final String HISTORY_TABLE = "SobtiHealthHistory";
+
+    private AmazonDynamoDBClient client;
+    private DynamoDBManager manager;
+    private String email;
+
+    @Before
+    public void setUp() {
+        String endpoint = System.getenv("DYNAMODB_LOCAL_ENDPOINT");
+        assumeTrue("DYNAMODB_LOCAL_ENDPOINT not set", endpoint != null && !endpoint.isEmpty());
+
+        client = new AmazonDynamoDBClient(new BasicAWSCredentials("local", "local"));
+        client.setEndpoint(endpoint);
+        client.createTable(new CreateTableRequest()
+                .withTableName(TABLE)
+                .withAttributeDefinitions(new AttributeDefinition(UserItemMapper.EMAIL, ScalarAttributeType.S))
+                .withKeySchema(new KeySchemaElement(UserItemMapper.EMAIL, KeyType.HASH))
+                .withProvisionedThroughput(new ProvisionedThroughput(5L, 5L)));
+        client.createTable(new CreateTableRequest()
+                .withTableName(HISTORY_TABLE)
+                .withAttributeDefinitions(
+                        new AttributeDefinition("email", ScalarAttributeType.S),
+                        new AttributeDefinition("chunkStart", ScalarAttributeType.N))
+                .withKeySchema(
+                        new KeySchemaElement("email", KeyType.HASH),
+                        new KeySchemaElement("chunkStart", KeyType.RANGE))
+                .withProvisionedThroughput(new ProvisionedThroughput(5L, 5L)));
+        manager = new DynamoDBManager(client);
+        // Fresh per test, since health-write tracking is process-wide
+        email = "user" + System.nanoTime() + "@example.com";
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.deleteTable(new DeleteTableRequest(TABLE));
+            client.deleteTable(new DeleteTableRequest(HISTORY_TABLE));
+        }
+    }
+
+    @Test
+    public void registrationIsOneConditionalPut() {
+        assertTrue(manager.putUserIfAbsent(user("Asha")));
+        assertFalse(manager.putUserIfAbsent(user("Someone else")));
+
+        assertEquals("Asha", manager.readUser(email).name);
+        // DynamoDB bills the rejected put too, but reports it only through
+        // the exception, so just the first put is counted
+        assertEquals(1.0, manager.consumedWriteUnits(), 0.001);
+    }
+
+    @Test
+    public void unchangedVitalsOnlyMoveTheTimestamp() {
+        manager.putUserIfAbsent(user("Asha"));
+        manager.writeHealthData(email, 72, 1000, "12.97, 77.59", 1);
+        manager.writeHealthData(email, 72, 1000, "12.97, 77.59", 2);
+        manager.writeHealthData(email, 75, 1000, "12.97, 77.59", 3);
+
+        Map<String, AttributeValue> item = rawItem();
+        assertEquals("75", item.get(UserItemMapper.LAST_HEART_RATE).getN());
+        assertEquals("1000", item.get(UserItemMapper.LAST_STEPS).getN());
+        assertEquals("3", item.get(UserItemMapper.LAST_UPDATED).getN());
+
+        // Every write of this item fits one write unit
+        ItemSize size = new ItemSize();
+        UserItemMapper.writeProfile(manager.readUser(email), size);
+        UserItemMapper.writeHealth(75, 1000, "12.97, 77.59", 3, size);
+        assertEquals(1, size.writeUnits());
+        assertEquals(4.0, manager.consumedWriteUnits(), 0.001);
+    }
+
+    @Test
+    public void projectedReadsReturnOnlyWhatCallersUse() {
+        assertNull(manager.readUser(email));
+        assertEquals(-1, manager.readUserVersion(email));
+
+        UserData registered = user("Asha");
+        manager.putUserIfAbsent(registered);
+        assertEquals(registered.createdAt, manager.readUserVersion(email));
+
+        UserData read = manager.readUser(email);
+        assertNotNull(read);
+        assertEquals("Asha", read.name);
+        // Eventually consistent reads of items under 4 KB cost half a unit,
+        // projected or not
+        assertEquals(2.0, manager.consumedReadUnits(), 0.001);
+    }
+
+    @Test
+    public void historyRangeReadsAcrossABucketBoundary() {
+        long boundary = HistoryRecorder.bucketStart(1_700_000_000_000L) + HistoryRecorder.BUCKET_MS;
+        // A minute of samples each side of the boundary, in the chunks the
+        // recorder would write: the open chunk is rewritten as it grows
+        HistoryRecorder recorder = new HistoryRecorder(
+                (chunkStart, chunkEnd, count, chunk) ->
+                        manager.appendHistoryChunk(email, chunkStart, chunkEnd, count, chunk), 20);
+        for (long ts = boundary - 60_000; ts < boundary + 60_000; ts += 1_000) {
+            recorder.append(ts, 60 + (int) ((ts / 1_000) % 40), (int) ((ts - boundary) / 1_000) + 500);
+        }
+        recorder.flush();
+        // Another user's chunk in the same range stays out of the read
+        SampleChunkEncoder other = new SampleChunkEncoder();
+        other.append(boundary, 99, 1);
+        manager.appendHistoryChunk("other" + email, boundary, boundary, 1, other.toByteArray());
+
+        SampleSeries series = manager.readHistory(email, boundary - 10_000, boundary + 9_000);
+        assertEquals(20, series.size());
+        for (int i = 0; i < series.size(); i++) {
+            long ts = boundary - 10_000 + i * 1_000L;
+            assertEquals(ts, series.timestampAt(i));
+            assertEquals(60 + (int) ((ts / 1_000) % 40), series.heartRateAt(i));
+            assertEquals((int) ((ts - boundary) / 1_000) + 500, series.stepsAt(i));
+        }
+
+        assertEquals(0, manager.readHistory(email, boundary + 60_000, boundary + 120_000).size());
+        assertEquals(120, manager.readHistory(email, boundary - 60_000, boundary + 59_000).size());
+    }
+
+    private UserData user(String name) {
+        UserData user = new UserData();
+        user.email = email;
+        user.name = name;
+        user.age = 34;
+        user.height = 170;
+        user.weight = 62;
+        user.emergencyNumber = "+15550100";
+        return user;
+    }
+
+    private Map<String, AttributeValue> rawItem() {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(UserItemMapper.EMAIL, new AttributeValue().withS(email));
+        return client.getItem(new GetItemRequest().withTableName(TABLE).withKey(key)).getItem();
+    }
+}
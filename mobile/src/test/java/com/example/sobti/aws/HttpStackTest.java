@@ -0,0 +1,169 @@
+package com.example.sobti.aws;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpStackTest {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private MockWebServer server;
+    private HttpStack stack;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        stack = new HttpStack(new ConnectionPool(5, 1, TimeUnit.MINUTES));
+        String url = server.url("/").toString();
+        baseUrl = url.substring(0, url.length() - 1);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sequentialCallsReuseOneConnection() throws Exception {
+        HttpStack.Endpoint endpoint = stack.endpoint("test", baseUrl, false);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody("ok"));
+            call(endpoint, endpoint.post("/invoke", endpoint.payload(bytes(10)), JSON).build());
+        }
+
+        assertEquals(0, server.takeRequest().getSequenceNumber());
+        assertEquals(1, server.takeRequest().getSequenceNumber());
+        assertEquals(2, server.takeRequest().getSequenceNumber());
+        HttpStack.Stats stats = endpoint.stats();
+        assertEquals(3, stats.calls);
+        assertEquals(1, stats.newConnections);
+        assertEquals(2, stats.reusedConnections);
+        assertEquals(0, stats.failures);
+    }
+
+    @Test
+    public void endpointsShareThePool() throws Exception {
+        HttpStack.Endpoint warm = stack.endpoint("warm", baseUrl, false);
+        HttpStack.Endpoint other = stack.endpoint("other", baseUrl, false);
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+
+        // A HEAD from one endpoint leaves a connection the other picks up
+        call(warm, new Request.Builder().url(baseUrl).head().build());
+        call(other, new Request.Builder().url(baseUrl + "/invoke").build());
+
+        assertEquals(1, warm.stats().newConnections);
+        assertEquals(1, other.stats().reusedConnections);
+        assertEquals(0, other.stats().newConnections);
+    }
+
+    @Test
+    public void largeBodiesAreGzippedWhenTheEndpointAcceptsIt() throws Exception {
+        HttpStack.Endpoint endpoint = stack.endpoint("gzip", baseUrl, true);
+        byte[] raw = bytes(HttpStack.GZIP_MIN_BYTES * 4);
+        HttpStack.Payload payload = endpoint.payload(raw);
+        assertTrue(payload.gzipped);
+        assertTrue(payload.bytes.length < raw.length);
+
+        server.enqueue(new MockResponse());
+        call(endpoint, endpoint.post("/publish", payload, JSON).build());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        try (InputStream in = new GZIPInputStream(request.getBody().inputStream())) {
+            assertArrayEquals(raw, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void smallOrUnsupportedBodiesAreSentAsIs() throws Exception {
+        byte[] small = bytes(HttpStack.GZIP_MIN_BYTES - 1);
+        HttpStack.Payload payload = stack.endpoint("gzip", baseUrl, true).payload(small);
+        assertFalse(payload.gzipped);
+        assertArrayEquals(small, payload.bytes);
+
+        HttpStack.Endpoint plain = stack.endpoint("plain", baseUrl, false);
+        byte[] large = bytes(HttpStack.GZIP_MIN_BYTES * 4);
+        server.enqueue(new MockResponse());
+        call(plain, plain.post("/invoke", plain.payload(large), JSON).build());
+
+        RecordedRequest request = server.takeRequest();
+        assertNull(request.getHeader("Content-Encoding"));
+        assertEquals(large.length, request.getBodySize());
+    }
+
+    @Test
+    public void sameNameReturnsTheSameEndpoint() throws Exception {
+        HttpStack.Endpoint first = stack.endpoint("bedrock", baseUrl, false);
+        server.enqueue(new MockResponse().setBody("ok"));
+        call(first, first.post("/invoke", first.payload(bytes(10)), JSON).build());
+
+        HttpStack.Endpoint again = stack.endpoint("bedrock", baseUrl, false);
+        assertSame(first, again);
+        assertEquals(1, stack.stats().size());
+        assertEquals(1, stack.stats().get(0).calls);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sameNameWithOtherSettingsIsRejected() {
+        stack.endpoint("bedrock", baseUrl, false);
+        stack.endpoint("bedrock", baseUrl, true);
+    }
+
+    @Test
+    public void failedCallsAreCounted() throws Exception {
+        MockWebServer stopped = new MockWebServer();
+        stopped.start();
+        String url = stopped.url("/invoke").toString();
+        stopped.shutdown();
+        HttpStack.Endpoint endpoint = stack.endpoint("down", url, false);
+
+        try {
+            call(endpoint, new Request.Builder().url(url).build());
+        } catch (IOException expected) {
+            // connection refused
+        }
+
+        assertEquals(1, endpoint.stats().calls);
+        assertEquals(1, endpoint.stats().failures);
+    }
+
+    private static void call(HttpStack.Endpoint endpoint, Request request) throws IOException {
+        try (Response response = endpoint.client().newCall(request).execute()) {
+            response.body().string();
+        }
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] body = new byte[length];
+        Arrays.fill(body, (byte) 'a');
+        byte[] marker = "{\"inputText\":".getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(marker, 0, body, 0, Math.min(marker.length, length));
+        return body;
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.sobti.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+// Generates <Class>Mapper for every class annotated with core's @Item:
+// attribute-name constants, a presized map capacity, and read/write
+// methods over ItemReader/ItemWriter with null-safe decoding. Plain
+// field access and string concatenation only, so the output needs no
+// runtime beyond core.mapping.Items. The annotations are matched by name
+// because core is compiled with this processor, not against it.
+public final class ItemMapperProcessor extends AbstractProcessor {
+
+    static final String ITEM = "com.example.sobti.core.mapping.Item";
+    static final String ATTRIBUTE = "com.example.sobti.core.mapping.Attribute";
+
+    // Constants every mapper declares besides the attribute names
+    private static final Set<String> RESERVED = Set.of("TABLE", "ATTRIBUTES", "MAP_CAPACITY");
+
+    private enum Kind {
+        STRING, INT, LONG, INTEGER, LONG_BOXED;
+
+        static Kind of(String typeName) {
+            switch (typeName) {
+                case "java.lang.String": return STRING;
+                case "int": return INT;
+                case "long": return LONG;
+                case "java.lang.Integer": return INTEGER;
+                case "java.lang.Long": return LONG_BOXED;
+                default: return null;
+            }
+        }
+    }
+
+    private static final class Field {
+        final String field;
+        final String attribute;
+        final String constant;
+        final Kind kind;
+        final boolean required;
+        final boolean write;
+
+        Field(String field, String attribute, Kind kind, boolean required, boolean write) {
+            this.field = field;
+            this.attribute = attribute;
+            this.constant = constantName(field);
+            this.kind = kind;
+            this.required = required;
+            this.write = write;
+        }
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // @Attribute is claimed too, so javac does not warn that nothing
+        // processed it; its fields are read through their @Item class
+        return Set.of(ITEM, ATTRIBUTE);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            if (annotation.getQualifiedName().contentEquals(ATTRIBUTE)) {
+                checkAttributes(round.getElementsAnnotatedWith(annotation));
+                continue;
+            }
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@Item applies to classes only");
+                    continue;
+                }
+                TypeElement type = (TypeElement) element;
+                String table = (String) value(mirror(type, ITEM), "table");
+                List<Field> fields = fields(type);
+                if (fields != null && checkConstructor(type)) {
+                    generate(type, table, fields);
+                }
+            }
+        }
+        return true;
+    }
+
+    // null after reporting an error
+    private List<Field> fields(TypeElement type) {
+        List<Field> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        boolean ok = true;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            AnnotationMirror attribute = mirror(field, ATTRIBUTE);
+            if (attribute == null) {
+                continue;
+            }
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)
+                    || modifiers.contains(Modifier.PRIVATE)) {
+                error(field, "@Attribute fields must be non-private, non-static and non-final");
+                ok = false;
+                continue;
+            }
+            Kind kind = Kind.of(field.asType().toString());
+            if (kind == null) {
+                error(field, "Unsupported @Attribute type " + field.asType()
+                        + "; use String, int, long, Integer or Long");
+                ok = false;
+                continue;
+            }
+            String name = (String) value(attribute, "value");
+            String fieldName = field.getSimpleName().toString();
+            if (name.isEmpty()) {
+                name = fieldName;
+            }
+            if (RESERVED.contains(constantName(fieldName))) {
+                error(field, "Field " + fieldName + " clashes with the generated " + constantName(fieldName));
+                ok = false;
+                continue;
+            }
+            if (!names.add(name)) {
+                error(field, "Duplicate attribute name " + name);
+                ok = false;
+                continue;
+            }
+            fields.add(new Field(fieldName, name, kind,
+                    (Boolean) value(attribute, "required"), (Boolean) value(attribute, "write")));
+        }
+        if (ok && fields.isEmpty()) {
+            error(type, "@Item class has no @Attribute fields");
+            ok = false;
+        }
+        return ok ? fields : null;
+    }
+
+    private boolean checkConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "@Item class must not be abstract");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(type, "@Item class needs a non-private no-arg constructor");
+        return false;
+    }
+
+    private void generate(TypeElement type, String table, List<Field> fields) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.getQualifiedName().toString();
+        String model = type.getSimpleName().toString();
+        String mapper = model + "Mapper";
+        int written = 0;
+        for (Field field : fields) {
+            if (field.write) {
+                written++;
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import com.example.sobti.core.mapping.ItemReader;\n")
+                .append("import com.example.sobti.core.mapping.ItemWriter;\n")
+                .append("import com.example.sobti.core.mapping.Items;\n\n")
+                .append("// Generated by ItemMapperProcessor from ").append(model).append(". Do not edit.\n")
+                .append("public final class ").append(mapper).append(" {\n\n")
+                .append("    public static final String TABLE = ").append(literal(table)).append(";\n\n");
+        for (Field field : fields) {
+            out.append("    public static final String ").append(field.constant).append(" = ")
+                    .append(literal(field.attribute)).append(";\n");
+        }
+        out.append("\n    // Attributes write() can emit, and a HashMap capacity that holds them\n")
+                .append("    public static final int ATTRIBUTES = ").append(written).append(";\n")
+                .append("    public static final int MAP_CAPACITY = Items.mapCapacity(ATTRIBUTES);\n\n")
+                .append("    private ").append(mapper).append("() {\n    }\n\n");
+
+        out.append("    public static ").append(model).append(" read(ItemReader item) {\n")
+                .append("        ").append(model).append(" value = new ").append(model).append("();\n");
+        for (Field field : fields) {
+            out.append("        value.").append(field.field).append(" = ").append(readExpression(field)).append(";\n");
+        }
+        out.append("        return value;\n    }\n\n");
+
+        out.append("    public static void write(").append(model).append(" value, ItemWriter item) {\n");
+        for (Field field : fields) {
+            if (field.write) {
+                out.append(writeStatement(field));
+            }
+        }
+        out.append("    }\n}\n");
+
+        String name = packageName.isEmpty() ? mapper : packageName + "." + mapper;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(name, type).openWriter()) {
+            writer.write(out.toString());
+        } catch (IOException e) {
+            error(type, "Cannot write " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static String readExpression(Field field) {
+        String name = field.constant;
+        switch (field.kind) {
+            case STRING:
+                return field.required ? "Items.requireString(item, " + name + ")" : "item.string(" + name + ")";
+            case INT:
+                return field.required ? "Items.requireInt(item, " + name + ")" : "Items.optInt(item, " + name + ", 0)";
+            case LONG:
+                return field.required ? "Items.requireLong(item, " + name + ")" : "Items.optLong(item, " + name + ", 0L)";
+            case INTEGER:
+                return field.required ? "Items.requireInt(item, " + name + ")" : "Items.optInteger(item, " + name + ")";
+            default:
+                return field.required ? "Items.requireLong(item, " + name + ")" : "Items.optLongValue(item, " + name + ")";
+        }
+    }
+
+    private static String writeStatement(Field field) {
+        String name = field.constant;
+        String access = "value." + field.field;
+        switch (field.kind) {
+            case STRING:
+                if (field.required) {
+                    return "        item.putString(" + name + ", Items.checkSet(" + access + ", " + name + "));\n";
+                }
+                return "        if (" + access + " != null) {\n"
+                        + "            item.putString(" + name + ", " + access + ");\n"
+                        + "        }\n";
+            case INT:
+            case LONG:
+                return "        item.putNumber(" + name + ", " + access + ");\n";
+            default:
+                if (field.required) {
+                    return "        item.putNumber(" + name + ", Items.checkSet(" + access + ", " + name + "));\n";
+                }
+                return "        if (" + access + " != null) {\n"
+                        + "            item.putNumber(" + name + ", " + access + ");\n"
+                        + "        }\n";
+        }
+    }
+
+    // lastHeartRate -> LAST_HEART_RATE
+    static String constantName(String field) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                out.append('_');
+            }
+            out.append(Character.toUpperCase(c));
+        }
+        return out.toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        return out.append('"').toString();
+    }
+
+    // An @Attribute outside an @Item class would be silently ignored
+    private void checkAttributes(Set<? extends Element> attributes) {
+        for (Element element : attributes) {
+            if (mirror(element.getEnclosingElement(), ITEM) == null) {
+                error(element, "@Attribute is only read on fields of an @Item class");
+            }
+        }
+    }
+
+    private static AnnotationMirror mirror(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            Element type = mirror.getAnnotationType().asElement();
+            if (((TypeElement) type).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Object value(AnnotationMirror mirror, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        throw new IllegalStateException("No " + name + " on " + mirror);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.sobti;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.health.services.client.HealthServices;
+import androidx.health.services.client.MeasureCallback;
+import androidx.health.services.client.MeasureClient;
+import androidx.health.services.client.PassiveMonitoringClient;
+import androidx.health.services.client.data.Availability;
+import androidx.health.services.client.data.DataPointContainer;
+import androidx.health.services.client.data.DataType;
+import androidx.health.services.client.data.DeltaDataType;
+import androidx.health.services.client.data.IntervalDataPoint;
+import androidx.health.services.client.data.PassiveListenerConfig;
+import androidx.health.services.client.data.SampleDataPoint;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+// Health Services collection. Passive monitoring runs the whole time: the
+// platform gathers heart rate and daily steps on the sensor hub and hands
+// them over in bundles to PassiveVitalsService, so the app is not woken
+// per beat while the screen is off and keeps collecting after the activity
+// stops. Live delivery adds a MeasureClient callback for per-beat heart
+// rate, and is dropped again as soon as the activity asks for batching or
+// stops. Both paths can report the same reading, so samples at or before
+// the newest one delivered are skipped.
+public class HealthServicesVitalsSource implements VitalsSource {
+
+    private static final String TAG = "HealthServicesSource";
+    private static final int DELIVERY_CAPACITY = 256;
+
+    private final PassiveMonitoringClient passiveClient;
+    private final MeasureClient measureClient;
+    private final SampleRingBuffer delivery = new SampleRingBuffer(DELIVERY_CAPACITY);
+    private final List<SampleDataPoint<Double>> points = new ArrayList<>();
+    private Executor executor;
+    private Listener listener;
+    private boolean started;
+    private boolean registered;
+    private boolean live = true;
+    private boolean measuring;
+
+    private long lastTimestamp;
+    private int steps;
+
+    private final MeasureCallback measureCallback = new MeasureCallback() {
+        @Override
+        public void onAvailabilityChanged(@NonNull DeltaDataType<?, ?> dataType,
+                                          @NonNull Availability availability) {
+            Log.d(TAG, "Heart rate availability " + availability);
+        }
+
+        @Override
+        public void onDataReceived(@NonNull DataPointContainer data) {
+            if (started) {
+                deliver(data, true, listener);
+            }
+        }
+    };
+
+    public HealthServicesVitalsSource(Context context) {
+        Context app = context.getApplicationContext();
+        this.passiveClient = HealthServices.getClient(app).getPassiveMonitoringClient();
+        this.measureClient = HealthServices.getClient(app).getMeasureClient();
+    }
+
+    @Override
+    public void start(Listener listener, Handler handler) {
+        if (started) {
+            return;
+        }
+        this.listener = listener;
+        this.executor = handler::post;
+        started = true;
+        registerPassive();
+        updateMeasuring();
+        listener.onStatus("Heart Rate: Active");
+    }
+
+    // The registration outlives the activity and the process, so once per
+    // source is enough
+    private void registerPassive() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        Set<DataType<?, ?>> types = new HashSet<>();
+        types.add(DataType.HEART_RATE_BPM);
+        types.add(DataType.STEPS_DAILY);
+        ListenableFuture<Void> result = passiveClient.setPassiveListenerServiceAsync(
+                PassiveVitalsService.class, PassiveListenerConfig.builder().setDataTypes(types).build());
+        Listener status = listener;
+        result.addListener(() -> {
+            try {
+                result.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.w(TAG, "Passive monitoring unavailable", e);
+                registered = false;
+                status.onStatus("Heart Rate: Unavailable");
+            }
+        }, executor);
+    }
+
+    // A bundle PassiveVitalsService received, on the sampler thread. It
+    // arrives whether or not the source is started.
+    void onPassiveData(DataPointContainer data, Listener listener) {
+        deliver(data, false, listener);
+    }
+
+    @Override
+    public void setLive(boolean live) {
+        this.live = live;
+        updateMeasuring();
+    }
+
+    @Override
+    public void stop() {
+        // Only the live callback goes; passive bundles keep arriving
+        started = false;
+        updateMeasuring();
+    }
+
+    private void updateMeasuring() {
+        boolean want = started && live;
+        if (want == measuring) {
+            return;
+        }
+        measuring = want;
+        if (want) {
+            measureClient.registerMeasureCallback(DataType.HEART_RATE_BPM, executor, measureCallback);
+        } else {
+            measureClient.unregisterMeasureCallbackAsync(DataType.HEART_RATE_BPM, measureCallback);
+        }
+    }
+
+    private void deliver(DataPointContainer data, boolean fromMeasure, Listener listener) {
+        // Data point times are relative to boot
+        Instant boot = Instant.ofEpochMilli(System.currentTimeMillis() - SystemClock.elapsedRealtime());
+        List<IntervalDataPoint<Long>> stepPoints = data.getData(DataType.STEPS_DAILY);
+        if (!stepPoints.isEmpty()) {
+            steps = stepPoints.get(stepPoints.size() - 1).getValue().intValue();
+        }
+
+        points.clear();
+        points.addAll(data.getData(DataType.HEART_RATE_BPM));
+        Collections.sort(points, (a, b) -> a.getTimeDurationFromBoot().compareTo(b.getTimeDurationFromBoot()));
+        delivery.clear();
+        for (SampleDataPoint<Double> point : points) {
+            long timestamp = point.getTimeInstant(boot).toEpochMilli();
+            if (timestamp <= lastTimestamp) {
+                continue;
+            }
+            lastTimestamp = timestamp;
+            delivery.add(timestamp, (int) Math.round(point.getValue()), steps);
+            if (delivery.size() == delivery.capacity()) {
+                listener.onSamples(delivery, fromMeasure);
+                delivery.clear();
+            }
+        }
+        points.clear();
+        if (!delivery.isEmpty()) {
+            listener.onSamples(delivery, fromMeasure);
+        }
+    }
+}
@@ -2,57 +2,65 @@ package com.example.sobti;
 
 import android.Manifest;
 import android.content.pm.PackageManager;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Bundle;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.FragmentActivity;
-import com.google.android.gms.tasks.Task;
-import com.google.android.gms.wearable.*;
-import java.util.Random;
+import androidx.lifecycle.Lifecycle;
+import androidx.wear.ambient.AmbientModeSupport;
 
-public class MainActivity extends FragmentActivity implements SensorEventListener {
+// Shows the newest reading; sampling, sending and the display cadence live
+// in the process-wide WatchSampler. Live sampling runs from onStart to
+// onStop, batched while the screen is ambient, and the views are left alone
+// until it is interactive again. Health Services keeps collecting passively
+// after onStop.
+public class MainActivity extends FragmentActivity
+        implements WatchSampler.Display, AmbientModeSupport.AmbientCallbackProvider {
 
     private static final int PERMISSION_REQUEST_CODE = 100;
-    private static final String DATA_PATH = "/health_data";
 
     private TextView tvHeartRate, tvSteps, tvStatus;
-    private SensorManager sensorManager;
-    private Sensor heartRateSensor;
-    private Sensor stepCounterSensor;
+    private WatchSampler sampler;
+    private boolean ambient;
 
-    private int currentHeartRate = 0;
-    private int currentSteps = 0;
-
-    private DataClient dataClient;
+    // What the views show, so unchanged readings skip setText
+    private int shownHeartRate = -1;
+    private int shownSteps = -1;
+    private int shownAlert = -1;
+    private int alertColor;
+    private int normalColor;
 
     // Test/Fake heart rate simulation
     private boolean useTestMode = true; // Set to false for real sensor data
-    private Random random = new Random();
-    private int testHeartRate = 75;
-    private int testTrendCounter = 0;
-    private boolean testIncreasing = false;
-    private boolean testDecreasing = false;
+    // Health Services batching; false uses raw SensorManager listeners
+    private boolean useHealthServices = true;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        AmbientModeSupport.attach(this);
 
         initViews();
+        alertColor = getColor(android.R.color.holo_red_dark);
+        normalColor = getColor(android.R.color.holo_green_dark);
         requestPermissions();
-        setupSensors();
 
-        dataClient = Wearable.getDataClient(this);
+        sampler = WatchSampler.get(this);
+        sampler.attach(this, this::createVitalsSource);
+    }
 
-        // Start test mode if enabled
+    private VitalsSource createVitalsSource() {
         if (useTestMode) {
-            startTestMode();
+            return new TestVitalsSource();
+        }
+        if (useHealthServices) {
+            return new HealthServicesVitalsSource(this);
         }
+        // The source outlives this activity
+        return new SensorVitalsSource((SensorManager) getApplicationContext().getSystemService(SENSOR_SERVICE));
     }
 
     private void initViews() {
@@ -70,160 +78,93 @@ public class MainActivity extends FragmentActivity implements SensorEventListene
         ActivityCompat.requestPermissions(this, permissions, PERMISSION_REQUEST_CODE);
     }
 
-    private void setupSensors() {
-        sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
-
-        if (sensorManager != null) {
-            heartRateSensor = sensorManager.getDefaultSensor(Sensor.TYPE_HEART_RATE);
-            stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+    private boolean hasSensorPermissions() {
+        return useTestMode
+                || (checkSelfPermission(Manifest.permission.BODY_SENSORS) == PackageManager.PERMISSION_GRANTED
+                && checkSelfPermission(Manifest.permission.ACTIVITY_RECOGNITION) == PackageManager.PERMISSION_GRANTED);
+    }
 
-            if (heartRateSensor != null && !useTestMode) {
-                sensorManager.registerListener(this, heartRateSensor, SensorManager.SENSOR_DELAY_NORMAL);
-                tvStatus.setText("Heart Rate: Active");
-            } else {
-                tvStatus.setText("Test Mode: Active");
-            }
+    @Override
+    public void show(int heartRate, int steps, boolean alert) {
+        if (heartRate != shownHeartRate) {
+            shownHeartRate = heartRate;
+            tvHeartRate.setText(heartRate + " bpm");
+        }
+        if (steps != shownSteps) {
+            shownSteps = steps;
+            tvSteps.setText(String.valueOf(steps));
+        }
 
-            if (stepCounterSensor != null) {
-                sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_NORMAL);
-            }
+        // Update status color based on heart rate
+        int level = alert ? 1 : 0;
+        if (level == shownAlert) {
+            return;
+        }
+        shownAlert = level;
+        if (alert) {
+            tvStatus.setTextColor(alertColor);
+            tvStatus.setText(useTestMode ? "Test: ALERT!" : "Status: ALERT!");
+        } else {
+            tvStatus.setTextColor(normalColor);
+            tvStatus.setText(useTestMode ? "Test Mode: Normal" : "Status: Normal");
         }
     }
 
-    private void startTestMode() {
-        // Simulate heart rate readings every 3 seconds
-        new Thread(() -> {
-        while (useTestMode) {
-            try {
-                Thread.sleep(3000);
-
-                // Randomly decide to simulate abnormal patterns
-                if (random.nextInt(20) == 0 && !testIncreasing && !testDecreasing) {
-                    // Start increasing trend
-                    testIncreasing = true;
-                    testTrendCounter = 0;
-                } else if (random.nextInt(20) == 1 && !testIncreasing && !testDecreasing) {
-                    // Start decreasing trend
-                    testDecreasing = true;
-                    testTrendCounter = 0;
-                }
-
-                // Generate heart rate based on current trend
-                if (testIncreasing) {
-                    testHeartRate += random.nextInt(8) + 5; // Increase by 5-12
-                    testTrendCounter++;
-
-                    if (testTrendCounter >= 5 || testHeartRate > 140) {
-                        testIncreasing = false;
-                        testTrendCounter = 0;
-                    }
-                } else if (testDecreasing) {
-                    testHeartRate -= random.nextInt(8) + 5; // Decrease by 5-12
-                    testTrendCounter++;
-
-                    if (testTrendCounter >= 5 || testHeartRate < 40) {
-                        testDecreasing = false;
-                        testTrendCounter = 0;
-                    }
-                } else {
-                    // Normal fluctuation
-                    int change = random.nextInt(11) - 5; // -5 to +5
-                    testHeartRate += change;
-
-                    // Keep in reasonable range
-                    if (testHeartRate < 60) testHeartRate = 60 + random.nextInt(10);
-                    if (testHeartRate > 100) testHeartRate = 90 + random.nextInt(10);
-                }
-
-                currentHeartRate = testHeartRate;
-                currentSteps += random.nextInt(5); // Simulate steps
-
-                runOnUiThread(() -> {
-                    updateUI();
-                    sendDataToPhone();
-                });
-
-            } catch (InterruptedException e) {
-                break;
-            }
-        }
-    }).start();
+    @Override
+    public void showStatus(String status) {
+        tvStatus.setText(status);
+        // The next reading sets the alert state again
+        shownAlert = -1;
     }
 
     @Override
-    public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_HEART_RATE) {
-            currentHeartRate = (int) event.values[0];
-            updateUI();
-            sendDataToPhone();
-        } else if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
-            currentSteps = (int) event.values[0];
-            updateUI();
-            sendDataToPhone();
+    protected void onStart() {
+        super.onStart();
+        if (hasSensorPermissions()) {
+            sampler.start();
         }
     }
 
     @Override
-    public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        // Not needed for this implementation
+    protected void onResume() {
+        super.onResume();
+        sampler.setInteractive(!ambient);
     }
 
-    private void updateUI() {
-        tvHeartRate.setText(currentHeartRate + " bpm");
-        tvSteps.setText(String.valueOf(currentSteps));
-
-        // Update status color based on heart rate
-        if (currentHeartRate > 120 || currentHeartRate < 50) {
-            tvStatus.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
-            if (useTestMode) {
-                tvStatus.setText("Test: ALERT!");
-            } else {
-                tvStatus.setText("Status: ALERT!");
-            }
-        } else {
-            tvStatus.setTextColor(getResources().getColor(android.R.color.holo_green_dark));
-            if (useTestMode) {
-                tvStatus.setText("Test Mode: Normal");
-            } else {
-                tvStatus.setText("Status: Normal");
-            }
-        }
+    @Override
+    protected void onPause() {
+        super.onPause();
+        sampler.setInteractive(false);
     }
 
-    private void sendDataToPhone() {
-        PutDataMapRequest dataMap = PutDataMapRequest.create(DATA_PATH);
-        dataMap.getDataMap().putInt("heartRate", currentHeartRate);
-        dataMap.getDataMap().putInt("steps", currentSteps);
-        dataMap.getDataMap().putLong("timestamp", System.currentTimeMillis());
-
-        PutDataRequest request = dataMap.asPutDataRequest();
-        request.setUrgent();
-
-        Task<DataItem> putDataTask = dataClient.putDataItem(request);
-        putDataTask.addOnSuccessListener(dataItem -> {
-        // Data sent successfully
-    });
+    @Override
+    protected void onStop() {
+        super.onStop();
+        sampler.stop();
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        if (sensorManager != null && !useTestMode) {
-            if (heartRateSensor != null) {
-                sensorManager.registerListener(this, heartRateSensor, SensorManager.SENSOR_DELAY_NORMAL);
-            }
-            if (stepCounterSensor != null) {
-                sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_NORMAL);
-            }
-        }
+    protected void onDestroy() {
+        super.onDestroy();
+        // The sampler and its journal belong to the process
+        sampler.detach(this);
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
-        }
+    public AmbientModeSupport.AmbientCallback getAmbientCallback() {
+        return new AmbientModeSupport.AmbientCallback() {
+            @Override
+            public void onEnterAmbient(Bundle ambientDetails) {
+                ambient = true;
+                sampler.setInteractive(false);
+            }
+
+            @Override
+            public void onExitAmbient() {
+                ambient = false;
+                sampler.setInteractive(true);
+            }
+        };
     }
 
     @Override
@@ -240,9 +181,9 @@ public class MainActivity extends FragmentActivity implements SensorEventListene
                 }
             }
 
-            if (allGranted) {
-                setupSensors();
+            if (allGranted && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+                sampler.start();
             }
         }
     }
-}
\ No newline at end of file
+}
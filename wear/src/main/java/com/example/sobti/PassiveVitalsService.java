@@ -0,0 +1,25 @@
+package com.example.sobti;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.health.services.client.PassiveListenerService;
+import androidx.health.services.client.data.DataPointContainer;
+
+// Where Health Services hands over passive bundles. The platform binds it
+// whenever it has data, with or without an activity, and starts the
+// process for it if need be, so collection does not end at onStop.
+public class PassiveVitalsService extends PassiveListenerService {
+
+    private static final String TAG = "PassiveVitalsService";
+
+    @Override
+    public void onNewDataPointsReceived(@NonNull DataPointContainer data) {
+        WatchSampler.get(this).onPassiveData(data);
+    }
+
+    @Override
+    public void onPermissionLost() {
+        Log.w(TAG, "Sensor permission revoked; passive monitoring has stopped");
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.sobti;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.sobti.core.dispatch.AppDispatcher;
+import com.example.sobti.core.dispatch.WorkClass;
+import com.example.sobti.core.journal.SampleJournal;
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.example.sobti.core.sample.SendPolicy;
+import com.example.sobti.core.transport.SampleBatchCodec;
+import com.google.android.gms.wearable.MessageClient;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeClient;
+import com.google.android.gms.wearable.PutDataMapRequest;
+import com.google.android.gms.wearable.DataClient;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+// Buffers samples on the watch and ships them to the phone as packed batches
+// over MessageClient. The SendPolicy decides when a batch goes out: steady
+// readings wait for a full batch or the policy's delay, a reading that moved
+// past its thresholds goes at once, and alert-level readings are urgent. All
+// public methods must be called on the looper the batcher was created with.
+//
+// Every sample is first appended to the journal, and batch seqs are journal
+// seqs. The phone acknowledges the highest seq it has recorded without gaps.
+// When that lags what was sent live, the phone missed batches while out of
+// range, and the gap is streamed from the journal on BACKFILL_PATH one chunk
+// per acknowledgement. Acknowledged journal segments are then deleted.
+public class SampleBatcher implements MessageClient.OnMessageReceivedListener {
+
+    private static final String TAG = "SampleBatcher";
+
+    public static final String BATCH_PATH = "/health_batch";
+    public static final String BACKFILL_PATH = "/health_backfill";
+    public static final String ACK_PATH = "/health_ack";
+
+    private static final int BACKFILL_CHUNK = 512;
+    // Resend an unacknowledged backfill chunk after this long
+    private static final long BACKFILL_RETRY_MS = 15_000L;
+
+    private static final int BUFFER_CAPACITY = 256;
+    // How long release() waits for acknowledgements still being handled
+    private static final long RELEASE_WAIT_MS = 5_000L;
+
+    private final MessageClient messageClient;
+    private final NodeClient nodeClient;
+    private final DataClient dataClient;
+    private final SampleRingBuffer buffer = new SampleRingBuffer(BUFFER_CAPACITY);
+    private final Handler handler;
+    private final Runnable flushTask = () -> flush(false);
+    private final SampleJournal journal;
+    private final SendPolicy policy;
+
+    private long batchFirstSeq;
+    private long fallbackSeq;
+    // Highest seq handed to a live send; backfill never goes past it
+    private volatile long liveSentThrough = -1;
+    private long batchesSent;
+
+    // Backfill state, only touched on the BACKGROUND thread
+    private final SampleRingBuffer backfillBuffer = new SampleRingBuffer(BACKFILL_CHUNK);
+    private long backfillSentThrough = -1;
+    private long backfillSentAt;
+
+    // Acknowledgements handed to BACKGROUND and not yet done; guarded by acks
+    private final Object acks = new Object();
+    private int acksPending;
+    private boolean released;
+
+    // journal may be null if it could not be opened; batches are then sent
+    // live only, as before
+    public SampleBatcher(MessageClient messageClient, NodeClient nodeClient, DataClient dataClient,
+                         SampleJournal journal, SendPolicy policy, Looper looper) {
+        this.handler = new Handler(looper);
+        this.policy = policy;
+        this.messageClient = messageClient;
+        this.nodeClient = nodeClient;
+        this.dataClient = dataClient;
+        this.journal = journal;
+        this.fallbackSeq = System.currentTimeMillis() * 1000;
+        messageClient.addListener(this);
+    }
+
+    public void add(long timestamp, int heartRate, int steps, boolean alert) {
+        long seq = fallbackSeq++;
+        if (journal != null) {
+            try {
+                seq = journal.append(timestamp, heartRate, steps);
+            } catch (IOException e) {
+                Log.w(TAG, "Journal append failed", e);
+            }
+        }
+        if (buffer.isEmpty()) {
+            batchFirstSeq = seq;
+            handler.postDelayed(flushTask, policy.maxDelayMs());
+        }
+        buffer.add(timestamp, heartRate, steps);
+
+        int action = policy.onSample(timestamp, heartRate, steps, alert);
+        if (action != SendPolicy.HOLD) {
+            flush(action == SendPolicy.URGENT);
+        }
+    }
+
+    public void flush(boolean alert) {
+        handler.removeCallbacks(flushTask);
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        byte[] payload = SampleBatchCodec.encode(buffer, batchFirstSeq, alert);
+        liveSentThrough = batchFirstSeq + buffer.size() - 1;
+        int newest = buffer.size() - 1;
+        policy.sent(buffer.heartRateAt(newest), buffer.stepsAt(newest));
+        buffer.clear();
+        batchesSent++;
+
+        send(payload, alert);
+    }
+
+    public long batchesSent() {
+        return batchesSent;
+    }
+
+    // Closes the journal before returning, once no acknowledgement can
+    // still touch it. If one is stuck past RELEASE_WAIT_MS the journal is
+    // left open rather than closed under it.
+    public void release() {
+        flush(false);
+        handler.removeCallbacks(flushTask);
+        messageClient.removeListener(this);
+        if (journal == null) {
+            return;
+        }
+        synchronized (acks) {
+            released = true;
+            long deadline = System.currentTimeMillis() + RELEASE_WAIT_MS;
+            while (acksPending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    Log.w(TAG, acksPending + " acknowledgements still running; journal left open");
+                    return;
+                }
+                try {
+                    acks.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Journal close failed", e);
+        }
+    }
+
+    @Override
+    public void onMessageReceived(@NonNull MessageEvent messageEvent) {
+        if (!ACK_PATH.equals(messageEvent.getPath()) || journal == null) {
+            return;
+        }
+        long acked = ByteBuffer.wrap(messageEvent.getData()).getLong();
+        String nodeId = messageEvent.getSourceNodeId();
+        synchronized (acks) {
+            // Delivered after removeListener; the journal is closing
+            if (released) {
+                return;
+            }
+            acksPending++;
+        }
+        // Compaction and journal reads touch files; keep them off the main thread
+        try {
+            AppDispatcher.get().execute(WorkClass.BACKGROUND, () -> {
+                try {
+                    onAck(nodeId, acked);
+                } finally {
+                    ackDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The next acknowledgement asks again
+            Log.w(TAG, "Acknowledgement dropped", e);
+            ackDone();
+        }
+    }
+
+    private void ackDone() {
+        synchronized (acks) {
+            acksPending--;
+            acks.notifyAll();
+        }
+    }
+
+    private void onAck(String nodeId, long acked) {
+        try {
+            journal.acknowledge(acked);
+            long through = liveSentThrough;
+            if (acked >= through) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (backfillSentThrough > acked && now - backfillSentAt < BACKFILL_RETRY_MS) {
+                // A chunk is still on its way; its ack will ask for the next one
+                return;
+            }
+            int max = (int) Math.min(BACKFILL_CHUNK, through - acked);
+            long firstSeq = journal.read(acked + 1, max, backfillBuffer);
+            if (firstSeq < 0) {
+                return;
+            }
+            byte[] payload = SampleBatchCodec.encode(backfillBuffer, firstSeq, false);
+            backfillSentThrough = firstSeq + backfillBuffer.size() - 1;
+            backfillSentAt = now;
+            messageClient.sendMessage(nodeId, BACKFILL_PATH, payload)
+                    .addOnFailureListener(e -> Log.w(TAG, "Backfill send failed", e));
+        } catch (IOException e) {
+            Log.w(TAG, "Backfill from journal failed", e);
+        }
+    }
+
+    private void send(byte[] payload, boolean alert) {
+        nodeClient.getConnectedNodes()
+                .addOnSuccessListener(nodes -> {
+                    if (nodes.isEmpty()) {
+                        sendAsDataItem(payload, alert);
+                    } else {
+                        sendToNodes(nodes, payload);
+                    }
+                })
+                .addOnFailureListener(e -> sendAsDataItem(payload, alert));
+    }
+
+    private void sendToNodes(List<Node> nodes, byte[] payload) {
+        for (Node node : nodes) {
+            messageClient.sendMessage(node.getId(), BATCH_PATH, payload)
+                    .addOnFailureListener(e -> Log.w(TAG, "Batch send to " + node.getId() + " failed", e));
+        }
+    }
+
+    // No phone in range. With a journal the batch waits there for backfill;
+    // alerts (and everything, without a journal) also go to the Data Layer,
+    // which may still reach the phone through the cloud. Each batch gets an
+    // item of its own under BATCH_PATH, so a later one never replaces it,
+    // and the phone deletes it once consumed.
+    private void sendAsDataItem(byte[] payload, boolean alert) {
+        if (journal != null && !alert) {
+            return;
+        }
+        PutDataMapRequest dataMap = PutDataMapRequest.create(
+                BATCH_PATH + "/" + SampleBatchCodec.firstSeq(payload));
+        dataMap.getDataMap().putByteArray("batch", payload);
+        dataMap.getDataMap().putLong("timestamp", System.currentTimeMillis());
+        if (alert) {
+            dataMap.setUrgent();
+        }
+        dataClient.putDataItem(dataMap.asPutDataRequest())
+                .addOnFailureListener(e -> Log.w(TAG, "Batch data item failed", e));
+    }
+}
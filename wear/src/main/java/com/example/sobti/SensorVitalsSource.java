@@ -0,0 +1,114 @@
+package com.example.sobti;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener2;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+// The raw SensorManager path. Live, every event is delivered as it comes;
+// batched, the listeners are registered with a report latency so the sensor
+// hub holds events in its FIFO and wakes the app once per window instead of
+// once per beat. Batched events keep the time they were measured.
+public class SensorVitalsSource implements VitalsSource, SensorEventListener2 {
+
+    // How long the hub may hold events while batched
+    private static final int MAX_REPORT_LATENCY_US = 60_000_000;
+
+    private final SensorManager sensorManager;
+    private final Sensor heartRateSensor;
+    private final Sensor stepCounterSensor;
+    private Handler handler;
+    private final SampleRingBuffer delivery = new SampleRingBuffer(1);
+    private Listener listener;
+    private boolean live = true;
+    private boolean started;
+    // Flushes still owed before re-registering with the new latency
+    private int pendingFlushes;
+
+    private int heartRate;
+    private int steps;
+
+    public SensorVitalsSource(SensorManager sensorManager) {
+        this.sensorManager = sensorManager;
+        this.heartRateSensor = sensorManager.getDefaultSensor(Sensor.TYPE_HEART_RATE);
+        this.stepCounterSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_COUNTER);
+    }
+
+    @Override
+    public void start(Listener listener, Handler handler) {
+        this.listener = listener;
+        this.handler = handler;
+        started = true;
+        register();
+        listener.onStatus(heartRateSensor != null ? "Heart Rate: Active" : "Heart Rate: No sensor");
+    }
+
+    @Override
+    public void setLive(boolean live) {
+        if (this.live == live) {
+            return;
+        }
+        this.live = live;
+        if (started) {
+            // Unregistering would drop what the hub is holding, so drain it first
+            pendingFlushes = (heartRateSensor != null ? 1 : 0) + (stepCounterSensor != null ? 1 : 0);
+            if (pendingFlushes == 0 || !sensorManager.flush(this)) {
+                pendingFlushes = 0;
+                register();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        started = false;
+        pendingFlushes = 0;
+        sensorManager.unregisterListener(this);
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (event.sensor.getType() == Sensor.TYPE_HEART_RATE) {
+            heartRate = (int) event.values[0];
+        } else if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
+            steps = (int) event.values[0];
+        } else {
+            return;
+        }
+        // Event timestamps are elapsed-realtime nanos
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - event.timestamp) / 1_000_000L;
+        delivery.clear();
+        delivery.add(System.currentTimeMillis() - Math.max(0, ageMs), heartRate, steps);
+        listener.onSamples(delivery, live);
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+        // Not needed for this implementation
+    }
+
+    // Called once per sensor the flush covered
+    @Override
+    public void onFlushCompleted(Sensor sensor) {
+        if (pendingFlushes > 0 && --pendingFlushes == 0 && started) {
+            register();
+        }
+    }
+
+    private void register() {
+        sensorManager.unregisterListener(this);
+        int latencyUs = live ? 0 : MAX_REPORT_LATENCY_US;
+        if (heartRateSensor != null) {
+            sensorManager.registerListener(this, heartRateSensor,
+                    SensorManager.SENSOR_DELAY_NORMAL, latencyUs, handler);
+        }
+        if (stepCounterSensor != null) {
+            sensorManager.registerListener(this, stepCounterSensor,
+                    SensorManager.SENSOR_DELAY_NORMAL, latencyUs, handler);
+        }
+    }
+}
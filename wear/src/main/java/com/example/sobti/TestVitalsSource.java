@@ -0,0 +1,91 @@
+package com.example.sobti;
+
+import android.os.Handler;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+import java.util.Random;
+
+// Simulated readings every 3 seconds, with the odd rising or falling run so
+// the alert path can be exercised without a wrist. Always live.
+public class TestVitalsSource implements VitalsSource {
+
+    private static final long INTERVAL_MS = 3_000L;
+
+    private Handler handler;
+    private final SampleRingBuffer delivery = new SampleRingBuffer(1);
+    private final Random random = new Random();
+    private Listener listener;
+
+    private int heartRate = 75;
+    private int steps = 0;
+    private int trendCounter = 0;
+    private boolean increasing = false;
+    private boolean decreasing = false;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            next();
+            delivery.clear();
+            delivery.add(System.currentTimeMillis(), heartRate, steps);
+            listener.onSamples(delivery, true);
+            handler.postDelayed(this, INTERVAL_MS);
+        }
+    };
+
+    @Override
+    public void start(Listener listener, Handler handler) {
+        this.listener = listener;
+        this.handler = handler;
+        listener.onStatus("Test Mode: Active");
+        handler.removeCallbacks(tick);
+        handler.postDelayed(tick, INTERVAL_MS);
+    }
+
+    @Override
+    public void setLive(boolean live) {
+        // Nothing to batch
+    }
+
+    @Override
+    public void stop() {
+        if (handler != null) {
+            handler.removeCallbacks(tick);
+        }
+    }
+
+    private void next() {
+        // Randomly decide to simulate abnormal patterns
+        if (random.nextInt(20) == 0 && !increasing && !decreasing) {
+            increasing = true;
+            trendCounter = 0;
+        } else if (random.nextInt(20) == 1 && !increasing && !decreasing) {
+            decreasing = true;
+            trendCounter = 0;
+        }
+
+        if (increasing) {
+            heartRate += random.nextInt(8) + 5; // Increase by 5-12
+            trendCounter++;
+            if (trendCounter >= 5 || heartRate > 140) {
+                increasing = false;
+                trendCounter = 0;
+            }
+        } else if (decreasing) {
+            heartRate -= random.nextInt(8) + 5; // Decrease by 5-12
+            trendCounter++;
+            if (trendCounter >= 5 || heartRate < 40) {
+                decreasing = false;
+                trendCounter = 0;
+            }
+        } else {
+            // Normal fluctuation, -5 to +5, kept in a resting range
+            heartRate += random.nextInt(11) - 5;
+            if (heartRate < 60) heartRate = 60 + random.nextInt(10);
+            if (heartRate > 100) heartRate = 90 + random.nextInt(10);
+        }
+
+        steps += random.nextInt(5); // Simulate steps
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sobti;
+
+import android.os.Handler;
+
+import com.example.sobti.core.sample.SampleRingBuffer;
+
+// Where the watch's heart rate and steps come from. A source delivers
+// samples either live, as each reading arrives, or batched, in bundles the
+// sensor hub or Health Services collected while the app slept. WatchSampler
+// asks for live delivery only while someone is looking or an alert is
+// active. All methods are called on the sampler thread, and callbacks
+// arrive there too.
+public interface VitalsSource {
+
+    interface Listener {
+        // Oldest first, on the handler's thread. The buffer belongs to the
+        // source and is only valid during the call.
+        void onSamples(SampleRingBuffer samples, boolean live);
+
+        void onStatus(String status);
+    }
+
+    // The caller holds the sensor permissions; callbacks run on handler
+    void start(Listener listener, Handler handler);
+
+    void setLive(boolean live);
+
+    // Ends live delivery. A source that collects in the background may
+    // still hand over bundles afterwards.
+    void stop();
+}
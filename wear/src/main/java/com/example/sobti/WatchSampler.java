@@ -0,0 +1,296 @@
+package com.example.sobti;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.health.services.client.data.DataPointContainer;
+
+import com.example.sobti.core.journal.SampleJournal;
+import com.example.sobti.core.sample.SampleRingBuffer;
+import com.example.sobti.core.sample.SendPolicy;
+import com.example.sobti.core.sample.WakeupMeter;
+import com.google.android.gms.wearable.Wearable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// The watch's sampling pipeline. One "sampler" thread takes every delivery
+// from the VitalsSource and hands it to the SampleBatcher, which journals it
+// into its primitive ring buffer and lets the SendPolicy decide when the
+// radio wakes. Sampling, sending and drawing are decoupled: the screen only
+// learns the newest reading, at most once per DISPLAY_INTERVAL_MS, and is
+// not redrawn at all while ambient. Delivery is live while the screen is
+// interactive or for a while after an alert-level reading, and batched
+// otherwise.
+//
+// There is one per process, so the journal has a single writer however
+// often the activity is recreated, and Health Services bundles that arrive
+// with no activity at all still reach it. Public methods are called on the
+// main thread. The activity attaches itself as the Display while it exists
+// and picks the source once; start() and stop() follow its onStart/onStop.
+// Once stopped, live delivery is off and the buffer has been sent; only a
+// source that collects in the background, like Health Services, still
+// hands over bundles, which are journalled and batched as usual.
+public class WatchSampler implements VitalsSource.Listener {
+
+    private static final String TAG = "WatchSampler";
+
+    public interface Display {
+        // Called on the main thread
+        void show(int heartRate, int steps, boolean alert);
+
+        void showStatus(String status);
+    }
+
+    private static final int HIGH_HR_THRESHOLD = 120;
+    private static final int LOW_HR_THRESHOLD = 50;
+    // Per-beat delivery continues this long after the last alert-level reading
+    private static final long LIVE_AFTER_ALERT_MS = 5 * 60_000L;
+    private static final long DISPLAY_INTERVAL_MS = 1_000L;
+
+    // Steady readings go out every five minutes or 120 samples; a 10 bpm
+    // move or 100 more steps go at once
+    private static final int SEND_HEART_RATE_DELTA = 10;
+    private static final int SEND_STEPS_DELTA = 100;
+    private static final int MAX_BATCH_SAMPLES = 120;
+    private static final long MAX_BATCH_DELAY_MS = 5 * 60_000L;
+
+    // 2048 records is about 1.7 hours at one reading every 3 s; 64 segments
+    // keep four to five days while the phone is away
+    private static final int JOURNAL_SEGMENT_RECORDS = 2048;
+    private static final int JOURNAL_MAX_SEGMENTS = 64;
+
+    private static final int WAKE_SAMPLER = 0;
+    private static final int WAKE_DRAW = 1;
+    private static final long NO_READING = -1L;
+
+    private static WatchSampler instance;
+
+    private final Context context;
+    private volatile VitalsSource source;
+    private volatile Display display;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean drawPending = new AtomicBoolean();
+    private final Runnable drawTask = this::onDrawTask;
+
+    // Newest reading, heart rate in the high word
+    private volatile long latest = NO_READING;
+    private volatile boolean interactive;
+    private volatile long lastDrawAt;
+
+    private final HandlerThread thread;
+    private final Handler sampler;
+    // Replaced on each start, so rates cover running time only
+    private volatile WakeupMeter meter;
+
+    // Sampler thread
+    private SampleBatcher batcher;
+    private SendPolicy policy;
+    private boolean running;
+    private boolean visible;
+    private long liveUntil;
+    private long batchesAtStart;
+
+    public static synchronized WatchSampler get(Context context) {
+        if (instance == null) {
+            instance = new WatchSampler(context);
+        }
+        return instance;
+    }
+
+    private WatchSampler(Context context) {
+        this.context = context.getApplicationContext();
+        thread = new HandlerThread("sampler", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        sampler = new Handler(thread.getLooper());
+        sampler.post(() -> {
+            policy = new SendPolicy(SEND_HEART_RATE_DELTA, SEND_STEPS_DELTA,
+                    MAX_BATCH_SAMPLES, MAX_BATCH_DELAY_MS);
+            batcher = new SampleBatcher(
+                    Wearable.getMessageClient(this.context),
+                    Wearable.getNodeClient(this.context),
+                    Wearable.getDataClient(this.context),
+                    openJournal(), policy, Looper.myLooper());
+        });
+    }
+
+    // The first source chosen stays for the process
+    public void attach(Display display, Supplier<VitalsSource> sources) {
+        synchronized (this) {
+            if (source == null) {
+                source = sources.get();
+            }
+        }
+        this.display = display;
+    }
+
+    public void detach(Display display) {
+        if (this.display == display) {
+            this.display = null;
+        }
+    }
+
+    // The caller holds the sensor permissions
+    public void start() {
+        boolean visibleNow = interactive;
+        sampler.post(() -> {
+            if (running) {
+                return;
+            }
+            running = true;
+            meter = new WakeupMeter("sampler", "draw");
+            batchesAtStart = batcher.batchesSent();
+            visible = visibleNow;
+            source.start(this, sampler);
+            applyLive();
+        });
+    }
+
+    // Stops the source and sends what is buffered
+    public void stop() {
+        main.removeCallbacks(drawTask);
+        drawPending.set(false);
+        sampler.post(() -> {
+            if (!running) {
+                return;
+            }
+            running = false;
+            source.stop();
+            batcher.flush(false);
+            WakeupMeter m = meter;
+            Log.i(TAG, m + " send=" + String.format("%.1f", m.perHourOf(batcher.batchesSent() - batchesAtStart))
+                    + " " + policy);
+        });
+    }
+
+    // Ends sampling for the process; nothing calls this in normal running
+    public void release() {
+        synchronized (WatchSampler.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        stop();
+        sampler.post(() -> batcher.release());
+        thread.quitSafely();
+    }
+
+    // A bundle from PassiveVitalsService, which Health Services binds even
+    // when the platform started the process just to hand it over
+    void onPassiveData(DataPointContainer data) {
+        VitalsSource chosen;
+        synchronized (this) {
+            if (source == null) {
+                // Only the Health Services source registers the service
+                source = new HealthServicesVitalsSource(context);
+            }
+            chosen = source;
+        }
+        if (!(chosen instanceof HealthServicesVitalsSource)) {
+            return;
+        }
+        sampler.post(() -> ((HealthServicesVitalsSource) chosen).onPassiveData(data, this));
+    }
+
+    // False while ambient or in the background; nothing is drawn then
+    public void setInteractive(boolean interactive) {
+        if (this.interactive == interactive) {
+            return;
+        }
+        this.interactive = interactive;
+        if (interactive) {
+            draw();
+        }
+        sampler.post(() -> {
+            visible = interactive;
+            if (running) {
+                applyLive();
+            }
+        });
+    }
+
+    @Override
+    public void onSamples(SampleRingBuffer samples, boolean live) {
+        // Passive bundles keep coming while stopped; they are still journalled
+        if (running) {
+            meter.mark(WAKE_SAMPLER);
+        }
+        for (int i = 0; i < samples.size(); i++) {
+            int heartRate = samples.heartRateAt(i);
+            boolean alert = isAlertLevel(heartRate);
+            if (alert) {
+                liveUntil = Math.max(liveUntil, samples.timestampAt(i) + LIVE_AFTER_ALERT_MS);
+            }
+            batcher.add(samples.timestampAt(i), heartRate, samples.stepsAt(i), alert);
+        }
+        int last = samples.size() - 1;
+        latest = ((long) samples.heartRateAt(last) << 32) | (samples.stepsAt(last) & 0xFFFFFFFFL);
+        if (running) {
+            applyLive();
+        }
+
+        // One redraw per display interval, however many deliveries land in it
+        if (interactive && drawPending.compareAndSet(false, true)) {
+            long wait = lastDrawAt + DISPLAY_INTERVAL_MS - SystemClock.uptimeMillis();
+            main.postDelayed(drawTask, Math.max(0, wait));
+        }
+    }
+
+    @Override
+    public void onStatus(String status) {
+        main.post(() -> {
+            Display d = display;
+            if (d != null) {
+                d.showStatus(status);
+            }
+        });
+    }
+
+    private void applyLive() {
+        source.setLive(visible || System.currentTimeMillis() < liveUntil);
+    }
+
+    private void onDrawTask() {
+        drawPending.set(false);
+        if (interactive) {
+            draw();
+        }
+    }
+
+    private void draw() {
+        long reading = latest;
+        Display d = display;
+        if (reading == NO_READING || d == null) {
+            return;
+        }
+        lastDrawAt = SystemClock.uptimeMillis();
+        WakeupMeter m = meter;
+        if (m != null) {
+            m.mark(WAKE_DRAW);
+        }
+        int heartRate = (int) (reading >>> 32);
+        d.show(heartRate, (int) reading, isAlertLevel(heartRate));
+    }
+
+    // Recovery maps one segment and scans it, on the sampler thread
+    private SampleJournal openJournal() {
+        try {
+            return new SampleJournal(new File(context.getFilesDir(), "journal"),
+                    JOURNAL_SEGMENT_RECORDS, JOURNAL_MAX_SEGMENTS, System.currentTimeMillis() * 1000);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot open sample journal", e);
+            return null;
+        }
+    }
+
+    static boolean isAlertLevel(int heartRate) {
+        return heartRate > HIGH_HR_THRESHOLD || (heartRate > 0 && heartRate < LOW_HR_THRESHOLD);
+    }
+}